@@ -10,13 +10,18 @@
 package eneter.messaging.dataprocessing.serializing;
 
 import java.io.*;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
 import java.security.Key;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
 
 import javax.crypto.*;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
 import eneter.messaging.dataprocessing.serializing.internal.EncoderDecoder;
+import eneter.messaging.dataprocessing.serializing.internal.SerializationBuffer;
 import eneter.messaging.diagnostic.EneterTrace;
 import eneter.net.system.security.cryptography.internal.Rfc2898DeriveBytes;
 
@@ -24,6 +29,10 @@ import eneter.net.system.security.cryptography.internal.Rfc2898DeriveBytes;
  * Serializer using AES (Advanced Encryption Standard).
  * The serializer uses an underlying serializer to serialize and deserialize data.
  * Data encoded by the underlying serializer is then encrypted by AES.
+ * <br/><br/>
+ * By default the CBC mode is used which is compatible with Eneter for .NET.
+ * Optionally the GCM mode can be set which provides the authenticated encryption.
+ * The serializer reuses cipher instances for every thread so it does not look up the provider for every message.
  * 
  * <pre>
  * Encrypted serialization with XmlStringSerializer.
@@ -44,7 +53,7 @@ import eneter.net.system.security.cryptography.internal.Rfc2898DeriveBytes;
  * }
  * </pre>
  */
-public class AesSerializer implements ISerializer
+public class AesSerializer implements IByteBufferSerializer
 {
     /**
      * Constructs the serializer. It uses XmlStringSerializer as the underlying serializer.
@@ -117,6 +126,35 @@ public class AesSerializer implements ISerializer
         }
     }
 
+    /**
+     * Sets the GCM (Galois/Counter Mode) mode.
+     * 
+     * The default mode is CBC which is compatible with Eneter for .NET but it does not ensure
+     * the integrity of data. If the GCM mode is set the serializer uses authenticated encryption
+     * which encrypts data and ensures their integrity in one pass.
+     * Every message is then encrypted with its own random 96 bit nonce which is stored in front of encrypted data.
+     * Both sides must use the same mode.<br/>
+     * GCM requires a security provider supporting "AES/GCM/NoPadding". It is available since Java 7 and Android 4.4.
+     * Older platforms can use it only if such provider is installed (e.g. Bouncy Castle).
+     * 
+     * @param isGcmMode true if the GCM mode shall be used
+     * @return instance of this serializer
+     */
+    public AesSerializer setGcmMode(boolean isGcmMode)
+    {
+        myIsGcmMode = isGcmMode;
+        return this;
+    }
+    
+    /**
+     * Returns true if the GCM mode is used.
+     * @return true if GCM mode is used
+     */
+    public boolean isGcmMode()
+    {
+        return myIsGcmMode;
+    }
+
     @Override
     public <T> Object serialize(T dataToSerialize, Class<T> clazz)
             throws Exception
@@ -124,20 +162,68 @@ public class AesSerializer implements ISerializer
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            // Create stream where encrypted data will be stored.
-            ByteArrayOutputStream anEncryptedData = new ByteArrayOutputStream();
+            SerializationBuffer anEncryptedData = new SerializationBuffer();
+            serialize(dataToSerialize, clazz, anEncryptedData);
+            return anEncryptedData.detachByteArray();
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    @Override
+    public <T> void serialize(T dataToSerialize, Class<T> clazz, OutputStream output)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            // Serialize the data.
+            // Note: if the underlying serializer supports it then it serializes directly into the buffer.
+            SerializationBuffer anEncodedData = new SerializationBuffer();
+            myEncoderDecoder.encode(anEncodedData, myUnderlyingSerializer, dataToSerialize, clazz);
             
-            // Create stream encrypting data.
-            Cipher aCipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            aCipher.init(Cipher.ENCRYPT_MODE, myKey, myInitializeVector);
-            CipherOutputStream anEncryptor = new CipherOutputStream(anEncryptedData, aCipher);
-
-            // Serialize and encrypt the data.
-            Object aSerializedData = myUnderlyingSerializer.serialize(dataToSerialize, clazz);
-            myEncoderDecoder.encode(anEncryptor, aSerializedData);
-
-            anEncryptor.close();
-            return anEncryptedData.toByteArray();
+            // Encrypt the data.
+            if (myIsGcmMode)
+            {
+                byte[] aNonce = new byte[GCM_NONCE_LENGTH];
+                mySecureRandom.nextBytes(aNonce);
+                
+                Cipher aCipher = getGcmCipher(myGcmEncryptors);
+                byte[] anEncryptedData;
+                try
+                {
+                    // Note: the cipher must be initialized for every message because the nonce must not be reused.
+                    aCipher.init(Cipher.ENCRYPT_MODE, myKey, createGcmParameters(aNonce, 0, aNonce.length));
+                    anEncryptedData = aCipher.doFinal(anEncodedData.getInternalBuffer(), 0, anEncodedData.size());
+                }
+                catch (Exception err)
+                {
+                    myGcmEncryptors.remove();
+                    throw err;
+                }
+                
+                output.write(aNonce);
+                output.write(anEncryptedData);
+            }
+            else
+            {
+                Cipher aCipher = getCbcCipher(myCbcEncryptors, Cipher.ENCRYPT_MODE);
+                byte[] anEncryptedData;
+                try
+                {
+                    // Note: doFinal resets the cipher to the initialized state so it can be reused for the next message.
+                    anEncryptedData = aCipher.doFinal(anEncodedData.getInternalBuffer(), 0, anEncodedData.size());
+                }
+                catch (Exception err)
+                {
+                    myCbcEncryptors.remove();
+                    throw err;
+                }
+                
+                output.write(anEncryptedData);
+            }
         }
         finally
         {
@@ -152,19 +238,76 @@ public class AesSerializer implements ISerializer
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            byte[] anEncryptedData = (byte[])serializedData;
-
-            // Put encrypted data to the stream.
-            ByteArrayInputStream anEncryptedDataStream = new ByteArrayInputStream(anEncryptedData);
+            return deserialize(ByteBuffer.wrap((byte[])serializedData), clazz);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    @Override
+    public <T> T deserialize(ByteBuffer serializedData, Class<T> clazz)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            byte[] anEncryptedData;
+            int anOffset;
+            int aLength = serializedData.remaining();
+            if (serializedData.hasArray())
+            {
+                anEncryptedData = serializedData.array();
+                anOffset = serializedData.arrayOffset() + serializedData.position();
+            }
+            else
+            {
+                anEncryptedData = new byte[aLength];
+                serializedData.duplicate().get(anEncryptedData);
+                anOffset = 0;
+            }
             
-            // Create stream decrypting the data.
-            Cipher aCipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
-            aCipher.init(Cipher.DECRYPT_MODE, myKey, myInitializeVector);
-            CipherInputStream aDecryptor = new CipherInputStream(anEncryptedDataStream, aCipher);
+            byte[] aDecryptedData;
+            
+            // Decrypt the data.
+            if (myIsGcmMode)
+            {
+                if (aLength < GCM_NONCE_LENGTH)
+                {
+                    throw new IllegalStateException(TracedObject() + "failed to deserialize data because the nonce is missing.");
+                }
+                
+                Cipher aCipher = getGcmCipher(myGcmDecryptors);
+                try
+                {
+                    aCipher.init(Cipher.DECRYPT_MODE, myKey, createGcmParameters(anEncryptedData, anOffset, GCM_NONCE_LENGTH));
+                    
+                    // Note: if data was modified it throws AEADBadTagException.
+                    aDecryptedData = aCipher.doFinal(anEncryptedData, anOffset + GCM_NONCE_LENGTH, aLength - GCM_NONCE_LENGTH);
+                }
+                catch (Exception err)
+                {
+                    myGcmDecryptors.remove();
+                    throw err;
+                }
+            }
+            else
+            {
+                Cipher aCipher = getCbcCipher(myCbcDecryptors, Cipher.DECRYPT_MODE);
+                try
+                {
+                    aDecryptedData = aCipher.doFinal(anEncryptedData, anOffset, aLength);
+                }
+                catch (Exception err)
+                {
+                    myCbcDecryptors.remove();
+                    throw err;
+                }
+            }
 
-            // Deserialize the encrypted data.
-            Object aDecodedData = myEncoderDecoder.decode(aDecryptor);
-            T aDeserializedData = myUnderlyingSerializer.deserialize(aDecodedData, clazz);
+            // Deserialize the decrypted data.
+            T aDeserializedData = myEncoderDecoder.decode(ByteBuffer.wrap(aDecryptedData), myUnderlyingSerializer, clazz);
             return aDeserializedData;
         }
         finally
@@ -173,10 +316,85 @@ public class AesSerializer implements ISerializer
         }
     }
     
+    private Cipher getCbcCipher(ThreadLocal<Cipher> ciphers, int mode) throws Exception
+    {
+        // Note: Cipher is not thread safe but creating it for every message is expensive.
+        //       Therefore every thread has its own instance.
+        Cipher aCipher = ciphers.get();
+        if (aCipher == null)
+        {
+            // CBC uses always the same initialization vector so the cipher is initialized just once.
+            aCipher = Cipher.getInstance(CBC_TRANSFORMATION);
+            aCipher.init(mode, myKey, myInitializeVector);
+            ciphers.set(aCipher);
+        }
+        
+        return aCipher;
+    }
+    
+    private Cipher getGcmCipher(ThreadLocal<Cipher> ciphers) throws Exception
+    {
+        // Note: GCM cipher must be initialized with a new nonce for every message.
+        Cipher aCipher = ciphers.get();
+        if (aCipher == null)
+        {
+            aCipher = Cipher.getInstance(GCM_TRANSFORMATION);
+            ciphers.set(aCipher);
+        }
+        
+        return aCipher;
+    }
+    
+    private static AlgorithmParameterSpec createGcmParameters(byte[] nonce, int offset, int length) throws Exception
+    {
+        if (myGcmParameterSpecConstructor != null)
+        {
+            return (AlgorithmParameterSpec)myGcmParameterSpecConstructor.newInstance(GCM_TAG_LENGTH, nonce, offset, length);
+        }
+        
+        // Note: GCMParameterSpec is not available in Java 6 and Android before 4.4. Providers supporting GCM there
+        //       (e.g. Bouncy Castle) take the nonce as IvParameterSpec and use the 128 bit tag.
+        return new IvParameterSpec(nonce, offset, length);
+    }
+    
+    private static Constructor<?> getGcmParameterSpecConstructor()
+    {
+        try
+        {
+            Class<?> aGcmParameterSpecClass = Class.forName("javax.crypto.spec.GCMParameterSpec");
+            return aGcmParameterSpecClass.getConstructor(int.class, byte[].class, int.class, int.class);
+        }
+        catch (Exception err)
+        {
+            return null;
+        }
+    }
+    
+    private String TracedObject()
+    {
+        return getClass().getSimpleName() + " ";
+    }
+    
 
     private ISerializer myUnderlyingSerializer;
     private EncoderDecoder myEncoderDecoder = new EncoderDecoder();
     
     private Key myKey;
     private IvParameterSpec myInitializeVector;
+    
+    private boolean myIsGcmMode;
+    private SecureRandom mySecureRandom = new SecureRandom();
+    
+    private ThreadLocal<Cipher> myCbcEncryptors = new ThreadLocal<Cipher>();
+    private ThreadLocal<Cipher> myCbcDecryptors = new ThreadLocal<Cipher>();
+    private ThreadLocal<Cipher> myGcmEncryptors = new ThreadLocal<Cipher>();
+    private ThreadLocal<Cipher> myGcmDecryptors = new ThreadLocal<Cipher>();
+    
+    private static final String CBC_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int GCM_NONCE_LENGTH = 12;
+    private static final int GCM_TAG_LENGTH = 128;
+    
+    // Note: GCMParameterSpec is loaded dynamically so that the serializer can be used on Java 6 and older Android.
+    private static final Constructor<?> myGcmParameterSpecConstructor = getGcmParameterSpecConstructor();
 }
@@ -0,0 +1,278 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ *
+ * Copyright  2018 Ondrej Uzovic
+ *
+ */
+
+package eneter.messaging.dataprocessing.serializing;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+import eneter.messaging.dataprocessing.serializing.internal.EncoderDecoder;
+import eneter.messaging.dataprocessing.serializing.internal.SerializationBuffer;
+import eneter.messaging.diagnostic.EneterTrace;
+
+/**
+ * Serializer compressing and decompressing data with a pluggable compression codec.
+ *
+ * The serializer uses the underlying serializer to serialize data and then it compresses them
+ * with the given codec. The id of the codec is stored in front of compressed data.
+ * When deserializing the serializer reads the codec id and uses the registered codec with the same id.
+ * Therefore the receiver can decode messages from senders using different codecs.
+ * Codecs GZipCompressionCodec and Lz4CompressionCodec (without the dictionary) are registered by default.
+ * <br/><br/>
+ * If compressed data is not smaller than the original data the data is stored uncompressed.
+ * <br/><br/>
+ * This serializer is not compatible with GZipSerializer.
+ * <pre>
+ * Example shows how to use the fast LZ4 compression.
+ * <br/>
+ * {@code
+ * // Create the serializer.
+ * ISerializer aSerializer = new CompressingSerializer(new XmlStringSerializer(), new Lz4CompressionCodec());
+ *
+ * // Create some data to be serialized.
+ * MyData aData = new MyData();
+ * ...
+ *
+ * // Serialize data. Serialized data will be compressed.
+ * object aSerializedData = aSerializer.serialize(aData, MyData.class);
+ * ...
+ *
+ * // Deserialize data
+ * MyData aDeserialized = aSerializer.deserialize(aSerializedData, MyData.class);
+ * }
+ * </pre>
+ *
+ */
+public class CompressingSerializer implements IByteBufferSerializer
+{
+    /**
+     * Constructs the serializer with XmlStringSerializer and Lz4CompressionCodec.
+     */
+    public CompressingSerializer()
+    {
+        this(new XmlStringSerializer());
+    }
+
+    /**
+     * Constructs the serializer with the given underlying serializer and Lz4CompressionCodec.
+     *
+     * @param underlyingSerializer underlying serializer used to serialize data before the compression
+     */
+    public CompressingSerializer(ISerializer underlyingSerializer)
+    {
+        this(underlyingSerializer, new Lz4CompressionCodec());
+    }
+
+    /**
+     * Constructs the serializer with the given underlying serializer and the compression codec.
+     *
+     * @param underlyingSerializer underlying serializer used to serialize data before the compression
+     * @param compressionCodec codec used to compress serialized data. The codec is also registered for the decompression.
+     */
+    public CompressingSerializer(ISerializer underlyingSerializer, ICompressionCodec compressionCodec)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (underlyingSerializer == null)
+            {
+                throw new IllegalArgumentException("The input parameter underlyingSerializer is null.");
+            }
+            if (compressionCodec == null)
+            {
+                throw new IllegalArgumentException("The input parameter compressionCodec is null.");
+            }
+
+            myUnderlyingSerializer = underlyingSerializer;
+
+            registerCodec(new GZipCompressionCodec());
+            registerCodec(new Lz4CompressionCodec());
+            registerCodec(compressionCodec);
+            myCompressionCodec = compressionCodec;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    /**
+     * Registers the codec which shall be used to decompress data with its codec id.
+     *
+     * If a codec with the same id is already registered it is replaced.
+     * Registering codecs shall be done before the serializer is used.
+     *
+     * @param codec codec which shall be used for the decompression
+     * @return instance of this serializer
+     */
+    public CompressingSerializer registerCodec(ICompressionCodec codec)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (codec == null)
+            {
+                throw new IllegalArgumentException("The input parameter codec is null.");
+            }
+            if (codec.getCodecId() == NO_COMPRESSION_ID)
+            {
+                throw new IllegalArgumentException("The codec id " + NO_COMPRESSION_ID + " is reserved for uncompressed data.");
+            }
+
+            myCodecs[codec.getCodecId() & 0xFF] = codec;
+            return this;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    /**
+     * Serializes data with the underlying serializer and compresses it.
+     */
+    @Override
+    public <T> Object serialize(T dataToSerialize, Class<T> clazz)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            SerializationBuffer aResult = new SerializationBuffer();
+            serialize(dataToSerialize, clazz, aResult);
+            return aResult.detachByteArray();
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    /**
+     * Serializes data with the underlying serializer, compresses it and writes it to the given output.
+     */
+    @Override
+    public <T> void serialize(T dataToSerialize, Class<T> clazz, OutputStream output)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            // Use underlying serializer to serialize data.
+            // Note: if the underlying serializer supports it then it serializes directly into the buffer.
+            SerializationBuffer anEncodedData = new SerializationBuffer();
+            myEncoderDecoder.encode(anEncodedData, myUnderlyingSerializer, dataToSerialize, clazz);
+
+            byte aCodecId = myCompressionCodec.getCodecId();
+            byte[] aCompressedBytes = myCompressionCodec.compress(anEncodedData.getInternalBuffer(), 0, anEncodedData.size());
+
+            // If the compression does not help then store data uncompressed.
+            if (aCompressedBytes.length >= anEncodedData.size())
+            {
+                output.write(NO_COMPRESSION_ID);
+                output.write(anEncodedData.getInternalBuffer(), 0, anEncodedData.size());
+            }
+            else
+            {
+                output.write(aCodecId);
+                output.write(aCompressedBytes);
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    /**
+     * Decompresses data with the codec specified in data and deserializes it with the underlying serializer.
+     */
+    @Override
+    public <T> T deserialize(Object serializedData, Class<T> clazz)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            return deserialize(ByteBuffer.wrap((byte[])serializedData), clazz);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    /**
+     * Decompresses data from the buffer with the codec specified in data and deserializes it with the underlying serializer.
+     */
+    @Override
+    public <T> T deserialize(ByteBuffer serializedData, Class<T> clazz)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (!serializedData.hasRemaining())
+            {
+                throw new IllegalStateException(TracedObject() + "failed to deserialize data because data is empty.");
+            }
+
+            byte aCodecId = serializedData.get();
+
+            ByteBuffer anEncodedData;
+            if (aCodecId == NO_COMPRESSION_ID)
+            {
+                anEncodedData = serializedData;
+            }
+            else
+            {
+                ICompressionCodec aCodec = myCodecs[aCodecId & 0xFF];
+                if (aCodec == null)
+                {
+                    throw new IllegalStateException(TracedObject() + "failed to deserialize data because the codec with id " + aCodecId + " is not registered.");
+                }
+
+                byte[] aCompressedData;
+                int anOffset;
+                if (serializedData.hasArray())
+                {
+                    aCompressedData = serializedData.array();
+                    anOffset = serializedData.arrayOffset() + serializedData.position();
+                }
+                else
+                {
+                    aCompressedData = new byte[serializedData.remaining()];
+                    serializedData.duplicate().get(aCompressedData);
+                    anOffset = 0;
+                }
+
+                anEncodedData = ByteBuffer.wrap(aCodec.decompress(aCompressedData, anOffset, serializedData.remaining()));
+            }
+
+            T aDeserializedData = myEncoderDecoder.decode(anEncodedData, myUnderlyingSerializer, clazz);
+            return aDeserializedData;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+
+    private static final byte NO_COMPRESSION_ID = 0;
+
+    private ISerializer myUnderlyingSerializer;
+    private ICompressionCodec myCompressionCodec;
+    private ICompressionCodec[] myCodecs = new ICompressionCodec[256];
+    private EncoderDecoder myEncoderDecoder = new EncoderDecoder();
+
+    private String TracedObject()
+    {
+        return getClass().getSimpleName() + " ";
+    }
+}
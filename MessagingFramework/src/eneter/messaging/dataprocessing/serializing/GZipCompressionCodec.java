@@ -0,0 +1,78 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ *
+ * Copyright  2018 Ondrej Uzovic
+ *
+ */
+
+package eneter.messaging.dataprocessing.serializing;
+
+import java.io.*;
+import java.util.zip.*;
+
+import eneter.messaging.diagnostic.EneterTrace;
+
+/**
+ * Compression codec using GZip.
+ *
+ * It provides a good compression ratio but it is relatively expensive for the CPU.
+ * If the CPU time matters more than the size of messages use Lz4CompressionCodec.
+ *
+ */
+public class GZipCompressionCodec implements ICompressionCodec
+{
+    /**
+     * Id of the GZip codec.
+     */
+    public static final byte CODEC_ID = 1;
+
+    @Override
+    public byte getCodecId()
+    {
+        return CODEC_ID;
+    }
+
+    @Override
+    public byte[] compress(byte[] data, int offset, int length) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            ByteArrayOutputStream aCompressedData = new ByteArrayOutputStream();
+            GZIPOutputStream aGzipOutputStream = new GZIPOutputStream(aCompressedData);
+            aGzipOutputStream.write(data, offset, length);
+            aGzipOutputStream.finish();
+
+            return aCompressedData.toByteArray();
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] compressedData, int offset, int length) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            GZIPInputStream aGzipStream = new GZIPInputStream(new ByteArrayInputStream(compressedData, offset, length));
+
+            ByteArrayOutputStream aDecompressedData = new ByteArrayOutputStream();
+            byte[] aBuffer = new byte[32000];
+            int aSize;
+            while ((aSize = aGzipStream.read(aBuffer)) > 0)
+            {
+                aDecompressedData.write(aBuffer, 0, aSize);
+            }
+
+            return aDecompressedData.toByteArray();
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+}
@@ -9,9 +9,12 @@
 package eneter.messaging.dataprocessing.serializing;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.zip.*;
 
+import eneter.messaging.dataprocessing.serializing.internal.ByteBufferInputStream;
 import eneter.messaging.dataprocessing.serializing.internal.EncoderDecoder;
+import eneter.messaging.dataprocessing.serializing.internal.SerializationBuffer;
 import eneter.messaging.diagnostic.EneterTrace;
 
 /**
@@ -38,7 +41,7 @@ import eneter.messaging.diagnostic.EneterTrace;
  * </pre>
  *
  */
-public class GZipSerializer implements ISerializer
+public class GZipSerializer implements IByteBufferSerializer
 {
     /**
      * Constructs the serializer with XmlStringSerializer as the underlying serializer.
@@ -80,15 +83,32 @@ public class GZipSerializer implements ISerializer
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            ByteArrayOutputStream aCompressedData = new ByteArrayOutputStream();
-            GZIPOutputStream aGzipOutputStream = new GZIPOutputStream(aCompressedData);
+            SerializationBuffer aCompressedData = new SerializationBuffer();
+            serialize(dataToSerialize, clazz, aCompressedData);
+            return aCompressedData.detachByteArray();
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    /**
+     * Serializes the given data with using the compression directly into the given output.
+     */
+    @Override
+    public <T> void serialize(T dataToSerialize, Class<T> clazz, OutputStream output)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            GZIPOutputStream aGzipOutputStream = new GZIPOutputStream(output);
             
             // Use underlying serializer to serialize data.
-            Object aSerializedData = myUnderlyingSerializer.serialize(dataToSerialize, clazz);
-            myEncoderDecoder.encode(aGzipOutputStream, aSerializedData);
+            myEncoderDecoder.encode(aGzipOutputStream, myUnderlyingSerializer, dataToSerialize, clazz);
             
             aGzipOutputStream.finish();
-            return aCompressedData.toByteArray();
         }
         finally
         {
@@ -106,13 +126,26 @@ public class GZipSerializer implements ISerializer
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            byte[] aCompressedData = (byte[])serializedData;
-
-            // Put compressed data to the stream.
-            ByteArrayInputStream aCompressedStream = new ByteArrayInputStream(aCompressedData);
-            
+            return deserialize(ByteBuffer.wrap((byte[])serializedData), clazz);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    /**
+     * Deserializes compressed data from the buffer into the specified type.
+     */
+    @Override
+    public <T> T deserialize(ByteBuffer serializedData, Class<T> clazz)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
             // Create the GZipStream to decompress data.
-            GZIPInputStream aGzipStream = new GZIPInputStream(aCompressedStream);
+            GZIPInputStream aGzipStream = new GZIPInputStream(new ByteBufferInputStream(serializedData));
 
             Object aDecodedData = myEncoderDecoder.decode(aGzipStream);
             T aDeserializedData = myUnderlyingSerializer.deserialize(aDecodedData, clazz);
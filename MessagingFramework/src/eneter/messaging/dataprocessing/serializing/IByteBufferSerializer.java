@@ -0,0 +1,50 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.dataprocessing.serializing;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Declares the serializer which can serialize data directly into a given output and deserialize data directly from a buffer.
+ * 
+ * The serializer always serializes data into byte[].
+ * Components of the framework (e.g. DuplexTypedMessageSender or CompressingSerializer) check if the serializer
+ * implements this interface and if yes they let it write serialized data directly into their buffers
+ * instead of copying byte[] returned from serialize(...).
+ * It also allows to deserialize data which is a part of a bigger message without copying it.
+ *
+ */
+public interface IByteBufferSerializer extends ISerializer
+{
+    /**
+     * Serializes data into the given output.
+     * 
+     * Written bytes are same as bytes returned from serialize(dataToSerialize, clazz).
+     * The output is not closed by the serializer.
+     * 
+     * @param dataToSerialize Data to be serialized.
+     * @param clazz represents the serialized type.
+     * @param output output where serialized data shall be written.
+     * @throws Exception If the serialization fails.
+     */
+    <T> void serialize(T dataToSerialize, Class<T> clazz, OutputStream output) throws Exception;
+    
+    /**
+     * Deserializes data from the buffer.
+     * 
+     * Serialized data are bytes from the current position to the limit of the buffer.
+     * 
+     * @param serializedData buffer containing serialized data.
+     * @param clazz represents the deserialized type.
+     * @return Deserialized object.
+     * @throws Exception If the deserialization fails.
+     */
+    <T> T deserialize(ByteBuffer serializedData, Class<T> clazz) throws Exception;
+}
@@ -0,0 +1,54 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ *
+ * Copyright  2018 Ondrej Uzovic
+ *
+ */
+
+package eneter.messaging.dataprocessing.serializing;
+
+/**
+ * Declares the compression algorithm used by CompressingSerializer.
+ *
+ * The codec id is written in front of every compressed message so that the receiving
+ * CompressingSerializer can find the codec which shall decompress it.
+ * Therefore the receiving side can decode messages compressed by different codecs.
+ * <br/><br/>
+ * The implementation must be thread safe because the serializer can be used from more threads.
+ *
+ */
+public interface ICompressionCodec
+{
+    /**
+     * Returns the id identifying the codec.
+     *
+     * The value 0 is reserved for uncompressed data.
+     * Values 1 - 15 are reserved for codecs provided by the framework.
+     *
+     * @return codec id
+     */
+    byte getCodecId();
+
+    /**
+     * Compresses data.
+     *
+     * @param data array containing data to be compressed
+     * @param offset index of the first byte to be compressed
+     * @param length number of bytes to be compressed
+     * @return compressed data
+     * @throws Exception if the compression fails.
+     */
+    byte[] compress(byte[] data, int offset, int length) throws Exception;
+
+    /**
+     * Decompresses data.
+     *
+     * @param compressedData array containing data compressed by this codec
+     * @param offset index of the first compressed byte
+     * @param length number of compressed bytes
+     * @return decompressed data
+     * @throws Exception if the decompression fails.
+     */
+    byte[] decompress(byte[] compressedData, int offset, int length) throws Exception;
+}
@@ -9,7 +9,10 @@
 package eneter.messaging.dataprocessing.serializing;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
+import eneter.messaging.dataprocessing.serializing.internal.ByteBufferInputStream;
+import eneter.messaging.dataprocessing.serializing.internal.SerializationBuffer;
 import eneter.messaging.diagnostic.EneterTrace;
 
 
@@ -50,7 +53,7 @@ import eneter.messaging.diagnostic.EneterTrace;
  * </pre>
  *
  */
-public class JavaBinarySerializer implements ISerializer
+public class JavaBinarySerializer implements IByteBufferSerializer
 {
 
     /**
@@ -63,12 +66,31 @@ public class JavaBinarySerializer implements ISerializer
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            ByteArrayOutputStream aSerializedData = new ByteArrayOutputStream();
-            ObjectOutputStream aWriter = new ObjectOutputStream(aSerializedData);
-            aWriter.writeObject(dataToSerialize);
+            SerializationBuffer aSerializedData = new SerializationBuffer();
+            serialize(dataToSerialize, clazz, aSerializedData);
             
             return aSerializedData.toByteArray();
         }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    /**
+     * Serializes data with using ObjectOutputStream directly into the given output.
+     */
+    @Override
+    public <T> void serialize(T dataToSerialize, Class<T> clazz, OutputStream output)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            ObjectOutputStream aWriter = new ObjectOutputStream(output);
+            aWriter.writeObject(dataToSerialize);
+            aWriter.flush();
+        }
         catch (Exception err)
         {
             EneterTrace.error(TracedObject() + "failed to serialize object.", err);
@@ -83,7 +105,6 @@ public class JavaBinarySerializer implements ISerializer
     /**
      * Deserializes data with using ObjectInputStream.
      */
-    @SuppressWarnings("unchecked")
     @Override
     public <T> T deserialize(Object serializedData, Class<T> clazz)
             throws Exception
@@ -91,8 +112,26 @@ public class JavaBinarySerializer implements ISerializer
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            ByteArrayInputStream aSerializedData = new ByteArrayInputStream((byte[]) serializedData);
-            ObjectInputStream aReader = new ObjectInputStream(aSerializedData);
+            return deserialize(ByteBuffer.wrap((byte[]) serializedData), clazz);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    /**
+     * Deserializes data from the buffer with using ObjectInputStream.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T deserialize(ByteBuffer serializedData, Class<T> clazz)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            ObjectInputStream aReader = new ObjectInputStream(new ByteBufferInputStream(serializedData));
             Object aResult = aReader.readObject();
             return (T)aResult;
         }
@@ -0,0 +1,440 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ *
+ * Copyright  2018 Ondrej Uzovic
+ *
+ */
+
+package eneter.messaging.dataprocessing.serializing;
+
+import eneter.messaging.diagnostic.EneterTrace;
+
+/**
+ * Fast compression codec using the LZ4 block algorithm.
+ *
+ * The codec is implemented in pure Java. It compresses less than GZip but it is many times faster
+ * and therefore suitable for fast local networks where the CPU time matters more than the bandwidth.
+ * <br/><br/>
+ * The codec can use a dictionary. The dictionary is a sample of typical data e.g. a serialized typical message.
+ * The compression then can refer to sequences from the dictionary which improves the compression of
+ * small repetitive messages. Both sides must use the same dictionary and the same codec id.
+ * <br/><br/>
+ * The compressed data consists of the length of decompressed data followed by the LZ4 block.
+ * <pre>
+ * Example shows how to use the dictionary for small messages.
+ * <br/>
+ * {@code
+ * // Serialize a typical message which will be used as the dictionary.
+ * XmlStringSerializer anXmlSerializer = new XmlStringSerializer();
+ * String aSample = (String)anXmlSerializer.serialize(new MyMessage(), MyMessage.class);
+ * byte[] aDictionary = aSample.getBytes("UTF-16BE");
+ *
+ * // Note: both sides must use the same dictionary.
+ * ICompressionCodec aCodec = new Lz4CompressionCodec((byte)16, aDictionary);
+ * ISerializer aSerializer = new CompressingSerializer(anXmlSerializer, aCodec);
+ * }
+ * </pre>
+ *
+ */
+public class Lz4CompressionCodec implements ICompressionCodec
+{
+    /**
+     * Id of the LZ4 codec without the dictionary.
+     */
+    public static final byte CODEC_ID = 2;
+
+    /**
+     * Constructs the codec without the dictionary.
+     */
+    public Lz4CompressionCodec()
+    {
+        this(CODEC_ID, null);
+    }
+
+    /**
+     * Constructs the codec with the dictionary.
+     *
+     * If the dictionary is longer than 64KB only its last 64KB are used.
+     *
+     * @param codecId id of the codec. Different dictionaries shall use different ids. It is recommended to use values greater than 15.
+     * @param dictionary sample data which shall be used for the compression. It can be null.
+     */
+    public Lz4CompressionCodec(byte codecId, byte[] dictionary)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (codecId == 0)
+            {
+                throw new IllegalArgumentException("The codec id 0 is reserved for uncompressed data.");
+            }
+
+            myCodecId = codecId;
+
+            if (dictionary != null && dictionary.length > 0)
+            {
+                int aDictionaryLength = Math.min(dictionary.length, MAX_DISTANCE);
+                myDictionary = new byte[aDictionaryLength];
+                System.arraycopy(dictionary, dictionary.length - aDictionaryLength, myDictionary, 0, aDictionaryLength);
+            }
+            else
+            {
+                myDictionary = new byte[0];
+            }
+
+            // Note: the dictionary does not change so its positions are hashed only once
+            //       and every compression starts with a copy of this table.
+            myDictionaryHashTable = new int[1 << HASH_LOG];
+            for (int i = 0; i < myDictionaryHashTable.length; ++i)
+            {
+                myDictionaryHashTable[i] = -1;
+            }
+            for (int i = 0; i + MIN_MATCH <= myDictionary.length; ++i)
+            {
+                myDictionaryHashTable[hash(readInt(myDictionary, i))] = i;
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    @Override
+    public byte getCodecId()
+    {
+        return myCodecId;
+    }
+
+    @Override
+    public byte[] compress(byte[] data, int offset, int length) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            // Positions are counted as if the dictionary was placed in front of data so that the compression can refer it.
+            // Note: the dictionary is not copied. Positions lower than the dictionary length are read from the dictionary.
+            int aStart = myDictionary.length;
+            int anEnd = aStart + length;
+            int aDataOffset = offset - aStart;
+
+            // Worst case: incompressible data + length of the data.
+            byte[] aDst = new byte[5 + length + length / 255 + 16];
+            int anOutputIdx = writeVarInt(aDst, 0, length);
+
+            int[] aHashTable = myDictionaryHashTable.clone();
+
+            int anAnchor = aStart;
+            if (length > MF_LIMIT)
+            {
+                int aMatchLimit = anEnd - LAST_LITERALS;
+                int aSearchLimit = anEnd - MF_LIMIT;
+                int i = aStart;
+                while (i < aSearchLimit)
+                {
+                    int aSequence = readInt(data, aDataOffset + i);
+                    int aHash = hash(aSequence);
+                    int aRef = aHashTable[aHash];
+                    aHashTable[aHash] = i;
+
+                    if (aRef < 0 || i - aRef > MAX_DISTANCE || readInt(data, aDataOffset, aRef) != aSequence)
+                    {
+                        // Skip faster through data which does not compress.
+                        i += 1 + ((i - anAnchor) >>> SKIP_STRENGTH);
+                        continue;
+                    }
+
+                    // Extend the match backwards.
+                    while (i > anAnchor && aRef > 0 && data[aDataOffset + i - 1] == readByte(data, aDataOffset, aRef - 1))
+                    {
+                        --i;
+                        --aRef;
+                    }
+
+                    // Extend the match forwards.
+                    int aMatchLength = MIN_MATCH;
+                    while (i + aMatchLength < aMatchLimit && readByte(data, aDataOffset, aRef + aMatchLength) == data[aDataOffset + i + aMatchLength])
+                    {
+                        ++aMatchLength;
+                    }
+
+                    anOutputIdx = writeSequence(data, aDataOffset + anAnchor, i - anAnchor, i - aRef, aMatchLength, aDst, anOutputIdx);
+
+                    i += aMatchLength;
+                    anAnchor = i;
+
+                    if (i < aSearchLimit)
+                    {
+                        aHashTable[hash(readInt(data, aDataOffset, i - 2))] = i - 2;
+                    }
+                }
+            }
+
+            // The last sequence contains only literals.
+            anOutputIdx = writeSequence(data, aDataOffset + anAnchor, anEnd - anAnchor, 0, 0, aDst, anOutputIdx);
+
+            byte[] aResult = new byte[anOutputIdx];
+            System.arraycopy(aDst, 0, aResult, 0, anOutputIdx);
+            return aResult;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] compressedData, int offset, int length) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            int anEndIdx = offset + length;
+            int[] aPosition = { offset };
+            int aDecompressedLength = readVarInt(compressedData, aPosition, anEndIdx);
+            int anInputIdx = aPosition[0];
+
+            // Note: the length is read from incoming data so it must be checked before the buffer is allocated.
+            //       One byte of the LZ4 block cannot produce more than 255 bytes of decompressed data.
+            if (aDecompressedLength < 0 || aDecompressedLength > (long)(anEndIdx - anInputIdx) * MAX_COMPRESSION_RATIO + MF_LIMIT)
+            {
+                throw new IllegalStateException(TracedObject() + "failed to decompress data because of incorrect data length.");
+            }
+
+            // Note: the dictionary is not copied in front of decompressed data.
+            //       Matches reaching before the beginning of decompressed data are read from the dictionary.
+            byte[] aDst = new byte[aDecompressedLength];
+            int anOutputIdx = 0;
+
+            try
+            {
+                while (anInputIdx < anEndIdx)
+                {
+                    int aToken = compressedData[anInputIdx++] & 0xFF;
+
+                    // Literals.
+                    int aLiteralLength = aToken >>> 4;
+                    if (aLiteralLength == 15)
+                    {
+                        int aByte;
+                        do
+                        {
+                            aByte = compressedData[anInputIdx++] & 0xFF;
+                            aLiteralLength += aByte;
+                        }
+                        while (aByte == 255);
+                    }
+                    if (anInputIdx + aLiteralLength > anEndIdx)
+                    {
+                        throw new IllegalStateException(TracedObject() + "failed to decompress data because of incorrect data format.");
+                    }
+                    System.arraycopy(compressedData, anInputIdx, aDst, anOutputIdx, aLiteralLength);
+                    anInputIdx += aLiteralLength;
+                    anOutputIdx += aLiteralLength;
+
+                    // If it was the last sequence.
+                    if (anInputIdx >= anEndIdx)
+                    {
+                        break;
+                    }
+
+                    // Match.
+                    int anOffset = (compressedData[anInputIdx] & 0xFF) | ((compressedData[anInputIdx + 1] & 0xFF) << 8);
+                    anInputIdx += 2;
+
+                    int aMatchLength = aToken & 0x0F;
+                    if (aMatchLength == 15)
+                    {
+                        int aByte;
+                        do
+                        {
+                            aByte = compressedData[anInputIdx++] & 0xFF;
+                            aMatchLength += aByte;
+                        }
+                        while (aByte == 255);
+                    }
+                    aMatchLength += MIN_MATCH;
+
+                    int aRef = anOutputIdx - anOffset;
+                    if (anOffset == 0 || aRef < -myDictionary.length)
+                    {
+                        throw new IllegalStateException(TracedObject() + "failed to decompress data because of incorrect data format.");
+                    }
+
+                    if (aRef < 0)
+                    {
+                        // The beginning of the match is in the dictionary.
+                        int aDictionaryMatchLength = Math.min(-aRef, aMatchLength);
+                        System.arraycopy(myDictionary, myDictionary.length + aRef, aDst, anOutputIdx, aDictionaryMatchLength);
+                        anOutputIdx += aDictionaryMatchLength;
+                        aMatchLength -= aDictionaryMatchLength;
+                        aRef = 0;
+                    }
+
+                    if (anOffset >= aMatchLength)
+                    {
+                        System.arraycopy(aDst, aRef, aDst, anOutputIdx, aMatchLength);
+                        anOutputIdx += aMatchLength;
+                    }
+                    else
+                    {
+                        // Overlapping match - the sequence repeats itself.
+                        for (int i = 0; i < aMatchLength; ++i)
+                        {
+                            aDst[anOutputIdx++] = aDst[aRef + i];
+                        }
+                    }
+                }
+            }
+            catch (IndexOutOfBoundsException err)
+            {
+                throw new IllegalStateException(TracedObject() + "failed to decompress data because of incorrect data format.", err);
+            }
+
+            if (anOutputIdx != aDst.length)
+            {
+                throw new IllegalStateException(TracedObject() + "failed to decompress data because of incorrect data length.");
+            }
+
+            return aDst;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    private static int writeSequence(byte[] src, int literalIdx, int literalLength, int offset, int matchLength, byte[] dst, int dstIdx)
+    {
+        int aTokenIdx = dstIdx++;
+
+        int aToken;
+        if (literalLength >= 15)
+        {
+            aToken = 15 << 4;
+            dstIdx = writeLength(dst, dstIdx, literalLength - 15);
+        }
+        else
+        {
+            aToken = literalLength << 4;
+        }
+
+        System.arraycopy(src, literalIdx, dst, dstIdx, literalLength);
+        dstIdx += literalLength;
+
+        if (matchLength > 0)
+        {
+            dst[dstIdx++] = (byte)offset;
+            dst[dstIdx++] = (byte)(offset >>> 8);
+
+            int aMatchLength = matchLength - MIN_MATCH;
+            if (aMatchLength >= 15)
+            {
+                aToken |= 15;
+                dstIdx = writeLength(dst, dstIdx, aMatchLength - 15);
+            }
+            else
+            {
+                aToken |= aMatchLength;
+            }
+        }
+
+        dst[aTokenIdx] = (byte)aToken;
+        return dstIdx;
+    }
+
+    private static int writeLength(byte[] dst, int dstIdx, int length)
+    {
+        while (length >= 255)
+        {
+            dst[dstIdx++] = (byte)255;
+            length -= 255;
+        }
+        dst[dstIdx++] = (byte)length;
+        return dstIdx;
+    }
+
+    private static int writeVarInt(byte[] dst, int dstIdx, int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            dst[dstIdx++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        dst[dstIdx++] = (byte)value;
+        return dstIdx;
+    }
+
+    private int readVarInt(byte[] src, int[] position, int endIdx)
+    {
+        int aResult = 0;
+        for (int aShift = 0; aShift < 32; aShift += 7)
+        {
+            if (position[0] >= endIdx)
+            {
+                break;
+            }
+
+            int aByte = src[position[0]++] & 0xFF;
+            aResult |= (aByte & 0x7F) << aShift;
+            if ((aByte & 0x80) == 0)
+            {
+                return aResult;
+            }
+        }
+
+        throw new IllegalStateException(TracedObject() + "failed to decompress data because of incorrect data length.");
+    }
+
+    // Reads the byte from the position where positions lower than the dictionary length belong to the dictionary.
+    private byte readByte(byte[] data, int dataOffset, int position)
+    {
+        return (position < myDictionary.length) ? myDictionary[position] : data[dataOffset + position];
+    }
+
+    // Reads 4 bytes from the position where positions lower than the dictionary length belong to the dictionary.
+    private int readInt(byte[] data, int dataOffset, int position)
+    {
+        if (position >= myDictionary.length)
+        {
+            return readInt(data, dataOffset + position);
+        }
+        if (position + 4 <= myDictionary.length)
+        {
+            return readInt(myDictionary, position);
+        }
+
+        // The sequence starts in the dictionary and continues in data.
+        return (readByte(data, dataOffset, position) & 0xFF) | ((readByte(data, dataOffset, position + 1) & 0xFF) << 8) |
+               ((readByte(data, dataOffset, position + 2) & 0xFF) << 16) | ((readByte(data, dataOffset, position + 3) & 0xFF) << 24);
+    }
+
+    private static int readInt(byte[] src, int idx)
+    {
+        return (src[idx] & 0xFF) | ((src[idx + 1] & 0xFF) << 8) | ((src[idx + 2] & 0xFF) << 16) | ((src[idx + 3] & 0xFF) << 24);
+    }
+
+    private static int hash(int sequence)
+    {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_DISTANCE = 65535;
+    private static final int HASH_LOG = 12;
+    private static final int SKIP_STRENGTH = 6;
+    private static final int MAX_COMPRESSION_RATIO = 255;
+
+    private byte myCodecId;
+    private byte[] myDictionary;
+    private int[] myDictionaryHashTable;
+
+    private String TracedObject()
+    {
+        return getClass().getSimpleName() + " ";
+    }
+}
@@ -1,9 +1,12 @@
 package eneter.messaging.dataprocessing.serializing;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.security.*;
 import java.security.cert.*;
 import java.security.interfaces.RSAPrivateKey;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import eneter.messaging.dataprocessing.serializing.internal.EncoderDecoder;
 import eneter.messaging.diagnostic.EneterTrace;
@@ -27,6 +30,9 @@ import eneter.net.system.IFunction1;
  * <li>If the decrypted hash is same as calculated one the data is ok.</li>
  * <li>Data is deserialized by the underlying serializer and returned.</li>
  * </ol>
+ * The signature is calculated for every message. However the serializer reuses the signing engine for every thread.
+ * Optionally the deserializer can cache verified certificates of signers so that the certificate is not parsed
+ * and verified for every message. See setCertificateCacheTime(..).
  * <pre>
  * {@code
  * String aDataToSerialize = "Hello";
@@ -115,6 +121,40 @@ public class RsaDigitalSignatureSerializer implements ISerializer
         }
     }
 
+    /**
+     * Sets how long the deserializer trusts the signer certificate which passed the verification.
+     * 
+     * Parsing and verifying the certificate for every message is expensive. If the cache time is set the certificate which
+     * passed the verification is not verified again until the time elapses. It means the certificate verification
+     * method is not called for every message and e.g. the revocation of the certificate or blocking of the signer
+     * is detected only after the cache time.<br/>
+     * The default value is 0 which means the cache is not used and the certificate is verified for every message.
+     * 
+     * @param cacheTime time in milliseconds. If 0 the cache is not used.
+     * @return this serializer
+     */
+    public RsaDigitalSignatureSerializer setCertificateCacheTime(long cacheTime)
+    {
+        myCertificateCacheTime = cacheTime;
+        if (cacheTime <= 0)
+        {
+            synchronized (myVerifiedCertificates)
+            {
+                myVerifiedCertificates.clear();
+            }
+        }
+        return this;
+    }
+    
+    /**
+     * Returns how long the deserializer trusts the signer certificate which passed the verification.
+     * @return time in milliseconds. 0 if the cache is not used.
+     */
+    public long getCertificateCacheTime()
+    {
+        return myCertificateCacheTime;
+    }
+
     /**
      * Serializes data.
      */
@@ -140,13 +180,33 @@ public class RsaDigitalSignatureSerializer implements ISerializer
             aSignedData[0] = aSerializedDataStream.toByteArray();
             
             // Sign the message.
-            Signature aSigner = Signature.getInstance("SHA1withRSA");
-            aSigner.initSign(mySignerPrivateKey, new SecureRandom());
-            aSigner.update(aSignedData[0]);
-            aSignedData[2] = aSigner.sign();
+            // Note: Signature is not thread safe but creating it for every message is expensive.
+            //       Therefore every thread has its own instance. After sign() it is reset for the next message.
+            Signature aSigner = mySigners.get();
+            if (aSigner == null)
+            {
+                aSigner = Signature.getInstance("SHA1withRSA");
+                aSigner.initSign(mySignerPrivateKey, new SecureRandom());
+                mySigners.set(aSigner);
+            }
+            try
+            {
+                aSigner.update(aSignedData[0]);
+                aSignedData[2] = aSigner.sign();
+            }
+            catch (Exception err)
+            {
+                mySigners.remove();
+                throw err;
+            }
             
             // Store the public certificate.
-            aSignedData[1] = mySignerPublicCertificate.getEncoded();
+            // Note: the certificate does not change so it is encoded only once.
+            if (mySignerEncodedCertificate == null)
+            {
+                mySignerEncodedCertificate = mySignerPublicCertificate.getEncoded();
+            }
+            aSignedData[1] = mySignerEncodedCertificate;
             
             // Serialize everything with the underlying serializer.
             Object aSerializedSignedData = myUnderlyingSerializer.serialize(aSignedData, byte[][].class);
@@ -172,13 +232,7 @@ public class RsaDigitalSignatureSerializer implements ISerializer
             byte[][] aSignedData = myUnderlyingSerializer.deserialize(serializedData, byte[][].class);
             
             // Verify the public certificate coming with data.
-            CertificateFactory aCertificateFactory = CertificateFactory.getInstance("X.509");
-            ByteArrayInputStream aCertificateStream = new ByteArrayInputStream(aSignedData[1]);
-            X509Certificate aCertificate = (X509Certificate) aCertificateFactory.generateCertificate(aCertificateStream);
-            if (!myVerifySignerCertificate.invoke(aCertificate))
-            {
-                throw new IllegalStateException(TracedObject() + "failed to deserialize data because the verification of signer certificate failed.");
-            }
+            X509Certificate aCertificate = getVerifiedCertificate(aSignedData[1]);
 
             // Verify the signature.
             Signature aVerifier = Signature.getInstance("SHA1withRSA"); 
@@ -203,10 +257,75 @@ public class RsaDigitalSignatureSerializer implements ISerializer
     }
 
     
+    private X509Certificate getVerifiedCertificate(byte[] encodedCertificate) throws Exception
+    {
+        long aCacheTime = myCertificateCacheTime;
+        ByteBuffer aCacheKey = ByteBuffer.wrap(encodedCertificate);
+        long aCurrentTime = System.currentTimeMillis();
+        
+        if (aCacheTime > 0)
+        {
+            synchronized (myVerifiedCertificates)
+            {
+                VerifiedCertificate aVerifiedCertificate = myVerifiedCertificates.get(aCacheKey);
+                if (aVerifiedCertificate != null && aCurrentTime - aVerifiedCertificate.myVerificationTime < aCacheTime)
+                {
+                    return aVerifiedCertificate.myCertificate;
+                }
+            }
+        }
+        
+        CertificateFactory aCertificateFactory = CertificateFactory.getInstance("X.509");
+        ByteArrayInputStream aCertificateStream = new ByteArrayInputStream(encodedCertificate);
+        X509Certificate aCertificate = (X509Certificate) aCertificateFactory.generateCertificate(aCertificateStream);
+        if (!myVerifySignerCertificate.invoke(aCertificate))
+        {
+            throw new IllegalStateException(TracedObject() + "failed to deserialize data because the verification of signer certificate failed.");
+        }
+        
+        if (aCacheTime > 0)
+        {
+            synchronized (myVerifiedCertificates)
+            {
+                myVerifiedCertificates.put(aCacheKey, new VerifiedCertificate(aCertificate, aCurrentTime));
+            }
+        }
+        
+        return aCertificate;
+    }
+    
+    private static class VerifiedCertificate
+    {
+        public VerifiedCertificate(X509Certificate certificate, long verificationTime)
+        {
+            myCertificate = certificate;
+            myVerificationTime = verificationTime;
+        }
+        
+        public final X509Certificate myCertificate;
+        public final long myVerificationTime;
+    }
+    
+    
     private ISerializer myUnderlyingSerializer;
     private EncoderDecoder myEncoderDecoder = new EncoderDecoder();
     private X509Certificate mySignerPublicCertificate;
     private RSAPrivateKey mySignerPrivateKey;
+    private byte[] mySignerEncodedCertificate;
+    private ThreadLocal<Signature> mySigners = new ThreadLocal<Signature>();
+    
+    // Certificates which passed the verification. The verification is repeated after the cache time.
+    private volatile long myCertificateCacheTime;
+    private static final int MAX_CACHED_CERTIFICATES = 100;
+    @SuppressWarnings("serial")
+    private Map<ByteBuffer, VerifiedCertificate> myVerifiedCertificates = new LinkedHashMap<ByteBuffer, VerifiedCertificate>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, VerifiedCertificate> eldest)
+        {
+            return size() > MAX_CACHED_CERTIFICATES;
+        }
+    };
     
     private IFunction1<Boolean, X509Certificate> myVerifySignerCertificate = new IFunction1<Boolean, X509Certificate>()
         {
@@ -1,7 +1,10 @@
 package eneter.messaging.dataprocessing.serializing;
 
+import java.nio.ByteBuffer;
 import java.security.SecureRandom;
 import java.security.interfaces.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.crypto.*;
 import javax.crypto.spec.IvParameterSpec;
@@ -29,6 +32,12 @@ import eneter.messaging.diagnostic.EneterTrace;
  * <li>The deserialization returns deserialized data.</li>
  * </ol>
  * <br/>
+ * The RSA encryption is expensive. Therefore the serializer can be configured to reuse the random AES key (session key)
+ * for more messages. Then the RSA encrypted session key is attached to every message but the RSA operation is performed
+ * only when the session key is rotated. Messages encrypted with the session key use AES in GCM mode so that
+ * their integrity is ensured too. The deserializer caches decrypted session keys so that it does not perform
+ * the RSA decryption for every message. See {@link #setSessionKeyRotation(int, long)}.
+ * <br/>
  * <pre>
  * {@code
  * String aDataToSerialize = "Hello";
@@ -114,6 +123,63 @@ public class RsaSerializer implements ISerializer
     }
     
     
+    /**
+     * Sets the reuse of the AES session key.
+     * 
+     * By default the serializer generates a new AES key and encrypts it by RSA for every message.
+     * If the session key rotation is set the serializer generates the AES key and encrypts it by RSA only once
+     * and then reuses it for more messages. The key is rotated when the maximum number of messages
+     * or the maximum lifetime is reached.
+     * The deserializer recognizes messages using the session key automatically.
+     * <br/><br/>
+     * Note: Eneter for .NET does not support session keys. Do not set the rotation if you communicate with .NET.
+     * 
+     * @param maxMessageCount maximum number of messages encrypted with one session key. If 0 the number of messages is not limited.
+     * @param maxLifetime maximum time in milliseconds the session key can be used. If 0 the time is not limited.
+     * If both parameters are 0 the session key is not used and every message has its own AES key.
+     * @return instance of this serializer
+     */
+    public RsaSerializer setSessionKeyRotation(int maxMessageCount, long maxLifetime)
+    {
+        synchronized (mySessionLock)
+        {
+            if (maxMessageCount < 0)
+            {
+                throw new IllegalArgumentException("The input parameter maxMessageCount cannot be negative.");
+            }
+            if (maxLifetime < 0)
+            {
+                throw new IllegalArgumentException("The input parameter maxLifetime cannot be negative.");
+            }
+            
+            mySessionKeyMaxMessageCount = maxMessageCount;
+            mySessionKeyMaxLifetime = maxLifetime;
+            
+            // Enforce the new session key.
+            mySessionEncryptor = null;
+            
+            return this;
+        }
+    }
+    
+    /**
+     * Returns the maximum number of messages encrypted with one session key.
+     * @return maximum number of messages. 0 means the number is not limited.
+     */
+    public int getSessionKeyMaxMessageCount()
+    {
+        return mySessionKeyMaxMessageCount;
+    }
+    
+    /**
+     * Returns the maximum lifetime of the session key.
+     * @return maximum lifetime in milliseconds. 0 means the time is not limited.
+     */
+    public long getSessionKeyMaxLifetime()
+    {
+        return mySessionKeyMaxLifetime;
+    }
+    
     /**
      * Serializes data.
      */
@@ -123,6 +189,11 @@ public class RsaSerializer implements ISerializer
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
+            if (mySessionKeyMaxMessageCount > 0 || mySessionKeyMaxLifetime > 0)
+            {
+                return serializeWithSessionKey(dataToSerialize, clazz);
+            }
+            
             // Generate key and initialization vector for AES.
             KeyGenerator aKeyGenerator = KeyGenerator.getInstance("AES");
             aKeyGenerator.init(myAesBitSize);
@@ -166,6 +237,13 @@ public class RsaSerializer implements ISerializer
             // Deserialize data
             byte[][] aData = myUnderlyingSerializer.deserialize(serializedData, byte[][].class);
             
+            // If the message is encrypted with the session key.
+            if (aData[1].length == 0)
+            {
+                AesSerializer aSessionDecryptor = getSessionDecryptor(aData[0]);
+                return aSessionDecryptor.deserialize(aData[2], clazz);
+            }
+            
             // Use the private key to decrypt the key and iv for the AES.
             Cipher aCryptoProvider = Cipher.getInstance(myCipherTransformationName);
             aCryptoProvider.init(Cipher.DECRYPT_MODE, myPrivateKey);
@@ -188,9 +266,104 @@ public class RsaSerializer implements ISerializer
     }
 
     
+    private <T> Object serializeWithSessionKey(T dataToSerialize, Class<T> clazz) throws Exception
+    {
+        AesSerializer aSessionEncryptor;
+        byte[] anEncryptedSessionKey;
+        
+        synchronized (mySessionLock)
+        {
+            long aCurrentTime = System.currentTimeMillis();
+            
+            // If the session key shall be rotated.
+            if (mySessionEncryptor == null ||
+                (mySessionKeyMaxMessageCount > 0 && mySessionMessageCount >= mySessionKeyMaxMessageCount) ||
+                (mySessionKeyMaxLifetime > 0 && aCurrentTime - mySessionCreationTime >= mySessionKeyMaxLifetime))
+            {
+                KeyGenerator aKeyGenerator = KeyGenerator.getInstance("AES");
+                aKeyGenerator.init(myAesBitSize);
+                SecretKey aKey = aKeyGenerator.generateKey();
+                
+                // Encrypt the session key with RSA using the public key.
+                Cipher aCryptoProvider = Cipher.getInstance(myCipherTransformationName);
+                aCryptoProvider.init(Cipher.ENCRYPT_MODE, myPublicKey);
+                myEncryptedSessionKey = aCryptoProvider.doFinal(aKey.getEncoded());
+                
+                // Note: GCM generates the nonce for every message and ensures the integrity.
+                mySessionEncryptor = new AesSerializer(aKey, null, myUnderlyingSerializer).setGcmMode(true);
+                mySessionMessageCount = 0;
+                mySessionCreationTime = aCurrentTime;
+            }
+            
+            ++mySessionMessageCount;
+            aSessionEncryptor = mySessionEncryptor;
+            anEncryptedSessionKey = myEncryptedSessionKey;
+        }
+        
+        byte[][] aData = new byte[3][];
+        aData[0] = anEncryptedSessionKey;
+        
+        // Empty array indicates the session key.
+        aData[1] = new byte[0];
+        aData[2] = (byte[])aSessionEncryptor.serialize(dataToSerialize, clazz);
+        
+        Object aSerializedData = myUnderlyingSerializer.serialize(aData, byte[][].class);
+        return aSerializedData;
+    }
+    
+    private AesSerializer getSessionDecryptor(byte[] encryptedSessionKey) throws Exception
+    {
+        ByteBuffer aCacheKey = ByteBuffer.wrap(encryptedSessionKey);
+        
+        synchronized (mySessionDecryptors)
+        {
+            AesSerializer aSessionDecryptor = mySessionDecryptors.get(aCacheKey);
+            if (aSessionDecryptor != null)
+            {
+                return aSessionDecryptor;
+            }
+        }
+        
+        // Use the private key to decrypt the session key.
+        Cipher aCryptoProvider = Cipher.getInstance(myCipherTransformationName);
+        aCryptoProvider.init(Cipher.DECRYPT_MODE, myPrivateKey);
+        byte[] aKeyBytes = aCryptoProvider.doFinal(encryptedSessionKey);
+        
+        SecretKeySpec aKey = new SecretKeySpec(aKeyBytes, "AES");
+        AesSerializer aSessionDecryptor = new AesSerializer(aKey, null, myUnderlyingSerializer).setGcmMode(true);
+        
+        synchronized (mySessionDecryptors)
+        {
+            mySessionDecryptors.put(aCacheKey, aSessionDecryptor);
+        }
+        
+        return aSessionDecryptor;
+    }
+    
+    
     private ISerializer myUnderlyingSerializer;
     private int myAesBitSize;
     private RSAPrivateKey myPrivateKey;
     private RSAPublicKey myPublicKey;
     private String myCipherTransformationName;
+    
+    private Object mySessionLock = new Object();
+    private int mySessionKeyMaxMessageCount;
+    private long mySessionKeyMaxLifetime;
+    private AesSerializer mySessionEncryptor;
+    private byte[] myEncryptedSessionKey;
+    private int mySessionMessageCount;
+    private long mySessionCreationTime;
+    
+    // Decrypted session keys of senders. The oldest ones are removed.
+    private static final int MAX_CACHED_SESSION_KEYS = 100;
+    @SuppressWarnings("serial")
+    private Map<ByteBuffer, AesSerializer> mySessionDecryptors = new LinkedHashMap<ByteBuffer, AesSerializer>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, AesSerializer> eldest)
+        {
+            return size() > MAX_CACHED_SESSION_KEYS;
+        }
+    };
 }
@@ -0,0 +1,64 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.dataprocessing.serializing.internal;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Internal input stream reading data from ByteBuffer.
+ * Reading moves the position of the buffer.
+ *
+ */
+public class ByteBufferInputStream extends InputStream
+{
+    public ByteBufferInputStream(ByteBuffer buffer)
+    {
+        myBuffer = buffer;
+    }
+    
+    @Override
+    public int read()
+    {
+        return myBuffer.hasRemaining() ? (myBuffer.get() & 0xFF) : -1;
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len)
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+        if (!myBuffer.hasRemaining())
+        {
+            return -1;
+        }
+        
+        int aSize = Math.min(len, myBuffer.remaining());
+        myBuffer.get(b, off, aSize);
+        return aSize;
+    }
+    
+    @Override
+    public long skip(long n)
+    {
+        int aSize = (int)Math.max(0, Math.min(n, myBuffer.remaining()));
+        myBuffer.position(myBuffer.position() + aSize);
+        return aSize;
+    }
+    
+    @Override
+    public int available()
+    {
+        return myBuffer.remaining();
+    }
+    
+    private ByteBuffer myBuffer;
+}
@@ -12,6 +12,8 @@ import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
+import eneter.messaging.dataprocessing.serializing.IByteBufferSerializer;
+import eneter.messaging.dataprocessing.serializing.ISerializer;
 import eneter.messaging.diagnostic.EneterTrace;
 
 /**
@@ -133,6 +135,94 @@ public class EncoderDecoder
         }
     }
     
+    /**
+     * Serializes data with the given serializer and encodes them into the writer.
+     * If the serializer implements IByteBufferSerializer it serializes directly into the writer.
+     */
+    public <T> void encode(OutputStream writer, ISerializer serializer, T dataToSerialize, Class<T> clazz)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (serializer instanceof IByteBufferSerializer)
+            {
+                // Write info, that encoded data is array of bytes.
+                writer.write(BYTES_ID);
+                
+                // Serialize directly into the writer.
+                ((IByteBufferSerializer)serializer).serialize(dataToSerialize, clazz, writer);
+            }
+            else
+            {
+                Object aSerializedData = serializer.serialize(dataToSerialize, clazz);
+                encode(writer, aSerializedData);
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    /**
+     * Decodes data from the buffer and deserializes them with the given serializer.
+     * If data is encoded as bytes and the serializer implements IByteBufferSerializer data is deserialized without copying.
+     */
+    public <T> T decode(ByteBuffer encodedData, ISerializer serializer, Class<T> clazz)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (!encodedData.hasRemaining())
+            {
+                String anErrorMessage = "Decoding of serialized data failed because of unexpected end of stream.";
+                EneterTrace.error(anErrorMessage);
+                throw new IllegalStateException(anErrorMessage);
+            }
+            
+            byte aDataType = encodedData.get();
+            if (aDataType == BYTES_ID && serializer instanceof IByteBufferSerializer)
+            {
+                return ((IByteBufferSerializer)serializer).deserialize(encodedData, clazz);
+            }
+            
+            byte[] aDecodedBytes = new byte[encodedData.remaining()];
+            encodedData.get(aDecodedBytes);
+            
+            Object aDecodedData;
+            if (aDataType == STRING_UTF8_ID)
+            {
+                aDecodedData = new String(aDecodedBytes, "UTF-8");
+            }
+            else if (aDataType == STRING_UTF16_LE_ID)
+            {
+                aDecodedData = new String(aDecodedBytes, "UTF-16LE");
+            }
+            else if (aDataType == STRING_UTF16_BE_ID)
+            {
+                aDecodedData = new String(aDecodedBytes, "UTF-16BE");
+            }
+            else if (aDataType == BYTES_ID)
+            {
+                aDecodedData = aDecodedBytes;
+            }
+            else
+            {
+                String anErrorMessage = "Decoding of serialized data failed because of incorrect data fromat.";
+                EneterTrace.error(anErrorMessage);
+                throw new IllegalStateException(anErrorMessage);
+            }
+            
+            return serializer.deserialize(aDecodedData, clazz);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
     public void write(DataOutputStream writer, Object data, boolean isLittleEndianRequested) throws Exception
     {
         if (data instanceof String)
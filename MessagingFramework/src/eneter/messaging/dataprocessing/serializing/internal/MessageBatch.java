@@ -0,0 +1,82 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.dataprocessing.serializing.internal;
+
+import java.io.*;
+
+import eneter.messaging.diagnostic.EneterTrace;
+
+/**
+ * Encodes more serialized messages into one frame so that they are sent at once.
+ * It is used by typed message senders and by the buffered messaging.
+ *
+ * The batch is the byte[] message: [number of messages][message 1]...[message n]
+ * where every message is encoded as [type][length][data].
+ * Messages are already serialized so they are not serialized again but their data is written directly.
+ * Therefore only String and byte[] messages can be sent in the batch.
+ */
+public class MessageBatch
+{
+    public static byte[] encode(Object[] serializedMessages) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            ByteArrayOutputStream aBuffer = new ByteArrayOutputStream();
+            DataOutputStream aWriter = new DataOutputStream(aBuffer);
+            myEncoderDecoder.writeInt32(aWriter, serializedMessages.length, false);
+            for (Object aMessage : serializedMessages)
+            {
+                myEncoderDecoder.write(aWriter, aMessage, false);
+            }
+
+            return aBuffer.toByteArray();
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    public static Object[] decode(Object batch) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (batch instanceof byte[] == false)
+            {
+                throw new IllegalStateException("Failed to decode the batch of messages because the message is not byte[].");
+            }
+
+            byte[] aBatch = (byte[])batch;
+            DataInputStream aReader = new DataInputStream(new ByteArrayInputStream(aBatch));
+            int aCount = myEncoderDecoder.readInt32(aReader, false);
+
+            // Note: every message takes at least one byte so the number of messages cannot exceed the size of the batch.
+            if (aCount < 0 || aCount > aBatch.length)
+            {
+                throw new IllegalStateException("Incorrect number of messages in the batch: " + aCount);
+            }
+
+            Object[] aMessages = new Object[aCount];
+            for (int i = 0; i < aCount; ++i)
+            {
+                aMessages[i] = myEncoderDecoder.read(aReader, false);
+            }
+
+            return aMessages;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    private static EncoderDecoder myEncoderDecoder = new EncoderDecoder();
+}
@@ -0,0 +1,65 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.dataprocessing.serializing.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Internal growing buffer for serialized data.
+ * Unlike ByteArrayOutputStream it provides access to written data without copying them.
+ *
+ */
+public class SerializationBuffer extends ByteArrayOutputStream
+{
+    public SerializationBuffer()
+    {
+        super();
+    }
+    
+    public SerializationBuffer(int size)
+    {
+        super(size);
+    }
+    
+    /**
+     * Returns written bytes without copying if the buffer is fully used.
+     * Otherwise returns the copy of written bytes.
+     * After calling this method the buffer shall not be used anymore.
+     */
+    public byte[] detachByteArray()
+    {
+        return (count == buf.length) ? buf : Arrays.copyOf(buf, count);
+    }
+    
+    /**
+     * Returns the byte buffer wrapping written data. Data is not copied.
+     */
+    public ByteBuffer asByteBuffer()
+    {
+        return ByteBuffer.wrap(buf, 0, count);
+    }
+    
+    /**
+     * Returns the internal array. Valid data is from 0 to size().
+     */
+    public byte[] getInternalBuffer()
+    {
+        return buf;
+    }
+    
+    /**
+     * Returns the allocated capacity of the buffer.
+     */
+    public int getCapacity()
+    {
+        return buf.length;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.dataprocessing.serializing.internal;
+
+import java.nio.ByteBuffer;
+
+import eneter.messaging.dataprocessing.serializing.IByteBufferSerializer;
+import eneter.messaging.dataprocessing.serializing.ISerializer;
+import eneter.messaging.diagnostic.EneterTrace;
+
+/**
+ * Internal helper methods for serialization.
+ * If the serializer implements IByteBufferSerializer they serialize data into a reusable buffer of the current thread
+ * so that the buffer does not have to grow for every message.
+ *
+ */
+public class SerializerExt
+{
+    public static <T> Object serialize(ISerializer serializer, T dataToSerialize, Class<T> clazz)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (serializer instanceof IByteBufferSerializer == false)
+            {
+                return serializer.serialize(dataToSerialize, clazz);
+            }
+            
+            // Note: the buffer is taken from the thread so that a nested serialization in the same thread
+            //       uses a different buffer.
+            SerializationBuffer aBuffer = myBuffers.get();
+            myBuffers.set(null);
+            if (aBuffer == null)
+            {
+                aBuffer = new SerializationBuffer(INITIAL_BUFFER_SIZE);
+            }
+            
+            try
+            {
+                aBuffer.reset();
+                ((IByteBufferSerializer)serializer).serialize(dataToSerialize, clazz, aBuffer);
+                return aBuffer.toByteArray();
+            }
+            finally
+            {
+                // Do not keep too big buffers.
+                if (aBuffer.getCapacity() <= MAX_REUSED_BUFFER_SIZE)
+                {
+                    myBuffers.set(aBuffer);
+                }
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    public static <T> T deserialize(ISerializer serializer, Object serializedData, Class<T> clazz)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (serializer instanceof IByteBufferSerializer && serializedData instanceof byte[])
+            {
+                return ((IByteBufferSerializer)serializer).deserialize(ByteBuffer.wrap((byte[])serializedData), clazz);
+            }
+            
+            return serializer.deserialize(serializedData, clazz);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int MAX_REUSED_BUFFER_SIZE = 1024 * 1024;
+    private static final ThreadLocal<SerializationBuffer> myBuffers = new ThreadLocal<SerializationBuffer>();
+}
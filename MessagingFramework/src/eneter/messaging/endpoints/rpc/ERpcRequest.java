@@ -37,7 +37,29 @@ public enum ERpcRequest
     /**
      * RPC service sends back a response for 'InvokeMethod', 'SubscribeEvent' or 'UnsubscribeEvent'.
      */
-    Response(50);
+    Response(50),
+    
+    /**
+     * Several requests or responses sent together in one message.
+     * Serialized RpcMessages are stored in SerializedParams.
+     */
+    Batch(60),
+    
+    /**
+     * RPC service sends the chunk of items from the stream returned by the method.
+     * Serialized items are stored in SerializedParams. The stream ends with 'Response'.
+     */
+    StreamChunk(70),
+    
+    /**
+     * Client consumed the chunk of items and the service can send the next one.
+     */
+    StreamCredit(80),
+    
+    /**
+     * Client does not want to receive further items from the stream.
+     */
+    CancelStream(90);
     
     
     /**
@@ -63,6 +85,10 @@ public enum ERpcRequest
             case 30: return UnsubscribeEvent;
             case 40: return RaiseEvent;
             case 50: return Response;
+            case 60: return Batch;
+            case 70: return StreamChunk;
+            case 80: return StreamCredit;
+            case 90: return CancelStream;
         }
         return null;
     }
@@ -0,0 +1,38 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.endpoints.rpc;
+
+/**
+ * Specifies how RpcService executes incoming remote calls.
+ *
+ */
+public enum ERpcServiceExecution
+{
+    /**
+     * Remote calls are executed in the thread which delivers messages from the attached duplex input channel.
+     * The threading is then given by the threading mode of the input channel.
+     * E.g. if SyncDispatching is used then one slow method blocks calls from all clients.
+     * This is the default behavior.
+     */
+    InputChannelThread,
+    
+    /**
+     * Remote calls are executed in parallel by the limited number of threads.
+     * Calls from the same client can be executed concurrently and can complete in a different order.
+     * The service implementation must be thread safe.
+     */
+    Parallel,
+    
+    /**
+     * Remote calls from the same client are executed one by one in the order they were received
+     * but calls from different clients are executed in parallel by the limited number of threads.
+     * If the single instance service is used its implementation must be thread safe.
+     */
+    PerClientSequential
+}
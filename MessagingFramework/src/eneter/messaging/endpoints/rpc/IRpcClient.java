@@ -71,4 +71,19 @@ public interface IRpcClient<TServiceInterface> extends IAttachableDuplexOutputCh
      * @throws Exception
      */
     Object callRemoteMethod(String methodName, Object[] args) throws Exception;
+    
+    /**
+     * Calls a method in the service without blocking the calling thread.
+     * 
+     * The returned future is completed when the response is received, when the RPC timeout elapses
+     * or when the connection is closed.
+     * Alternatively the service interface on the client side can declare Future&lt;T&gt; or RpcFuture&lt;T&gt;
+     * as the return type and the proxy then calls the method asynchronously.
+     * 
+     * @param methodName name of the method that shall be called.
+     * @param args method arguments.
+     * @return future providing the return value. The value is null if the method returns void.
+     * @throws Exception if the request could not be sent.
+     */
+    <TReturn> RpcFuture<TReturn> callRemoteMethodAsync(String methodName, Object[] args) throws Exception;
 }
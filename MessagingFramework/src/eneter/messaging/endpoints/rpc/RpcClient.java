@@ -11,7 +11,9 @@ package eneter.messaging.endpoints.rpc;
 import java.lang.reflect.*;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import eneter.messaging.dataprocessing.serializing.ISerializer;
@@ -22,6 +24,7 @@ import eneter.messaging.infrastructure.attachable.internal.AttachableDuplexOutpu
 import eneter.messaging.messagingsystems.messagingsystembase.*;
 import eneter.messaging.threading.dispatching.IThreadDispatcher;
 import eneter.net.system.*;
+import eneter.net.system.collections.generic.internal.ConcurrentIntHashMap;
 import eneter.net.system.internal.StringExt;
 import eneter.net.system.threading.internal.*;
 
@@ -33,8 +36,15 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
     private static class RemoteCallContext
     {
         public RemoteCallContext()
+        {
+            this(null);
+        }
+        
+        // If the callback is specified the call is asynchronous and the callback is invoked when the call is completed.
+        public RemoteCallContext(IMethod1<RemoteCallContext> completedCallback)
         {
             myRpcCompleted = new ManualResetEvent(false);
+            myCompletedCallback = completedCallback;
         }
         
         public ManualResetEvent getRpcCompleted()
@@ -42,38 +52,100 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
             return myRpcCompleted;
         }
         
-        public void setError(Exception error)
+        public Exception getError()
         {
-            myError = error;
+            return myError;
         }
         
-        public Exception getError()
+        public Object getSerializedReturnValue()
         {
-            return myError;
+            return mySerializedReturnValue;
         }
         
-        public void setSerializedReturnValue(Object serializedReturnValue)
+        public void setTimeoutTask(TimerTask timeoutTask)
         {
-            mySerializedReturnValue = serializedReturnValue;
+            myTimeoutTask = timeoutTask;
         }
         
-        public Object getSerializedReturnValue()
+        public void cancelTimeout()
         {
-            return mySerializedReturnValue;
+            TimerTask aTimeoutTask = myTimeoutTask;
+            if (aTimeoutTask != null)
+            {
+                aTimeoutTask.cancel();
+            }
+        }
+        
+        // Completes the call. Returns false if the call was already completed.
+        public boolean complete(Object serializedReturnValue, Exception error)
+        {
+            if (!myIsCompleted.compareAndSet(false, true))
+            {
+                return false;
+            }
+            
+            mySerializedReturnValue = serializedReturnValue;
+            myError = error;
+            myRpcCompleted.set();
+            
+            cancelTimeout();
+            
+            if (myCompletedCallback != null)
+            {
+                try
+                {
+                    myCompletedCallback.invoke(this);
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.warning(getClass().getSimpleName() + " " + ErrorHandler.DetectedException, err);
+                }
+            }
+            
+            return true;
         }
         
         private ManualResetEvent myRpcCompleted;
+        private IMethod1<RemoteCallContext> myCompletedCallback;
+        private AtomicBoolean myIsCompleted = new AtomicBoolean();
+        private volatile TimerTask myTimeoutTask;
         
-        private Exception myError;
-        private Object mySerializedReturnValue;
+        private volatile Exception myError;
+        private volatile Object mySerializedReturnValue;
     }
     
     private class RemoteMethod
     {
-        public RemoteMethod(Class<?> returnType, Class<?>[] argTypes)
+        public RemoteMethod(String methodName, Class<?> returnType, Class<?>[] argTypes, boolean isAsync, boolean isStream)
         {
+            myMethodName = methodName;
+            myMethodId = RpcMethodIdProvider.getMethodId(methodName);
             myReturnType = returnType;
             myArgTypes = argTypes;
+            myIsAsync = isAsync;
+            myIsStream = isStream;
+        }
+        
+        public String getMethodName()
+        {
+            return myMethodName;
+        }
+        
+        public int getMethodId()
+        {
+            return myMethodId;
+        }
+        
+        // Returns true if the method returns the future.
+        public boolean isAsync()
+        {
+            return myIsAsync;
+        }
+        
+        // Returns true if the method returns the stream. The return type is then the type of streamed items.
+        public boolean isStream()
+        {
+            return myIsStream;
         }
 
         public Class<?>[] getArgTypes()
@@ -86,8 +158,12 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
             return myReturnType;
         }
         
+        private String myMethodName;
+        private int myMethodId;
         private Class<?>[] myArgTypes;
         private Class<?> myReturnType;
+        private boolean myIsAsync;
+        private boolean myIsStream;
     }
     
     // Provides info about a remote event and maintains subscribers for that event.
@@ -251,7 +327,7 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            ServiceInterfaceChecker.check(clazz);
+            ServiceInterfaceChecker.check(clazz, true);
             
             mySerializer = serializer;
             myRpcTimeout = rpcTimeout;
@@ -281,11 +357,13 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
                         {
                             RemoteEvent aRemoteEvent = new RemoteEvent(aMethodInfo.getName(), anEventArgsType);
                             myRemoteEvents.put(aMethodInfo.getName(), aRemoteEvent);
+                            myProxyEvents.put(aMethodInfo, aRemoteEvent);
                         }
                         else
                         {
                             RemoteEvent aRemoteEvent = new RemoteEvent(aMethodInfo.getName(), EventArgs.class);
                             myRemoteEvents.put(aMethodInfo.getName(), aRemoteEvent);
+                            myProxyEvents.put(aMethodInfo, aRemoteEvent);
                         }
                     }
                 }
@@ -301,8 +379,18 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
                         anArguments[i] = (Class<?>) anArgumentsTmp[i];
                     }
                     
-                    RemoteMethod aRemoteMethod = new RemoteMethod(aReturnType, anArguments);
+                    // If the method returns the future then the return value is its generic argument.
+                    // If the method returns the stream then the return value is the type of streamed items.
+                    boolean anIsAsync = ServiceInterfaceChecker.isAsyncReturnType(aMethodInfo);
+                    boolean anIsStream = ServiceInterfaceChecker.isStreamReturnType(aMethodInfo);
+                    if (anIsAsync || anIsStream)
+                    {
+                        aReturnType = (Class<?>) ((ParameterizedType) aGenericReturnType).getActualTypeArguments()[0];
+                    }
+                    
+                    RemoteMethod aRemoteMethod = new RemoteMethod(aMethodInfo.getName(), aReturnType, anArguments, anIsAsync, anIsStream);
                     myRemoteMethods.put(aMethodInfo.getName(), aRemoteMethod);
+                    myProxyMethods.put(aMethodInfo, aRemoteMethod);
                 }
             }
 
@@ -315,6 +403,14 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
     }
     
     
+    // Sets batching of method calls.
+    // If the batching window is greater than 0 then calls are collected and sent together in one message.
+    public void setBatching(int batchingWindow, int maxBatchSize)
+    {
+        myBatchingWindow = batchingWindow;
+        myMaxBatchSize = Math.max(1, maxBatchSize);
+    }
+    
     @Override
     public Event<DuplexChannelEventArgs> connectionOpened()
     {
@@ -342,41 +438,41 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            // If it is an event.
-            // e.g. Event<MyEventArgs> somethingIsDone()
-            Type aGenericReturnType = method.getGenericReturnType();
-            Class<?> aReturnType = method.getReturnType();
-            if (aReturnType == Event.class)
+            // Note: methods and events are resolved when the proxy is created
+            //       so that the call does not need to inspect the method again.
+            RemoteMethod aRemoteMethod = myProxyMethods.get(method);
+            
+            // If it is a method.
+            if (aRemoteMethod != null)
             {
-                // The event args is always generic. 
-                if (aGenericReturnType instanceof ParameterizedType)
+                if (aRemoteMethod.isAsync())
                 {
-                    RemoteEvent aRemoteEvent = myRemoteEvents.get(method.getName());
-                    if (aRemoteEvent == null)
-                    {
-                        String anErrorMessage = TracedObject() + "did not find the event '" + method.getName() + "'.";
-                        EneterTrace.error(anErrorMessage);
-                        throw new IllegalStateException(anErrorMessage);
-                    }
-                    
-                    // Returns Event<Object> interface allowing to subscribe or unsubscribe from the event.
-                    return aRemoteEvent;
-                }
-                else
-                {
-                    // This path should not occur.
-                    
-                    String anErrorMessage = TracedObject() + "did not find the event '" + method.getName() + "'.";
-                    EneterTrace.error(anErrorMessage);
-                    throw new IllegalStateException(anErrorMessage);
+                    return callMethodAsync(aRemoteMethod, args);
                 }
+                
+                Object aResult = callMethod(aRemoteMethod, args);
+                return aResult;
             }
-            // If it is a method.
-            else
+            
+            // If it is an event.
+            // e.g. Event<MyEventArgs> somethingIsDone()
+            // Returns Event<Object> interface allowing to subscribe or unsubscribe from the event.
+            RemoteEvent aRemoteEvent = myProxyEvents.get(method);
+            if (aRemoteEvent != null)
             {
-                Object aResult = callRemoteMethod(method.getName(), args);
-                return aResult;
+                return aRemoteEvent;
             }
+            
+            // The method is not declared in the service interface. (e.g. methods of Object)
+            if (method.getReturnType() == Event.class)
+            {
+                String anErrorMessage = TracedObject() + "did not find the event '" + method.getName() + "'.";
+                EneterTrace.error(anErrorMessage);
+                throw new IllegalStateException(anErrorMessage);
+            }
+            
+            Object aResult = callMethod(getRemoteMethod(method.getName()), args);
+            return aResult;
         }
         finally
         {
@@ -419,7 +515,22 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            Object aResult = callMethod(methodName, args);
+            Object aResult = callMethod(getRemoteMethod(methodName), args);
+            return aResult;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    @Override
+    public <TReturn> RpcFuture<TReturn> callRemoteMethodAsync(String methodName, Object[] args) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            RpcFuture<TReturn> aResult = callMethodAsync(getRemoteMethod(methodName), args);
             return aResult;
         }
         finally
@@ -471,26 +582,27 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            // Release all pending RPC calls.
-            RemoteCallContext[] aPendingCalls;
-            myPendingRemoteCallsLock.lock();
-            try
-            {
-                aPendingCalls = new RemoteCallContext[myPendingRemoteCalls.size()];
-                aPendingCalls = myPendingRemoteCalls.values().toArray(aPendingCalls);
-            }
-            finally
+            // Requests waiting in the batch will not be sent.
+            synchronized (myBatchLock)
             {
-                myPendingRemoteCallsLock.unlock();
+                if (myBatchFlushTask != null)
+                {
+                    myBatchFlushTask.cancel();
+                    myBatchFlushTask = null;
+                }
+                myBatchedRequests.clear();
+                myBatchedRequestIds.clear();
             }
             
-            if (aPendingCalls != null)
+            // Release all pending RPC calls.
+            // Note: all pending calls are taken from the table at once.
+            ArrayList<RemoteCallContext> aPendingCalls = myPendingRemoteCalls.removeAll();
+            if (!aPendingCalls.isEmpty())
             {
                 RpcException anException = new RpcException("Connection was broken or closed.", "", "");
                 for (RemoteCallContext aRemoteCallContext : aPendingCalls)
                 {
-                    aRemoteCallContext.setError(anException);
-                    aRemoteCallContext.getRpcCompleted().set();
+                    aRemoteCallContext.complete(null, anException);
                 }
             }
             
@@ -532,32 +644,41 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
             {
                 EneterTrace.debug("RETURN FROM RPC RECEIVED");
                 
-                // Try to find if there is a pending request waiting for the response.
-                RemoteCallContext anRpcContext;
-                myPendingRemoteCallsLock.lock();
-                try
-                {
-                    anRpcContext = myPendingRemoteCalls.get(aMessage.Id);
-                }
-                finally
+                processResponse(aMessage);
+            }
+            // If it is the chunk of items from the stream.
+            else if (aMessage.Request == ERpcRequest.StreamChunk)
+            {
+                RpcStreamReader<Object> aStream = myActiveStreams.get(aMessage.Id);
+                if (aStream != null && aMessage.SerializedParams != null)
                 {
-                    myPendingRemoteCallsLock.unlock();
+                    aStream.addChunk(aMessage.SerializedParams);
                 }
-
-                if (anRpcContext != null)
+            }
+            // If it is the batch of responses for batched calls.
+            else if (aMessage.Request == ERpcRequest.Batch)
+            {
+                EneterTrace.debug("BATCH OF RETURNS FROM RPC RECEIVED");
+                
+                if (aMessage.SerializedParams != null)
                 {
-                    if (StringExt.isNullOrEmpty(aMessage.ErrorType))
+                    for (Object aSerializedResponse : aMessage.SerializedParams)
                     {
-                        anRpcContext.setSerializedReturnValue(aMessage.SerializedReturn);
-                    }
-                    else
-                    {
-                        RpcException anException = new RpcException(aMessage.ErrorMessage, aMessage.ErrorType, aMessage.ErrorDetails);
-                        anRpcContext.setError(anException);
+                        if (aSerializedResponse == null)
+                        {
+                            continue;
+                        }
+                        
+                        try
+                        {
+                            RpcMessage aResponse = mySerializer.deserialize(aSerializedResponse, RpcMessage.class);
+                            processResponse(aResponse);
+                        }
+                        catch (Exception err)
+                        {
+                            EneterTrace.error(TracedObject() + "failed to deserialize the response from the batch.", err);
+                        }
                     }
-
-                    // Release the pending request.
-                    anRpcContext.getRpcCompleted().set();
                 }
             }
             else if (aMessage.Request == ERpcRequest.RaiseEvent)
@@ -627,20 +748,244 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
     }
     
 
-    @SuppressWarnings("unchecked")
-    private Object callMethod(String methodName, Object[] parameters) throws Exception
+    private void processResponse(RpcMessage responseMessage)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            // Try to find if there is a pending request waiting for the response.
+            // Note: the call is removed from pending calls right away because only one response can come.
+            RemoteCallContext anRpcContext = myPendingRemoteCalls.remove(responseMessage.Id);
+
+            if (anRpcContext != null)
+            {
+                // Release the pending request.
+                if (StringExt.isNullOrEmpty(responseMessage.ErrorType))
+                {
+                    anRpcContext.complete(responseMessage.SerializedReturn, null);
+                }
+                else
+                {
+                    RpcException anException = new RpcException(responseMessage.ErrorMessage, responseMessage.ErrorType, responseMessage.ErrorDetails);
+                    anRpcContext.complete(null, anException);
+                }
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    private Object callMethod(RemoteMethod remoteMethod, Object[] parameters) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            RpcMessage aRequestMessage = createInvokeMethodRequest(remoteMethod, parameters);
+            
+            // If the method returns the stream then items are read while they are received.
+            if (remoteMethod.isStream())
+            {
+                return callStream(remoteMethod, aRequestMessage);
+            }
+
+            Object aSerializedReturnValue = callService(aRequestMessage);
+
+            // Deserialize the return value.
+            Object aDeserializedReturnValue = deserializeReturnValue(remoteMethod, aSerializedReturnValue);
+            return aDeserializedReturnValue;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private RpcStream<Object> callStream(RemoteMethod remoteMethod, RpcMessage rpcRequest) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (getAttachedDuplexOutputChannel() == null)
+            {
+                String anError = TracedObject() + ErrorHandler.FailedToSendMessageBecauseNotAttached;
+                EneterTrace.error(anError);
+                throw new IllegalStateException(anError);
+            }
+            
+            final int anId = rpcRequest.Id;
+            
+            // Note: the return type of the stream method is the type of streamed items.
+            @SuppressWarnings("unchecked")
+            final RpcStreamReader<Object> aStream = new RpcStreamReader<Object>((Class<Object>)remoteMethod.getReturnType(), mySerializer, myRpcTimeout,
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        sendStreamControl(anId, ERpcRequest.StreamCredit);
+                    }
+                },
+                new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        sendStreamControl(anId, ERpcRequest.CancelStream);
+                    }
+                });
+            myActiveStreams.put(anId, aStream);
+            
+            // The stream ends when the response is received or when the connection is closed.
+            RemoteCallContext anRpcContext = new RemoteCallContext(new IMethod1<RemoteCallContext>()
+            {
+                @Override
+                public void invoke(RemoteCallContext rpcContext)
+                {
+                    myActiveStreams.remove(anId);
+                    aStream.complete(rpcContext.getError());
+                }
+            });
+            myPendingRemoteCalls.put(anId, anRpcContext);
+            
+            try
+            {
+                sendRequest(rpcRequest);
+            }
+            catch (Exception err)
+            {
+                EneterTrace.error(TracedObject() + "." + rpcRequest.OperationName + "(..) " + ErrorHandler.FailedToSendMessage, err);
+                
+                myPendingRemoteCalls.remove(anId);
+                myActiveStreams.remove(anId);
+                throw err;
+            }
+            
+            return aStream;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Sends the credit or the cancellation of the stream to the service.
+    private void sendStreamControl(int id, ERpcRequest request)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            RpcMessage aControlMessage = new RpcMessage();
+            aControlMessage.Id = id;
+            aControlMessage.Request = request;
+            
+            try
+            {
+                IDuplexOutputChannel anOutputChannel = getAttachedDuplexOutputChannel();
+                if (anOutputChannel == null)
+                {
+                    throw new IllegalStateException(TracedObject() + ErrorHandler.FailedToSendMessageBecauseNotAttached);
+                }
+                
+                Object aSerializedMessage = mySerializer.serialize(aControlMessage, RpcMessage.class);
+                anOutputChannel.sendMessage(aSerializedMessage);
+            }
+            catch (Exception err)
+            {
+                EneterTrace.error(TracedObject() + "failed to send " + request + " for the stream. " + ErrorHandler.FailedToSendMessage, err);
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private <TReturn> RpcFuture<TReturn> callMethodAsync(final RemoteMethod remoteMethod, Object[] parameters) throws Exception
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            RemoteMethod aRemoteMethod = myRemoteMethods.get(methodName);
-            if (aRemoteMethod == null)
+            if (remoteMethod.isStream())
             {
-                String anErrorMessage = TracedObject() + "failed to call remote method '" + methodName + "' because the method is not declared in the service interface on the client side.";
+                String anErrorMessage = TracedObject() + "failed to call '" + remoteMethod.getMethodName() + "' asynchronously because it returns the stream. The stream does not block until items are received.";
                 EneterTrace.error(anErrorMessage);
                 throw new IllegalStateException(anErrorMessage);
             }
             
+            RpcMessage aRequestMessage = createInvokeMethodRequest(remoteMethod, parameters);
+            
+            final RpcFuture<TReturn> aFuture = new RpcFuture<TReturn>(myThreadDispatcher);
+            
+            // Note: the callback is invoked from the thread receiving the response, from the timeout timer
+            //       or from the thread closing the connection.
+            IMethod1<RemoteCallContext> aCompletedCallback = new IMethod1<RemoteCallContext>()
+            {
+                @SuppressWarnings("unchecked")
+                @Override
+                public void invoke(RemoteCallContext rpcContext)
+                {
+                    if (rpcContext.getError() != null)
+                    {
+                        aFuture.complete(null, rpcContext.getError());
+                        return;
+                    }
+                    
+                    TReturn aReturnValue;
+                    try
+                    {
+                        aReturnValue = (TReturn) deserializeReturnValue(remoteMethod, rpcContext.getSerializedReturnValue());
+                    }
+                    catch (Exception err)
+                    {
+                        aFuture.complete(null, err);
+                        return;
+                    }
+                    
+                    aFuture.complete(aReturnValue, null);
+                }
+            };
+            
+            final RemoteCallContext anRpcContext = callServiceAsync(aRequestMessage, aCompletedCallback);
+            
+            // If the caller cancels the future then stop waiting for the response.
+            aFuture.setCancelCallback(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    anRpcContext.complete(null, new CancellationException("The remote call was cancelled."));
+                }
+            });
+            
+            return aFuture;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private RemoteMethod getRemoteMethod(String methodName)
+    {
+        RemoteMethod aRemoteMethod = myRemoteMethods.get(methodName);
+        if (aRemoteMethod == null)
+        {
+            String anErrorMessage = TracedObject() + "failed to call remote method '" + methodName + "' because the method is not declared in the service interface on the client side.";
+            EneterTrace.error(anErrorMessage);
+            throw new IllegalStateException(anErrorMessage);
+        }
+        
+        return aRemoteMethod;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private RpcMessage createInvokeMethodRequest(RemoteMethod remoteMethod, Object[] parameters) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
             // Serialize method parameters.
             int aLength = (parameters != null) ? parameters.length : 0;
             Object[] aSerialzedMethodParameters = new Object[aLength];
@@ -648,7 +993,7 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
             {
                 for (int i = 0; i < aLength; ++i)
                 {
-                    aSerialzedMethodParameters[i] = mySerializer.serialize(parameters[i], (Class<Object>)aRemoteMethod.getArgTypes()[i]);
+                    aSerialzedMethodParameters[i] = mySerializer.serialize(parameters[i], (Class<Object>)remoteMethod.getArgTypes()[i]);
                 }
             }
             catch (Exception err)
@@ -662,17 +1007,28 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
             RpcMessage aRequestMessage = new RpcMessage();
             aRequestMessage.Id = myCounter.incrementAndGet();
             aRequestMessage.Request = ERpcRequest.InvokeMethod;
-            aRequestMessage.OperationName = methodName;
+            aRequestMessage.OperationName = remoteMethod.getMethodName();
+            aRequestMessage.OperationId = remoteMethod.getMethodId();
             aRequestMessage.SerializedParams = aSerialzedMethodParameters;
-
-            Object aSerializedReturnValue = callService(aRequestMessage);
-
-            // Deserialize the return value.
+            
+            return aRequestMessage;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private Object deserializeReturnValue(RemoteMethod remoteMethod, Object serializedReturnValue) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
             Object aDeserializedReturnValue = null;
             try
             {
-                aDeserializedReturnValue = (aRemoteMethod.getReturnType() != Void.class) ?
-                    mySerializer.deserialize(aSerializedReturnValue, aRemoteMethod.getReturnType()) :
+                aDeserializedReturnValue = (remoteMethod.getReturnType() != Void.class) ?
+                    mySerializer.deserialize(serializedReturnValue, remoteMethod.getReturnType()) :
                     null;
             }
             catch (Exception err)
@@ -779,19 +1135,10 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
             try
             {
                 RemoteCallContext anRpcSyncContext = new RemoteCallContext();
-                myPendingRemoteCallsLock.lock();
-                try
-                {
-                    myPendingRemoteCalls.put(rpcRequest.Id, anRpcSyncContext);
-                }
-                finally
-                {
-                    myPendingRemoteCallsLock.unlock();
-                }
+                myPendingRemoteCalls.put(rpcRequest.Id, anRpcSyncContext);
 
                 // Send the request.
-                Object aSerializedMessage = mySerializer.serialize(rpcRequest, RpcMessage.class);
-                getAttachedDuplexOutputChannel().sendMessage(aSerializedMessage);
+                sendRequest(rpcRequest);
 
                 // Wait for the response.
                 if (!anRpcSyncContext.getRpcCompleted().waitOne(myRpcTimeout))
@@ -813,14 +1160,200 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
             }
             finally
             {
-                myPendingRemoteCallsLock.lock();
-                try
+                myPendingRemoteCalls.remove(rpcRequest.Id);
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private RemoteCallContext callServiceAsync(final RpcMessage rpcRequest, final IMethod1<RemoteCallContext> completedCallback) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (getAttachedDuplexOutputChannel() == null)
+            {
+                String anError = TracedObject() + ErrorHandler.FailedToSendMessageBecauseNotAttached;
+                EneterTrace.error(anError);
+                throw new IllegalStateException(anError);
+            }
+            
+            // When the call is completed remove it from pending calls and notify the caller.
+            RemoteCallContext anRpcContext = new RemoteCallContext(new IMethod1<RemoteCallContext>()
+            {
+                @Override
+                public void invoke(RemoteCallContext rpcContext) throws Exception
                 {
                     myPendingRemoteCalls.remove(rpcRequest.Id);
+                    completedCallback.invoke(rpcContext);
                 }
-                finally
+            });
+            
+            myPendingRemoteCalls.put(rpcRequest.Id, anRpcContext);
+            
+            try
+            {
+                // Note: the timeout is observed by one shared timer so that no thread is blocked by waiting.
+                if (myRpcTimeout > 0)
+                {
+                    final RemoteCallContext aTimedRpcContext = anRpcContext;
+                    TimerTask aTimeoutTask = new TimerTask()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            aTimedRpcContext.complete(null, new TimeoutException("Remote call has not returned within the specified timeout " + myRpcTimeout + "."));
+                        }
+                    };
+                    anRpcContext.setTimeoutTask(aTimeoutTask);
+                    myTimeoutTimer.schedule(aTimeoutTask, myRpcTimeout);
+                    
+                    // Remove cancelled timeout tasks from the timer queue from time to time.
+                    if (myScheduledTimeoutsCounter.incrementAndGet() % 1000 == 0)
+                    {
+                        myTimeoutTimer.purge();
+                    }
+                }
+                
+                // Send the request.
+                sendRequest(rpcRequest);
+            }
+            catch (Exception err)
+            {
+                EneterTrace.error(TracedObject() + "." + rpcRequest.OperationName + "(..) " + ErrorHandler.FailedToSendMessage, err);
+                
+                // Note: the failure is reported by the exception so the caller shall not be notified.
+                myPendingRemoteCalls.remove(rpcRequest.Id);
+                anRpcContext.cancelTimeout();
+                throw err;
+            }
+            
+            return anRpcContext;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Sends the request to the service.
+    // If batching is enabled method calls are collected and sent together in one message.
+    private void sendRequest(RpcMessage rpcRequest) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            Object aSerializedMessage = mySerializer.serialize(rpcRequest, RpcMessage.class);
+            
+            if (myBatchingWindow <= 0 || rpcRequest.Request != ERpcRequest.InvokeMethod)
+            {
+                getAttachedDuplexOutputChannel().sendMessage(aSerializedMessage);
+                return;
+            }
+            
+            boolean anIsBatchFull = false;
+            synchronized (myBatchLock)
+            {
+                myBatchedRequests.add(aSerializedMessage);
+                myBatchedRequestIds.add(rpcRequest.Id);
+                
+                if (myBatchedRequests.size() >= myMaxBatchSize)
+                {
+                    anIsBatchFull = true;
+                }
+                else if (myBatchedRequests.size() == 1)
+                {
+                    // The first request in the batch starts the batching window.
+                    // Note: the timer is shared by all RpcClient instances and sending can block
+                    //       therefore the batch is flushed in the thread pool.
+                    myBatchFlushTask = new TimerTask()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            ThreadPool.queueUserWorkItem(new Runnable()
+                            {
+                                @Override
+                                public void run()
+                                {
+                                    flushBatch();
+                                }
+                            });
+                        }
+                    };
+                    myTimeoutTimer.schedule(myBatchFlushTask, myBatchingWindow);
+                }
+            }
+            
+            if (anIsBatchFull)
+            {
+                flushBatch();
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Sends all collected requests in one message.
+    private void flushBatch()
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            Object[] aSerializedRequests;
+            ArrayList<Integer> aRequestIds;
+            synchronized (myBatchLock)
+            {
+                if (myBatchedRequests.isEmpty())
                 {
-                    myPendingRemoteCallsLock.unlock();
+                    return;
+                }
+                
+                if (myBatchFlushTask != null)
+                {
+                    myBatchFlushTask.cancel();
+                    myBatchFlushTask = null;
+                }
+                
+                aSerializedRequests = myBatchedRequests.toArray();
+                aRequestIds = myBatchedRequestIds;
+                myBatchedRequests = new ArrayList<Object>();
+                myBatchedRequestIds = new ArrayList<Integer>();
+            }
+            
+            RpcMessage aBatchMessage = new RpcMessage();
+            aBatchMessage.Id = myCounter.incrementAndGet();
+            aBatchMessage.Request = ERpcRequest.Batch;
+            aBatchMessage.SerializedParams = aSerializedRequests;
+            
+            try
+            {
+                IDuplexOutputChannel anOutputChannel = getAttachedDuplexOutputChannel();
+                if (anOutputChannel == null)
+                {
+                    throw new IllegalStateException(TracedObject() + ErrorHandler.FailedToSendMessageBecauseNotAttached);
+                }
+                
+                Object aSerializedBatch = mySerializer.serialize(aBatchMessage, RpcMessage.class);
+                anOutputChannel.sendMessage(aSerializedBatch);
+            }
+            catch (Exception err)
+            {
+                EneterTrace.error(TracedObject() + "failed to send the batch of requests. " + ErrorHandler.FailedToSendMessage, err);
+                
+                // Release all calls from the batch.
+                for (Integer aRequestId : aRequestIds)
+                {
+                    RemoteCallContext anRpcContext = myPendingRemoteCalls.remove(aRequestId);
+                    if (anRpcContext != null)
+                    {
+                        anRpcContext.complete(null, err);
+                    }
                 }
             }
         }
@@ -890,15 +1423,31 @@ class RpcClient<TServiceInterface> extends AttachableDuplexOutputChannelBase
     
     private ISerializer mySerializer;
     private AtomicInteger myCounter = new AtomicInteger();
-    private ThreadLock myPendingRemoteCallsLock = new ThreadLock();
-    private HashMap<Integer, RemoteCallContext> myPendingRemoteCalls = new HashMap<Integer, RemoteCallContext>();
+    private ConcurrentIntHashMap<RemoteCallContext> myPendingRemoteCalls = new ConcurrentIntHashMap<RemoteCallContext>();
+    private ConcurrentIntHashMap<RpcStreamReader<Object>> myActiveStreams = new ConcurrentIntHashMap<RpcStreamReader<Object>>();
     private IThreadDispatcher myThreadDispatcher;
     private int myRpcTimeout;
     
+    private int myBatchingWindow;
+    private int myMaxBatchSize = 100;
+    private Object myBatchLock = new Object();
+    private ArrayList<Object> myBatchedRequests = new ArrayList<Object>();
+    private ArrayList<Integer> myBatchedRequestIds = new ArrayList<Integer>();
+    private TimerTask myBatchFlushTask;
+    
+    // Observes timeouts of asynchronous calls and batching windows from all RPC clients.
+    // Note: batches are not sent from the timer thread. The flush is queued to the thread pool.
+    private static final Timer myTimeoutTimer = new Timer("Eneter.RpcTimeoutTimer", true);
+    private static final AtomicInteger myScheduledTimeoutsCounter = new AtomicInteger();
+    
     private Class<TServiceInterface> myServiceClazz;
     private TServiceInterface myProxy;
 
     private HashMap<String, RemoteMethod> myRemoteMethods = new HashMap<String, RemoteMethod>();
+    
+    // Remote methods and remote events resolved for methods of the proxy.
+    private HashMap<Method, RemoteMethod> myProxyMethods = new HashMap<Method, RemoteMethod>();
+    private HashMap<Method, RemoteEvent> myProxyEvents = new HashMap<Method, RemoteEvent>();
     private HashMap<String, RemoteEvent> myRemoteEvents = new HashMap<String, RemoteEvent>();
     
     
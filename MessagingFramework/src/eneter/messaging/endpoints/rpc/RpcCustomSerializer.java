@@ -35,6 +35,34 @@ public class RpcCustomSerializer implements ISerializer
         }
     }
 
+    /**
+     * Sets whether invoked methods shall be identified by numeric ids instead of names.
+     * 
+     * The method id is derived from the method name so the client and the service do not need to negotiate it.
+     * It reduces the size of each request and the service does not have to look up the method by the name.
+     * Received requests are always understood in both forms. Therefore it is enough to enable it on the client side.
+     * However the service must also use RpcCustomSerializer from this version of the framework.
+     * <br/><br/>
+     * The default value is false.
+     * 
+     * @param isMethodIdEncoding true if methods shall be identified by ids.
+     * @return this serializer
+     */
+    public RpcCustomSerializer setMethodIdEncoding(boolean isMethodIdEncoding)
+    {
+        myIsMethodIdEncoding = isMethodIdEncoding;
+        return this;
+    }
+    
+    /**
+     * Returns true if invoked methods are identified by numeric ids instead of names.
+     * @return true if methods are identified by ids.
+     */
+    public boolean getMethodIdEncoding()
+    {
+        return myIsMethodIdEncoding;
+    }
+    
     /**
      * Serializes data.
      * If the serialized type is RpcMessage then it serializes it into the special sequence
@@ -100,15 +128,38 @@ public class RpcCustomSerializer implements ISerializer
         // Write Id of the request.
         myEncoderDecoder.writeInt32(aWriter, rpcMessage.Id, myIsLittleEndian);
 
+        boolean anIsInvokeById = myIsMethodIdEncoding && rpcMessage.Request == ERpcRequest.InvokeMethod && rpcMessage.OperationId != 0;
+        
         // Write request flag.
-        byte aRequestType = (byte)rpcMessage.Request.geValue();
+        byte aRequestType = anIsInvokeById ? INVOKE_METHOD_BY_ID : (byte)rpcMessage.Request.geValue();
         aWriter.write(aRequestType);
 
-        if (rpcMessage.Request == ERpcRequest.InvokeMethod ||
+        if (rpcMessage.Request == ERpcRequest.Batch ||
+            rpcMessage.Request == ERpcRequest.StreamChunk)
+        {
+            // Write number of batched messages.
+            int aNumberOfMessages = (rpcMessage.SerializedParams != null) ? rpcMessage.SerializedParams.length : 0;
+            myEncoderDecoder.writeInt32(aWriter, aNumberOfMessages, myIsLittleEndian);
+            
+            // Write already serialized batched messages.
+            for (int i = 0; i < aNumberOfMessages; ++i)
+            {
+                myEncoderDecoder.write(aWriter, rpcMessage.SerializedParams[i], myIsLittleEndian);
+            }
+        }
+        else if (rpcMessage.Request == ERpcRequest.InvokeMethod ||
             rpcMessage.Request == ERpcRequest.RaiseEvent)
         {
-            // Write name of the method or name of the event which shall be raised.
-            myEncoderDecoder.writePlainString(aWriter, rpcMessage.OperationName, anEncoding, myIsLittleEndian);
+            if (anIsInvokeById)
+            {
+                // Write id of the method.
+                myEncoderDecoder.writeInt32(aWriter, rpcMessage.OperationId, myIsLittleEndian);
+            }
+            else
+            {
+                // Write name of the method or name of the event which shall be raised.
+                myEncoderDecoder.writePlainString(aWriter, rpcMessage.OperationName, anEncoding, myIsLittleEndian);
+            }
 
             // Write number of input parameters.
             if (rpcMessage.SerializedParams == null)
@@ -181,13 +232,42 @@ public class RpcCustomSerializer implements ISerializer
 
         // Read request flag.
         int aRequest = aReader.readByte();
-        anRpcMessage.Request = ERpcRequest.fromInt(aRequest);
+        boolean anIsInvokeById = aRequest == INVOKE_METHOD_BY_ID;
+        anRpcMessage.Request = anIsInvokeById ? ERpcRequest.InvokeMethod : ERpcRequest.fromInt(aRequest);
 
-        if (anRpcMessage.Request == ERpcRequest.InvokeMethod ||
+        if (anRpcMessage.Request == ERpcRequest.Batch ||
+            anRpcMessage.Request == ERpcRequest.StreamChunk)
+        {
+            // Read number of batched messages.
+            int aNumberOfMessages = myEncoderDecoder.readInt32(aReader, myIsLittleEndian);
+            
+            // Note: the number is read from incoming data so it must be checked before the array is allocated.
+            //       Every batched message takes at least one byte.
+            if (aNumberOfMessages < 0 || aNumberOfMessages > data.length)
+            {
+                throw new IllegalStateException("Failed to deserialize RpcMessage because the number of batched messages is incorrect.");
+            }
+            
+            // Read serialized batched messages.
+            anRpcMessage.SerializedParams = new Object[aNumberOfMessages];
+            for (int i = 0; i < aNumberOfMessages; ++i)
+            {
+                anRpcMessage.SerializedParams[i] = myEncoderDecoder.read(aReader, myIsLittleEndian);
+            }
+        }
+        else if (anRpcMessage.Request == ERpcRequest.InvokeMethod ||
             anRpcMessage.Request == ERpcRequest.RaiseEvent)
         {
-            // Read name of the method or name of the event which shall be raised.
-            anRpcMessage.OperationName = myEncoderDecoder.readPlainString(aReader, anEncoding, myIsLittleEndian);
+            if (anIsInvokeById)
+            {
+                // Read id of the method. The method name is not available.
+                anRpcMessage.OperationId = myEncoderDecoder.readInt32(aReader, myIsLittleEndian);
+            }
+            else
+            {
+                // Read name of the method or name of the event which shall be raised.
+                anRpcMessage.OperationName = myEncoderDecoder.readPlainString(aReader, anEncoding, myIsLittleEndian);
+            }
 
             // Read number of input parameters.
             int aNumberParameters = myEncoderDecoder.readInt32(aReader, myIsLittleEndian);
@@ -225,7 +305,11 @@ public class RpcCustomSerializer implements ISerializer
         return anRpcMessage;
     }
     
+    // Request flag indicating InvokeMethod where the method is identified by the id instead of the name.
+    private static final byte INVOKE_METHOD_BY_ID = 11;
+    
     private ISerializer myUnderlyingSerializer;
     private boolean myIsLittleEndian;
+    private boolean myIsMethodIdEncoding;
     private EncoderDecoder myEncoderDecoder = new EncoderDecoder();
 }
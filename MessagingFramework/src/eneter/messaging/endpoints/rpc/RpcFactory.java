@@ -187,7 +187,9 @@ public class RpcFactory implements IRpcFactory
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            return new RpcClient<TServiceInterface>(mySerializer, myRpcTimeout, myRpcClientThreading.getDispatcher(), clazz);
+            RpcClient<TServiceInterface> aClient = new RpcClient<TServiceInterface>(mySerializer, myRpcTimeout, myRpcClientThreading.getDispatcher(), clazz);
+            aClient.setBatching(myBatchingWindow, myMaxBatchSize);
+            return aClient;
         }
         finally
         {
@@ -201,7 +203,11 @@ public class RpcFactory implements IRpcFactory
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            return new RpcService<TServiceInterface>(service, mySerializer, mySerializerProvider, clazz);
+            RpcService<TServiceInterface> aService = new RpcService<TServiceInterface>(service, mySerializer, mySerializerProvider, clazz);
+            aService.setBatchParallelism(myBatchParallelism);
+            aService.setExecution(myRpcServiceExecution, myRpcServiceMaxThreads);
+            aService.setStreaming(myStreamChunkSize, myStreamCreditWindow);
+            return aService;
         }
         finally
         {
@@ -217,7 +223,11 @@ public class RpcFactory implements IRpcFactory
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            return new RpcService<TServiceInterface>(serviceFactoryMethod, mySerializer, mySerializerProvider, clazz);
+            RpcService<TServiceInterface> aService = new RpcService<TServiceInterface>(serviceFactoryMethod, mySerializer, mySerializerProvider, clazz);
+            aService.setBatchParallelism(myBatchParallelism);
+            aService.setExecution(myRpcServiceExecution, myRpcServiceMaxThreads);
+            aService.setStreaming(myStreamChunkSize, myStreamCreditWindow);
+            return aService;
         }
         finally
         {
@@ -327,8 +337,206 @@ public class RpcFactory implements IRpcFactory
         return this;
     }
     
+    /**
+     * Gets the time window in milliseconds during which the client collects remote calls into one batch.
+     * Default value is 0 what means calls are not batched.
+     * @return batching window in milliseconds
+     */
+    public int getBatchingWindow()
+    {
+        return myBatchingWindow;
+    }
+    
+    /**
+     * Sets the time window in milliseconds during which the client collects remote calls into one batch.
+     * 
+     * If the value is greater than 0 the client does not send each method call in a separate message
+     * but it collects calls made within the window and sends them to the service in one message.
+     * The service then sends back all responses in one message too.
+     * It reduces the number of messages when many calls are made concurrently e.g. via callRemoteMethodAsync(..).
+     * The batch is sent when the window elapses or when it reaches the maximum batch size.<br/>
+     * <br/>
+     * Subscribing and unsubscribing events is never batched.<br/>
+     * Batching must be supported by the service. Therefore do not enable it if the service uses an older version of Eneter.<br/>
+     * <br/>
+     * Default value is 0 what means calls are not batched.
+     * 
+     * @param batchingWindow time in milliseconds
+     * @return this RpcFactory
+     */
+    public RpcFactory setBatchingWindow(int batchingWindow)
+    {
+        myBatchingWindow = batchingWindow;
+        return this;
+    }
+    
+    /**
+     * Gets the maximum number of remote calls sent in one batch.
+     * Default value is 100.
+     * @return maximum number of calls in the batch
+     */
+    public int getMaxBatchSize()
+    {
+        return myMaxBatchSize;
+    }
+    
+    /**
+     * Sets the maximum number of remote calls sent in one batch.
+     * When the batch reaches this size it is sent immediately without waiting until the batching window elapses.
+     * Default value is 100.
+     * @param maxBatchSize maximum number of calls in the batch
+     * @return this RpcFactory
+     */
+    public RpcFactory setMaxBatchSize(int maxBatchSize)
+    {
+        myMaxBatchSize = maxBatchSize;
+        return this;
+    }
+    
+    /**
+     * Gets how many calls from one received batch the service can execute in parallel.
+     * Default value is 1 what means calls from the batch are executed one by one.
+     * @return number of calls executed in parallel
+     */
+    public int getBatchParallelism()
+    {
+        return myBatchParallelism;
+    }
+    
+    /**
+     * Sets how many calls from one received batch the service can execute in parallel.
+     * 
+     * If the value is greater than 1 the service executes calls from the received batch in multiple threads.
+     * Therefore the service implementation must be thread safe.
+     * Responses are sent back in one message after all calls from the batch are executed.<br/>
+     * <br/>
+     * Default value is 1 what means calls from the batch are executed one by one.
+     * 
+     * @param batchParallelism number of calls executed in parallel
+     * @return this RpcFactory
+     */
+    public RpcFactory setBatchParallelism(int batchParallelism)
+    {
+        myBatchParallelism = batchParallelism;
+        return this;
+    }
+    
+    /**
+     * Gets how the RPC service executes incoming remote calls.
+     * @return execution policy
+     */
+    public ERpcServiceExecution getRpcServiceExecution()
+    {
+        return myRpcServiceExecution;
+    }
+    
+    /**
+     * Sets how the RPC service executes incoming remote calls.
+     * 
+     * By default remote calls are executed in the thread delivering messages from the attached duplex input channel.
+     * E.g. if the input channel uses SyncDispatching then all calls from all clients are executed one by one
+     * and one slow method blocks all other clients.<br/>
+     * If Parallel is set then remote calls are executed by the limited number of threads.<br/>
+     * If PerClientSequential is set then calls from one client are executed in the order they were received
+     * but calls from different clients are executed in parallel.<br/>
+     * <br/>
+     * Default value is ERpcServiceExecution.InputChannelThread.
+     * 
+     * @param execution execution policy
+     * @return this RpcFactory
+     */
+    public RpcFactory setRpcServiceExecution(ERpcServiceExecution execution)
+    {
+        myRpcServiceExecution = execution;
+        return this;
+    }
+    
+    /**
+     * Gets the maximum number of threads the RPC service uses to execute remote calls in parallel.
+     * @return maximum number of threads
+     */
+    public int getRpcServiceMaxThreads()
+    {
+        return myRpcServiceMaxThreads;
+    }
+    
+    /**
+     * Sets the maximum number of threads the RPC service uses to execute remote calls in parallel.
+     * It is applied only if the execution policy is Parallel or PerClientSequential.
+     * Default value is the number of available processors.
+     * @param maxThreads maximum number of threads
+     * @return this RpcFactory
+     */
+    public RpcFactory setRpcServiceMaxThreads(int maxThreads)
+    {
+        myRpcServiceMaxThreads = maxThreads;
+        return this;
+    }
+    
+    /**
+     * Gets the maximum number of items the service sends in one chunk when a method returns RpcStream.
+     * Default value is 100.
+     * @return maximum number of items in one chunk
+     */
+    public int getStreamChunkSize()
+    {
+        return myStreamChunkSize;
+    }
+    
+    /**
+     * Sets the maximum number of items the service sends in one chunk when a method returns RpcStream.
+     * 
+     * The chunk is sent when it is full or when the stream ends.
+     * If the stream is used to push items when they occur set the value to 1 so that each item is sent immediately.<br/>
+     * <br/>
+     * Default value is 100.
+     * 
+     * @param chunkSize maximum number of items in one chunk
+     * @return this RpcFactory
+     */
+    public RpcFactory setStreamChunkSize(int chunkSize)
+    {
+        myStreamChunkSize = chunkSize;
+        return this;
+    }
+    
+    /**
+     * Gets how many chunks the service can send ahead before the client consumes them.
+     * Default value is 4.
+     * @return number of chunks
+     */
+    public int getStreamCreditWindow()
+    {
+        return myStreamCreditWindow;
+    }
+    
+    /**
+     * Sets how many chunks the service can send ahead before the client consumes them.
+     * 
+     * Each chunk consumed by the client gives the service the credit to send the next chunk.
+     * Therefore the client never buffers more than the given number of chunks.
+     * Higher value increases the throughput of streaming but it requires more memory on the client side.<br/>
+     * <br/>
+     * Default value is 4.
+     * 
+     * @param creditWindow number of chunks
+     * @return this RpcFactory
+     */
+    public RpcFactory setStreamCreditWindow(int creditWindow)
+    {
+        myStreamCreditWindow = creditWindow;
+        return this;
+    }
+    
     private ISerializer mySerializer;
     private GetSerializerCallback mySerializerProvider;
     private IThreadDispatcherProvider myRpcClientThreading;
     private int myRpcTimeout;
+    private int myBatchingWindow;
+    private int myMaxBatchSize = 100;
+    private int myBatchParallelism = 1;
+    private ERpcServiceExecution myRpcServiceExecution = ERpcServiceExecution.InputChannelThread;
+    private int myRpcServiceMaxThreads = Runtime.getRuntime().availableProcessors();
+    private int myStreamChunkSize = 100;
+    private int myStreamCreditWindow = 4;
 }
@@ -0,0 +1,280 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.endpoints.rpc;
+
+import java.util.ArrayList;
+import java.util.concurrent.*;
+
+import eneter.messaging.diagnostic.EneterTrace;
+import eneter.messaging.diagnostic.internal.ErrorHandler;
+import eneter.messaging.diagnostic.internal.ThreadLock;
+import eneter.messaging.threading.dispatching.IThreadDispatcher;
+import eneter.net.system.IMethod1;
+import eneter.net.system.threading.internal.ManualResetEvent;
+
+/**
+ * Result of the asynchronous remote call.
+ * 
+ * The future is returned from IRpcClient.callRemoteMethodAsync(..) or from the proxy method
+ * which declares Future&lt;T&gt; or RpcFuture&lt;T&gt; as the return type.
+ * The calling thread is not blocked. The future is completed when the response from the service is received,
+ * when the RPC timeout elapses or when the connection is closed.
+ * <br/><br/>
+ * Callbacks registered via whenCompleted(..) are invoked in the thread specified by the RPC client threading mode.
+ * 
+ * <pre>
+ * Declaring the asynchronous method in the client side interface.
+ * <br/>
+ * {@code
+ * // Service side interface.
+ * public interface ICalculator
+ * {
+ *     int sum(int a, int b);
+ * }
+ * 
+ * // Client side interface. Methods have same names and arguments but they return the future.
+ * public interface ICalculatorAsync
+ * {
+ *     RpcFuture<Integer> sum(int a, int b);
+ * }
+ * 
+ * ...
+ * 
+ * IRpcClient<ICalculatorAsync> aClient = aFactory.createClient(ICalculatorAsync.class);
+ * aClient.attachDuplexOutputChannel(anOutputChannel);
+ * 
+ * // Call the service without blocking.
+ * aClient.getProxy().sum(10, 20).whenCompleted(new IMethod1<RpcFuture<Integer>>()
+ * {
+ *     public void invoke(RpcFuture<Integer> future) throws Exception
+ *     {
+ *         System.out.println("Result: " + future.get());
+ *     }
+ * });
+ * }
+ * </pre>
+ *
+ * @param <T> type of the return value.
+ */
+public class RpcFuture<T> implements Future<T>
+{
+    RpcFuture(IThreadDispatcher callbackDispatcher)
+    {
+        myCallbackDispatcher = callbackDispatcher;
+    }
+    
+    /**
+     * Cancels waiting for the result.
+     * The remote call is not stopped in the service but its result is ignored.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            return complete(null, new CancellationException("The remote call was cancelled."), true);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    @Override
+    public boolean isCancelled()
+    {
+        return myIsCancelled;
+    }
+
+    @Override
+    public boolean isDone()
+    {
+        return myIsDone;
+    }
+
+    /**
+     * Waits until the remote call is completed and returns the result.
+     * If the remote call failed the ExecutionException containing the cause is thrown.
+     * E.g. RpcException if the service method failed or TimeoutException if the RPC timeout elapsed.
+     */
+    @Override
+    public T get() throws InterruptedException, ExecutionException
+    {
+        while (!myIsDone)
+        {
+            myCompleted.waitOne();
+        }
+        
+        return getResult();
+    }
+
+    /**
+     * Waits until the remote call is completed or until the given timeout elapses and returns the result.
+     */
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+    {
+        long aTimeout = Math.max(1, unit.toMillis(timeout));
+        if (!myCompleted.waitOne(aTimeout) || !myIsDone)
+        {
+            throw new TimeoutException("The remote call has not completed within the specified timeout.");
+        }
+        
+        return getResult();
+    }
+    
+    /**
+     * Returns the error if the remote call failed.
+     * @return error or null if the call succeeded or is not completed yet.
+     */
+    public Exception getError()
+    {
+        return myError;
+    }
+    
+    /**
+     * Registers the callback which is invoked when the remote call is completed.
+     * If the call is already completed the callback is invoked immediately.
+     * @param callback callback invoked when the call is completed successfully or with an error.
+     * @return this future
+     */
+    public RpcFuture<T> whenCompleted(IMethod1<RpcFuture<T>> callback)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (callback == null)
+            {
+                throw new IllegalArgumentException("The input parameter callback is null.");
+            }
+            
+            myCallbacksLock.lock();
+            try
+            {
+                if (!myIsDone)
+                {
+                    myCallbacks.add(callback);
+                    return this;
+                }
+            }
+            finally
+            {
+                myCallbacksLock.unlock();
+            }
+            
+            notifyCompleted(callback);
+            return this;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    void setCancelCallback(Runnable cancelCallback)
+    {
+        myCancelCallback = cancelCallback;
+    }
+    
+    boolean complete(T result, Exception error)
+    {
+        return complete(result, error, false);
+    }
+    
+    private boolean complete(T result, Exception error, boolean isCancelled)
+    {
+        ArrayList<IMethod1<RpcFuture<T>>> aCallbacks;
+        myCallbacksLock.lock();
+        try
+        {
+            if (myIsDone)
+            {
+                return false;
+            }
+            
+            myResult = result;
+            myError = error;
+            myIsCancelled = isCancelled;
+            myIsDone = true;
+            
+            aCallbacks = myCallbacks;
+            myCallbacks = null;
+        }
+        finally
+        {
+            myCallbacksLock.unlock();
+        }
+        
+        myCompleted.set();
+        
+        if (isCancelled && myCancelCallback != null)
+        {
+            myCancelCallback.run();
+        }
+        
+        for (IMethod1<RpcFuture<T>> aCallback : aCallbacks)
+        {
+            notifyCompleted(aCallback);
+        }
+        
+        return true;
+    }
+    
+    private void notifyCompleted(final IMethod1<RpcFuture<T>> callback)
+    {
+        final RpcFuture<T> aFuture = this;
+        myCallbackDispatcher.invoke(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    callback.invoke(aFuture);
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.warning(TracedObject() + ErrorHandler.DetectedException, err);
+                }
+            }
+        });
+    }
+    
+    private T getResult() throws ExecutionException
+    {
+        if (myIsCancelled)
+        {
+            throw (CancellationException)myError;
+        }
+        if (myError != null)
+        {
+            throw new ExecutionException(myError);
+        }
+        
+        return myResult;
+    }
+    
+    
+    private IThreadDispatcher myCallbackDispatcher;
+    private Runnable myCancelCallback;
+    private ManualResetEvent myCompleted = new ManualResetEvent(false);
+    private ThreadLock myCallbacksLock = new ThreadLock();
+    private ArrayList<IMethod1<RpcFuture<T>>> myCallbacks = new ArrayList<IMethod1<RpcFuture<T>>>();
+    
+    private volatile boolean myIsDone;
+    private volatile boolean myIsCancelled;
+    private volatile T myResult;
+    private volatile Exception myError;
+    
+    private String TracedObject()
+    {
+        return getClass().getSimpleName() + " ";
+    }
+}
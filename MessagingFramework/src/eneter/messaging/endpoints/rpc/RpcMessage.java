@@ -32,6 +32,14 @@ public class RpcMessage implements Serializable
      * e.g. in case of InvokeMethod it specifies which method shall be invoked.
      */
     public String OperationName;
+    
+    /**
+     * Numeric id of the operation derived from the operation name. 0 means the id is not specified.
+     * 
+     * The id is not serialized by general serializers. It is used only by RpcCustomSerializer
+     * which can send the id instead of the operation name.
+     */
+    transient int OperationId;
 
     /**
      * Message data.
@@ -0,0 +1,38 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.endpoints.rpc;
+
+import java.nio.charset.Charset;
+
+/**
+ * Provides numeric ids of service methods.
+ * 
+ * The id is derived from the method name only. Therefore the client and the service get the same id
+ * without any negotiation even if the client interface declares only some methods or declares them as asynchronous.
+ *
+ */
+class RpcMethodIdProvider
+{
+    public static int getMethodId(String methodName)
+    {
+        // FNV-1a hash of UTF-8 bytes of the name.
+        byte[] aNameBytes = methodName.getBytes(myEncoding);
+        int aHash = 0x811C9DC5;
+        for (int i = 0; i < aNameBytes.length; ++i)
+        {
+            aHash ^= aNameBytes[i] & 0xFF;
+            aHash *= 0x01000193;
+        }
+        
+        // Note: 0 means the id is not specified.
+        return (aHash != 0) ? aHash : 1;
+    }
+    
+    private static final Charset myEncoding = Charset.forName("UTF-8");
+}
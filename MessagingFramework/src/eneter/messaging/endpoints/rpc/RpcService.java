@@ -19,6 +19,7 @@ import eneter.messaging.diagnostic.internal.ThreadLock;
 import eneter.messaging.infrastructure.attachable.internal.AttachableDuplexInputChannelBase;
 import eneter.messaging.messagingsystems.messagingsystembase.*;
 import eneter.net.system.*;
+import eneter.net.system.threading.internal.*;
 
 
 class RpcService<TServiceInterface> extends AttachableDuplexInputChannelBase
@@ -57,6 +58,54 @@ class RpcService<TServiceInterface> extends AttachableDuplexInputChannelBase
     }
     
     
+    // Sets how many requests from one batch can be executed in parallel.
+    public void setBatchParallelism(int batchParallelism)
+    {
+        myBatchParallelism = batchParallelism;
+        
+        if (mySingletonService != null)
+        {
+            mySingletonService.setBatchParallelism(batchParallelism);
+        }
+    }
+    
+    // Sets the maximum number of items in one chunk and how many chunks can be sent before the client consumes them.
+    public void setStreaming(int chunkSize, int creditWindow)
+    {
+        myStreamChunkSize = chunkSize;
+        myStreamCreditWindow = creditWindow;
+        
+        if (mySingletonService != null)
+        {
+            mySingletonService.setStreaming(chunkSize, creditWindow);
+        }
+    }
+    
+    // Sets how incoming remote calls are executed.
+    // Note: it can be set only before the input channel is attached because executors of connected clients
+    //       use the thread pool created here.
+    public void setExecution(ERpcServiceExecution execution, int maxThreads)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (isDuplexInputChannelAttached())
+            {
+                String anErrorMessage = TracedObject() + "failed to set the execution because the duplex input channel is already attached.";
+                EneterTrace.error(anErrorMessage);
+                throw new IllegalStateException(anErrorMessage);
+            }
+            
+            myExecutionThreadPool = (execution != ERpcServiceExecution.InputChannelThread) ?
+                new ScalableThreadPool(0, Math.max(1, maxThreads), 5000, "Eneter.RpcService") : null;
+            myExecution = execution;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
     @Override
     public Event<ResponseReceiverEventArgs> responseReceiverConnected()
     {
@@ -112,6 +161,7 @@ class RpcService<TServiceInterface> extends AttachableDuplexInputChannelBase
                     for (Entry<String, ServiceStub<TServiceInterface>> aServiceStub : myPerConnectionServices.entrySet())
                     {
                         aServiceStub.getValue().unsubscribeClientFromEvents(aServiceStub.getKey());
+                        aServiceStub.getValue().cancelClientStreams(aServiceStub.getKey());
                         aServiceStub.getValue().detachInputChannel();
                     }
                 }
@@ -133,11 +183,21 @@ class RpcService<TServiceInterface> extends AttachableDuplexInputChannelBase
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
+            if (myExecution == ERpcServiceExecution.PerClientSequential)
+            {
+                synchronized (myClientExecutors)
+                {
+                    myClientExecutors.put(e.getResponseReceiverId(), new SequentialExecutor(myExecutionThreadPool));
+                }
+            }
+            
             // If per client mode then create service stub for connected client.
             if (myServiceFactoryMethod != null)
             {
                 TServiceInterface aServiceInstanceForThisClient = myServiceFactoryMethod.invoke();
                 ServiceStub<TServiceInterface> aServiceStub = new ServiceStub<TServiceInterface>(aServiceInstanceForThisClient, mySerializer, myGetSerializer, myServiceClazz);
+                aServiceStub.setBatchParallelism(myBatchParallelism);
+                aServiceStub.setStreaming(myStreamChunkSize, myStreamCreditWindow);
                 aServiceStub.attachInputChannel(getAttachedDuplexInputChannel());
 
                 myPerConnectionServicesLock.lock();
@@ -179,9 +239,18 @@ class RpcService<TServiceInterface> extends AttachableDuplexInputChannelBase
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
+            if (myExecution == ERpcServiceExecution.PerClientSequential)
+            {
+                synchronized (myClientExecutors)
+                {
+                    myClientExecutors.remove(e.getResponseReceiverId());
+                }
+            }
+            
             if (mySingletonService != null)
             {
                 mySingletonService.unsubscribeClientFromEvents(e.getResponseReceiverId());
+                mySingletonService.cancelClientStreams(e.getResponseReceiverId());
             }
             else
             {
@@ -194,6 +263,7 @@ class RpcService<TServiceInterface> extends AttachableDuplexInputChannelBase
                     if (aServiceStub != null)
                     {
                         aServiceStub.unsubscribeClientFromEvents(e.getResponseReceiverId());
+                        aServiceStub.cancelClientStreams(e.getResponseReceiverId());
                         aServiceStub.detachInputChannel();
                         myPerConnectionServices.remove(e.getResponseReceiverId());
                     }
@@ -229,27 +299,66 @@ class RpcService<TServiceInterface> extends AttachableDuplexInputChannelBase
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
+            final ServiceStub<TServiceInterface> aServiceStub;
             if (mySingletonService != null)
             {
-                mySingletonService.processRemoteRequest(e);
+                aServiceStub = mySingletonService;
             }
             else
             {
-                // If per client mode then find the service stub associated with the client and execute the
-                // remote request.
+                // If per client mode then find the service stub associated with the client.
                 myPerConnectionServicesLock.lock();
                 try
                 {
-                    ServiceStub<TServiceInterface> aServiceStub = myPerConnectionServices.get(e.getResponseReceiverId());
-                    if (aServiceStub != null)
-                    {
-                        aServiceStub.processRemoteRequest(e);
-                    }
+                    aServiceStub = myPerConnectionServices.get(e.getResponseReceiverId());
                 }
                 finally
                 {
                     myPerConnectionServicesLock.unlock();
                 }
+                
+                if (aServiceStub == null)
+                {
+                    return;
+                }
+            }
+            
+            final DuplexChannelMessageEventArgs aRequest = e;
+            Runnable aRemoteCall = new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    aServiceStub.processRemoteRequest(aRequest);
+                }
+            };
+            
+            // Execute the remote request according to the execution policy.
+            if (myExecution == ERpcServiceExecution.Parallel)
+            {
+                myExecutionThreadPool.execute(aRemoteCall);
+            }
+            else if (myExecution == ERpcServiceExecution.PerClientSequential)
+            {
+                SequentialExecutor aClientExecutor;
+                synchronized (myClientExecutors)
+                {
+                    aClientExecutor = myClientExecutors.get(e.getResponseReceiverId());
+                }
+                
+                // Note: the executor is created when the client connects and removed when it disconnects.
+                //       So if it does not exist the client is not connected anymore and the request is not executed.
+                if (aClientExecutor == null)
+                {
+                    EneterTrace.warning(TracedObject() + "failed to execute the request because the client '" + e.getResponseReceiverId() + "' is not connected.");
+                    return;
+                }
+                
+                aClientExecutor.execute(aRemoteCall);
+            }
+            else
+            {
+                aRemoteCall.run();
             }
         }
         finally
@@ -266,6 +375,13 @@ class RpcService<TServiceInterface> extends AttachableDuplexInputChannelBase
     private GetSerializerCallback myGetSerializer;
     private Class<TServiceInterface> myServiceClazz;
     private IFunction<TServiceInterface> myServiceFactoryMethod;
+    private int myBatchParallelism = 1;
+    private int myStreamChunkSize = 100;
+    private int myStreamCreditWindow = 4;
+    
+    private volatile ERpcServiceExecution myExecution = ERpcServiceExecution.InputChannelThread;
+    private volatile ScalableThreadPool myExecutionThreadPool;
+    private HashMap<String, SequentialExecutor> myClientExecutors = new HashMap<String, SequentialExecutor>();
     
     
     private EventImpl<ResponseReceiverEventArgs> myResponseReceiverConnectedEvent = new EventImpl<ResponseReceiverEventArgs>();
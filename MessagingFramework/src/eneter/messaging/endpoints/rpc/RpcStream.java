@@ -0,0 +1,131 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.endpoints.rpc;
+
+import java.util.Iterator;
+
+import eneter.messaging.diagnostic.EneterTrace;
+
+/**
+ * Sequence of items streamed from the service to the client.
+ * 
+ * If a service method declares RpcStream&lt;T&gt; as the return type the return value is not serialized as one message.
+ * The service takes items from the returned stream and sends them to the client in chunks.
+ * The client reads items via the iterator while they are being received.
+ * The service sends only a limited number of chunks ahead and next chunks are sent when the client consumes
+ * the previous ones. Therefore neither the service nor the client needs to keep all items in memory.
+ * <br/><br/>
+ * Items are taken from the service side iterator in a thread from the thread pool.
+ * Therefore the iterator can also block until the next item is available and so the stream can be used to push
+ * items to the client when they occur. A chunk is sent when it is full or when the iterator ends.
+ * <br/><br/>
+ * On the client side the stream can be iterated only once. If the client does not want to read all items
+ * it shall call close() so that the service stops sending them.
+ * 
+ * <pre>
+ * Service returning a large result set.
+ * <br/>
+ * {@code
+ * public interface IDatabase
+ * {
+ *     RpcStream<MyRecord> getRecords(String query);
+ * }
+ * 
+ * public class Database implements IDatabase
+ * {
+ *     public RpcStream<MyRecord> getRecords(String query)
+ *     {
+ *         Iterator<MyRecord> aRecords = ... lazily read records ...
+ *         return new RpcStream<MyRecord>(aRecords);
+ *     }
+ * }
+ * 
+ * ...
+ * 
+ * // Client reads records while they are received.
+ * RpcStream<MyRecord> aRecords = aClient.getProxy().getRecords("...");
+ * try
+ * {
+ *     for (MyRecord aRecord : aRecords)
+ *     {
+ *         ...
+ *     }
+ * }
+ * finally
+ * {
+ *     aRecords.close();
+ * }
+ * }
+ * </pre>
+ *
+ * @param <T> type of streamed items
+ */
+public class RpcStream<T> implements Iterable<T>
+{
+    /**
+     * Constructs the stream from the given items.
+     * It is used by the service to return items.
+     * @param items items to be streamed
+     */
+    public RpcStream(Iterable<T> items)
+    {
+        this(items.iterator());
+    }
+    
+    /**
+     * Constructs the stream from the given iterator.
+     * It is used by the service to return items.
+     * @param items items to be streamed
+     */
+    public RpcStream(Iterator<T> items)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (items == null)
+            {
+                throw new IllegalArgumentException("The input parameter items is null.");
+            }
+            
+            myItems = items;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Used by the client side stream.
+    RpcStream()
+    {
+    }
+    
+    /**
+     * Returns the iterator of streamed items.
+     * The stream can be iterated only once.
+     * On the client side the iterator blocks until next items are received from the service.
+     * If the service fails during streaming the iterator throws RpcException.
+     */
+    @Override
+    public Iterator<T> iterator()
+    {
+        return myItems;
+    }
+    
+    /**
+     * Stops the streaming.
+     * On the client side it notifies the service that remaining items shall not be sent.
+     */
+    public void close()
+    {
+    }
+    
+    
+    private Iterator<T> myItems;
+}
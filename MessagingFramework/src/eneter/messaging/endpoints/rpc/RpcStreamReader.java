@@ -0,0 +1,221 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.endpoints.rpc;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeoutException;
+
+import eneter.messaging.dataprocessing.serializing.ISerializer;
+import eneter.messaging.diagnostic.EneterTrace;
+
+/**
+ * Client side stream reading chunks of items received from the service.
+ * For each consumed chunk the service gets the credit to send the next chunk.
+ */
+class RpcStreamReader<T> extends RpcStream<T>
+{
+    public RpcStreamReader(Class<T> itemClazz, ISerializer serializer, int timeout, Runnable creditSender, Runnable cancelSender)
+    {
+        myItemClazz = itemClazz;
+        mySerializer = serializer;
+        myTimeout = timeout;
+        myCreditSender = creditSender;
+        myCancelSender = cancelSender;
+    }
+    
+    @Override
+    public Iterator<T> iterator()
+    {
+        return myIterator;
+    }
+    
+    @Override
+    public void close()
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            synchronized (myChunks)
+            {
+                if (myIsCompleted)
+                {
+                    return;
+                }
+                
+                myIsCompleted = true;
+                myChunks.clear();
+                myCurrentChunk = null;
+                myChunks.notifyAll();
+            }
+            
+            myCancelSender.run();
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Stores the chunk received from the service.
+    public void addChunk(Object[] serializedItems)
+    {
+        synchronized (myChunks)
+        {
+            if (!myIsCompleted)
+            {
+                myChunks.add(serializedItems);
+                myChunks.notifyAll();
+            }
+        }
+    }
+    
+    // Called when the service ends the stream.
+    public void complete(Exception error)
+    {
+        synchronized (myChunks)
+        {
+            if (!myIsCompleted)
+            {
+                myIsEndReceived = true;
+                myError = error;
+                myChunks.notifyAll();
+            }
+        }
+    }
+    
+    private boolean hasNextItem()
+    {
+        boolean anIsChunkTaken = false;
+        try
+        {
+            synchronized (myChunks)
+            {
+                while (true)
+                {
+                    if (myCurrentChunk != null && myCurrentIdx < myCurrentChunk.length)
+                    {
+                        return true;
+                    }
+                    
+                    Object[] aChunk = myChunks.poll();
+                    if (aChunk != null)
+                    {
+                        myCurrentChunk = aChunk;
+                        myCurrentIdx = 0;
+                        anIsChunkTaken = true;
+                        continue;
+                    }
+                    
+                    if (myIsCompleted)
+                    {
+                        return false;
+                    }
+                    
+                    if (myIsEndReceived)
+                    {
+                        myIsCompleted = true;
+                        if (myError instanceof RuntimeException)
+                        {
+                            throw (RuntimeException)myError;
+                        }
+                        if (myError != null)
+                        {
+                            throw new IllegalStateException("Streaming from the service failed.", myError);
+                        }
+                        return false;
+                    }
+                    
+                    // Wait until the next chunk is received.
+                    long aStartTime = System.currentTimeMillis();
+                    myChunks.wait(myTimeout);
+                    if (myTimeout > 0 && myChunks.isEmpty() && !myIsEndReceived && !myIsCompleted &&
+                        System.currentTimeMillis() - aStartTime >= myTimeout)
+                    {
+                        throw new IllegalStateException(new TimeoutException("Next items from the stream were not received within the specified timeout " + myTimeout + "."));
+                    }
+                }
+            }
+        }
+        catch (InterruptedException err)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Waiting for next items from the stream was interrupted.", err);
+        }
+        finally
+        {
+            // The consumed chunk gives the service the credit to send the next one.
+            if (anIsChunkTaken)
+            {
+                myCreditSender.run();
+            }
+        }
+    }
+    
+    private T nextItem()
+    {
+        if (!hasNextItem())
+        {
+            throw new NoSuchElementException();
+        }
+        
+        Object aSerializedItem;
+        synchronized (myChunks)
+        {
+            aSerializedItem = myCurrentChunk[myCurrentIdx];
+            myCurrentChunk[myCurrentIdx++] = null;
+        }
+        
+        try
+        {
+            return mySerializer.deserialize(aSerializedItem, myItemClazz);
+        }
+        catch (Exception err)
+        {
+            EneterTrace.error(getClass().getSimpleName() + " failed to deserialize the item from the stream.", err);
+            throw new IllegalStateException("Failed to deserialize the item from the stream.", err);
+        }
+    }
+    
+    
+    private Class<T> myItemClazz;
+    private ISerializer mySerializer;
+    private int myTimeout;
+    private Runnable myCreditSender;
+    private Runnable myCancelSender;
+    
+    private ArrayDeque<Object[]> myChunks = new ArrayDeque<Object[]>();
+    private Object[] myCurrentChunk;
+    private int myCurrentIdx;
+    private boolean myIsEndReceived;
+    private boolean myIsCompleted;
+    private Exception myError;
+    
+    private Iterator<T> myIterator = new Iterator<T>()
+    {
+        @Override
+        public boolean hasNext()
+        {
+            return hasNextItem();
+        }
+
+        @Override
+        public T next()
+        {
+            return nextItem();
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException("Items cannot be removed from the stream.");
+        }
+    };
+}
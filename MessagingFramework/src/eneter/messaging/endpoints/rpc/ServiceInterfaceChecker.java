@@ -10,6 +10,7 @@ package eneter.messaging.endpoints.rpc;
 
 import java.lang.reflect.*;
 import java.util.HashSet;
+import java.util.concurrent.Future;
 
 import eneter.messaging.diagnostic.EneterTrace;
 import eneter.net.system.*;
@@ -18,6 +19,11 @@ import eneter.net.system.*;
 class ServiceInterfaceChecker
 {
     public static <T> void check(Class<T> clazz)
+    {
+        check(clazz, false);
+    }
+    
+    public static <T> void check(Class<T> clazz, boolean isAsyncAllowed)
     {
         // It must be an interface.
         if (!clazz.isInterface())
@@ -36,6 +42,7 @@ class ServiceInterfaceChecker
         }
         
         HashSet<String> aUsedNames = new HashSet<String>();
+        HashSet<Integer> aUsedMethodIds = new HashSet<Integer>();
         
         // Check declared methods and arguments of all public methods.
         for (Method aMethodInfo : clazz.getMethods())
@@ -75,8 +82,37 @@ class ServiceInterfaceChecker
             // If it is a method.
             else
             {
+                // Method ids derived from names must be unique.
+                if (!aUsedMethodIds.add(RpcMethodIdProvider.getMethodId(aMethodName)))
+                {
+                    String anErrorMessage = "The method '" + aMethodName + "' has the same method id as another method in the interface. Please rename the method.";
+                    EneterTrace.error(anErrorMessage);
+                    throw new IllegalStateException(anErrorMessage);
+                }
+                
                 // Generic return type is not supported because of generic erasure effect in Java.
-                if (aGenericReturnType instanceof ParameterizedType)
+                // Only RpcStream<T> is allowed and the client can declare Future<T> for asynchronous calls.
+                if (isStreamReturnType(aMethodInfo))
+                {
+                    ParameterizedType aGenericParameter = (ParameterizedType) aGenericReturnType;
+                    if (aGenericParameter.getActualTypeArguments()[0] instanceof Class<?> == false)
+                    {
+                        String anErrorMessage = "The item type of the stream returned from method '" + aMethodInfo.getName() + "' is generic.";
+                        EneterTrace.error(anErrorMessage);
+                        throw new IllegalStateException(anErrorMessage);
+                    }
+                }
+                else if (isAsyncAllowed && isAsyncReturnType(aMethodInfo))
+                {
+                    ParameterizedType aGenericParameter = (ParameterizedType) aGenericReturnType;
+                    if (aGenericParameter.getActualTypeArguments()[0] instanceof Class<?> == false)
+                    {
+                        String anErrorMessage = "The return parameter of asynchronous method '" + aMethodInfo.getName() + "' is generic.";
+                        EneterTrace.error(anErrorMessage);
+                        throw new IllegalStateException(anErrorMessage);
+                    }
+                }
+                else if (aGenericReturnType instanceof ParameterizedType)
                 {
                     String anErrorMessage = "The return parameter of method '" + aMethodInfo.getName() + "' is generic.";
                     EneterTrace.error(anErrorMessage);
@@ -107,4 +143,17 @@ class ServiceInterfaceChecker
         }
         
     }
+    
+    public static boolean isStreamReturnType(Method method)
+    {
+        return method.getReturnType() == RpcStream.class &&
+               method.getGenericReturnType() instanceof ParameterizedType;
+    }
+    
+    public static boolean isAsyncReturnType(Method method)
+    {
+        Class<?> aReturnType = method.getReturnType();
+        return (aReturnType == Future.class || aReturnType == RpcFuture.class) &&
+               method.getGenericReturnType() instanceof ParameterizedType;
+    }
 }
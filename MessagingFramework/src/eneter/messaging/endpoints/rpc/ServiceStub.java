@@ -2,6 +2,8 @@ package eneter.messaging.endpoints.rpc;
 
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import eneter.messaging.dataprocessing.serializing.*;
 import eneter.messaging.diagnostic.EneterTrace;
@@ -11,6 +13,7 @@ import eneter.messaging.messagingsystems.messagingsystembase.*;
 import eneter.net.system.*;
 import eneter.net.system.internal.StringExt;
 import eneter.net.system.linq.internal.EnumerableExt;
+import eneter.net.system.threading.internal.ThreadPool;
 
 
 
@@ -74,6 +77,22 @@ class ServiceStub<TServiceInterface>
         {
             myMethod = methodInfo;
             myInputParameterTypes = methodInfo.getParameterTypes();
+            
+            // If the method returns the stream then get the type of streamed items.
+            if (ServiceInterfaceChecker.isStreamReturnType(methodInfo))
+            {
+                myStreamItemType = (Class<?>) ((ParameterizedType) methodInfo.getGenericReturnType()).getActualTypeArguments()[0];
+            }
+            
+            // Note: access checks are done once here and not with every invoke.
+            try
+            {
+                myMethod.setAccessible(true);
+            }
+            catch (SecurityException err)
+            {
+                EneterTrace.warning(TracedObject() + "failed to suppress access checks for '" + methodInfo.getName() + "'.", err);
+            }
         }
 
         public Method getMethod()
@@ -86,8 +105,198 @@ class ServiceStub<TServiceInterface>
             return myInputParameterTypes;
         }
         
+        // Returns type of streamed items or null if the method does not return the stream.
+        public Class<?> getStreamItemType()
+        {
+            return myStreamItemType;
+        }
+        
         public Method myMethod;
         public Class<?>[] myInputParameterTypes;
+        public Class<?> myStreamItemType;
+    }
+    
+    // Sends items from the stream returned by a service method.
+    // A chunk is sent only if the client has the credit for it. The client returns the credit when it consumes the chunk.
+    private class StreamProducer
+    {
+        public StreamProducer(int id, String responseReceiverId, Iterator<?> items, Class<?> itemClazz, ISerializer serializer)
+        {
+            myId = id;
+            myResponseReceiverId = responseReceiverId;
+            myItems = items;
+            myItemClazz = itemClazz;
+            mySerializer = serializer;
+        }
+        
+        public String getResponseReceiverId()
+        {
+            return myResponseReceiverId;
+        }
+        
+        public void addCredits(int credits)
+        {
+            synchronized (this)
+            {
+                myCredits += credits;
+                if (myIsProducing || myIsCancelled)
+                {
+                    return;
+                }
+                myIsProducing = true;
+            }
+            
+            // Note: items are taken in the thread pool because the iterator can block until next items are available.
+            ThreadPool.queueUserWorkItem(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    produce();
+                }
+            });
+        }
+        
+        // If the client is disconnected then the response ending the stream is not sent.
+        public void cancel(boolean isClientConnected)
+        {
+            synchronized (this)
+            {
+                myIsCancelled = true;
+                myIsClientConnected = isClientConnected;
+                if (myIsProducing)
+                {
+                    // The producing thread ends the stream.
+                    return;
+                }
+            }
+            
+            finish(null);
+        }
+        
+        private void produce()
+        {
+            EneterTrace aTrace = EneterTrace.entering();
+            try
+            {
+                while (true)
+                {
+                    synchronized (this)
+                    {
+                        if (myIsCancelled)
+                        {
+                            myIsProducing = false;
+                            break;
+                        }
+                        if (myCredits <= 0)
+                        {
+                            myIsProducing = false;
+                            return;
+                        }
+                        --myCredits;
+                    }
+                    
+                    ArrayList<Object> aChunk = new ArrayList<Object>();
+                    boolean anIsEnd = false;
+                    Exception anError = null;
+                    try
+                    {
+                        while (aChunk.size() < myStreamChunkSize)
+                        {
+                            if (!myItems.hasNext())
+                            {
+                                anIsEnd = true;
+                                break;
+                            }
+                            
+                            // Note: items are of the type declared by RpcStream<T> in the service interface.
+                            @SuppressWarnings("unchecked")
+                            Object aSerializedItem = mySerializer.serialize(myItems.next(), (Class<Object>)myItemClazz);
+                            aChunk.add(aSerializedItem);
+                        }
+                    }
+                    catch (Exception err)
+                    {
+                        // Note: already taken items are sent before the error.
+                        EneterTrace.error(TracedObject() + "failed to get the next item from the stream.", err);
+                        anError = err;
+                        anIsEnd = true;
+                    }
+                    
+                    if (!aChunk.isEmpty())
+                    {
+                        RpcMessage aChunkMessage = new RpcMessage();
+                        aChunkMessage.Id = myId;
+                        aChunkMessage.Request = ERpcRequest.StreamChunk;
+                        aChunkMessage.SerializedParams = aChunk.toArray();
+                        
+                        try
+                        {
+                            Object aSerializedChunk = mySerializer.serialize(aChunkMessage, RpcMessage.class);
+                            myInputChannel.sendResponseMessage(myResponseReceiverId, aSerializedChunk);
+                        }
+                        catch (Exception err)
+                        {
+                            EneterTrace.error(TracedObject() + "failed to send the chunk of the stream. " + ErrorHandler.FailedToSendResponseMessage, err);
+                            removeStream(this);
+                            return;
+                        }
+                    }
+                    
+                    if (anIsEnd)
+                    {
+                        finish(anError);
+                        return;
+                    }
+                }
+                
+                finish(null);
+            }
+            finally
+            {
+                EneterTrace.leaving(aTrace);
+            }
+        }
+        
+        // Removes the stream and sends the response which ends the stream on the client side.
+        private void finish(Exception error)
+        {
+            if (!removeStream(this) || !myIsClientConnected)
+            {
+                return;
+            }
+            
+            RpcMessage aResponseMessage = new RpcMessage();
+            aResponseMessage.Id = myId;
+            aResponseMessage.Request = ERpcRequest.Response;
+            if (error != null)
+            {
+                aResponseMessage.ErrorType = error.getClass().getSimpleName();
+                aResponseMessage.ErrorMessage = error.getMessage();
+                aResponseMessage.ErrorDetails = exceptionToString(error);
+            }
+            
+            try
+            {
+                Object aSerializedResponse = mySerializer.serialize(aResponseMessage, RpcMessage.class);
+                myInputChannel.sendResponseMessage(myResponseReceiverId, aSerializedResponse);
+            }
+            catch (Exception err)
+            {
+                EneterTrace.error(TracedObject() + "failed to send the end of the stream. " + ErrorHandler.FailedToSendResponseMessage, err);
+            }
+        }
+        
+        private int myId;
+        private String myResponseReceiverId;
+        private Iterator<?> myItems;
+        private Class<?> myItemClazz;
+        private ISerializer mySerializer;
+        
+        private int myCredits;
+        private boolean myIsProducing;
+        private boolean myIsCancelled;
+        private volatile boolean myIsClientConnected = true;
     }
     
     
@@ -101,10 +310,27 @@ class ServiceStub<TServiceInterface>
             myServiceClazz = serviceClazz;
             myGetSerializer = getSerializer;
 
+            TreeMap<Integer, ServiceMethod> aMethodsById = new TreeMap<Integer, ServiceMethod>();
             for (Method aMethod : myServiceClazz.getMethods())
             {
                 ServiceMethod aServiceMethod = new ServiceMethod(aMethod);
                 myServiceMethods.put(aMethod.getName(), aServiceMethod);
+                
+                if (aMethod.getReturnType() != Event.class)
+                {
+                    aMethodsById.put(RpcMethodIdProvider.getMethodId(aMethod.getName()), aServiceMethod);
+                }
+            }
+            
+            // Methods sorted by ids so that they can be found by the binary search.
+            myServiceMethodIds = new int[aMethodsById.size()];
+            myServiceMethodsById = new ArrayList<ServiceMethod>(aMethodsById.size());
+            int anIdx = 0;
+            for (Map.Entry<Integer, ServiceMethod> aMethodItem : aMethodsById.entrySet())
+            {
+                myServiceMethodIds[anIdx] = aMethodItem.getKey();
+                myServiceMethodsById.add(aMethodItem.getValue());
+                ++anIdx;
             }
         }
         finally
@@ -113,6 +339,19 @@ class ServiceStub<TServiceInterface>
         }
     }
     
+    // Sets the maximum number of items in one chunk and how many chunks can be sent before the client consumes them.
+    public void setStreaming(int chunkSize, int creditWindow)
+    {
+        myStreamChunkSize = Math.max(1, chunkSize);
+        myStreamCreditWindow = Math.max(1, creditWindow);
+    }
+    
+    // Sets how many requests from one batch can be executed in parallel.
+    public void setBatchParallelism(int batchParallelism)
+    {
+        myBatchParallelism = Math.max(1, batchParallelism);
+    }
+    
     public void attachInputChannel(IDuplexInputChannel inputChannel) throws Exception
     {
         EneterTrace aTrace = EneterTrace.entering();
@@ -351,20 +590,183 @@ class ServiceStub<TServiceInterface>
                 return;
             }
 
+            // If it is the batch of requests.
+            if (aRequestMessage.Request == ERpcRequest.Batch)
+            {
+                processBatch(aRequestMessage, e.getResponseReceiverId(), aSerializer);
+                return;
+            }
+            
+            // If the client controls the stream.
+            if (aRequestMessage.Request == ERpcRequest.StreamCredit || aRequestMessage.Request == ERpcRequest.CancelStream)
+            {
+                StreamProducer aStreamProducer;
+                synchronized (myActiveStreams)
+                {
+                    aStreamProducer = myActiveStreams.get(getStreamKey(e.getResponseReceiverId(), aRequestMessage.Id));
+                }
+                
+                if (aStreamProducer != null)
+                {
+                    if (aRequestMessage.Request == ERpcRequest.StreamCredit)
+                    {
+                        aStreamProducer.addCredits(1);
+                    }
+                    else
+                    {
+                        aStreamProducer.cancel(true);
+                    }
+                }
+                return;
+            }
+            
+            RpcMessage aResponseMessage = processRequest(aRequestMessage, e.getResponseReceiverId(), aSerializer);
+            
+            // If the method returned the stream then the response is sent when the stream ends.
+            if (aResponseMessage == null)
+            {
+                return;
+            }
+
+            try
+            {
+                // Serialize the response message.
+                Object aSerializedResponse = aSerializer.serialize(aResponseMessage, RpcMessage.class);
+                myInputChannel.sendResponseMessage(e.getResponseReceiverId(), aSerializedResponse);
+            }
+            catch (Exception err)
+            {
+                EneterTrace.error(TracedObject() + "." + aRequestMessage.OperationName + " " + ErrorHandler.FailedToSendResponseMessage, err);
+            }
+        }
+        catch (Exception err)
+        {
+            EneterTrace.error(TracedObject() + ErrorHandler.DetectedException);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    public void unsubscribeClientFromEvents(String responseReceiverId)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            myServiceEventsLock.lock();
+            try
+            {
+                for (EventContext anEventContext : myServiceEvents)
+                {
+                    anEventContext.getSubscribedClients().remove(responseReceiverId);
+                }
+            }
+            finally
+            {
+                myServiceEventsLock.unlock();
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Stops streams to the disconnected client.
+    public void cancelClientStreams(String responseReceiverId)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            ArrayList<StreamProducer> aClientStreams = new ArrayList<StreamProducer>();
+            synchronized (myActiveStreams)
+            {
+                for (StreamProducer aStreamProducer : myActiveStreams.values())
+                {
+                    if (aStreamProducer.getResponseReceiverId().equals(responseReceiverId))
+                    {
+                        aClientStreams.add(aStreamProducer);
+                    }
+                }
+            }
+            
+            for (StreamProducer aStreamProducer : aClientStreams)
+            {
+                aStreamProducer.cancel(false);
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private void startStream(int id, String responseReceiverId, RpcStream<?> stream, Class<?> itemClazz, ISerializer serializer)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            StreamProducer aStreamProducer = new StreamProducer(id, responseReceiverId, stream.iterator(), itemClazz, serializer);
+            synchronized (myActiveStreams)
+            {
+                myActiveStreams.put(getStreamKey(responseReceiverId, id), aStreamProducer);
+            }
+            
+            // The client can receive the limited number of chunks before it consumes them.
+            aStreamProducer.addCredits(myStreamCreditWindow);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Returns true if the stream was active.
+    private boolean removeStream(StreamProducer streamProducer)
+    {
+        synchronized (myActiveStreams)
+        {
+            String aKey = getStreamKey(streamProducer.getResponseReceiverId(), streamProducer.myId);
+            if (myActiveStreams.get(aKey) != streamProducer)
+            {
+                return false;
+            }
+            
+            myActiveStreams.remove(aKey);
+            return true;
+        }
+    }
+    
+    private static String getStreamKey(String responseReceiverId, int id)
+    {
+        return responseReceiverId + "#" + id;
+    }
+    
+    private RpcMessage processRequest(RpcMessage requestMessage, String responseReceiverId, ISerializer serializer) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
             RpcMessage aResponseMessage = new RpcMessage();
-            aResponseMessage.Id = aRequestMessage.Id;
+            aResponseMessage.Id = requestMessage.Id;
             aResponseMessage.Request = ERpcRequest.Response;
 
             // If it is a remote call of a method/function.
-            if (aRequestMessage.Request == ERpcRequest.InvokeMethod)
+            if (requestMessage.Request == ERpcRequest.InvokeMethod)
             {
                 EneterTrace.debug("RPC RECEIVED");
                 
                 // Get the method from the service that shall be invoked.
-                ServiceMethod aServiceMethod = myServiceMethods.get(aRequestMessage.OperationName);
+                // Note: if the request contains only the method id then the name is not available.
+                ServiceMethod aServiceMethod = (requestMessage.OperationName != null) ?
+                    myServiceMethods.get(requestMessage.OperationName) :
+                    getServiceMethod(requestMessage.OperationId);
                 if (aServiceMethod != null)
                 {
-                    if (aRequestMessage.SerializedParams != null && aRequestMessage.SerializedParams.length == aServiceMethod.getInputParameterTypes().length)
+                    requestMessage.OperationName = aServiceMethod.getMethod().getName();
+                    
+                    if (requestMessage.SerializedParams != null && requestMessage.SerializedParams.length == aServiceMethod.getInputParameterTypes().length)
                     {
                         // Deserialize input parameters.
                         Object[] aDeserializedInputParameters = new Object[aServiceMethod.getInputParameterTypes().length];
@@ -372,12 +774,12 @@ class ServiceStub<TServiceInterface>
                         {
                             for (int i = 0; i < aServiceMethod.getInputParameterTypes().length; ++i)
                             {
-                                aDeserializedInputParameters[i] = aSerializer.deserialize(aRequestMessage.SerializedParams[i], aServiceMethod.getInputParameterTypes()[i]);
+                                aDeserializedInputParameters[i] = serializer.deserialize(requestMessage.SerializedParams[i], aServiceMethod.getInputParameterTypes()[i]);
                             }
                         }
                         catch (Exception err)
                         {
-                            String anErrorMessage = "failed to deserialize input parameters for '" + aRequestMessage.OperationName + "'.";
+                            String anErrorMessage = "failed to deserialize input parameters for '" + requestMessage.OperationName + "'.";
                             EneterTrace.error(anErrorMessage, err);
 
                             aResponseMessage.ErrorType = err.getClass().getSimpleName();
@@ -410,13 +812,25 @@ class ServiceStub<TServiceInterface>
                             {
                                 try
                                 {
+                                    // If the method returns the stream then items are sent in chunks.
+                                    if (aServiceMethod.getStreamItemType() != null)
+                                    {
+                                        if (aResult != null)
+                                        {
+                                            startStream(requestMessage.Id, responseReceiverId, (RpcStream<?>)aResult, aServiceMethod.getStreamItemType(), serializer);
+                                            return null;
+                                        }
+                                        
+                                        // Null stream is the empty stream.
+                                        aResponseMessage.SerializedReturn = null;
+                                    }
                                     // Serialize the result.
-                                    if (aServiceMethod.getMethod().getReturnType() != Void.class)
+                                    else if (aServiceMethod.getMethod().getReturnType() != Void.class)
                                     {
                                         // Note: aResult is of type aServiceMethod.getMethod().getReturnType().
                                         //       Therefore the generic type checking warning can be suppressed.
                                         @SuppressWarnings("unchecked")
-                                        Object aSerializedReturn = aSerializer.serialize(aResult, (Class<Object>)aServiceMethod.getMethod().getReturnType());
+                                        Object aSerializedReturn = serializer.serialize(aResult, (Class<Object>)aServiceMethod.getMethod().getReturnType());
                                         aResponseMessage.SerializedReturn = aSerializedReturn;
                                     }
                                     else
@@ -439,25 +853,27 @@ class ServiceStub<TServiceInterface>
                     else
                     {
                         aResponseMessage.ErrorType = IllegalStateException.class.getSimpleName();
-                        aResponseMessage.ErrorMessage = TracedObject() + "failed to process '" + aRequestMessage.OperationName + "' because it has incorrect number of input parameters.";
+                        aResponseMessage.ErrorMessage = TracedObject() + "failed to process '" + requestMessage.OperationName + "' because it has incorrect number of input parameters.";
                         EneterTrace.error(aResponseMessage.ErrorMessage);
                     }
                 }
                 else
                 {
                     aResponseMessage.ErrorType = IllegalStateException.class.getSimpleName();
-                    aResponseMessage.ErrorMessage = "Method '" + aRequestMessage.OperationName + "' does not exist in the service.";
+                    aResponseMessage.ErrorMessage = (requestMessage.OperationName != null) ?
+                        "Method '" + requestMessage.OperationName + "' does not exist in the service." :
+                        "Method with id " + requestMessage.OperationId + " does not exist in the service.";
                     EneterTrace.error(aResponseMessage.ErrorMessage);
                 }
             }
             // If it is a request to subscribe/unsubcribe an event.
-            else if (aRequestMessage.Request == ERpcRequest.SubscribeEvent || aRequestMessage.Request == ERpcRequest.UnsubscribeEvent)
+            else if (requestMessage.Request == ERpcRequest.SubscribeEvent || requestMessage.Request == ERpcRequest.UnsubscribeEvent)
             {
                 EventContext anEventContext = null;
                 myServiceEventsLock.lock();
                 try
                 {
-                    final String anOperationName = aRequestMessage.OperationName;
+                    final String anOperationName = requestMessage.OperationName;
                     anEventContext = EnumerableExt.firstOrDefault(myServiceEvents, new IFunction1<Boolean, EventContext>()
                     {
                         @Override
@@ -469,19 +885,19 @@ class ServiceStub<TServiceInterface>
 
                     if (anEventContext != null)
                     {
-                        if (aRequestMessage.Request == ERpcRequest.SubscribeEvent)
+                        if (requestMessage.Request == ERpcRequest.SubscribeEvent)
                         {
                             EneterTrace.debug("SUBSCRIBE REMOTE EVENT RECEIVED");
                             
                             // Note: Events are added to the HashSet.
                             //       Therefore it is ensured each client is subscribed only once.
-                            anEventContext.getSubscribedClients().add(e.getResponseReceiverId());
+                            anEventContext.getSubscribedClients().add(responseReceiverId);
                         }
                         else
                         {
                             EneterTrace.debug("UNSUBSCRIBE REMOTE EVENT RECEIVED");
                             
-                            anEventContext.getSubscribedClients().remove(e.getResponseReceiverId());
+                            anEventContext.getSubscribedClients().remove(responseReceiverId);
                         }
                     }
                 }
@@ -493,7 +909,7 @@ class ServiceStub<TServiceInterface>
                 if (anEventContext == null)
                 {
                     aResponseMessage.ErrorType = IllegalStateException.class.getSimpleName();
-                    aResponseMessage.ErrorMessage = TracedObject() + "Event '" + aRequestMessage.OperationName + "' does not exist in the service.";
+                    aResponseMessage.ErrorMessage = TracedObject() + "Event '" + requestMessage.OperationName + "' does not exist in the service.";
                     EneterTrace.error(aResponseMessage.ErrorMessage);
                 }
             }
@@ -503,22 +919,8 @@ class ServiceStub<TServiceInterface>
                 aResponseMessage.ErrorMessage = TracedObject() + "could not recognize the incoming request. If it is RPC, Subscribing or Unsubscribfing.";
                 EneterTrace.error(aResponseMessage.ErrorMessage);
             }
-            
 
-            try
-            {
-                // Serialize the response message.
-                Object aSerializedResponse = aSerializer.serialize(aResponseMessage, RpcMessage.class);
-                myInputChannel.sendResponseMessage(e.getResponseReceiverId(), aSerializedResponse);
-            }
-            catch (Exception err)
-            {
-                EneterTrace.error(TracedObject() + "." + aRequestMessage.OperationName + " " + ErrorHandler.FailedToSendResponseMessage, err);
-            }
-        }
-        catch (Exception err)
-        {
-            EneterTrace.error(TracedObject() + ErrorHandler.DetectedException);
+            return aResponseMessage;
         }
         finally
         {
@@ -526,23 +928,104 @@ class ServiceStub<TServiceInterface>
         }
     }
     
-    public void unsubscribeClientFromEvents(String responseReceiverId)
+    private void processBatch(RpcMessage batchMessage, final String responseReceiverId, final ISerializer serializer)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            myServiceEventsLock.lock();
-            try
+            final Object[] aSerializedRequests = (batchMessage.SerializedParams != null) ? batchMessage.SerializedParams : new Object[0];
+            final Object[] aSerializedResponses = new Object[aSerializedRequests.length];
+            
+            final AtomicInteger aNextRequestIdx = new AtomicInteger();
+            Runnable aBatchWorker = new Runnable()
             {
-                for (EventContext anEventContext : myServiceEvents)
+                @Override
+                public void run()
                 {
-                    anEventContext.getSubscribedClients().remove(responseReceiverId);
+                    for (int i = aNextRequestIdx.getAndIncrement(); i < aSerializedRequests.length; i = aNextRequestIdx.getAndIncrement())
+                    {
+                        try
+                        {
+                            RpcMessage aRequestMessage = serializer.deserialize(aSerializedRequests[i], RpcMessage.class);
+                            RpcMessage aResponseMessage = processRequest(aRequestMessage, responseReceiverId, serializer);
+                            
+                            // Note: there is no response for methods returning the stream.
+                            //       The stream is sent by separate messages.
+                            if (aResponseMessage != null)
+                            {
+                                aSerializedResponses[i] = serializer.serialize(aResponseMessage, RpcMessage.class);
+                            }
+                        }
+                        catch (Exception err)
+                        {
+                            EneterTrace.error(TracedObject() + "failed to process the request from the batch.", err);
+                        }
+                    }
                 }
+            };
+            
+            // Requests from the batch are processed by the current thread and by additional threads
+            // from the thread pool if the parallel processing is allowed.
+            int anAdditionalWorkers = Math.min(myBatchParallelism, aSerializedRequests.length) - 1;
+            if (anAdditionalWorkers > 0)
+            {
+                final CountDownLatch aWorkersCompleted = new CountDownLatch(anAdditionalWorkers);
+                final Runnable aWorker = aBatchWorker;
+                for (int i = 0; i < anAdditionalWorkers; ++i)
+                {
+                    ThreadPool.queueUserWorkItem(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            try
+                            {
+                                aWorker.run();
+                            }
+                            finally
+                            {
+                                aWorkersCompleted.countDown();
+                            }
+                        }
+                    });
+                }
+                
+                aBatchWorker.run();
+                aWorkersCompleted.await();
             }
-            finally
+            else
             {
-                myServiceEventsLock.unlock();
+                aBatchWorker.run();
+            }
+            
+            // Responses are sent back in one message.
+            ArrayList<Object> aResponses = new ArrayList<Object>(aSerializedResponses.length);
+            for (Object aSerializedResponse : aSerializedResponses)
+            {
+                if (aSerializedResponse != null)
+                {
+                    aResponses.add(aSerializedResponse);
+                }
+            }
+            
+            RpcMessage aBatchResponse = new RpcMessage();
+            aBatchResponse.Id = batchMessage.Id;
+            aBatchResponse.Request = ERpcRequest.Batch;
+            aBatchResponse.SerializedParams = aResponses.toArray();
+            
+            try
+            {
+                Object aSerializedBatchResponse = serializer.serialize(aBatchResponse, RpcMessage.class);
+                myInputChannel.sendResponseMessage(responseReceiverId, aSerializedBatchResponse);
             }
+            catch (Exception err)
+            {
+                EneterTrace.error(TracedObject() + "failed to send the batch response. " + ErrorHandler.FailedToSendResponseMessage, err);
+            }
+        }
+        catch (Exception err)
+        {
+            EneterTrace.error(TracedObject() + ErrorHandler.DetectedException, err);
         }
         finally
         {
@@ -550,6 +1033,12 @@ class ServiceStub<TServiceInterface>
         }
     }
     
+    private ServiceMethod getServiceMethod(int methodId)
+    {
+        int anIdx = Arrays.binarySearch(myServiceMethodIds, methodId);
+        return (anIdx >= 0) ? myServiceMethodsById.get(anIdx) : null;
+    }
+    
     private static String exceptionToString(Throwable err)
     {
         StringBuilder aResult = new StringBuilder();
@@ -582,7 +1071,14 @@ class ServiceStub<TServiceInterface>
     private ThreadLock myServiceEventsLock = new ThreadLock();
     private HashSet<EventContext> myServiceEvents = new HashSet<EventContext>();
     private HashMap<String, ServiceMethod> myServiceMethods = new HashMap<String, ServiceMethod>();
+    private int[] myServiceMethodIds;
+    private ArrayList<ServiceMethod> myServiceMethodsById;
     private IDuplexInputChannel myInputChannel;
+    private int myBatchParallelism = 1;
+    
+    private int myStreamChunkSize = 100;
+    private int myStreamCreditWindow = 4;
+    private HashMap<String, StreamProducer> myActiveStreams = new HashMap<String, StreamProducer>();
     
     private String TracedObject()
     {
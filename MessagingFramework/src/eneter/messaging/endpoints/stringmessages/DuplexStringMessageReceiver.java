@@ -8,6 +8,11 @@
 
 package eneter.messaging.endpoints.stringmessages;
 
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+import eneter.messaging.dataprocessing.serializing.internal.EncoderDecoder;
 import eneter.messaging.diagnostic.*;
 import eneter.messaging.diagnostic.internal.ErrorHandler;
 import eneter.messaging.infrastructure.attachable.internal.AttachableDuplexInputChannelBase;
@@ -24,6 +29,12 @@ class DuplexStringMessageReceiver extends AttachableDuplexInputChannelBase
     {
         return myRequestReceivedEventImpl.getApi();
     }
+    
+    @Override
+    public Event<StringBatchReceivedEventArgs> batchReceived()
+    {
+        return myBatchReceivedEventImpl.getApi();
+    }
 
     @Override
     public Event<ResponseReceiverEventArgs> responseReceiverConnected()
@@ -74,11 +85,18 @@ class DuplexStringMessageReceiver extends AttachableDuplexInputChannelBase
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            if (!myRequestReceivedEventImpl.isSubscribed())
+            if (!myRequestReceivedEventImpl.isSubscribed() && !myBatchReceivedEventImpl.isSubscribed())
             {
                 EneterTrace.warning(TracedObject() + ErrorHandler.NobodySubscribedForMessage);
                 return;
             }
+            
+            // The batch of messages is sent as the binary message.
+            if (e.getMessage() instanceof byte[])
+            {
+                processBatch((byte[])e.getMessage(), e.getResponseReceiverId());
+                return;
+            }
 
             if (e.getMessage() instanceof String == false)
             {
@@ -102,6 +120,66 @@ class DuplexStringMessageReceiver extends AttachableDuplexInputChannelBase
         }
     }
 
+    private void processBatch(byte[] batch, String responseReceiverId)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            ArrayList<String> aMessages;
+            try
+            {
+                DataInputStream aReader = new DataInputStream(new ByteArrayInputStream(batch));
+                int aNumberOfMessages = myEncoderDecoder.readInt32(aReader, false);
+                if (aNumberOfMessages < 0)
+                {
+                    throw new IllegalStateException("Incorrect number of messages in the batch: " + aNumberOfMessages);
+                }
+                
+                aMessages = new ArrayList<String>(Math.min(aNumberOfMessages, batch.length));
+                for (int i = 0; i < aNumberOfMessages; ++i)
+                {
+                    aMessages.add(myEncoderDecoder.readPlainString(aReader, myEncoding, false));
+                }
+            }
+            catch (Exception err)
+            {
+                EneterTrace.error(TracedObject() + "failed to receive the batch of request messages.", err);
+                return;
+            }
+            
+            if (myBatchReceivedEventImpl.isSubscribed())
+            {
+                try
+                {
+                    myBatchReceivedEventImpl.raise(this, new StringBatchReceivedEventArgs(aMessages, responseReceiverId));
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.warning(TracedObject() + ErrorHandler.DetectedException, err);
+                }
+            }
+            else
+            {
+                // Nobody is subscribed for batches so notify messages one by one.
+                for (String aMessage : aMessages)
+                {
+                    try
+                    {
+                        myRequestReceivedEventImpl.raise(this, new StringRequestReceivedEventArgs(aMessage, responseReceiverId));
+                    }
+                    catch (Exception err)
+                    {
+                        EneterTrace.warning(TracedObject() + ErrorHandler.DetectedException, err);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
     @Override
     protected void onResponseReceiverConnected(Object sender,
             ResponseReceiverEventArgs e)
@@ -155,9 +233,12 @@ class DuplexStringMessageReceiver extends AttachableDuplexInputChannelBase
     
     
     private EventImpl<StringRequestReceivedEventArgs> myRequestReceivedEventImpl = new EventImpl<StringRequestReceivedEventArgs>();
+    private EventImpl<StringBatchReceivedEventArgs> myBatchReceivedEventImpl = new EventImpl<StringBatchReceivedEventArgs>();
     private EventImpl<ResponseReceiverEventArgs> myResponseReceiverConnectedEventImpl = new EventImpl<ResponseReceiverEventArgs>();
     private EventImpl<ResponseReceiverEventArgs> myResponseReceiverDisconnectedEventImpl = new EventImpl<ResponseReceiverEventArgs>();
-   
+    
+    private EncoderDecoder myEncoderDecoder = new EncoderDecoder();
+    private Charset myEncoding = Charset.forName("UTF-8");
     
     
     @Override
@@ -8,6 +8,11 @@
 
 package eneter.messaging.endpoints.stringmessages;
 
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import eneter.messaging.dataprocessing.serializing.internal.EncoderDecoder;
 import eneter.messaging.diagnostic.*;
 import eneter.messaging.diagnostic.internal.ErrorHandler;
 import eneter.messaging.infrastructure.attachable.internal.AttachableDuplexOutputChannelBase;
@@ -65,6 +70,54 @@ class DuplexStringMessageSender extends AttachableDuplexOutputChannelBase
         }
     }
 
+    @Override
+    public void sendMessages(List<String> messages) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (messages == null)
+            {
+                throw new IllegalArgumentException("The input parameter messages is null.");
+            }
+            
+            if (getAttachedDuplexOutputChannel() == null)
+            {
+                String anError = TracedObject() + "failed to send request messages because it is not attached to any duplex output channel.";
+                EneterTrace.error(anError);
+                throw new IllegalStateException(anError);
+            }
+            
+            if (messages.isEmpty())
+            {
+                return;
+            }
+
+            try
+            {
+                // Note: the batch is sent as the binary message so that the receiver can distinguish it from a single text message.
+                ByteArrayOutputStream aBuffer = new ByteArrayOutputStream();
+                DataOutputStream aWriter = new DataOutputStream(aBuffer);
+                myEncoderDecoder.writeInt32(aWriter, messages.size(), false);
+                for (String aMessage : messages)
+                {
+                    myEncoderDecoder.writePlainString(aWriter, aMessage, myEncoding, false);
+                }
+                
+                getAttachedDuplexOutputChannel().sendMessage(aBuffer.toByteArray());
+            }
+            catch (Exception err)
+            {
+                EneterTrace.error(TracedObject() + ErrorHandler.FailedToSendMessage, err);
+                throw err;
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
     @Override
     protected void onResponseMessageReceived(Object sender,
             DuplexChannelMessageEventArgs e)
@@ -162,4 +215,7 @@ class DuplexStringMessageSender extends AttachableDuplexOutputChannelBase
     private EventImpl<DuplexChannelEventArgs> myConnectionOpenedEventImpl = new EventImpl<DuplexChannelEventArgs>();
     private EventImpl<DuplexChannelEventArgs> myConnectionClosedEventImpl = new EventImpl<DuplexChannelEventArgs>();
     private EventImpl<StringResponseReceivedEventArgs> myResponseReceivedEventImpl = new EventImpl<StringResponseReceivedEventArgs>();
+    
+    private EncoderDecoder myEncoderDecoder = new EncoderDecoder();
+    private Charset myEncoding = Charset.forName("UTF-8");
 }
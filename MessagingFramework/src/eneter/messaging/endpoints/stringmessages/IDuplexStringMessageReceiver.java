@@ -24,6 +24,13 @@ public interface IDuplexStringMessageReceiver extends IAttachableDuplexInputChan
      */
     Event<StringRequestReceivedEventArgs> requestReceived();
     
+    /**
+     * The event is raised when the batch of text messages sent by sendMessages(..) is received.
+     * If nobody is subscribed to this event then requestReceived() is raised for each message of the batch.
+     * @return
+     */
+    Event<StringBatchReceivedEventArgs> batchReceived();
+    
     /**
      * The event is raised when a duplex string message sender opened the connection.
      * @return
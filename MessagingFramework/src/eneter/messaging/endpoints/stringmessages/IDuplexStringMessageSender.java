@@ -9,6 +9,8 @@
 
 package eneter.messaging.endpoints.stringmessages;
 
+import java.util.List;
+
 import eneter.messaging.infrastructure.attachable.IAttachableDuplexOutputChannel;
 import eneter.messaging.messagingsystems.messagingsystembase.DuplexChannelEventArgs;
 import eneter.net.system.Event;
@@ -43,4 +45,16 @@ public interface IDuplexStringMessageSender extends IAttachableDuplexOutputChann
      * @throws Exception
      */
     void sendMessage(String message) throws Exception;
+    
+    /**
+     * Sends more text messages in one frame.
+     * 
+     * Messages are encoded into one binary message so that the overhead of sending each message separately is saved.
+     * The receiver raises batchReceived() for the whole batch or requestReceived() for each message
+     * if nobody is subscribed to batchReceived().
+     * 
+     * @param messages text messages to be sent
+     * @throws Exception
+     */
+    void sendMessages(List<String> messages) throws Exception;
 }
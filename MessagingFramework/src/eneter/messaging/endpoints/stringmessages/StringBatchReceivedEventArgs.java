@@ -0,0 +1,50 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.endpoints.stringmessages;
+
+import java.util.List;
+
+/**
+ * Event type for the batch of text request messages is received.
+ *
+ */
+public final class StringBatchReceivedEventArgs
+{
+    /**
+     * Constructs the event.
+     * @param requestMessages
+     * @param responseReceiverId
+     */
+    public StringBatchReceivedEventArgs(List<String> requestMessages, String responseReceiverId)
+    {
+        myRequestMessages = requestMessages;
+        myResponseReceiverId = responseReceiverId;
+    }
+    
+    /**
+     * Returns request messages in the order in which they were sent.
+     * @return
+     */
+    public List<String> getRequestMessages()
+    {
+        return myRequestMessages;
+    }
+    
+    /**
+     * Returns the response receiver id.
+     * @return
+     */
+    public String getResponseReceiverId()
+    {
+        return myResponseReceiverId;
+    }
+    
+    private List<String> myRequestMessages;
+    private String myResponseReceiverId;
+}
@@ -0,0 +1,31 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.endpoints.typedmessages;
+
+import java.io.Serializable;
+
+/**
+ * Internal message used for the communication between typed message senders and receivers
+ * when requests are correlated with responses.
+ *
+ */
+public class CorrelatedMessage implements Serializable
+{
+    /**
+     * Id of the request. The response contains the same id as the request.
+     */
+    public int Id;
+    
+    /**
+     * Serialized message.
+     */
+    public Object MessageData;
+
+    private static final long serialVersionUID = -2810964735019472217L;
+}
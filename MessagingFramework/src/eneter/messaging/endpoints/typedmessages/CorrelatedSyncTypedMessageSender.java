@@ -0,0 +1,490 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.endpoints.typedmessages;
+
+import java.util.ArrayList;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import eneter.messaging.dataprocessing.serializing.ISerializer;
+import eneter.messaging.dataprocessing.serializing.internal.MessageBatch;
+import eneter.messaging.diagnostic.EneterTrace;
+import eneter.messaging.diagnostic.internal.ErrorHandler;
+import eneter.messaging.infrastructure.attachable.internal.AttachableDuplexOutputChannelBase;
+import eneter.messaging.messagingsystems.messagingsystembase.*;
+import eneter.messaging.threading.dispatching.IThreadDispatcher;
+import eneter.net.system.*;
+import eneter.net.system.collections.generic.internal.ConcurrentIntHashMap;
+import eneter.net.system.threading.internal.ManualResetEvent;
+
+/**
+ * Synchronous typed message sender which tags requests with ids and matches responses by ids.
+ * Therefore more requests can be sent concurrently via one connection.
+ */
+class CorrelatedSyncTypedMessageSender<TResponse, TRequest> extends AttachableDuplexOutputChannelBase
+                                                           implements ISyncDuplexTypedMessageSender<TResponse, TRequest>
+{
+    // Request waiting for the response.
+    private class PendingRequest implements Future<TResponse>
+    {
+        public PendingRequest(int id)
+        {
+            myId = id;
+        }
+        
+        public void setTimeoutTask(TimerTask timeoutTask)
+        {
+            myTimeoutTask = timeoutTask;
+        }
+        
+        public boolean complete(TResponse response, Exception error)
+        {
+            synchronized (this)
+            {
+                if (myIsDone)
+                {
+                    return false;
+                }
+                myResponse = response;
+                myError = error;
+                myIsDone = true;
+            }
+            
+            // Note: the request does not wait for the response anymore so it must not stay among pending requests.
+            myPendingRequests.remove(myId);
+            
+            TimerTask aTimeoutTask = myTimeoutTask;
+            if (aTimeoutTask != null)
+            {
+                aTimeoutTask.cancel();
+            }
+            
+            myCompleted.set();
+            return true;
+        }
+        
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            synchronized (this)
+            {
+                if (myIsDone)
+                {
+                    return false;
+                }
+                myIsCancelled = true;
+            }
+            
+            return complete(null, new CancellationException("The request was cancelled."));
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            synchronized (this)
+            {
+                return myIsCancelled;
+            }
+        }
+
+        @Override
+        public boolean isDone()
+        {
+            synchronized (this)
+            {
+                return myIsDone;
+            }
+        }
+
+        @Override
+        public TResponse get() throws InterruptedException, ExecutionException
+        {
+            myCompleted.waitOne();
+            return getResult();
+        }
+
+        @Override
+        public TResponse get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+        {
+            // Note: 0 means infinite waiting for ManualResetEvent.
+            long aTimeout = Math.max(1, unit.toMillis(timeout));
+            if (!myCompleted.waitOne(aTimeout))
+            {
+                throw new TimeoutException("The response was not received within the specified timeout.");
+            }
+            return getResult();
+        }
+        
+        private synchronized TResponse getResult() throws ExecutionException
+        {
+            if (myIsCancelled)
+            {
+                throw new CancellationException("The request was cancelled.");
+            }
+            if (myError != null)
+            {
+                throw new ExecutionException(myError);
+            }
+            return myResponse;
+        }
+        
+        private int myId;
+        private volatile TimerTask myTimeoutTask;
+        private ManualResetEvent myCompleted = new ManualResetEvent(false);
+        private boolean myIsDone;
+        private boolean myIsCancelled;
+        private TResponse myResponse;
+        private Exception myError;
+    }
+    
+    
+    public CorrelatedSyncTypedMessageSender(int responseReceiveTimeout, ISerializer serializer,
+            Class<TResponse> responseMessageClazz, Class<TRequest> requestMessageClazz,
+            IThreadDispatcher threadDispatcher, boolean isMessageBatching)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            myResponseReceiveTimeout = responseReceiveTimeout;
+            myIsMessageBatching = isMessageBatching;
+            mySerializer = serializer;
+            myResponseMessageClazz = responseMessageClazz;
+            myRequestMessageClazz = requestMessageClazz;
+            myThreadDispatcher = threadDispatcher;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    @Override
+    public Event<DuplexChannelEventArgs> connectionOpened()
+    {
+        return myConnectionOpenedEventImpl.getApi();
+    }
+
+    @Override
+    public Event<DuplexChannelEventArgs> connectionClosed()
+    {
+        return myConnectionClosedEventImpl.getApi();
+    }
+    
+    @Override
+    public void detachDuplexOutputChannel()
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            super.detachDuplexOutputChannel();
+            
+            // Stop waiting for responses.
+            releasePendingRequests(TracedObject() + "failed to receive the response. The duplex outputchannel was detached.");
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    @Override
+    public TResponse sendRequestMessage(TRequest message) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            PendingRequest aPendingRequest = sendRequest(message);
+            
+            // Note: 0 means infinite waiting.
+            if (!aPendingRequest.myCompleted.waitOne(myResponseReceiveTimeout))
+            {
+                String anErrorMessage = TracedObject() + "failed to receive the response with the timeout. " + myResponseReceiveTimeout;
+                EneterTrace.error(anErrorMessage);
+                
+                // Note: if the response is received meanwhile it is returned.
+                if (aPendingRequest.complete(null, new IllegalStateException(anErrorMessage)))
+                {
+                    throw new IllegalStateException(anErrorMessage);
+                }
+            }
+            
+            try
+            {
+                return aPendingRequest.getResult();
+            }
+            catch (ExecutionException err)
+            {
+                if (err.getCause() instanceof Exception)
+                {
+                    throw (Exception)err.getCause();
+                }
+                throw err;
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    @Override
+    public Future<TResponse> sendRequestMessageAsync(TRequest message) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            final PendingRequest aPendingRequest = sendRequest(message);
+            
+            // Note: the caller does not have to wait for the future therefore the timeout is observed by the timer.
+            if (myResponseReceiveTimeout > 0)
+            {
+                TimerTask aTimeoutTask = new TimerTask()
+                {
+                    @Override
+                    public void run()
+                    {
+                        String anErrorMessage = TracedObject() + "failed to receive the response with the timeout. " + myResponseReceiveTimeout;
+                        if (aPendingRequest.complete(null, new TimeoutException(anErrorMessage)))
+                        {
+                            EneterTrace.error(anErrorMessage);
+                        }
+                    }
+                };
+                aPendingRequest.setTimeoutTask(aTimeoutTask);
+                myTimeoutTimer.schedule(aTimeoutTask, myResponseReceiveTimeout);
+                
+                // Remove cancelled timeout tasks from the timer queue from time to time.
+                if (myScheduledTimeoutsCounter.incrementAndGet() % 1000 == 0)
+                {
+                    myTimeoutTimer.purge();
+                }
+                
+                // If the response came before the task was set.
+                if (aPendingRequest.isDone())
+                {
+                    aTimeoutTask.cancel();
+                }
+            }
+            
+            return aPendingRequest;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    @Override
+    protected void onResponseMessageReceived(Object sender, DuplexChannelMessageEventArgs e)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            CorrelatedMessage aCorrelatedMessage;
+            try
+            {
+                aCorrelatedMessage = mySerializer.deserialize(e.getMessage(), CorrelatedMessage.class);
+            }
+            catch (Exception err)
+            {
+                EneterTrace.warning(TracedObject() + "failed to deserialize the response message.", err);
+                return;
+            }
+            
+            // Note: the request is removed right away because only one response can come.
+            PendingRequest aPendingRequest = myPendingRequests.remove(aCorrelatedMessage.Id);
+            if (aPendingRequest == null)
+            {
+                EneterTrace.warning(TracedObject() + "received the response for the request which is not pending. Id: " + aCorrelatedMessage.Id);
+                return;
+            }
+            
+            try
+            {
+                TResponse aResponse = mySerializer.deserialize(aCorrelatedMessage.MessageData, myResponseMessageClazz);
+                aPendingRequest.complete(aResponse, null);
+            }
+            catch (Exception err)
+            {
+                String anErrorMessage = TracedObject() + "failed to receive the response.";
+                EneterTrace.error(anErrorMessage, err);
+                aPendingRequest.complete(null, new IllegalStateException(anErrorMessage, err));
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    @Override
+    protected void onConnectionOpened(Object sender, final DuplexChannelEventArgs e)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            myThreadDispatcher.invoke(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    notifyEvent(myConnectionOpenedEventImpl, e);
+                }
+            });
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    @Override
+    protected void onConnectionClosed(Object sender, final DuplexChannelEventArgs e)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            // The connection was interrupted therefore we must unblock waiting requests.
+            releasePendingRequests(TracedObject() + "failed to receive the response. The connection was closed.");
+            
+            myThreadDispatcher.invoke(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    notifyEvent(myConnectionClosedEventImpl, e);
+                }
+            });
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private PendingRequest sendRequest(TRequest message) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            IDuplexOutputChannel anOutputChannel = getAttachedDuplexOutputChannel();
+            if (anOutputChannel == null)
+            {
+                String anError = TracedObject() + "failed to send the request message because it is not attached to any duplex output channel.";
+                EneterTrace.error(anError);
+                throw new IllegalStateException(anError);
+            }
+            
+            int anId = myRequestIdCounter.incrementAndGet();
+            PendingRequest aPendingRequest = new PendingRequest(anId);
+            myPendingRequests.put(anId, aPendingRequest);
+            
+            try
+            {
+                CorrelatedMessage aCorrelatedMessage = new CorrelatedMessage();
+                aCorrelatedMessage.Id = anId;
+                aCorrelatedMessage.MessageData = mySerializer.serialize(message, myRequestMessageClazz);
+                
+                Object aSerializedMessage = mySerializer.serialize(aCorrelatedMessage, CorrelatedMessage.class);
+                if (myIsMessageBatching)
+                {
+                    // The receiver expects batches so send the batch with one message.
+                    aSerializedMessage = MessageBatch.encode(new Object[] { aSerializedMessage });
+                }
+                anOutputChannel.sendMessage(aSerializedMessage);
+            }
+            catch (Exception err)
+            {
+                myPendingRequests.remove(anId);
+                
+                EneterTrace.error(TracedObject() + ErrorHandler.FailedToSendMessage, err);
+                throw err;
+            }
+            
+            return aPendingRequest;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private void releasePendingRequests(String errorMessage)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            ArrayList<PendingRequest> aPendingRequests = myPendingRequests.removeAll();
+            if (!aPendingRequests.isEmpty())
+            {
+                IllegalStateException anError = new IllegalStateException(errorMessage);
+                for (PendingRequest aPendingRequest : aPendingRequests)
+                {
+                    aPendingRequest.complete(null, anError);
+                }
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private void notifyEvent(EventImpl<DuplexChannelEventArgs> handler, DuplexChannelEventArgs e)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (handler != null)
+            {
+                try
+                {
+                    handler.raise(this, e);
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.error(TracedObject() + ErrorHandler.DetectedException, err);
+                }
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    
+    private int myResponseReceiveTimeout;
+    private ISerializer mySerializer;
+    private boolean myIsMessageBatching;
+    private IThreadDispatcher myThreadDispatcher;
+    
+    private AtomicInteger myRequestIdCounter = new AtomicInteger();
+    private ConcurrentIntHashMap<PendingRequest> myPendingRequests = new ConcurrentIntHashMap<PendingRequest>();
+    
+    private static final Timer myTimeoutTimer = new Timer("Eneter.SyncTypedTimeoutTimer", true);
+    private static final AtomicInteger myScheduledTimeoutsCounter = new AtomicInteger();
+    
+    private Class<TRequest> myRequestMessageClazz;
+    private Class<TResponse> myResponseMessageClazz;
+    
+    private EventImpl<DuplexChannelEventArgs> myConnectionOpenedEventImpl = new EventImpl<DuplexChannelEventArgs>();
+    private EventImpl<DuplexChannelEventArgs> myConnectionClosedEventImpl = new EventImpl<DuplexChannelEventArgs>();
+    
+    @Override
+    protected String TracedObject()
+    {
+        String aResponseMessageTypeName = (myResponseMessageClazz != null) ? myResponseMessageClazz.getSimpleName() : "...";
+        String aRequestMessageTypeName = (myRequestMessageClazz != null) ? myRequestMessageClazz.getSimpleName() : "...";
+        String aDuplexOutputChannelId = (getAttachedDuplexOutputChannel() != null) ? getAttachedDuplexOutputChannel().getChannelId() : "";
+        return getClass().getSimpleName() + "<" + aResponseMessageTypeName + ", " + aRequestMessageTypeName + "> atached to the duplex output channel '" + aDuplexOutputChannelId + "' ";
+    }
+}
@@ -8,7 +8,11 @@
 
 package eneter.messaging.endpoints.typedmessages;
 
+import java.util.ArrayList;
+
 import eneter.messaging.dataprocessing.serializing.*;
+import eneter.messaging.dataprocessing.serializing.internal.MessageBatch;
+import eneter.messaging.dataprocessing.serializing.internal.SerializerExt;
 import eneter.messaging.diagnostic.*;
 import eneter.messaging.diagnostic.internal.ErrorHandler;
 import eneter.messaging.infrastructure.attachable.internal.AttachableDuplexInputChannelBase;
@@ -21,10 +25,18 @@ class DuplexTypedMessageReceiver<_ResponseType, _RequestType> extends Attachable
                                                               implements IDuplexTypedMessageReceiver<_ResponseType, _RequestType>
 {
     public DuplexTypedMessageReceiver(ISerializer serializer, GetSerializerCallback getSerializerCallback, Class<_ResponseType> responseMessageClazz, Class<_RequestType> requestMessageClazz)
+    {
+        this(serializer, getSerializerCallback, responseMessageClazz, requestMessageClazz, false, false);
+    }
+    
+    public DuplexTypedMessageReceiver(ISerializer serializer, GetSerializerCallback getSerializerCallback, Class<_ResponseType> responseMessageClazz, Class<_RequestType> requestMessageClazz,
+            boolean isRequestCorrelation, boolean isMessageBatching)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
+            myIsRequestCorrelation = isRequestCorrelation;
+            myIsMessageBatching = isMessageBatching;
             mySerializer = serializer;
             myGetSerializerCallback = getSerializerCallback;
             myResponseMessageClazz = responseMessageClazz;
@@ -42,6 +54,12 @@ class DuplexTypedMessageReceiver<_ResponseType, _RequestType> extends Attachable
     {
         return myMessageReceivedEventImpl.getApi();
     }
+    
+    @Override
+    public Event<TypedBatchReceivedEventArgs<_RequestType>> batchReceived()
+    {
+        return myBatchReceivedEventImpl.getApi();
+    }
 
     @Override
     public Event<ResponseReceiverEventArgs> responseReceiverConnected()
@@ -57,6 +75,33 @@ class DuplexTypedMessageReceiver<_ResponseType, _RequestType> extends Attachable
 
     @Override
     public void sendResponseMessage(String responseReceiverId, _ResponseType responseMessage) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            int aRequestId = 0;
+            if (myIsRequestCorrelation)
+            {
+                // If the response is sent from the event handler of the request then it answers this request.
+                // Note: only one response can be sent for the request.
+                TypedRequestReceivedEventArgs<_RequestType> aCurrentRequest = myCurrentRequest.get();
+                if (aCurrentRequest != null && aCurrentRequest.getResponseReceiverId().equals(responseReceiverId))
+                {
+                    aRequestId = aCurrentRequest.getRequestId();
+                    myCurrentRequest.remove();
+                }
+            }
+            
+            sendResponseMessage(responseReceiverId, aRequestId, responseMessage);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    @Override
+    public void sendResponseMessage(String responseReceiverId, int requestId, _ResponseType responseMessage) throws Exception
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
@@ -72,7 +117,19 @@ class DuplexTypedMessageReceiver<_ResponseType, _RequestType> extends Attachable
             {
                 ISerializer aSerializer = getSerializer(responseReceiverId);
                 
-                Object aResponseMessage = aSerializer.serialize(responseMessage, myResponseMessageClazz);
+                Object aResponseMessage;
+                if (myIsRequestCorrelation)
+                {
+                    // The response gets the id of the request it answers.
+                    CorrelatedMessage aCorrelatedMessage = new CorrelatedMessage();
+                    aCorrelatedMessage.Id = requestId;
+                    aCorrelatedMessage.MessageData = aSerializer.serialize(responseMessage, myResponseMessageClazz);
+                    aResponseMessage = aSerializer.serialize(aCorrelatedMessage, CorrelatedMessage.class);
+                }
+                else
+                {
+                    aResponseMessage = SerializerExt.serialize(aSerializer, responseMessage, myResponseMessageClazz);
+                }
                 getAttachedDuplexInputChannel().sendResponseMessage(responseReceiverId, aResponseMessage);
             }
             catch (Exception err)
@@ -93,26 +150,60 @@ class DuplexTypedMessageReceiver<_ResponseType, _RequestType> extends Attachable
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            if (!myMessageReceivedEventImpl.isSubscribed())
+            if (!myMessageReceivedEventImpl.isSubscribed() && !myBatchReceivedEventImpl.isSubscribed())
             {
                 EneterTrace.warning(TracedObject() + "received the request message but nobody was subscribed.");
                 return;
             }
 
+            if (myIsMessageBatching)
+            {
+                processBatch(e);
+            }
+            else
+            {
+                processRequest(e.getResponseReceiverId(), e.getSenderAddress(), e.getMessage());
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private void processRequest(String responseReceiverId, String senderAddress, Object message)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
             TypedRequestReceivedEventArgs<_RequestType> aRequestReceivedEventArgs = null;
 
             try
             {
-                ISerializer aSerializer = getSerializer(e.getResponseReceiverId());
-                _RequestType aRequestMessage = aSerializer.deserialize(e.getMessage(), myRequestMessageClazz);
-                aRequestReceivedEventArgs = new TypedRequestReceivedEventArgs<_RequestType>(e.getResponseReceiverId(), e.getSenderAddress(), aRequestMessage);
+                ISerializer aSerializer = getSerializer(responseReceiverId);
+                if (myIsRequestCorrelation)
+                {
+                    CorrelatedMessage aCorrelatedMessage = aSerializer.deserialize(message, CorrelatedMessage.class);
+                    _RequestType aRequestMessage = aSerializer.deserialize(aCorrelatedMessage.MessageData, myRequestMessageClazz);
+                    aRequestReceivedEventArgs = new TypedRequestReceivedEventArgs<_RequestType>(responseReceiverId, senderAddress, aCorrelatedMessage.Id, aRequestMessage);
+                }
+                else
+                {
+                    _RequestType aRequestMessage = SerializerExt.deserialize(aSerializer, message, myRequestMessageClazz);
+                    aRequestReceivedEventArgs = new TypedRequestReceivedEventArgs<_RequestType>(responseReceiverId, senderAddress, aRequestMessage);
+                }
             }
             catch (Exception err)
             {
                 EneterTrace.warning(TracedObject() + "failed to deserialize the request message.", err);
-                aRequestReceivedEventArgs = new TypedRequestReceivedEventArgs<_RequestType>(e.getResponseReceiverId(), e.getSenderAddress(), err);
+                aRequestReceivedEventArgs = new TypedRequestReceivedEventArgs<_RequestType>(responseReceiverId, senderAddress, err);
             }
 
+            if (myIsRequestCorrelation)
+            {
+                myCurrentRequest.set(aRequestReceivedEventArgs);
+            }
+            
             try
             {
                 myMessageReceivedEventImpl.raise(this, aRequestReceivedEventArgs);
@@ -121,12 +212,113 @@ class DuplexTypedMessageReceiver<_ResponseType, _RequestType> extends Attachable
             {
                 EneterTrace.warning(TracedObject() + ErrorHandler.DetectedException, err);
             }
+            finally
+            {
+                if (myIsRequestCorrelation)
+                {
+                    myCurrentRequest.remove();
+                }
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private void processBatch(DuplexChannelMessageEventArgs e)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            ISerializer aSerializer;
+            Object[] aMessages;
+            try
+            {
+                aSerializer = getSerializer(e.getResponseReceiverId());
+                aMessages = MessageBatch.decode(e.getMessage());
+            }
+            catch (Exception err)
+            {
+                EneterTrace.warning(TracedObject() + "failed to deserialize the batch of request messages.", err);
+                if (myBatchReceivedEventImpl.isSubscribed())
+                {
+                    raiseBatch(new TypedBatchReceivedEventArgs<_RequestType>(e.getResponseReceiverId(), e.getSenderAddress(), err));
+                }
+                else
+                {
+                    try
+                    {
+                        myMessageReceivedEventImpl.raise(this, new TypedRequestReceivedEventArgs<_RequestType>(e.getResponseReceiverId(), e.getSenderAddress(), err));
+                    }
+                    catch (Exception err2)
+                    {
+                        EneterTrace.warning(TracedObject() + ErrorHandler.DetectedException, err2);
+                    }
+                }
+                return;
+            }
+            
+            if (!myBatchReceivedEventImpl.isSubscribed())
+            {
+                // Nobody is subscribed for batches so notify messages one by one.
+                for (Object aMessage : aMessages)
+                {
+                    processRequest(e.getResponseReceiverId(), e.getSenderAddress(), aMessage);
+                }
+                return;
+            }
+            
+            TypedBatchReceivedEventArgs<_RequestType> aBatchReceivedEventArgs;
+            try
+            {
+                ArrayList<_RequestType> aRequestMessages = new ArrayList<_RequestType>(aMessages.length);
+                ArrayList<Integer> aRequestIds = null;
+                if (myIsRequestCorrelation)
+                {
+                    // Ids are provided so that responses can be correlated with requests from the batch.
+                    aRequestIds = new ArrayList<Integer>(aMessages.length);
+                    for (Object aMessage : aMessages)
+                    {
+                        CorrelatedMessage aCorrelatedMessage = aSerializer.deserialize(aMessage, CorrelatedMessage.class);
+                        aRequestMessages.add(aSerializer.deserialize(aCorrelatedMessage.MessageData, myRequestMessageClazz));
+                        aRequestIds.add(aCorrelatedMessage.Id);
+                    }
+                }
+                else
+                {
+                    for (Object aMessage : aMessages)
+                    {
+                        aRequestMessages.add(SerializerExt.deserialize(aSerializer, aMessage, myRequestMessageClazz));
+                    }
+                }
+                aBatchReceivedEventArgs = new TypedBatchReceivedEventArgs<_RequestType>(e.getResponseReceiverId(), e.getSenderAddress(), aRequestMessages, aRequestIds);
+            }
+            catch (Exception err)
+            {
+                EneterTrace.warning(TracedObject() + "failed to deserialize the request message.", err);
+                aBatchReceivedEventArgs = new TypedBatchReceivedEventArgs<_RequestType>(e.getResponseReceiverId(), e.getSenderAddress(), err);
+            }
+            
+            raiseBatch(aBatchReceivedEventArgs);
         }
         finally
         {
             EneterTrace.leaving(aTrace);
         }
     }
+    
+    private void raiseBatch(TypedBatchReceivedEventArgs<_RequestType> eventArgs)
+    {
+        try
+        {
+            myBatchReceivedEventImpl.raise(this, eventArgs);
+        }
+        catch (Exception err)
+        {
+            EneterTrace.warning(TracedObject() + ErrorHandler.DetectedException, err);
+        }
+    }
 
     @Override
     protected void onResponseReceiverConnected(Object sender, ResponseReceiverEventArgs e)
@@ -188,6 +380,7 @@ class DuplexTypedMessageReceiver<_ResponseType, _RequestType> extends Attachable
     
     
     private EventImpl<TypedRequestReceivedEventArgs<_RequestType>> myMessageReceivedEventImpl = new EventImpl<TypedRequestReceivedEventArgs<_RequestType>>();
+    private EventImpl<TypedBatchReceivedEventArgs<_RequestType>> myBatchReceivedEventImpl = new EventImpl<TypedBatchReceivedEventArgs<_RequestType>>();
     private EventImpl<ResponseReceiverEventArgs> myResponseReceiverConnectedEventImpl = new EventImpl<ResponseReceiverEventArgs>();
     private EventImpl<ResponseReceiverEventArgs> myResponseReceiverDisconnectedEventImpl = new EventImpl<ResponseReceiverEventArgs>();
     
@@ -198,6 +391,10 @@ class DuplexTypedMessageReceiver<_ResponseType, _RequestType> extends Attachable
     private ISerializer mySerializer;
     private GetSerializerCallback myGetSerializerCallback;
     
+    private boolean myIsRequestCorrelation;
+    private boolean myIsMessageBatching;
+    private ThreadLocal<TypedRequestReceivedEventArgs<_RequestType>> myCurrentRequest = new ThreadLocal<TypedRequestReceivedEventArgs<_RequestType>>();
+    
 
     @Override
     protected String TracedObject()
@@ -8,7 +8,11 @@
 
 package eneter.messaging.endpoints.typedmessages;
 
+import java.util.List;
+
 import eneter.messaging.dataprocessing.serializing.*;
+import eneter.messaging.dataprocessing.serializing.internal.MessageBatch;
+import eneter.messaging.dataprocessing.serializing.internal.SerializerExt;
 import eneter.messaging.diagnostic.*;
 import eneter.messaging.diagnostic.internal.ErrorHandler;
 import eneter.messaging.infrastructure.attachable.internal.AttachableDuplexOutputChannelBase;
@@ -20,10 +24,18 @@ class DuplexTypedMessageSender<_ResponseType, _RequestType> extends AttachableDu
                                                             implements IDuplexTypedMessageSender<_ResponseType, _RequestType>
 {
     public DuplexTypedMessageSender(ISerializer serializer, Class<_ResponseType> responseMessageClazz, Class<_RequestType> requestMessageClazz)
+    {
+        this(serializer, responseMessageClazz, requestMessageClazz, false, false);
+    }
+    
+    public DuplexTypedMessageSender(ISerializer serializer, Class<_ResponseType> responseMessageClazz, Class<_RequestType> requestMessageClazz,
+            boolean isRequestCorrelation, boolean isMessageBatching)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
+            myIsRequestCorrelation = isRequestCorrelation;
+            myIsMessageBatching = isMessageBatching;
             mySerializer = serializer;
             myResponseMessageClazz = responseMessageClazz;
             myRequestMessageClazz = requestMessageClazz;
@@ -69,7 +81,11 @@ class DuplexTypedMessageSender<_ResponseType, _RequestType> extends AttachableDu
 
             try
             {
-                Object aRequestMessage = mySerializer.serialize(message, myRequestMessageClazz);
+                Object aRequestMessage = serializeRequest(message);
+                if (myIsMessageBatching)
+                {
+                    aRequestMessage = serializeBatch(new Object[] { aRequestMessage });
+                }
                 getAttachedDuplexOutputChannel().sendMessage(aRequestMessage);
             }
             catch (Exception err)
@@ -83,6 +99,64 @@ class DuplexTypedMessageSender<_ResponseType, _RequestType> extends AttachableDu
             EneterTrace.leaving(aTrace);
         }
     }
+    
+    @Override
+    public void sendRequestMessages(List<_RequestType> messages) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (messages == null)
+            {
+                throw new IllegalArgumentException("The input parameter messages is null.");
+            }
+            
+            if (!myIsMessageBatching)
+            {
+                // The receiver does not expect batches so send messages one by one.
+                for (_RequestType aMessage : messages)
+                {
+                    sendRequestMessage(aMessage);
+                }
+                return;
+            }
+            
+            if (getAttachedDuplexOutputChannel() == null)
+            {
+                String anError = TracedObject() + "failed to send request messages because it is not attached to any duplex output channel.";
+                EneterTrace.error(anError);
+                throw new IllegalStateException(anError);
+            }
+            
+            if (messages.isEmpty())
+            {
+                return;
+            }
+
+            try
+            {
+                // All messages are sent in one frame.
+                Object[] aRequestMessages = new Object[messages.size()];
+                int i = 0;
+                for (_RequestType aMessage : messages)
+                {
+                    aRequestMessages[i++] = serializeRequest(aMessage);
+                }
+                
+                Object aBatchMessage = serializeBatch(aRequestMessages);
+                getAttachedDuplexOutputChannel().sendMessage(aBatchMessage);
+            }
+            catch (Exception err)
+            {
+                EneterTrace.error(TracedObject() + ErrorHandler.FailedToSendMessage, err);
+                throw err;
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
 
     @Override
     protected void onResponseMessageReceived(Object sender, DuplexChannelMessageEventArgs e)
@@ -100,7 +174,16 @@ class DuplexTypedMessageSender<_ResponseType, _RequestType> extends AttachableDu
 
             try
             {
-                _ResponseType aResponseMessage = mySerializer.deserialize(e.getMessage(), myResponseMessageClazz);
+                _ResponseType aResponseMessage;
+                if (myIsRequestCorrelation)
+                {
+                    CorrelatedMessage aCorrelatedMessage = mySerializer.deserialize(e.getMessage(), CorrelatedMessage.class);
+                    aResponseMessage = mySerializer.deserialize(aCorrelatedMessage.MessageData, myResponseMessageClazz);
+                }
+                else
+                {
+                    aResponseMessage = SerializerExt.deserialize(mySerializer, e.getMessage(), myResponseMessageClazz);
+                }
                 aResponseReceivedEventArgs = new TypedResponseReceivedEventArgs<_ResponseType>(aResponseMessage);
             }
             catch (Exception err)
@@ -124,6 +207,25 @@ class DuplexTypedMessageSender<_ResponseType, _RequestType> extends AttachableDu
         }
     }
     
+    private Object serializeRequest(_RequestType message) throws Exception
+    {
+        if (myIsRequestCorrelation)
+        {
+            // Note: this sender does not wait for responses so the request id is not needed.
+            CorrelatedMessage aCorrelatedMessage = new CorrelatedMessage();
+            aCorrelatedMessage.MessageData = mySerializer.serialize(message, myRequestMessageClazz);
+            return mySerializer.serialize(aCorrelatedMessage, CorrelatedMessage.class);
+        }
+        
+        return SerializerExt.serialize(mySerializer, message, myRequestMessageClazz);
+    }
+    
+    private Object serializeBatch(Object[] serializedMessages) throws Exception
+    {
+        // Note: messages are already serialized so they are written into the batch directly.
+        return MessageBatch.encode(serializedMessages);
+    }
+    
     @Override
     protected void onConnectionOpened(Object sender, DuplexChannelEventArgs e)
     {
@@ -185,6 +287,8 @@ class DuplexTypedMessageSender<_ResponseType, _RequestType> extends AttachableDu
     private Class<_ResponseType> myResponseMessageClazz;
     
     private ISerializer mySerializer;
+    private boolean myIsRequestCorrelation;
+    private boolean myIsMessageBatching;
     
     @Override
     protected String TracedObject()
@@ -234,7 +234,7 @@ public class DuplexTypedMessagesFactory implements IDuplexTypedMessagesFactory
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            return new DuplexTypedMessageSender<TResponse, TRequest>(mySerializer, responseMessageClazz, requestMessageClazz);
+            return new DuplexTypedMessageSender<TResponse, TRequest>(mySerializer, responseMessageClazz, requestMessageClazz, myRequestCorrelation, myMessageBatching);
         }
         finally
         {
@@ -249,7 +249,12 @@ public class DuplexTypedMessagesFactory implements IDuplexTypedMessagesFactory
         try
         {
             IThreadDispatcher aThreadDispatcher = mySyncDuplexTypedSenderThreadMode.getDispatcher();
-            SyncTypedMessageSender<TResponse, TRequest> aSender = new SyncTypedMessageSender<TResponse, TRequest>(mySyncResponseReceiveTimeout, mySerializer, responseMessageClazz, requestMessageClazz, aThreadDispatcher);
+            if (myRequestCorrelation)
+            {
+                return new CorrelatedSyncTypedMessageSender<TResponse, TRequest>(mySyncResponseReceiveTimeout, mySerializer, responseMessageClazz, requestMessageClazz, aThreadDispatcher, myMessageBatching);
+            }
+            
+            SyncTypedMessageSender<TResponse, TRequest> aSender = new SyncTypedMessageSender<TResponse, TRequest>(mySyncResponseReceiveTimeout, mySerializer, responseMessageClazz, requestMessageClazz, aThreadDispatcher, myMessageBatching);
             return aSender;
         }
         finally
@@ -264,7 +269,7 @@ public class DuplexTypedMessagesFactory implements IDuplexTypedMessagesFactory
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            return new DuplexTypedMessageReceiver<TResponse, TRequest>(mySerializer, mySerializerProvider, responseMessageClazz, requestMessageClazz);
+            return new DuplexTypedMessageReceiver<TResponse, TRequest>(mySerializer, mySerializerProvider, responseMessageClazz, requestMessageClazz, myRequestCorrelation, myMessageBatching);
         }
         finally
         {
@@ -384,8 +389,75 @@ public class DuplexTypedMessagesFactory implements IDuplexTypedMessagesFactory
         return mySyncResponseReceiveTimeout;
     }
     
+    /**
+     * Enables correlating requests with responses.
+     * 
+     * If enabled, every request carries an id and the response returns the same id.
+     * Then SyncDuplexTypedMessageSender can have many requests in flight over one connection
+     * and sendRequestMessage(..) can be called from more threads at the same time without waiting for each other.
+     * It also allows to use sendRequestMessageAsync(..) which does not block the calling thread.<br/>
+     * <br/>
+     * If the receiver sends the response from the messageReceived event handler the response gets the id of that request.
+     * If the response is sent later from a different thread it gets the id of the oldest unanswered request from that client.<br/>
+     * <br/>
+     * The setting changes the message format. Therefore senders and the receiver must use the same setting.
+     * The default value is false.
+     * 
+     * @param requestCorrelation true if requests shall be correlated with responses.
+     * @return this DuplexTypedMessagesFactory
+     */
+    public DuplexTypedMessagesFactory setRequestCorrelation(boolean requestCorrelation)
+    {
+        myRequestCorrelation = requestCorrelation;
+        return this;
+    }
+    
+    /**
+     * Returns true if requests are correlated with responses.
+     * @return true if requests are correlated with responses.
+     */
+    public boolean getRequestCorrelation()
+    {
+        return myRequestCorrelation;
+    }
+    
+    /**
+     * Enables sending more messages in one frame.
+     * 
+     * If enabled, DuplexTypedMessageSender.sendRequestMessages(..) serializes all messages into one frame
+     * and sends it at once. It saves the overhead of encoding and sending each message separately.
+     * The receiver raises batchReceived() for the whole batch or messageReceived() for each message
+     * if nobody is subscribed to batchReceived().
+     * If the request correlation is used, responses to the batch shall be sent with ids from TypedBatchReceivedEventArgs.getRequestIds().<br/>
+     * <br/>
+     * Serialized messages are written into the frame directly. Therefore the serializer must serialize messages
+     * into String or byte[].<br/>
+     * <br/>
+     * The setting changes the format of request messages. Therefore senders and the receiver must use the same setting.
+     * The default value is false.
+     * 
+     * @param messageBatching true if request messages shall be sent in batches.
+     * @return this DuplexTypedMessagesFactory
+     */
+    public DuplexTypedMessagesFactory setMessageBatching(boolean messageBatching)
+    {
+        myMessageBatching = messageBatching;
+        return this;
+    }
+    
+    /**
+     * Returns true if request messages are sent in batches.
+     * @return true if request messages are sent in batches.
+     */
+    public boolean getMessageBatching()
+    {
+        return myMessageBatching;
+    }
+    
     private ISerializer mySerializer;
     private GetSerializerCallback mySerializerProvider;
+    private boolean myRequestCorrelation;
+    private boolean myMessageBatching;
     private int mySyncResponseReceiveTimeout;
     private IThreadDispatcherProvider mySyncDuplexTypedSenderThreadMode;
 }
@@ -29,6 +29,15 @@ public interface IDuplexTypedMessageReceiver<TResponse, TRequest> extends IAttac
      */
     Event<TypedRequestReceivedEventArgs<TRequest>> messageReceived();
     
+    /**
+     * Raised when the batch of messages sent by sendRequestMessages(..) is received.
+     * 
+     * The event is raised only if message batching is enabled in DuplexTypedMessagesFactory.
+     * If nobody is subscribed to this event then messageReceived() is raised for each message of the batch.
+     * @return
+     */
+    Event<TypedBatchReceivedEventArgs<TRequest>> batchReceived();
+    
     /**
      * Raised when a new client is connected.
      * @return
@@ -46,9 +55,24 @@ public interface IDuplexTypedMessageReceiver<TResponse, TRequest> extends IAttac
     /**
      * Sends message to the client.
      * If the parameter responseReceiverId is * then it sends the broadcast message to all connected clients.
+     * If the request correlation is used and the message is sent to the client from the thread
+     * handling its request in messageReceived() then the message is the response to that request.
+     * Otherwise the message does not answer any request.
      * @param responseReceiverId identifies the client
      * @param responseMessage response message
      * @throws Exception 
      */
     void sendResponseMessage(String responseReceiverId, TResponse responseMessage) throws Exception;
+    
+    /**
+     * Sends the response message for the specified request to the client.
+     * If the request correlation is used the response is delivered to the request with the given id.
+     * The id is provided by TypedRequestReceivedEventArgs.getRequestId(). The id 0 means the message does not answer any request.
+     * If the request correlation is not used the id is ignored.
+     * @param responseReceiverId identifies the client
+     * @param requestId id of the request the response is sent for
+     * @param responseMessage response message
+     * @throws Exception
+     */
+    void sendResponseMessage(String responseReceiverId, int requestId, TResponse responseMessage) throws Exception;
 }
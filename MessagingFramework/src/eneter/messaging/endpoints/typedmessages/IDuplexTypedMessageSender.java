@@ -8,6 +8,8 @@
 
 package eneter.messaging.endpoints.typedmessages;
 
+import java.util.List;
+
 import eneter.messaging.infrastructure.attachable.IAttachableDuplexOutputChannel;
 import eneter.messaging.messagingsystems.messagingsystembase.DuplexChannelEventArgs;
 import eneter.net.system.Event;
@@ -49,4 +51,16 @@ public interface IDuplexTypedMessageSender<TResponse, TRequest> extends IAttacha
      * @throws Exception 
      */
     void sendRequestMessage(TRequest message) throws Exception;
+    
+    /**
+     * Sends more messages to the service.
+     * 
+     * If message batching is enabled in DuplexTypedMessagesFactory then all messages are serialized
+     * into one frame and sent at once. The receiver then raises batchReceived() or messageReceived() for each message.
+     * If message batching is not enabled then messages are sent one by one.
+     * 
+     * @param messages messages to be sent
+     * @throws Exception
+     */
+    void sendRequestMessages(List<TRequest> messages) throws Exception;
 }
@@ -8,6 +8,8 @@
 
 package eneter.messaging.endpoints.typedmessages;
 
+import java.util.concurrent.Future;
+
 import eneter.messaging.infrastructure.attachable.IAttachableDuplexOutputChannel;
 import eneter.messaging.messagingsystems.messagingsystembase.DuplexChannelEventArgs;
 import eneter.net.system.Event;
@@ -50,4 +52,19 @@ public interface ISyncDuplexTypedMessageSender<TResponse, TRequest> extends IAtt
      * @throws Exception
      */
     TResponse sendRequestMessage(TRequest message) throws Exception;
+    
+    /**
+     * Sends the request message and returns the future of the response.
+     * 
+     * The calling thread does not wait for the response.
+     * If the factory has request correlation enabled, many requests can be in flight over one connection
+     * and each response is matched with its request by the id.
+     * Otherwise requests are sent one by one in a separate thread.
+     * If the response is not received within the specified timeout the future completes with the error.
+     * 
+     * @param message request message
+     * @return future which is completed when the response is received
+     * @throws Exception
+     */
+    Future<TResponse> sendRequestMessageAsync(TRequest message) throws Exception;
 }
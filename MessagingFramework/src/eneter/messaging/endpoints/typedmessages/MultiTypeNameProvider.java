@@ -8,10 +8,29 @@
 
 package eneter.messaging.endpoints.typedmessages;
 
+import java.util.WeakHashMap;
+
 
 class MultiTypeNameProvider
 {
     public static String getNetName(Class<?> clazz)
+    {
+        // Note: the name is evaluated for every sent message so it is computed only once per class.
+        //       Classes are weakly referenced so that they can be unloaded.
+        synchronized (myNetNames)
+        {
+            String aNetName = myNetNames.get(clazz);
+            if (aNetName == null)
+            {
+                aNetName = computeNetName(clazz);
+                myNetNames.put(clazz, aNetName);
+            }
+            
+            return aNetName;
+        }
+    }
+    
+    private static String computeNetName(Class<?> clazz)
     {
         String aNetName;
         
@@ -78,4 +97,6 @@ class MultiTypeNameProvider
         
         return aNetName;
     }
+    
+    private static final WeakHashMap<Class<?>, String> myNetNames = new WeakHashMap<Class<?>, String>();
 }
@@ -9,7 +9,7 @@
 package eneter.messaging.endpoints.typedmessages;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import eneter.messaging.dataprocessing.serializing.GetSerializerCallback;
 import eneter.messaging.dataprocessing.serializing.ISerializer;
@@ -35,7 +35,7 @@ class MultiTypedMessageReceiver implements IMultiTypedMessageReceiver
     }
 
    
-    public MultiTypedMessageReceiver(ISerializer serializer, GetSerializerCallback getSerializerCallback)
+    public MultiTypedMessageReceiver(ISerializer serializer, GetSerializerCallback getSerializerCallback, boolean isCompactMessageFormat)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
@@ -43,8 +43,12 @@ class MultiTypedMessageReceiver implements IMultiTypedMessageReceiver
             mySerializer = serializer;
             myGetSerializerCallback = getSerializerCallback;
 
-            IDuplexTypedMessagesFactory aFactory = new DuplexTypedMessagesFactory(serializer)
-                .setSerializerProvider(getSerializerCallback);
+            // Note: MultiTypedMessageSerializer does not serialize already serialized message data again.
+            IDuplexTypedMessagesFactory aFactory = isCompactMessageFormat ?
+                new DuplexTypedMessagesFactory(new MultiTypedMessageSerializer(serializer))
+                    .setSerializerProvider(MultiTypedMessageSerializer.wrap(getSerializerCallback)) :
+                new DuplexTypedMessagesFactory(serializer)
+                    .setSerializerProvider(getSerializerCallback);
             
             myReceiver = aFactory.createDuplexTypedMessageReceiver(MultiTypedMessage.class, MultiTypedMessage.class);
             myReceiver.responseReceiverConnected().subscribe(myOnResponseReceiverConnected);
@@ -205,20 +209,13 @@ class MultiTypedMessageReceiver implements IMultiTypedMessageReceiver
     @Override
     public ArrayList<Class<?>> getRegisteredRequestMessageTypes()
     {
-        myMessageHandlersLock.lock();
-        try
-        {
-            ArrayList<Class<?>> aRegisteredMessageTypes = new ArrayList<Class<?>>();
-            for (TMessageHandler aHandler : myMessageHandlers.values())
-            {
-                aRegisteredMessageTypes.add(aHandler.Type);
-            }
-            return aRegisteredMessageTypes;
-        }
-        finally
+        // Note: the concurrent map can be iterated without the lock.
+        ArrayList<Class<?>> aRegisteredMessageTypes = new ArrayList<Class<?>>();
+        for (TMessageHandler aHandler : myMessageHandlers.values())
         {
-            myMessageHandlersLock.unlock();
+            aRegisteredMessageTypes.add(aHandler.Type);
         }
+        return aRegisteredMessageTypes;
     }
 
     @Override
@@ -301,17 +298,8 @@ class MultiTypedMessageReceiver implements IMultiTypedMessageReceiver
             }
             else
             {
-                TMessageHandler aMessageHandler;
-
-                myMessageHandlersLock.lock();
-                try
-                {
-                    aMessageHandler = myMessageHandlers.get(e.getRequestMessage().TypeName);
-                }
-                finally
-                {
-                    myMessageHandlersLock.unlock();
-                }
+                // Note: handlers are stored in the concurrent map so that receiving does not need the lock.
+                TMessageHandler aMessageHandler = myMessageHandlers.get(e.getRequestMessage().TypeName);
 
                 if (aMessageHandler != null)
                 {
@@ -369,8 +357,9 @@ class MultiTypedMessageReceiver implements IMultiTypedMessageReceiver
     private GetSerializerCallback myGetSerializerCallback;
     private IDuplexTypedMessageReceiver<MultiTypedMessage, MultiTypedMessage> myReceiver;
     
+    // Note: the lock is used only to register and unregister handlers.
     private ThreadLock myMessageHandlersLock = new ThreadLock();
-    private HashMap<String, TMessageHandler> myMessageHandlers = new HashMap<String, TMessageHandler>();
+    private ConcurrentHashMap<String, TMessageHandler> myMessageHandlers = new ConcurrentHashMap<String, TMessageHandler>();
     
     
     private EventImpl<ResponseReceiverEventArgs> myResponseReceiverConnectedImpl = new EventImpl<ResponseReceiverEventArgs>();
@@ -10,7 +10,7 @@
 package eneter.messaging.endpoints.typedmessages;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import eneter.messaging.dataprocessing.serializing.ISerializer;
 import eneter.messaging.diagnostic.EneterTrace;
@@ -37,14 +37,16 @@ class MultiTypedMessageSender implements IMultiTypedMessageSender
     }
     
     
-    public MultiTypedMessageSender(ISerializer serializer)
+    public MultiTypedMessageSender(ISerializer serializer, boolean isCompactMessageFormat)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
             mySerializer = serializer;
 
-            IDuplexTypedMessagesFactory aFactory = new DuplexTypedMessagesFactory(serializer);
+            // Note: MultiTypedMessageSerializer does not serialize already serialized message data again.
+            ISerializer aMultiTypedMessageSerializer = isCompactMessageFormat ? new MultiTypedMessageSerializer(serializer) : serializer;
+            IDuplexTypedMessagesFactory aFactory = new DuplexTypedMessagesFactory(aMultiTypedMessageSerializer);
             mySender = aFactory.createDuplexTypedMessageSender(MultiTypedMessage.class, MultiTypedMessage.class);
             mySender.connectionOpened().subscribe(myOnConnectionOpened);
             mySender.connectionClosed().subscribe(myOnConnectionClosed);
@@ -200,20 +202,13 @@ class MultiTypedMessageSender implements IMultiTypedMessageSender
     @Override
     public ArrayList<Class<?>> getRegisteredResponseMessageTypes()
     {
-        myMessageHandlersLock.lock();
-        try
-        {
-            ArrayList<Class<?>> aRegisteredMessageTypes = new ArrayList<Class<?>>();
-            for (TMessageHandler aHandler : myMessageHandlers.values())
-            {
-                aRegisteredMessageTypes.add(aHandler.Type);
-            }
-            return aRegisteredMessageTypes;
-        }
-        finally
+        // Note: the concurrent map can be iterated without the lock.
+        ArrayList<Class<?>> aRegisteredMessageTypes = new ArrayList<Class<?>>();
+        for (TMessageHandler aHandler : myMessageHandlers.values())
         {
-            myMessageHandlersLock.unlock();
+            aRegisteredMessageTypes.add(aHandler.Type);
         }
+        return aRegisteredMessageTypes;
     }
 
     @Override
@@ -297,17 +292,8 @@ class MultiTypedMessageSender implements IMultiTypedMessageSender
         {
             if (e.getReceivingError() == null)
             {
-                TMessageHandler aMessageHandler;
-
-                myMessageHandlersLock.lock();
-                try
-                {
-                    aMessageHandler = myMessageHandlers.get(e.getResponseMessage().TypeName);
-                }
-                finally
-                {
-                    myMessageHandlersLock.unlock();
-                }
+                // Note: handlers are stored in the concurrent map so that receiving does not need the lock.
+                TMessageHandler aMessageHandler = myMessageHandlers.get(e.getResponseMessage().TypeName);
 
                 if (aMessageHandler != null)
                 {
@@ -358,8 +344,9 @@ class MultiTypedMessageSender implements IMultiTypedMessageSender
     private ISerializer mySerializer;
     private IDuplexTypedMessageSender<MultiTypedMessage, MultiTypedMessage> mySender;
 
-    private ThreadLock myMessageHandlersLock = new ThreadLock(); 
-    private HashMap<String, TMessageHandler> myMessageHandlers = new HashMap<String, TMessageHandler>();
+    // Note: the lock is used only to register and unregister handlers.
+    private ThreadLock myMessageHandlersLock = new ThreadLock();
+    private ConcurrentHashMap<String, TMessageHandler> myMessageHandlers = new ConcurrentHashMap<String, TMessageHandler>();
     
     
     private EventImpl<DuplexChannelEventArgs> myConnectionOpened = new EventImpl<DuplexChannelEventArgs>();
@@ -0,0 +1,174 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.endpoints.typedmessages;
+
+import java.io.*;
+import java.lang.ref.WeakReference;
+import java.nio.charset.Charset;
+import java.util.WeakHashMap;
+
+import eneter.messaging.dataprocessing.serializing.GetSerializerCallback;
+import eneter.messaging.dataprocessing.serializing.ISerializer;
+import eneter.messaging.dataprocessing.serializing.internal.EncoderDecoder;
+import eneter.messaging.diagnostic.EneterTrace;
+
+/**
+ * Serializer for MultiTypedMessage.
+ * 
+ * The MessageData of MultiTypedMessage is already serialized by the user serializer.
+ * Therefore this serializer does not serialize it again but it writes the type name followed by
+ * raw bytes of serialized data:
+ * [format id][type name length][type name UTF-8][encoding id][serialized message data]
+ * 
+ * If the received data does not start with the format id (e.g. XML or binary data from a sender using
+ * the previous format) it is deserialized by the underlying serializer.
+ *
+ */
+class MultiTypedMessageSerializer implements ISerializer
+{
+    public MultiTypedMessageSerializer(ISerializer underlyingSerializer)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            myUnderlyingSerializer = underlyingSerializer;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    /**
+     * Returns the callback providing MultiTypedMessageSerializer for serializers returned by the given callback.
+     */
+    public static GetSerializerCallback wrap(final GetSerializerCallback getSerializerCallback)
+    {
+        if (getSerializerCallback == null)
+        {
+            return null;
+        }
+        
+        // Note: the callback is invoked for every received message so the wrapping serializer is created
+        //       only once per underlying serializer.
+        //       Wrapping serializers are weakly referenced so that they do not keep underlying serializers alive.
+        final WeakHashMap<ISerializer, WeakReference<MultiTypedMessageSerializer>> aSerializers = new WeakHashMap<ISerializer, WeakReference<MultiTypedMessageSerializer>>();
+        
+        return new GetSerializerCallback()
+        {
+            @Override
+            public ISerializer invoke(String responseReceiverId)
+            {
+                ISerializer anUnderlyingSerializer = getSerializerCallback.invoke(responseReceiverId);
+                
+                synchronized (aSerializers)
+                {
+                    WeakReference<MultiTypedMessageSerializer> aReference = aSerializers.get(anUnderlyingSerializer);
+                    MultiTypedMessageSerializer aSerializer = (aReference != null) ? aReference.get() : null;
+                    if (aSerializer == null)
+                    {
+                        aSerializer = new MultiTypedMessageSerializer(anUnderlyingSerializer);
+                        aSerializers.put(anUnderlyingSerializer, new WeakReference<MultiTypedMessageSerializer>(aSerializer));
+                    }
+                    
+                    return aSerializer;
+                }
+            }
+        };
+    }
+
+    @Override
+    public <T> Object serialize(T dataToSerialize, Class<T> clazz)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (clazz != MultiTypedMessage.class)
+            {
+                return myUnderlyingSerializer.serialize(dataToSerialize, clazz);
+            }
+            
+            MultiTypedMessage aMessage = (MultiTypedMessage)dataToSerialize;
+            
+            ByteArrayOutputStream aStream = new ByteArrayOutputStream(estimateSize(aMessage));
+            DataOutputStream aWriter = new DataOutputStream(aStream);
+            
+            aWriter.writeByte(FORMAT_ID);
+            myEncoderDecoder.writePlainString(aWriter, aMessage.TypeName, myEncoding, IS_LITTLE_ENDIAN);
+            
+            // Note: message data is already serialized so only its bytes are written.
+            myEncoderDecoder.encode(aWriter, aMessage.MessageData);
+            
+            return aStream.toByteArray();
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T deserialize(Object serializedData, Class<T> clazz)
+            throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (clazz != MultiTypedMessage.class || serializedData instanceof byte[] == false)
+            {
+                return myUnderlyingSerializer.deserialize(serializedData, clazz);
+            }
+            
+            // Note: binary data from a sender using the previous format (e.g. JavaBinarySerializer)
+            //       is deserialized by the underlying serializer.
+            byte[] aData = (byte[])serializedData;
+            if (aData.length == 0 || aData[0] != FORMAT_ID)
+            {
+                return myUnderlyingSerializer.deserialize(serializedData, clazz);
+            }
+            
+            DataInputStream aReader = new DataInputStream(new ByteArrayInputStream(aData, 1, aData.length - 1));
+            
+            MultiTypedMessage aMessage = new MultiTypedMessage();
+            aMessage.TypeName = myEncoderDecoder.readPlainString(aReader, myEncoding, IS_LITTLE_ENDIAN);
+            aMessage.MessageData = myEncoderDecoder.decode(aReader);
+            
+            return (T)aMessage;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private static int estimateSize(MultiTypedMessage message)
+    {
+        int aSize = 16 + ((message.TypeName != null) ? message.TypeName.length() * 3 : 0);
+        if (message.MessageData instanceof byte[])
+        {
+            aSize += ((byte[])message.MessageData).length;
+        }
+        else if (message.MessageData instanceof String)
+        {
+            aSize += ((String)message.MessageData).length() * 2;
+        }
+        
+        return aSize;
+    }
+    
+    
+    private static final byte FORMAT_ID = 0x4D;
+    private static final boolean IS_LITTLE_ENDIAN = true;
+    
+    private ISerializer myUnderlyingSerializer;
+    private Charset myEncoding = Charset.forName("UTF-8");
+    private EncoderDecoder myEncoderDecoder = new EncoderDecoder();
+}
@@ -211,7 +211,7 @@ public class MultiTypedMessagesFactory implements IMultiTypedMessagesFactory
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            return new MultiTypedMessageSender(mySerializer);
+            return new MultiTypedMessageSender(mySerializer, myIsCompactMessageFormat);
         }
         finally
         {
@@ -225,7 +225,7 @@ public class MultiTypedMessagesFactory implements IMultiTypedMessagesFactory
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            return new SyncMultiTypedMessageSender(mySyncResponseReceiveTimeout, mySerializer, mySyncDuplexTypedSenderThreadMode);
+            return new SyncMultiTypedMessageSender(mySyncResponseReceiveTimeout, mySerializer, mySyncDuplexTypedSenderThreadMode, myIsCompactMessageFormat);
         }
         finally
         {
@@ -239,7 +239,7 @@ public class MultiTypedMessagesFactory implements IMultiTypedMessagesFactory
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            return new MultiTypedMessageReceiver(mySerializer, mySerializerProvider);
+            return new MultiTypedMessageReceiver(mySerializer, mySerializerProvider, myIsCompactMessageFormat);
         }
         finally
         {
@@ -359,9 +359,39 @@ public class MultiTypedMessagesFactory implements IMultiTypedMessagesFactory
         return mySyncResponseReceiveTimeout;
     }
     
+    /**
+     * Sets whether the internal MultiTypedMessage shall be serialized in the compact binary format.
+     * 
+     * By default the serialized message data is serialized once more together with the type name.
+     * It costs more CPU and produces bigger messages (e.g. XML nested in XML) but it is the format
+     * used by previous versions of the framework and by Eneter for .NET.
+     * In the compact format the message is serialized only once and then the type name
+     * and serialized message data are written into a compact binary sequence.
+     * <br/><br/>
+     * The default value is false. Enable it only if both communicating sides use this version of the framework
+     * and both sides enable it.
+     * @param isCompactMessageFormat true if the compact format shall be used.
+     * @return this MultiTypedMessagesFactory
+     */
+    public MultiTypedMessagesFactory setCompactMessageFormat(boolean isCompactMessageFormat)
+    {
+        myIsCompactMessageFormat = isCompactMessageFormat;
+        return this;
+    }
+    
+    /**
+     * Returns true if the internal MultiTypedMessage is serialized in the compact binary format.
+     * @return true if the compact format is used.
+     */
+    public boolean isCompactMessageFormat()
+    {
+        return myIsCompactMessageFormat;
+    }
+    
     
     private ISerializer mySerializer;
     private GetSerializerCallback mySerializerProvider;
     private int mySyncResponseReceiveTimeout;
     private IThreadDispatcherProvider mySyncDuplexTypedSenderThreadMode;
+    private boolean myIsCompactMessageFormat;
 }
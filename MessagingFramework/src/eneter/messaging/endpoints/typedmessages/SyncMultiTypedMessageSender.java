@@ -17,13 +17,16 @@ import eneter.net.system.*;
 
 class SyncMultiTypedMessageSender implements ISyncMultitypedMessageSender
 {
-    public SyncMultiTypedMessageSender(int syncResponseReceiveTimeout, ISerializer serializer, IThreadDispatcherProvider syncDuplexTypedSenderThreadMode)
+    public SyncMultiTypedMessageSender(int syncResponseReceiveTimeout, ISerializer serializer, IThreadDispatcherProvider syncDuplexTypedSenderThreadMode, boolean isCompactMessageFormat)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
             mySerializer = serializer;
-            DuplexTypedMessagesFactory aFactory = new DuplexTypedMessagesFactory(serializer)
+            
+            // Note: MultiTypedMessageSerializer does not serialize already serialized message data again.
+            ISerializer aMultiTypedMessageSerializer = isCompactMessageFormat ? new MultiTypedMessageSerializer(serializer) : serializer;
+            DuplexTypedMessagesFactory aFactory = new DuplexTypedMessagesFactory(aMultiTypedMessageSerializer)
                 .setSyncResponseReceiveTimeout(syncResponseReceiveTimeout);
             aFactory.setSyncDuplexTypedSenderThreadMode(syncDuplexTypedSenderThreadMode);
 
@@ -9,6 +9,7 @@
 package eneter.messaging.endpoints.typedmessages;
 
 import java.util.ArrayList;
+import java.util.concurrent.*;
 
 import eneter.messaging.dataprocessing.serializing.ISerializer;
 import eneter.messaging.diagnostic.EneterTrace;
@@ -18,6 +19,7 @@ import eneter.messaging.messagingsystems.messagingsystembase.*;
 import eneter.messaging.threading.dispatching.IThreadDispatcher;
 import eneter.net.system.*;
 import eneter.net.system.threading.internal.ManualResetEvent;
+import eneter.net.system.threading.internal.ThreadPool;
 
 class SyncTypedMessageSender<TResponse, TRequest> implements ISyncDuplexTypedMessageSender<TResponse, TRequest>
 {
@@ -36,13 +38,21 @@ class SyncTypedMessageSender<TResponse, TRequest> implements ISyncDuplexTypedMes
     public SyncTypedMessageSender(int responseReceiveTimeout, ISerializer serializer,
             Class<TResponse> responseMessageClazz, Class<TRequest> requestMessageClazz,
             IThreadDispatcher threadDispatcher)
+    {
+        this(responseReceiveTimeout, serializer, responseMessageClazz, requestMessageClazz, threadDispatcher, false);
+    }
+    
+    public SyncTypedMessageSender(int responseReceiveTimeout, ISerializer serializer,
+            Class<TResponse> responseMessageClazz, Class<TRequest> requestMessageClazz,
+            IThreadDispatcher threadDispatcher, boolean isMessageBatching)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
             myResponseReceiveTimeout = responseReceiveTimeout;
 
-            IDuplexTypedMessagesFactory aSenderFactory = new DuplexTypedMessagesFactory(serializer);
+            IDuplexTypedMessagesFactory aSenderFactory = new DuplexTypedMessagesFactory(serializer)
+                .setMessageBatching(isMessageBatching);
             mySender = aSenderFactory.createDuplexTypedMessageSender(responseMessageClazz, requestMessageClazz);
             mySender.connectionClosed().subscribe(myOnConnectionOpened);
             mySender.connectionClosed().subscribe(myOnConnectionClosed);
@@ -202,6 +212,32 @@ class SyncTypedMessageSender<TResponse, TRequest> implements ISyncDuplexTypedMes
         }
     }
     
+    @Override
+    public Future<TResponse> sendRequestMessageAsync(final TRequest message) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            // Note: without the request correlation only one request can wait for the response.
+            //       Therefore requests are sent one by one from the thread pool.
+            FutureTask<TResponse> aRequestTask = new FutureTask<TResponse>(new Callable<TResponse>()
+            {
+                @Override
+                public TResponse call() throws Exception
+                {
+                    return sendRequestMessage(message);
+                }
+            });
+            ThreadPool.queueUserWorkItem(aRequestTask);
+            
+            return aRequestTask;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
     private void onConnectionOpened(Object sender, final DuplexChannelEventArgs e)
     {
         EneterTrace aTrace = EneterTrace.entering();
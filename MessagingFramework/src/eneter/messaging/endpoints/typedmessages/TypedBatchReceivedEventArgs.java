@@ -0,0 +1,114 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.endpoints.typedmessages;
+
+import java.util.List;
+
+/**
+ * Event argument used when the batch of typed messages is received.
+ *
+ * @param <TRequestMessage> type of request messages
+ */
+public final class TypedBatchReceivedEventArgs<TRequestMessage>
+{
+    /**
+     * Constructs the event.
+     * @param responseReceiverId identifies the client where responses can be sent
+     * @param senderAddress address of the message sender. It is null if not applicable for the messaging system.
+     * @param requestMessages received messages in the order in which they were sent
+     */
+    public TypedBatchReceivedEventArgs(String responseReceiverId, String senderAddress, List<TRequestMessage> requestMessages)
+    {
+        this(responseReceiverId, senderAddress, requestMessages, null);
+    }
+    
+    /**
+     * Constructs the event for the batch of correlated requests.
+     * @param responseReceiverId identifies the client where responses can be sent
+     * @param senderAddress address of the message sender. It is null if not applicable for the messaging system.
+     * @param requestMessages received messages in the order in which they were sent
+     * @param requestIds ids of received messages in the same order as messages. It is null if the request correlation is not used.
+     */
+    public TypedBatchReceivedEventArgs(String responseReceiverId, String senderAddress, List<TRequestMessage> requestMessages, List<Integer> requestIds)
+    {
+        myRequestMessages = requestMessages;
+        myRequestIds = requestIds;
+        myResponseReceiverId = responseReceiverId;
+        mySenderAddress = senderAddress;
+        myReceivingError = null;
+    }
+    
+    /**
+     * Constructs the event from the exception.
+     * @param responseReceiverId identifies the client where responses can be sent
+     * @param senderAddress address of the message sender. It is null if not applicable for the messaging system.
+     * @param error error detected during receiving the batch
+     */
+    public TypedBatchReceivedEventArgs(String responseReceiverId, String senderAddress, Exception error)
+    {
+        myRequestMessages = null;
+        myResponseReceiverId = responseReceiverId;
+        mySenderAddress = senderAddress;
+        myReceivingError = error;
+    }
+
+    /**
+     * Returns received messages.
+     * @return
+     */
+    public List<TRequestMessage> getRequestMessages()
+    {
+        return myRequestMessages;
+    }
+    
+    /**
+     * Returns ids of received messages in the same order as messages.
+     * Ids shall be used to send responses by IDuplexTypedMessageReceiver.sendResponseMessage(responseReceiverId, requestId, message).
+     * It returns null if the request correlation is not used.
+     * @return
+     */
+    public List<Integer> getRequestIds()
+    {
+        return myRequestIds;
+    }
+    
+    /**
+     * Returns the client identifier where responses can be sent.
+     * @return
+     */
+    public String getResponseReceiverId()
+    {
+        return myResponseReceiverId;
+    }
+    
+    /**
+     * Returns the address where the sender of request messages is located. (e.g. IP address of the client).
+     * It can be empty string if not applicable for used messaging.
+     * @return
+     */
+    public String getSenderAddress()
+    {
+        return mySenderAddress;
+    }
+    
+    /**
+     * Returns the error detected during receiving of the batch.
+     * @return
+     */
+    public Exception getReceivingError()
+    {
+        return myReceivingError;
+    }
+    
+    private List<TRequestMessage> myRequestMessages;
+    private List<Integer> myRequestIds;
+    private String myResponseReceiverId;
+    private String mySenderAddress;
+    private Exception myReceivingError;
+}
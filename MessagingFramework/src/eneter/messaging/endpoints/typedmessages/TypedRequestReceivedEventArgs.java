@@ -23,6 +23,19 @@ public final class TypedRequestReceivedEventArgs<TRequestMessage>
      */
     public TypedRequestReceivedEventArgs(String responseReceiverId, String senderAddress, TRequestMessage requestMessage)
     {
+        this(responseReceiverId, senderAddress, 0, requestMessage);
+    }
+    
+    /**
+     * Constructs the event for the correlated request.
+     * @param responseReceiverId identifies the client where the response can be sent
+     * @param senderAddress address of the message sender. It is null if not applicable for the messaging system.
+     * @param requestId id of the request. It is 0 if the request correlation is not used.
+     * @param requestMessage message
+     */
+    public TypedRequestReceivedEventArgs(String responseReceiverId, String senderAddress, int requestId, TRequestMessage requestMessage)
+    {
+        myRequestId = requestId;
         myRequestMessage = requestMessage;
         myResponseReceiverId = responseReceiverId;
         mySenderAddress = senderAddress;
@@ -52,6 +65,17 @@ public final class TypedRequestReceivedEventArgs<TRequestMessage>
         return myRequestMessage;
     }
     
+    /**
+     * Returns the id of the request.
+     * The id can be used to send the response to this request from a different thread.
+     * It is 0 if the request correlation is not used.
+     * @return
+     */
+    public int getRequestId()
+    {
+        return myRequestId;
+    }
+    
     /**
      * Returns the client identifier where the response can be sent.
      * @return
@@ -80,6 +104,7 @@ public final class TypedRequestReceivedEventArgs<TRequestMessage>
         return myReceivingError;
     }
     
+    private int myRequestId;
     private TRequestMessage myRequestMessage;
     private String myResponseReceiverId;
     private String mySenderAddress;
@@ -49,7 +49,10 @@ class AuthenticatedDuplexInputChannel implements IDuplexInputChannel
     public AuthenticatedDuplexInputChannel(IDuplexInputChannel underlyingInputChannel,
             IGetHandshakeMessage getHandshakeMessageCallback,
             IAuthenticate verifyHandshakeResponseMessageCallback,
-            IHandleAuthenticationCancelled authenticationCancelledCallback)
+            IHandleAuthenticationCancelled authenticationCancelledCallback,
+            byte[] sessionTicketKey,
+            long sessionTicketLifetime,
+            IResumeSession resumeSessionCallback)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
@@ -58,6 +61,9 @@ class AuthenticatedDuplexInputChannel implements IDuplexInputChannel
                 myGetHandshakeMessageCallback = getHandshakeMessageCallback;
                 myAuthenticateCallback = verifyHandshakeResponseMessageCallback;
                 myAuthenticationCancelledCallback = authenticationCancelledCallback;
+                mySessionTicketKey = sessionTicketKey;
+                mySessionTicketLifetime = sessionTicketLifetime;
+                myResumeSessionCallback = resumeSessionCallback;
 
                 myUnderlayingInputChannel.responseReceiverDisconnected().subscribe(myOnResponseReceiverDisconnected);
                 myUnderlayingInputChannel.messageReceived().subscribe(myOnMessageReceived);
@@ -311,7 +317,36 @@ class AuthenticatedDuplexInputChannel implements IDuplexInputChannel
                 myNotYetAuthenticatedConnectionsLock.unlock();
             }
             
-            if (aConnection.HandshakeMessage == null)
+            if (aConnection.HandshakeMessage == null && mySessionTicketKey != null && SessionTicket.isTicket(e.getMessage()))
+            {
+                EneterTrace.debug("SESSION TICKET RECEIVED");
+
+                // The client tries to resume the session.
+                // If the ticket is not accepted the connection stays open and the client continues with the login message.
+                try
+                {
+                    if (resumeSession(e))
+                    {
+                        // Note: the ticket is sent back as the acknowledge so that it keeps its original expiration time.
+                        myUnderlayingInputChannel.sendResponseMessage(e.getResponseReceiverId(), e.getMessage());
+
+                        aDisconnectFlag = false;
+                        aNewResponseReceiverAuthenticated = true;
+                        setAuthenticated(e.getResponseReceiverId());
+                    }
+                    else
+                    {
+                        myUnderlayingInputChannel.sendResponseMessage(e.getResponseReceiverId(), SessionTicket.rejection());
+                        aDisconnectFlag = false;
+                    }
+                }
+                catch (Exception err)
+                {
+                    String anErrorMessage = TracedObject() + "failed to resume the session. The client will be disconnected.";
+                    EneterTrace.error(anErrorMessage, err);
+                }
+            }
+            else if (aConnection.HandshakeMessage == null)
             {
                 EneterTrace.debug("LOGIN RECEIVED");
 
@@ -361,31 +396,11 @@ class AuthenticatedDuplexInputChannel implements IDuplexInputChannel
                         // Send acknowledge message that the connection is authenticated.
                         try
                         {
-                            myUnderlayingInputChannel.sendResponseMessage(e.getResponseReceiverId(), "OK");
+                            myUnderlayingInputChannel.sendResponseMessage(e.getResponseReceiverId(), getAcknowledgeMessage(aConnection.LoginMessage));
 
                             aDisconnectFlag = false;
                             aNewResponseReceiverAuthenticated = true;
-
-                            // Move the connection from not-yet-authenticated to authenticated connections.
-                            myAuthenticatedConnectionsLock.lock();
-                            try
-                            {
-                                myAuthenticatedConnections.add(e.getResponseReceiverId());
-                            }
-                            finally
-                            {
-                                myAuthenticatedConnectionsLock.unlock();
-                            }
-                            
-                            myNotYetAuthenticatedConnectionsLock.lock();
-                            try
-                            {
-                                myNotYetAuthenticatedConnections.remove(e.getResponseReceiverId());
-                            }
-                            finally
-                            {
-                                myNotYetAuthenticatedConnectionsLock.unlock();
-                            }
+                            setAuthenticated(e.getResponseReceiverId());
                         }
                         catch (Exception err)
                         {
@@ -441,6 +456,86 @@ class AuthenticatedDuplexInputChannel implements IDuplexInputChannel
         }
     }
     
+    private boolean resumeSession(DuplexChannelMessageEventArgs e) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            SessionTicket aTicket = SessionTicket.verify(mySessionTicketKey, e.getMessage());
+            if (aTicket == null)
+            {
+                EneterTrace.debug(TracedObject() + "rejected the invalid or expired session ticket.");
+                return false;
+            }
+
+            return myResumeSessionCallback == null ||
+                   myResumeSessionCallback.resumeSession(e.getChannelId(), e.getResponseReceiverId(), aTicket.getLoginMessage());
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    // Returns the message acknowledging the connection is authenticated.
+    // If session tickets are enabled the acknowledge is the ticket which the client can use to resume the session.
+    private Object getAcknowledgeMessage(Object loginMessage)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (mySessionTicketKey != null)
+            {
+                try
+                {
+                    return SessionTicket.issue(mySessionTicketKey, mySessionTicketLifetime, loginMessage);
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.warning(TracedObject() + "failed to issue the session ticket. The connection will be acknowledged without the ticket.", err);
+                }
+            }
+
+            return "OK";
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    // Moves the connection from not-yet-authenticated to authenticated connections.
+    private void setAuthenticated(String responseReceiverId)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            myAuthenticatedConnectionsLock.lock();
+            try
+            {
+                myAuthenticatedConnections.add(responseReceiverId);
+            }
+            finally
+            {
+                myAuthenticatedConnectionsLock.unlock();
+            }
+
+            myNotYetAuthenticatedConnectionsLock.lock();
+            try
+            {
+                myNotYetAuthenticatedConnections.remove(responseReceiverId);
+            }
+            finally
+            {
+                myNotYetAuthenticatedConnectionsLock.unlock();
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
     private <T> void notifyEvent(EventImpl<T> handler, T event, boolean isNobodySubscribedWarning)
     {
         EneterTrace aTrace = EneterTrace.entering();
@@ -479,6 +574,9 @@ class AuthenticatedDuplexInputChannel implements IDuplexInputChannel
     private IGetHandshakeMessage myGetHandshakeMessageCallback;
     private IAuthenticate myAuthenticateCallback;
     private IHandleAuthenticationCancelled myAuthenticationCancelledCallback;
+    private IResumeSession myResumeSessionCallback;
+    private byte[] mySessionTicketKey;
+    private long mySessionTicketLifetime;
     
     private EventImpl<ResponseReceiverEventArgs> myResponseReceiverConnectedEventImpl = new EventImpl<ResponseReceiverEventArgs>();
     private EventImpl<ResponseReceiverEventArgs> myResponseReceiverDisconnectedEventImpl = new EventImpl<ResponseReceiverEventArgs>();
@@ -98,33 +98,33 @@ class AuthenticatedDuplexOutputChannel implements IDuplexOutputChannel
                 {
                     // Reset internal states.
                     myIsHandshakeResponseSent = false;
+                    myIsSessionTicketSent = false;
                     myIsConnectionAcknowledged = false;
                     myAuthenticationEnded.reset();
 
                     myUnderlyingOutputChannel.openConnection();
 
-                    // Send the login message.
-                    Object aLoginMessage;
-                    try
-                    {
-                        aLoginMessage = myGetLoginMessageCallback.getLoginMessage(getChannelId(), getResponseReceiverId());
-                    }
-                    catch (Exception err)
+                    // If the service issued the session ticket then try to resume the session.
+                    // Otherwise send the login message.
+                    Object aLoginMessage = null;
+                    if (mySessionTicket != null)
                     {
-                        String anErrorMessage = TracedObject() + "failed to get the login message.";
-                        EneterTrace.error(anErrorMessage, err);
-                        throw err;
-                    }
-
-                    try
-                    {
-                        myUnderlyingOutputChannel.sendMessage(aLoginMessage);
+                        try
+                        {
+                            // Note: keep setting this flag before sending. Otherwise synchronous messaging will not work!
+                            myIsSessionTicketSent = true;
+                            myUnderlyingOutputChannel.sendMessage(mySessionTicket);
+                        }
+                        catch (Exception err)
+                        {
+                            String anErrorMessage = TracedObject() + "failed to send the session ticket.";
+                            EneterTrace.error(anErrorMessage, err);
+                            throw err;
+                        }
                     }
-                    catch (Exception err)
+                    else
                     {
-                        String anErrorMessage = TracedObject() + "failed to send the login message.";
-                        EneterTrace.error(anErrorMessage, err);
-                        throw err;
+                        aLoginMessage = sendLoginMessage();
                     }
 
                     // Wait until the handshake is completed.
@@ -137,13 +137,18 @@ class AuthenticatedDuplexOutputChannel implements IDuplexOutputChannel
                     
                     if (!isConnected())
                     {
-                        String anErrorMessage = TracedObject() + "failed to authenticate '" + aLoginMessage + "'.";
+                        String anErrorMessage = (aLoginMessage != null) ?
+                                TracedObject() + "failed to authenticate '" + aLoginMessage + "'." :
+                                TracedObject() + "failed to authenticate.";
                         EneterTrace.error(anErrorMessage);
                         throw new IllegalStateException(anErrorMessage);
                     }
                 }
                 catch (Exception err)
                 {
+                    // Note: if the session ticket was not accepted the next attempt performs the whole authentication.
+                    mySessionTicket = null;
+
                     closeConnection();
                     throw err;
                 }
@@ -283,8 +288,40 @@ class AuthenticatedDuplexOutputChannel implements IDuplexOutputChannel
             
             boolean aCloseConnectionFlag = false;
             
+            // This is the response for the session ticket.
+            if (myIsSessionTicketSent)
+            {
+                if (SessionTicket.isTicket(e.getMessage()))
+                {
+                    EneterTrace.debug("SESSION RESUMED");
+                    onConnectionAcknowledged(e);
+                }
+                else if (SessionTicket.isRejection(e.getMessage()))
+                {
+                    EneterTrace.debug("SESSION TICKET REJECTED");
+
+                    // The ticket is invalid or expired so perform the whole authentication.
+                    mySessionTicket = null;
+                    myIsSessionTicketSent = false;
+                    try
+                    {
+                        sendLoginMessage();
+                    }
+                    catch (Exception err)
+                    {
+                        aCloseConnectionFlag = true;
+                    }
+                }
+                else
+                {
+                    String anErrorMessage = TracedObject() + "detected incorrect response for the session ticket. The connection will be closed.";
+                    EneterTrace.error(anErrorMessage);
+
+                    aCloseConnectionFlag = true;
+                }
+            }
             // This is the handshake message.
-            if (!myIsHandshakeResponseSent)
+            else if (!myIsHandshakeResponseSent)
             {
                 EneterTrace.debug("HANDSHAKE RECEIVED");
 
@@ -328,10 +365,15 @@ class AuthenticatedDuplexOutputChannel implements IDuplexOutputChannel
                 EneterTrace.debug("CONNECTION ACKNOWLEDGE RECEIVED");
                 
                 // If the handshake was sent then this message must be acknowledgement.
+                // Note: if the service issues session tickets then the acknowledgement is the ticket.
                 String anAcknowledgeMessage = Cast.as(e.getMessage(), String.class);
-
+                if (SessionTicket.isTicket(e.getMessage()))
+                {
+                    mySessionTicket = (byte[])e.getMessage();
+                    onConnectionAcknowledged(e);
+                }
                 // If the acknowledge message is wrong then disconnect.
-                if (StringExt.isNullOrEmpty(anAcknowledgeMessage) || !anAcknowledgeMessage.equals("OK"))
+                else if (StringExt.isNullOrEmpty(anAcknowledgeMessage) || !anAcknowledgeMessage.equals("OK"))
                 {
                     String anErrorMessage = TracedObject() + "detected incorrect acknowledge message. The connection will be closed.";
                     EneterTrace.error(anErrorMessage);
@@ -340,19 +382,7 @@ class AuthenticatedDuplexOutputChannel implements IDuplexOutputChannel
                 }
                 else
                 {
-                    myIsConnectionAcknowledged = true;
-                    myAuthenticationEnded.set();
-    
-                    // Notify the connection is open.
-                    final DuplexChannelEventArgs anEventArgs = new DuplexChannelEventArgs(getChannelId(), getResponseReceiverId(), e.getSenderAddress());
-                    myThreadDispatcher.invoke(new Runnable()
-                    {
-                        @Override
-                        public void run()
-                        {
-                            notifyEvent(myConnectionOpenedEventImpl, anEventArgs, false);
-                        }
-                    });
+                    onConnectionAcknowledged(e);
                 }
             }
             
@@ -370,6 +400,67 @@ class AuthenticatedDuplexOutputChannel implements IDuplexOutputChannel
         }
     }
     
+    private Object sendLoginMessage() throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            Object aLoginMessage;
+            try
+            {
+                aLoginMessage = myGetLoginMessageCallback.getLoginMessage(getChannelId(), getResponseReceiverId());
+            }
+            catch (Exception err)
+            {
+                String anErrorMessage = TracedObject() + "failed to get the login message.";
+                EneterTrace.error(anErrorMessage, err);
+                throw err;
+            }
+
+            try
+            {
+                myUnderlyingOutputChannel.sendMessage(aLoginMessage);
+            }
+            catch (Exception err)
+            {
+                String anErrorMessage = TracedObject() + "failed to send the login message.";
+                EneterTrace.error(anErrorMessage, err);
+                throw err;
+            }
+
+            return aLoginMessage;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    private void onConnectionAcknowledged(DuplexChannelMessageEventArgs e)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            myIsConnectionAcknowledged = true;
+            myAuthenticationEnded.set();
+
+            // Notify the connection is open.
+            final DuplexChannelEventArgs anEventArgs = new DuplexChannelEventArgs(getChannelId(), getResponseReceiverId(), e.getSenderAddress());
+            myThreadDispatcher.invoke(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    notifyEvent(myConnectionOpenedEventImpl, anEventArgs, false);
+                }
+            });
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
     private <T> void notifyEvent(EventImpl<T> handler, T event, boolean isNobodySubscribedWarning)
     {
         EneterTrace aTrace = EneterTrace.entering();
@@ -405,6 +496,8 @@ class AuthenticatedDuplexOutputChannel implements IDuplexOutputChannel
     private long myAuthenticationTimeout;
     private boolean myIsHandshakeResponseSent;
     private boolean myIsConnectionAcknowledged;
+    private boolean myIsSessionTicketSent;
+    private byte[] mySessionTicket;
     private ManualResetEvent myAuthenticationEnded = new ManualResetEvent(false);
     private ThreadLock myConnectionManipulatorLock = new ThreadLock();
     
@@ -32,6 +32,16 @@ import eneter.messaging.threading.dispatching.*;
  * completed. If the time is exceeded the DuplexOutputChannel.openConnection(..) throws TimeoutException.
  * The default timeout is set to 30 seconds.
  * 
+ * The method setSessionTicketKey(..) enables the session resumption. When the authentication passes the service
+ * sends the signed session ticket instead of the acknowledge message. When the output channel opens the connection again
+ * it sends the ticket instead of the login message and if the ticket is valid and not expired the connection is established
+ * without the handshake and without calling callbacks performing the authentication. If the ticket is rejected the output channel
+ * continues with the whole authentication procedure. Services sharing the same key accept tickets issued by each other.
+ * The session ticket is a bearer token. Whoever captures it can resume the session until the ticket expires.
+ * Therefore the session resumption must be used only with the encrypted transport (e.g. TCP with SSL or WebSocket with TLS).
+ * Note: older versions of the output channel do not understand the session ticket so the session resumption shall be enabled
+ * only if all clients use a version supporting it.
+ * 
  * 
  * The following example shows how to authenticate the connection for TCP.<br/>
  * <br/>
@@ -344,6 +354,7 @@ public class AuthenticatedMessagingFactory implements IMessagingSystemFactory
         {
             myUnderlyingMessaging = underlyingMessagingSystem;
             myAuthenticationTimeout = 30000;
+            mySessionTicketLifetime = 600000;
 
             myGetLoginMessageCallback = getLoginMessageCallback;
             myGetHandShakeMessageCallback = getHandshakeMessageCallback;
@@ -452,7 +463,8 @@ public class AuthenticatedMessagingFactory implements IMessagingSystemFactory
             }
 
             IDuplexInputChannel anUnderlyingInputChannel = myUnderlyingMessaging.createDuplexInputChannel(channelId);
-            return new AuthenticatedDuplexInputChannel(anUnderlyingInputChannel, myGetHandShakeMessageCallback, myAuthenticateCallback, myHandleAuthenticationCancelled);
+            return new AuthenticatedDuplexInputChannel(anUnderlyingInputChannel, myGetHandShakeMessageCallback, myAuthenticateCallback, myHandleAuthenticationCancelled,
+                    mySessionTicketKey, mySessionTicketLifetime, myResumeSessionCallback);
         }
         finally
         {
@@ -514,6 +526,85 @@ public class AuthenticatedMessagingFactory implements IMessagingSystemFactory
         return myOutputChannelThreading;
     }
     
+    /**
+     * Sets the key which the service uses to sign session tickets.
+     * 
+     * If the key is set the duplex input channel issues the session ticket when the authentication passes.
+     * The duplex output channel can use the ticket to resume the session when it opens the connection again.
+     * The key must be kept secret. If the service runs in more instances they can use the same key so that the client
+     * can resume the session with any of them.<br/>
+     * The key is null by default which means the session resumption is disabled.<br/>
+     * <br/>
+     * The session ticket is sent in plain form and anybody who captures it can resume the session.
+     * Therefore set the key only if the underlying messaging encrypts the communication (e.g. SSL/TLS).
+     * 
+     * @param key secret key for HMAC-SHA256 signing session tickets. It must have at least 16 bytes. If null session tickets are not issued.
+     * @return this messaging factory
+     * @throws IllegalArgumentException if the key is shorter than 16 bytes.
+     */
+    public AuthenticatedMessagingFactory setSessionTicketKey(byte[] key)
+    {
+        if (key != null && key.length < MIN_SESSION_TICKET_KEY_LENGTH)
+        {
+            throw new IllegalArgumentException("The session ticket key must have at least " + MIN_SESSION_TICKET_KEY_LENGTH + " bytes.");
+        }
+        
+        mySessionTicketKey = (key != null) ? key.clone() : null;
+        return this;
+    }
+    
+    /**
+     * Sets how long the issued session ticket is valid.
+     * 
+     * When the ticket expires the client must perform the whole authentication procedure and gets a new ticket.
+     * Resuming the session does not prolong the ticket.
+     * The shorter lifetime the shorter time a captured ticket can be misused.<br/>
+     * The lifetime is 10 minutes by default.
+     * 
+     * @param lifetime lifetime in milliseconds
+     * @return this messaging factory
+     */
+    public AuthenticatedMessagingFactory setSessionTicketLifetime(long lifetime)
+    {
+        mySessionTicketLifetime = lifetime;
+        return this;
+    }
+    
+    /**
+     * Gets how long the issued session ticket is valid.
+     * @return lifetime in milliseconds
+     */
+    public long getSessionTicketLifetime()
+    {
+        return mySessionTicketLifetime;
+    }
+    
+    /**
+     * Sets the callback called by the duplex input channel when a client resumes the session.
+     * 
+     * It allows the service to associate the connection with the user and to refuse the resumption.
+     * If the callback is null all valid session tickets are accepted.
+     * 
+     * @param resumeSessionCallback callback resuming the session. Can be null.
+     * @return this messaging factory
+     */
+    public AuthenticatedMessagingFactory setResumeSessionCallback(IResumeSession resumeSessionCallback)
+    {
+        myResumeSessionCallback = resumeSessionCallback;
+        return this;
+    }
+    
+    /**
+     * Gets the callback called by the duplex input channel when a client resumes the session.
+     * @return callback resuming the session
+     */
+    public IResumeSession getResumeSessionCallback()
+    {
+        return myResumeSessionCallback;
+    }
+    
+    private static final int MIN_SESSION_TICKET_KEY_LENGTH = 16;
+    
     private IMessagingSystemFactory myUnderlyingMessaging;
 
     private IGetLoginMessage myGetLoginMessageCallback;
@@ -522,6 +613,9 @@ public class AuthenticatedMessagingFactory implements IMessagingSystemFactory
     private IAuthenticate myAuthenticateCallback;
     private IThreadDispatcherProvider myOutputChannelThreading;
     private IHandleAuthenticationCancelled myHandleAuthenticationCancelled;
+    private IResumeSession myResumeSessionCallback;
+    private byte[] mySessionTicketKey;
+    private long mySessionTicketLifetime;
     
     private long myAuthenticationTimeout;
     
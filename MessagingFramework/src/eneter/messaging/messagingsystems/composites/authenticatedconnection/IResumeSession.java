@@ -0,0 +1,31 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ *
+ * Copyright  2018 Ondrej Uzovic
+ *
+ */
+
+package eneter.messaging.messagingsystems.composites.authenticatedconnection;
+
+/**
+ * Callback method to resume the authenticated session.
+ *
+ * When AuthenticatedDuplexInputChannel receives a valid session ticket it calls this callback instead of the whole
+ * authentication sequence. It allows the user code to associate the connection with the user and to refuse
+ * the resumption e.g. if the user was meanwhile blocked.
+ */
+public interface IResumeSession
+{
+    /**
+     * Resumes the authenticated session.
+     * If it returns true the connection will be established.
+     * If it returns false the ticket is rejected and the client performs the whole authentication sequence.
+     *
+     * @param channelId service address.
+     * @param responseReceiverId unique id representing the connection with the client.
+     * @param loginMessage login message from the original authentication. It is null if the login message was not String or byte[].
+     * @return true if the session can be resumed.
+     */
+    boolean resumeSession(String channelId, String responseReceiverId, Object loginMessage);
+}
@@ -0,0 +1,181 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ *
+ * Copyright  2018 Ondrej Uzovic
+ *
+ */
+
+package eneter.messaging.messagingsystems.composites.authenticatedconnection;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import eneter.messaging.dataprocessing.serializing.internal.EncoderDecoder;
+import eneter.messaging.diagnostic.EneterTrace;
+
+/**
+ * Session ticket which allows to resume the authenticated session without the full authentication.
+ *
+ * The ticket is the byte[] message: [E][N][S][T][type][expiration time][has login][login message][signature]
+ * where the signature is HMAC-SHA256 of all preceding bytes computed with the service key.
+ * The login message is kept in the ticket only if it is String or byte[].
+ * The ticket is not encrypted and it is a bearer token so it must be sent only via the encrypted transport.
+ * The message rejecting the ticket is: [E][N][S][T][type].
+ */
+class SessionTicket
+{
+    private SessionTicket(long expirationTime, Object loginMessage)
+    {
+        myExpirationTime = expirationTime;
+        myLoginMessage = loginMessage;
+    }
+
+    public long getExpirationTime()
+    {
+        return myExpirationTime;
+    }
+
+    public Object getLoginMessage()
+    {
+        return myLoginMessage;
+    }
+
+    // Creates the signed ticket which expires after the specified time.
+    public static byte[] issue(byte[] key, long lifetime, Object loginMessage) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            ByteArrayOutputStream aBuffer = new ByteArrayOutputStream();
+            DataOutputStream aWriter = new DataOutputStream(aBuffer);
+            aWriter.write(HEADER);
+            aWriter.writeByte(TICKET);
+            aWriter.writeLong(System.currentTimeMillis() + lifetime);
+
+            if (loginMessage instanceof String || loginMessage instanceof byte[])
+            {
+                aWriter.writeByte(1);
+                myEncoderDecoder.write(aWriter, loginMessage, false);
+            }
+            else
+            {
+                aWriter.writeByte(0);
+            }
+
+            aWriter.write(sign(key, aBuffer.toByteArray()));
+
+            return aBuffer.toByteArray();
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    // Returns the ticket if it has the correct signature and it is not expired.
+    // Otherwise it returns null.
+    public static SessionTicket verify(byte[] key, Object message) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (!isTicket(message))
+            {
+                return null;
+            }
+
+            byte[] aTicket = (byte[])message;
+            if (aTicket.length < HEADER.length + 1 + 8 + 1 + SIGNATURE_LENGTH)
+            {
+                return null;
+            }
+
+            int aSignedLength = aTicket.length - SIGNATURE_LENGTH;
+            byte[] aSignature = Arrays.copyOfRange(aTicket, aSignedLength, aTicket.length);
+            if (!MessageDigest.isEqual(aSignature, sign(key, Arrays.copyOf(aTicket, aSignedLength))))
+            {
+                EneterTrace.warning("SessionTicket detected the ticket with incorrect signature.");
+                return null;
+            }
+
+            DataInputStream aReader = new DataInputStream(new ByteArrayInputStream(aTicket, HEADER.length + 1, aSignedLength - HEADER.length - 1));
+            long anExpirationTime = aReader.readLong();
+            if (anExpirationTime < System.currentTimeMillis())
+            {
+                return null;
+            }
+
+            Object aLoginMessage = (aReader.readByte() == 1) ? myEncoderDecoder.read(aReader, false) : null;
+
+            return new SessionTicket(anExpirationTime, aLoginMessage);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    public static byte[] rejection()
+    {
+        byte[] aMessage = Arrays.copyOf(HEADER, HEADER.length + 1);
+        aMessage[HEADER.length] = REJECTED;
+        return aMessage;
+    }
+
+    public static boolean isTicket(Object message)
+    {
+        return isType(message, TICKET);
+    }
+
+    public static boolean isRejection(Object message)
+    {
+        return isType(message, REJECTED);
+    }
+
+    private static boolean isType(Object message, byte type)
+    {
+        if (message instanceof byte[] == false)
+        {
+            return false;
+        }
+
+        byte[] aMessage = (byte[])message;
+        if (aMessage.length <= HEADER.length || aMessage[HEADER.length] != type)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < HEADER.length; ++i)
+        {
+            if (aMessage[i] != HEADER[i])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static byte[] sign(byte[] key, byte[] data) throws Exception
+    {
+        Mac aMac = Mac.getInstance("HmacSHA256");
+        aMac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return aMac.doFinal(data);
+    }
+
+
+    private static final byte[] HEADER = { 'E', 'N', 'S', 'T' };
+    private static final byte TICKET = 1;
+    private static final byte REJECTED = 2;
+    private static final int SIGNATURE_LENGTH = 32;
+
+    private static EncoderDecoder myEncoderDecoder = new EncoderDecoder();
+
+    private long myExpirationTime;
+    private Object myLoginMessage;
+}
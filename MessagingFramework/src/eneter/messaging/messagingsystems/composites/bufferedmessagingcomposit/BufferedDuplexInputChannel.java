@@ -10,6 +10,7 @@ package eneter.messaging.messagingsystems.composites.bufferedmessagingcomposit;
 
 import java.util.*;
 
+import eneter.messaging.dataprocessing.serializing.internal.MessageBatch;
 import eneter.messaging.diagnostic.*;
 import eneter.messaging.diagnostic.internal.ErrorHandler;
 import eneter.messaging.diagnostic.internal.ThreadLock;
@@ -32,6 +33,7 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
             //       Therefore it will be set explicitly.
             myClientAddress = "";
             myDuplexInputChannel = duplexInputChannel;
+            myMessageQueue = new BufferedMessageQueue(myMaxBufferSize, myOverflowPolicy, mySpillDirectory);
             setOnline(false);
         }
 
@@ -59,13 +61,19 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
             return myPendingResponseReceiverConnectedEvent;
         }
 
-        public void sendResponseMessage(Object message)
+        // Returns false if the buffer is full and the caller shall wait.
+        public boolean sendResponseMessage(Object message) throws Exception
         {
             EneterTrace aTrace = EneterTrace.entering();
             try
             {
-                myMessageQueue.add(message);
+                if (!myMessageQueue.offer(message))
+                {
+                    return false;
+                }
+                
                 sendMessagesFromQueue();
+                return true;
             }
             finally
             {
@@ -82,13 +90,27 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
                 {
                     while (myMessageQueue.size() > 0)
                     {
-                        Object aMessage = myMessageQueue.peek();
                         try
                         {
-                            myDuplexInputChannel.sendResponseMessage(ResponseReceiverId, aMessage);
-
-                            // Message was successfully sent therefore it can be removed from the queue.
-                            myMessageQueue.poll();
+                            if (myReplayBatchSize > 1)
+                            {
+                                // Send as many buffered messages as possible in one message.
+                                List<Object> aMessages = myMessageQueue.peek(myReplayBatchSize, BufferedDuplexOutputChannel.MAX_BATCH_SIZE);
+                                
+                                myDuplexInputChannel.sendResponseMessage(ResponseReceiverId, MessageBatch.encode(aMessages.toArray()));
+                                
+                                // Messages were successfully sent therefore they can be removed from the queue.
+                                myMessageQueue.poll(aMessages.size());
+                            }
+                            else
+                            {
+                                Object aMessage = myMessageQueue.peek();
+                                
+                                myDuplexInputChannel.sendResponseMessage(ResponseReceiverId, aMessage);
+    
+                                // Message was successfully sent therefore it can be removed from the queue.
+                                myMessageQueue.poll();
+                            }
                         }
                         catch (Exception err)
                         {
@@ -105,6 +127,22 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
             }
         }
 
+        public int getBufferedMessagesCount()
+        {
+            return myMessageQueue.size();
+        }
+
+        public void waitForSpace(long milliseconds) throws InterruptedException
+        {
+            myMessageQueue.waitForSpace(milliseconds);
+        }
+        
+        // Removes buffered messages when the response receiver is removed.
+        public void clear()
+        {
+            myMessageQueue.clear();
+        }
+
         public long getOfflineStartedAt()
         {
             return myOfflineStartedAt;
@@ -123,7 +161,7 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
         public final String ResponseReceiverId;
 
         private IDuplexInputChannel myDuplexInputChannel;
-        private ArrayDeque<Object> myMessageQueue = new ArrayDeque<Object>();
+        private BufferedMessageQueue myMessageQueue;
         private boolean myIsOnline;
         
         private boolean myPendingResponseReceiverConnectedEvent;
@@ -142,13 +180,18 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
         public final Object Message;
     }
     
-    public BufferedDuplexInputChannel(IDuplexInputChannel underlyingDuplexInputChannel, long maxOfflineTime)
+    public BufferedDuplexInputChannel(IDuplexInputChannel underlyingDuplexInputChannel, long maxOfflineTime,
+            long maxBufferSize, EBufferOverflowPolicy overflowPolicy, String spillDirectory, int replayBatchSize)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
             myInputChannel = underlyingDuplexInputChannel;
             myMaxOfflineTime = maxOfflineTime;
+            myMaxBufferSize = maxBufferSize;
+            myOverflowPolicy = overflowPolicy;
+            mySpillDirectory = spillDirectory;
+            myReplayBatchSize = replayBatchSize;
 
             myMaxOfflineChecker = new Timer("Eneter.MaxOfflineTimer",true);
         }
@@ -202,6 +245,12 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
         return myInputChannel.getDispatcher();
     }
     
+    @Override
+    public long getLastBacklogDrainTime()
+    {
+        return myLastBacklogDrainTime;
+    }
+    
     @Override
     public void startListening() throws Exception
     {
@@ -265,6 +314,10 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
                 try
                 {
                     myBroadcasts.clear();
+                    for (TBufferedResponseReceiver aResponseReceiver : myResponseReceivers)
+                    {
+                        aResponseReceiver.clear();
+                    }
                     myResponseReceivers.clear();
                 }
                 finally
@@ -319,6 +372,7 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
          // If it is a broadcast response message.
             if (responseReceiverId.equals("*"))
             {
+                ArrayList<TBufferedResponseReceiver> aBlockedResponseReceivers = new ArrayList<TBufferedResponseReceiver>();
                 myResponseReceiversLock.lock();
                 try
                 {
@@ -327,46 +381,99 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
 
                     for (TBufferedResponseReceiver aResponseReceiver : myResponseReceivers)
                     {
-                        // Note: it does not throw exception.
-                        aResponseReceiver.sendResponseMessage(message);
+                        try
+                        {
+                            if (!aResponseReceiver.sendResponseMessage(message))
+                            {
+                                aBlockedResponseReceivers.add(aResponseReceiver);
+                            }
+                        }
+                        catch (Exception err)
+                        {
+                            EneterTrace.warning(TracedObject() + "failed to buffer the broadcast message for '" + aResponseReceiver.ResponseReceiverId + "'.", err);
+                        }
                     }
                 }
                 finally
                 {
                     myResponseReceiversLock.unlock();
                 }
+                
+                // Wait until response receivers with full buffers can take the message.
+                for (TBufferedResponseReceiver aResponseReceiver : aBlockedResponseReceivers)
+                {
+                    boolean aSentFlag = false;
+                    while (!aSentFlag)
+                    {
+                        aResponseReceiver.waitForSpace(BLOCKED_SENDING_CHECK_TIME);
+                        
+                        myResponseReceiversLock.lock();
+                        try
+                        {
+                            // If the response receiver was meanwhile removed.
+                            if (!myResponseReceivers.contains(aResponseReceiver))
+                            {
+                                break;
+                            }
+                            
+                            aSentFlag = aResponseReceiver.sendResponseMessage(message);
+                        }
+                        catch (Exception err)
+                        {
+                            EneterTrace.warning(TracedObject() + "failed to buffer the broadcast message for '" + aResponseReceiver.ResponseReceiverId + "'.", err);
+                            break;
+                        }
+                        finally
+                        {
+                            myResponseReceiversLock.unlock();
+                        }
+                    }
+                }
             }
             else
             {
-                boolean aNotifyOffline = false;
-                myResponseReceiversLock.lock();
-                try
+                while (true)
                 {
-                    TBufferedResponseReceiver aResponseReciever = getResponseReceiver(responseReceiverId);
-                    if (aResponseReciever == null)
+                    TBufferedResponseReceiver aBlockedResponseReceiver;
+                    boolean aNotifyOffline = false;
+                    myResponseReceiversLock.lock();
+                    try
                     {
-                        aResponseReciever = createResponseReceiver(responseReceiverId, "", true);
-                        aNotifyOffline = true;
-                    }
-
-                    aResponseReciever.sendResponseMessage(message);
-
-                    if (aNotifyOffline)
-                    {
-                        getDispatcher().invoke(new Runnable()
+                        TBufferedResponseReceiver aResponseReciever = getResponseReceiver(responseReceiverId);
+                        if (aResponseReciever == null)
                         {
-                            @Override
-                            public void run()
+                            aResponseReciever = createResponseReceiver(responseReceiverId, "", true);
+                            aNotifyOffline = true;
+                        }
+    
+                        if (aResponseReciever.sendResponseMessage(message))
+                        {
+                            if (aNotifyOffline)
                             {
-                                ResponseReceiverEventArgs anEvent = new ResponseReceiverEventArgs(responseReceiverId, "");
-                                notifyEvent(myResponseReceiverOfflineEventImpl, anEvent, false);
+                                getDispatcher().invoke(new Runnable()
+                                {
+                                    @Override
+                                    public void run()
+                                    {
+                                        ResponseReceiverEventArgs anEvent = new ResponseReceiverEventArgs(responseReceiverId, "");
+                                        notifyEvent(myResponseReceiverOfflineEventImpl, anEvent, false);
+                                    }
+                                });
                             }
-                        });
+                            
+                            return;
+                        }
+                        
+                        aBlockedResponseReceiver = aResponseReciever;
                     }
-                }
-                finally
-                {
-                    myResponseReceiversLock.unlock();
+                    finally
+                    {
+                        myResponseReceiversLock.unlock();
+                    }
+                    
+                    // The buffer is full so wait until messages are sent.
+                    // Note: it waits outside the lock so that the buffer can be sent when the response receiver connects.
+                    aBlockedResponseReceiver.waitForSpace(BLOCKED_SENDING_CHECK_TIME);
                 }
             }
         }
@@ -393,7 +500,13 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
                         public Boolean invoke(TBufferedResponseReceiver x)
                                 throws Exception
                         {
-                            return x.ResponseReceiverId.equals(responseReceiverId);
+                            if (x.ResponseReceiverId.equals(responseReceiverId))
+                            {
+                                x.clear();
+                                return true;
+                            }
+                            
+                            return false;
                         }
                     });
                 }
@@ -446,14 +559,34 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
                 if (aNewResponseReceiverFlag)
                 {
                     // This is a fresh new response receiver. Therefore broadcast messages were not sent to it yet.
+                    // Note: broadcast messages which do not fit into the buffer are not waited for.
                     for (TBroadcast aBroadcastMessage : myBroadcasts)
                     {
-                        aResponseReciever.sendResponseMessage(aBroadcastMessage.Message);
+                        try
+                        {
+                            if (!aResponseReciever.sendResponseMessage(aBroadcastMessage.Message))
+                            {
+                                EneterTrace.warning(TracedObject() + "failed to buffer the broadcast message because the buffer is full.");
+                            }
+                        }
+                        catch (Exception err)
+                        {
+                            EneterTrace.warning(TracedObject() + "failed to buffer the broadcast message.", err);
+                        }
                     }
                 }
 
                 // Send all buffered messages.
+                int aBacklogSize = aResponseReciever.getBufferedMessagesCount();
+                long aDrainStartTime = System.currentTimeMillis();
+                
                 aResponseReciever.sendMessagesFromQueue();
+                
+                if (aBacklogSize > 0)
+                {
+                    myLastBacklogDrainTime = System.currentTimeMillis() - aDrainStartTime;
+                    EneterTrace.info(TracedObject() + "sent " + (aBacklogSize - aResponseReciever.getBufferedMessagesCount()) + " buffered message(s) to '" + e.getResponseReceiverId() + "' in " + myLastBacklogDrainTime + " ms.");
+                }
             }
             finally
             {
@@ -510,7 +643,30 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            notifyEvent(myMessageReceivedEventImpl, e, true);
+            if (myReplayBatchSize > 1)
+            {
+                // Note: when batching is used all messages come in batches.
+                Object[] aMessages;
+                try
+                {
+                    aMessages = MessageBatch.decode(e.getMessage());
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.error(TracedObject() + "failed to decode the batch of messages.", err);
+                    return;
+                }
+                
+                for (Object aMessage : aMessages)
+                {
+                    DuplexChannelMessageEventArgs aMsg = new DuplexChannelMessageEventArgs(e.getChannelId(), aMessage, e.getResponseReceiverId(), e.getSenderAddress());
+                    notifyEvent(myMessageReceivedEventImpl, aMsg, true);
+                }
+            }
+            else
+            {
+                notifyEvent(myMessageReceivedEventImpl, e, true);
+            }
         }
         finally
         {
@@ -618,6 +774,7 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
                                 aCurrentCheckTime - x.getOfflineStartedAt() > myMaxOfflineTime)
                             {
                                 aTimeoutedResponseReceivers.add(x);
+                                x.clear();
 
                                 // Indicate, the response receiver can be removed.
                                 return true;
@@ -725,6 +882,11 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
     private ThreadLock myListeningManipulatorLock = new ThreadLock();
     
     private long myMaxOfflineTime;
+    private long myMaxBufferSize;
+    private EBufferOverflowPolicy myOverflowPolicy;
+    private String mySpillDirectory;
+    private int myReplayBatchSize;
+    private volatile long myLastBacklogDrainTime = -1;
     private Timer myMaxOfflineChecker;
     private boolean myMaxOfflineCheckerRequestedToStop;
     private IDuplexInputChannel myInputChannel;
@@ -733,6 +895,9 @@ class BufferedDuplexInputChannel implements IBufferedDuplexInputChannel
     private HashSet<TBufferedResponseReceiver> myResponseReceivers = new HashSet<TBufferedResponseReceiver>();
     private ArrayList<TBroadcast> myBroadcasts = new ArrayList<TBroadcast>();
     
+    // How often the blocked sending checks if the response receiver was not removed.
+    private static final long BLOCKED_SENDING_CHECK_TIME = 100;
+    
     private EventImpl<DuplexChannelMessageEventArgs> myMessageReceivedEventImpl = new EventImpl<DuplexChannelMessageEventArgs>();
     private EventImpl<ResponseReceiverEventArgs> myResponseReceiverConnectedEventImpl = new EventImpl<ResponseReceiverEventArgs>();
     private EventImpl<ResponseReceiverEventArgs> myResponseReceiverDisconnectedEventImpl = new EventImpl<ResponseReceiverEventArgs>();
@@ -8,8 +8,9 @@
 
 package eneter.messaging.messagingsystems.composites.bufferedmessagingcomposit;
 
-import java.util.*;
+import java.util.List;
 
+import eneter.messaging.dataprocessing.serializing.internal.MessageBatch;
 import eneter.messaging.diagnostic.*;
 import eneter.messaging.diagnostic.internal.ErrorHandler;
 import eneter.messaging.diagnostic.internal.ThreadLock;
@@ -20,13 +21,19 @@ import eneter.net.system.threading.internal.*;
 
 class BufferedDuplexOutputChannel implements IBufferedDuplexOutputChannel
 {
-    public BufferedDuplexOutputChannel(IDuplexOutputChannel underlyingDuplexOutputChannel, long maxOfflineTime)
+    public BufferedDuplexOutputChannel(IDuplexOutputChannel underlyingDuplexOutputChannel, long maxOfflineTime,
+            long maxBufferSize, EBufferOverflowPolicy overflowPolicy, String spillDirectory, int replayBatchSize,
+            long minReconnectDelay, long maxReconnectDelay)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
             myOutputChannel = underlyingDuplexOutputChannel;
             myMaxOfflineTime = maxOfflineTime;
+            myMessageQueue = new BufferedMessageQueue(maxBufferSize, overflowPolicy, spillDirectory);
+            myReplayBatchSize = replayBatchSize;
+            myMinReconnectDelay = minReconnectDelay;
+            myMaxReconnectDelay = maxReconnectDelay;
         }
         finally
         {
@@ -119,6 +126,12 @@ class BufferedDuplexOutputChannel implements IBufferedDuplexOutputChannel
         }
     }
     
+    @Override
+    public long getLastBacklogDrainTime()
+    {
+        return myLastBacklogDrainTime;
+    }
+    
     @Override
     public void openConnection() throws Exception
     {
@@ -143,16 +156,7 @@ class BufferedDuplexOutputChannel implements IBufferedDuplexOutputChannel
                 myConnectionOpeningEndedEvent.reset();
 
                 // Try open connection in a different thread.
-                myConnectionOpeningActiveFlag = true;
-                Runnable aDoOpenConnection = new Runnable()
-                {
-                    @Override
-                    public void run()
-                    {
-                        doOpenConnection();
-                    }
-                }; 
-                ThreadPool.queueUserWorkItem(aDoOpenConnection);
+                startConnectionOpening();
 
                 // Indicate the ConnectionOpened evnt shall be raised when the connection is really open.
                 myIsConnectionOpenEventPendingFlag = true;
@@ -191,6 +195,14 @@ class BufferedDuplexOutputChannel implements IBufferedDuplexOutputChannel
             try
             {
                 myConnectionOpeningRequestedToStopFlag = true;
+                
+                // If the next connection attempt is just waiting then it does not have to be executed.
+                if (ReconnectScheduler.cancel(myDoOpenConnection))
+                {
+                    myConnectionOpeningActiveFlag = false;
+                    myConnectionOpeningEndedEvent.set();
+                }
+                
                 try
                 {
                     if (!myConnectionOpeningEndedEvent.waitOne(5000))
@@ -231,22 +243,32 @@ class BufferedDuplexOutputChannel implements IBufferedDuplexOutputChannel
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            myConnectionManipulatorLock.lock();
-            try
+            while (true)
             {
-                if (!isConnected())
+                myConnectionManipulatorLock.lock();
+                try
                 {
-                    String aMessage = TracedObject() + ErrorHandler.FailedToSendMessageBecauseNotConnected;
-                    EneterTrace.error(aMessage);
-                    throw new IllegalStateException(aMessage);
+                    if (!isConnected())
+                    {
+                        String aMessage = TracedObject() + ErrorHandler.FailedToSendMessageBecauseNotConnected;
+                        EneterTrace.error(aMessage);
+                        throw new IllegalStateException(aMessage);
+                    }
+                    
+                    if (myMessageQueue.offer(message))
+                    {
+                        sendMessagesFromQueue();
+                        return;
+                    }
+                }
+                finally
+                {
+                    myConnectionManipulatorLock.unlock();
                 }
                 
-                myMessageQueue.add(message);
-                sendMessagesFromQueue();
-            }
-            finally
-            {
-                myConnectionManipulatorLock.unlock();
+                // The buffer is full so wait until messages are sent.
+                // Note: it waits outside the lock so that the buffer can be sent when the connection is open.
+                myMessageQueue.waitForSpace(BLOCKED_SENDING_CHECK_TIME);
             }
         }
         finally
@@ -270,7 +292,17 @@ class BufferedDuplexOutputChannel implements IBufferedDuplexOutputChannel
             myConnectionManipulatorLock.lock();
             try
             {
+                // Send messages buffered while the connection was offline.
+                int aBacklogSize = myMessageQueue.size();
+                long aDrainStartTime = System.currentTimeMillis();
+                
                 sendMessagesFromQueue();
+                
+                if (aBacklogSize > 0)
+                {
+                    myLastBacklogDrainTime = System.currentTimeMillis() - aDrainStartTime;
+                    EneterTrace.info(TracedObject() + "sent " + (aBacklogSize - myMessageQueue.size()) + " buffered message(s) in " + myLastBacklogDrainTime + " ms.");
+                }
             }
             finally
             {
@@ -294,17 +326,7 @@ class BufferedDuplexOutputChannel implements IBufferedDuplexOutputChannel
                 // Try to reopen the connection in a different thread.
                 if (!myConnectionOpeningActiveFlag)
                 {
-                    myConnectionOpeningActiveFlag = true;
-
-                    // Start openning in another thread.
-                    ThreadPool.queueUserWorkItem(new Runnable()
-                    {
-                        @Override
-                        public void run()
-                        {
-                            doOpenConnection();
-                        }
-                    });
+                    startConnectionOpening();
                 }
             }
             finally
@@ -325,7 +347,30 @@ class BufferedDuplexOutputChannel implements IBufferedDuplexOutputChannel
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            notifyEvent(myResponseMessageReceivedEventImpl, e, true);
+            if (myReplayBatchSize > 1)
+            {
+                // Note: when batching is used all response messages come in batches.
+                Object[] aMessages;
+                try
+                {
+                    aMessages = MessageBatch.decode(e.getMessage());
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.error(TracedObject() + "failed to decode the batch of response messages.", err);
+                    return;
+                }
+                
+                for (Object aMessage : aMessages)
+                {
+                    DuplexChannelMessageEventArgs aMsg = new DuplexChannelMessageEventArgs(e.getChannelId(), aMessage, e.getResponseReceiverId(), e.getSenderAddress());
+                    notifyEvent(myResponseMessageReceivedEventImpl, aMsg, true);
+                }
+            }
+            else
+            {
+                notifyEvent(myResponseMessageReceivedEventImpl, e, true);
+            }
         }
         finally
         {
@@ -342,14 +387,27 @@ class BufferedDuplexOutputChannel implements IBufferedDuplexOutputChannel
             {
                 while (myMessageQueue.size() > 0)
                 {
-                    Object aMessage = myMessageQueue.peek();
-
                     try
                     {
-                        myOutputChannel.sendMessage(aMessage);
-
-                        // Message was successfully sent therefore it can be removed from the queue.
-                        myMessageQueue.poll();
+                        if (myReplayBatchSize > 1)
+                        {
+                            // Send as many buffered messages as possible in one message.
+                            List<Object> aMessages = myMessageQueue.peek(myReplayBatchSize, MAX_BATCH_SIZE);
+                            
+                            myOutputChannel.sendMessage(MessageBatch.encode(aMessages.toArray()));
+                            
+                            // Messages were successfully sent therefore they can be removed from the queue.
+                            myMessageQueue.poll(aMessages.size());
+                        }
+                        else
+                        {
+                            Object aMessage = myMessageQueue.peek();
+                            
+                            myOutputChannel.sendMessage(aMessage);
+    
+                            // Message was successfully sent therefore it can be removed from the queue.
+                            myMessageQueue.poll();
+                        }
                     }
                     catch (Exception err)
                     {
@@ -364,49 +422,65 @@ class BufferedDuplexOutputChannel implements IBufferedDuplexOutputChannel
         }
     }
     
+    private void startConnectionOpening()
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            myConnectionOpeningActiveFlag = true;
+            myConnectionOpeningStartedAt = System.currentTimeMillis();
+            myFailedConnectionAttempts = 0;
+            
+            ReconnectScheduler.schedule(myDoOpenConnection, 0);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Makes one connection attempt. If it fails the next attempt is scheduled.
+    // Note: attempts are scheduled with the growing delay and they are executed by the shared scheduler
+    //       so that many disconnected channels do not try to connect at the same moment.
     private void doOpenConnection()
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
             boolean aConnectionOpenFlag = false;
-            long aStartConnectionTime = System.currentTimeMillis();
-
-            // Loop until the connection is open, or the connection opening is requested to stop,
-            // or the max offline time expired.
-            while (!myConnectionOpeningRequestedToStopFlag)
+            
+            if (!myConnectionOpeningRequestedToStopFlag)
             {
                 try
                 {
                     myOutputChannel.openConnection();
                     aConnectionOpenFlag = true;
-                    break;
                 }
                 catch (Exception err)
                 {
                     // The connection failed, so try again.
                 }
-
-                // If the max offline time is exceeded, then notify disconnection.
-                if (System.currentTimeMillis() - aStartConnectionTime > myMaxOfflineTime)
-                {
-                    break;
-                }
-
-                // Do not wait for the next attempt, if the connection opening shall stop.
-                if (!myConnectionOpeningRequestedToStopFlag)
+                
+                // If the max offline time is not exceeded then schedule the next attempt.
+                long anOfflineTime = System.currentTimeMillis() - myConnectionOpeningStartedAt;
+                if (!aConnectionOpenFlag && anOfflineTime <= myMaxOfflineTime)
                 {
-                    try
-                    {
-                        Thread.sleep(300);
-                    }
-                    catch (InterruptedException e)
+                    long aDelay = ReconnectScheduler.getDelay(myFailedConnectionAttempts, myMinReconnectDelay, myMaxReconnectDelay);
+                    ++myFailedConnectionAttempts;
+                    
+                    // Note: the last attempt is made when the max offline time expires.
+                    aDelay = Math.min(aDelay, myMaxOfflineTime - anOfflineTime);
+                    ReconnectScheduler.schedule(myDoOpenConnection, aDelay);
+                    
+                    // If the connection opening is meanwhile requested to stop then the scheduled attempt
+                    // can be removed. Otherwise the scheduled attempt will handle it.
+                    if (!myConnectionOpeningRequestedToStopFlag || !ReconnectScheduler.cancel(myDoOpenConnection))
                     {
+                        return;
                     }
                 }
             }
 
-
             // Indicate this connection opening is not active.
             myConnectionOpeningActiveFlag = false;
             myConnectionOpeningEndedEvent.set();
@@ -471,7 +545,19 @@ class BufferedDuplexOutputChannel implements IBufferedDuplexOutputChannel
     private boolean myConnectionOpeningActiveFlag;
     private boolean myConnectionOpeningRequestedToStopFlag;
     private ManualResetEvent myConnectionOpeningEndedEvent = new ManualResetEvent(true);
-    private ArrayDeque<Object> myMessageQueue = new ArrayDeque<Object>();
+    private long myConnectionOpeningStartedAt;
+    private int myFailedConnectionAttempts;
+    private long myMinReconnectDelay;
+    private long myMaxReconnectDelay;
+    private BufferedMessageQueue myMessageQueue;
+    private int myReplayBatchSize;
+    private volatile long myLastBacklogDrainTime = -1;
+    
+    // Maximum size of messages sent in one batch.
+    static final long MAX_BATCH_SIZE = 1024 * 1024;
+    
+    // How often the blocked sending checks if the connection was not closed.
+    private static final long BLOCKED_SENDING_CHECK_TIME = 100;
     
     
     private EventImpl<DuplexChannelMessageEventArgs> myResponseMessageReceivedEventImpl = new EventImpl<DuplexChannelMessageEventArgs>();
@@ -480,6 +566,15 @@ class BufferedDuplexOutputChannel implements IBufferedDuplexOutputChannel
     private EventImpl<DuplexChannelEventArgs> myConnectionOnlineEventImpl = new EventImpl<DuplexChannelEventArgs>();
     private EventImpl<DuplexChannelEventArgs> myConnectionOfflineEventImpl = new EventImpl<DuplexChannelEventArgs>();
     
+    private Runnable myDoOpenConnection = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            doOpenConnection();
+        }
+    };
+    
     private EventHandler<DuplexChannelMessageEventArgs> myOnResponseMessageReceived = new EventHandler<DuplexChannelMessageEventArgs>()
     {
         @Override
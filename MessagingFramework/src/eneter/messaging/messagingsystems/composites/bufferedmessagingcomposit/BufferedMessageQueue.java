@@ -0,0 +1,545 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ *
+ * Copyright  2018 Ondrej Uzovic
+ *
+ */
+
+package eneter.messaging.messagingsystems.composites.bufferedmessagingcomposit;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import eneter.messaging.diagnostic.EneterTrace;
+
+/**
+ * Queue of messages buffered while the connection is not available.
+ *
+ * The size of messages kept in the memory is limited. When the limit is reached the overflow policy is applied.
+ * If the policy is SpillToDisk then messages are appended into memory-mapped segments of a temporary file
+ * and they are read back from the file in the same order.
+ * The queue uses one file which is truncated and reused when all spilled messages are read.
+ * The file is deleted when the queue is cleared.
+ */
+class BufferedMessageQueue
+{
+    public BufferedMessageQueue(long maxBufferSize, EBufferOverflowPolicy overflowPolicy, String spillDirectory)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            myMaxBufferSize = maxBufferSize;
+            myOverflowPolicy = overflowPolicy;
+            mySpillDirectory = spillDirectory;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    // Puts the message to the queue.
+    // Returns false if the buffer is full and the caller shall wait until there is a space for the message.
+    public synchronized boolean offer(Object message) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            long aSize = getSize(message);
+
+            // Note: if some messages are already in the file then all next messages must go to the file too
+            //       so that the order of messages is kept.
+            // Note: if the queue is empty the message is always stored so that a message bigger than the buffer
+            //       does not block forever.
+            if (mySpilledCount == 0 &&
+                (myMessages.isEmpty() || myMemorySize + aSize <= myMaxBufferSize))
+            {
+                myMessages.add(message);
+                myMemorySize += aSize;
+                return true;
+            }
+
+            if (myOverflowPolicy == EBufferOverflowPolicy.Block)
+            {
+                return false;
+            }
+            else if (myOverflowPolicy == EBufferOverflowPolicy.DropNewest)
+            {
+                EneterTrace.warning(TracedObject() + "dropped the message because the buffer is full.");
+                return true;
+            }
+            else if (myOverflowPolicy == EBufferOverflowPolicy.DropOldest)
+            {
+                int aDroppedCount = 0;
+                while (!myMessages.isEmpty() && myMemorySize + aSize > myMaxBufferSize)
+                {
+                    myMemorySize -= getSize(myMessages.poll());
+                    ++aDroppedCount;
+                }
+                myMessages.add(message);
+                myMemorySize += aSize;
+
+                EneterTrace.warning(TracedObject() + "dropped " + aDroppedCount + " oldest message(s) because the buffer is full.");
+                return true;
+            }
+
+            spill(message);
+            return true;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    // Returns the oldest message without removing it from the queue.
+    public synchronized Object peek() throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (!myMessages.isEmpty())
+            {
+                return myMessages.peek();
+            }
+
+            if (mySpilledCount > 0)
+            {
+                if (myReadAheadMessages.isEmpty())
+                {
+                    myReadAheadMessages.add(readSpilled());
+                }
+                return myReadAheadMessages.get(0);
+            }
+
+            return null;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    // Returns oldest messages without removing them from the queue.
+    // It returns at least one message if the queue is not empty. Next messages are returned
+    // only while the number of messages and their size do not exceed specified limits.
+    public synchronized List<Object> peek(int maxCount, long maxSize) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            ArrayList<Object> aMessages = new ArrayList<Object>();
+            long aSize = 0;
+
+            for (Object aMessage : myMessages)
+            {
+                if (!canAdd(aMessages.size(), aSize, aMessage, maxCount, maxSize))
+                {
+                    return aMessages;
+                }
+                aMessages.add(aMessage);
+                aSize += getSize(aMessage);
+            }
+
+            // Note: messages read from the file stay in the memory until they are removed from the queue.
+            int aReadAheadIdx = 0;
+            while (aReadAheadIdx < mySpilledCount)
+            {
+                if (aReadAheadIdx == myReadAheadMessages.size())
+                {
+                    myReadAheadMessages.add(readSpilled());
+                }
+                Object aMessage = myReadAheadMessages.get(aReadAheadIdx);
+
+                if (!canAdd(aMessages.size(), aSize, aMessage, maxCount, maxSize))
+                {
+                    break;
+                }
+                aMessages.add(aMessage);
+                aSize += getSize(aMessage);
+                ++aReadAheadIdx;
+            }
+
+            return aMessages;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    // Removes the oldest message from the queue.
+    public synchronized void poll() throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (!myMessages.isEmpty())
+            {
+                myMemorySize -= getSize(myMessages.poll());
+            }
+            else if (mySpilledCount > 0)
+            {
+                if (myReadAheadMessages.isEmpty())
+                {
+                    readSpilled();
+                }
+                else
+                {
+                    myReadAheadMessages.remove(0);
+                }
+                --mySpilledCount;
+
+                // If the file is empty then it can be written from the beginning again.
+                if (mySpilledCount == 0)
+                {
+                    resetSegments();
+                }
+            }
+
+            notifyAll();
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    // Removes specified number of oldest messages from the queue.
+    public synchronized void poll(int count) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            for (int i = 0; i < count && size() > 0; ++i)
+            {
+                poll();
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    public synchronized int size()
+    {
+        return myMessages.size() + mySpilledCount;
+    }
+
+    // Removes all messages and deletes the file.
+    public synchronized void clear()
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            myMessages.clear();
+            myMemorySize = 0;
+
+            mySpilledCount = 0;
+            myReadAheadMessages.clear();
+
+            // Note: the file cannot be deleted on Windows while its segments are mapped.
+            releaseSegments();
+
+            if (myFile != null)
+            {
+                try
+                {
+                    myFile.close();
+                }
+                catch (IOException err)
+                {
+                    EneterTrace.warning(TracedObject() + "failed to close the buffer file.", err);
+                }
+                myFile = null;
+                myFileChannel = null;
+
+                if (!mySpillFile.delete())
+                {
+                    EneterTrace.warning(TracedObject() + "failed to delete the buffer file '" + mySpillFile.getPath() + "'.");
+                }
+                mySpillFile = null;
+            }
+
+            notifyAll();
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    // Waits until a message is removed from the queue.
+    public synchronized void waitForSpace(long milliseconds) throws InterruptedException
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            wait(milliseconds);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    private void spill(Object message) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            byte aType;
+            int aLength;
+            if (message instanceof byte[])
+            {
+                aType = BYTES;
+                aLength = ((byte[])message).length;
+            }
+            else if (message instanceof String)
+            {
+                aType = STRING;
+                aLength = ((String)message).length() * 2;
+            }
+            else
+            {
+                throw new IllegalStateException(TracedObject() + "failed to store the message into the file because only String or byte[] messages can be stored.");
+            }
+
+            if (myFile == null)
+            {
+                File aDirectory = (mySpillDirectory != null) ? new File(mySpillDirectory) : null;
+                mySpillFile = File.createTempFile("eneter", ".buffer", aDirectory);
+                myFile = new RandomAccessFile(mySpillFile, "rw");
+                myFileChannel = myFile.getChannel();
+            }
+
+            // If the record does not fit into the current segment then continue in the next segment.
+            int aRecordSize = RECORD_HEADER_LENGTH + aLength;
+            MappedByteBuffer aSegment = mySegments.peekLast();
+            if (aSegment == null || aSegment.remaining() < aRecordSize)
+            {
+                if (aSegment != null && aSegment.hasRemaining())
+                {
+                    aSegment.put(END_OF_SEGMENT);
+                }
+
+                aSegment = myFileChannel.map(FileChannel.MapMode.READ_WRITE, myNextSegmentPosition, Math.max(SEGMENT_SIZE, aRecordSize));
+                myNextSegmentPosition += aSegment.capacity();
+                mySegments.add(aSegment);
+
+                if (myReadBuffer == null)
+                {
+                    myReadBuffer = aSegment.duplicate();
+                    myReadBuffer.position(0);
+                }
+            }
+
+            aSegment.put(aType);
+            aSegment.putInt(aLength);
+            if (aType == BYTES)
+            {
+                aSegment.put((byte[])message);
+            }
+            else
+            {
+                String aMessage = (String)message;
+                for (int i = 0; i < aMessage.length(); ++i)
+                {
+                    aSegment.putChar(aMessage.charAt(i));
+                }
+            }
+
+            ++mySpilledCount;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    private Object readSpilled()
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            // If the segment is read then continue with the next segment.
+            if (!myReadBuffer.hasRemaining() || myReadBuffer.get(myReadBuffer.position()) == END_OF_SEGMENT)
+            {
+                unmap(mySegments.poll());
+                myReadBuffer = mySegments.peek().duplicate();
+                myReadBuffer.position(0);
+            }
+
+            byte aType = myReadBuffer.get();
+            int aLength = myReadBuffer.getInt();
+            if (aType == BYTES)
+            {
+                byte[] aMessage = new byte[aLength];
+                myReadBuffer.get(aMessage);
+                return aMessage;
+            }
+
+            char[] aMessage = new char[aLength / 2];
+            for (int i = 0; i < aMessage.length; ++i)
+            {
+                aMessage[i] = myReadBuffer.getChar();
+            }
+            return new String(aMessage);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    // Releases segments and truncates the file so that it is written from the beginning again.
+    private void resetSegments()
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            releaseSegments();
+
+            try
+            {
+                myFile.setLength(0);
+            }
+            catch (IOException err)
+            {
+                EneterTrace.warning(TracedObject() + "failed to truncate the buffer file.", err);
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    private void releaseSegments()
+    {
+        myReadBuffer = null;
+        for (MappedByteBuffer aSegment : mySegments)
+        {
+            unmap(aSegment);
+        }
+        mySegments.clear();
+        myNextSegmentPosition = 0;
+    }
+
+    // Unmaps the segment right away so that the file can be truncated or deleted.
+    // Note: the segment must not be accessed after it is unmapped.
+    private static void unmap(MappedByteBuffer segment)
+    {
+        try
+        {
+            if (myInvokeCleanerMethod != null)
+            {
+                myInvokeCleanerMethod.invoke(myUnsafe, segment);
+                return;
+            }
+
+            // Java 8 and older.
+            Method aCleanerMethod = segment.getClass().getMethod("cleaner");
+            aCleanerMethod.setAccessible(true);
+            Object aCleaner = aCleanerMethod.invoke(segment);
+            if (aCleaner != null)
+            {
+                aCleaner.getClass().getMethod("clean").invoke(aCleaner);
+            }
+        }
+        catch (Throwable err)
+        {
+            // Note: if the platform does not allow to unmap the segment it is released by the garbage collector.
+            EneterTrace.debug("BufferedMessageQueue failed to unmap the segment of the buffer file. " + err.getMessage());
+        }
+    }
+
+    private static Object getUnsafe()
+    {
+        try
+        {
+            Field anUnsafeField = Class.forName("sun.misc.Unsafe").getDeclaredField("theUnsafe");
+            anUnsafeField.setAccessible(true);
+            return anUnsafeField.get(null);
+        }
+        catch (Throwable err)
+        {
+            return null;
+        }
+    }
+
+    // Java 9 and later unmap buffers via Unsafe.invokeCleaner(ByteBuffer).
+    private static Method getInvokeCleanerMethod()
+    {
+        try
+        {
+            return (myUnsafe != null) ? myUnsafe.getClass().getMethod("invokeCleaner", ByteBuffer.class) : null;
+        }
+        catch (Throwable err)
+        {
+            return null;
+        }
+    }
+
+    private static boolean canAdd(int count, long size, Object message, int maxCount, long maxSize)
+    {
+        if (count == 0)
+        {
+            return true;
+        }
+        return count < maxCount && size + getSize(message) <= maxSize;
+    }
+
+    private static long getSize(Object message)
+    {
+        if (message instanceof byte[])
+        {
+            return ((byte[])message).length;
+        }
+        if (message instanceof String)
+        {
+            return ((String)message).length() * 2L;
+        }
+        return 0;
+    }
+
+
+    private static final int SEGMENT_SIZE = 1024 * 1024;
+    private static final int RECORD_HEADER_LENGTH = 5;
+    private static final byte END_OF_SEGMENT = 0;
+    private static final byte BYTES = 1;
+    private static final byte STRING = 2;
+
+    private static final Object myUnsafe = getUnsafe();
+    private static final Method myInvokeCleanerMethod = getInvokeCleanerMethod();
+
+    private long myMaxBufferSize;
+    private EBufferOverflowPolicy myOverflowPolicy;
+    private String mySpillDirectory;
+
+    private ArrayDeque<Object> myMessages = new ArrayDeque<Object>();
+    private long myMemorySize;
+
+    private File mySpillFile;
+    private RandomAccessFile myFile;
+    private FileChannel myFileChannel;
+    private ArrayDeque<MappedByteBuffer> mySegments = new ArrayDeque<MappedByteBuffer>();
+    private long myNextSegmentPosition;
+    private ByteBuffer myReadBuffer;
+    private int mySpilledCount;
+    private ArrayList<Object> myReadAheadMessages = new ArrayList<Object>();
+
+    private String TracedObject()
+    {
+        return getClass().getSimpleName() + " ";
+    }
+}
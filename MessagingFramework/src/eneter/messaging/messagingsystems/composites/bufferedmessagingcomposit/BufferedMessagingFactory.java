@@ -19,6 +19,13 @@ import eneter.messaging.messagingsystems.messagingsystembase.*;
  * trying to reconnect.<br/>
  * If the connection is not available, the buffered messaging stores sent messages (and sent response messages)
  * in the buffer and sends them when the connection is established.<br/>
+ * By default the size of the buffer is not limited. If the connection can be unavailable for a long time
+ * the size can be limited by setMaxBufferSize() and setBufferOverflowPolicy() specifies what happens
+ * when the buffer is full. E.g. messages exceeding the buffer can be stored in a file.<br/>
+ * If many messages are buffered, setReplayBatchSize() allows to send them in batches when the connection is established.<br/>
+ * The duplex output channel tries to reconnect with the growing randomized delay so that if many clients
+ * lose the connection at the same moment they do not try to reconnect at the same moment.
+ * The number of connection attempts executed at the same time is limited for all channels.<br/>
  * <b>Note:</b><br/>
  * The buffered messaging does not require that both communicating parts create channels with buffered messaging factory.
  * It means, e.g. the duplex output channel created with buffered messaging with underlying TCP, can send messages
@@ -108,7 +115,7 @@ public class BufferedMessagingFactory implements IMessagingSystemFactory
         try
         {
             IDuplexOutputChannel anUnderlyingDuplexOutputChannel = myUnderlyingMessaging.createDuplexOutputChannel(channelId);
-            return new BufferedDuplexOutputChannel(anUnderlyingDuplexOutputChannel, myMaxOfflineTime);
+            return new BufferedDuplexOutputChannel(anUnderlyingDuplexOutputChannel, myMaxOfflineTime, myMaxBufferSize, myBufferOverflowPolicy, mySpillDirectory, myReplayBatchSize, myMinReconnectDelay, myMaxReconnectDelay);
         }
         finally
         {
@@ -136,7 +143,7 @@ public class BufferedMessagingFactory implements IMessagingSystemFactory
         try
         {
             IDuplexOutputChannel anUnderlyingDuplexOutputChannel = myUnderlyingMessaging.createDuplexOutputChannel(channelId, responseReceiverId);
-            return new BufferedDuplexOutputChannel(anUnderlyingDuplexOutputChannel, myMaxOfflineTime);
+            return new BufferedDuplexOutputChannel(anUnderlyingDuplexOutputChannel, myMaxOfflineTime, myMaxBufferSize, myBufferOverflowPolicy, mySpillDirectory, myReplayBatchSize, myMinReconnectDelay, myMaxReconnectDelay);
         }
         finally
         {
@@ -163,14 +170,172 @@ public class BufferedMessagingFactory implements IMessagingSystemFactory
         try
         {
             IDuplexInputChannel anUnderlyingDuplexInputChannel = myUnderlyingMessaging.createDuplexInputChannel(channelId);
-            return new BufferedDuplexInputChannel(anUnderlyingDuplexInputChannel, myMaxOfflineTime);
+            return new BufferedDuplexInputChannel(anUnderlyingDuplexInputChannel, myMaxOfflineTime, myMaxBufferSize, myBufferOverflowPolicy, mySpillDirectory, myReplayBatchSize);
         }
         finally
         {
             EneterTrace.leaving(aTrace);
         }
     }
+    
+    /**
+     * Sets the maximum size of messages which can be stored in the memory buffer.
+     * 
+     * The size is the length of byte[] messages or the length of String messages multiplied by 2.
+     * The duplex input channel has the buffer for every response receiver.
+     * When the buffer is full the buffer overflow policy is applied.
+     * The default value is Long.MAX_VALUE i.e. the buffer is not limited.
+     * 
+     * @param maxBufferSize maximum size in bytes
+     * @return this BufferedMessagingFactory
+     */
+    public BufferedMessagingFactory setMaxBufferSize(long maxBufferSize)
+    {
+        myMaxBufferSize = maxBufferSize;
+        return this;
+    }
+    
+    /**
+     * Gets the maximum size of messages which can be stored in the memory buffer.
+     * @return maximum size in bytes
+     */
+    public long getMaxBufferSize()
+    {
+        return myMaxBufferSize;
+    }
+    
+    /**
+     * Sets what happens when the memory buffer is full.
+     * 
+     * The default value is Block.
+     * 
+     * @param bufferOverflowPolicy buffer overflow policy
+     * @return this BufferedMessagingFactory
+     */
+    public BufferedMessagingFactory setBufferOverflowPolicy(EBufferOverflowPolicy bufferOverflowPolicy)
+    {
+        myBufferOverflowPolicy = bufferOverflowPolicy;
+        return this;
+    }
+    
+    /**
+     * Gets what happens when the memory buffer is full.
+     * @return buffer overflow policy
+     */
+    public EBufferOverflowPolicy getBufferOverflowPolicy()
+    {
+        return myBufferOverflowPolicy;
+    }
+    
+    /**
+     * Sets the directory where files for the SpillToDisk policy are created.
+     * 
+     * Files are temporary and they are deleted when the buffer is cleared.
+     * The default value is null i.e. the system temporary directory is used.
+     * 
+     * @param spillDirectory path to the directory
+     * @return this BufferedMessagingFactory
+     */
+    public BufferedMessagingFactory setSpillDirectory(String spillDirectory)
+    {
+        mySpillDirectory = spillDirectory;
+        return this;
+    }
+    
+    /**
+     * Gets the directory where files for the SpillToDisk policy are created.
+     * @return path to the directory or null if the system temporary directory is used
+     */
+    public String getSpillDirectory()
+    {
+        return mySpillDirectory;
+    }
+
+    /**
+     * Sets the maximum number of buffered messages which are sent in one message.
+     * 
+     * If the connection was offline for a long time, sending buffered messages one by one can take a long time.
+     * If the value is greater than 1, buffered messages are sent in batches (up to 1 MB) and the receiver
+     * decodes them and raises the event for each message.<br/>
+     * Batching changes the format of sent messages. Therefore both communicating parts must use
+     * buffered messaging with the same setting. When batching is used, also a single message is sent as the batch.
+     * Only String and byte[] messages can be sent.<br/>
+     * The default value is 1 i.e. messages are sent one by one and the buffered messaging can communicate
+     * with channels which do not use the buffered messaging.
+     * 
+     * @param replayBatchSize maximum number of messages in one batch
+     * @return this BufferedMessagingFactory
+     */
+    public BufferedMessagingFactory setReplayBatchSize(int replayBatchSize)
+    {
+        myReplayBatchSize = replayBatchSize;
+        return this;
+    }
+    
+    /**
+     * Gets the maximum number of buffered messages which are sent in one message.
+     * @return maximum number of messages in one batch
+     */
+    public int getReplayBatchSize()
+    {
+        return myReplayBatchSize;
+    }
+
+    /**
+     * Sets the delay before the second connection attempt.
+     * 
+     * If the connection is lost the duplex output channel tries to reconnect immediately.
+     * If it fails the next attempt is made after this delay. Then the delay is doubled after each failed attempt
+     * until it reaches the maximum reconnect delay. The delay is randomized between its half and full value.<br/>
+     * The default value is 300 milliseconds.
+     * 
+     * @param minReconnectDelay delay in milliseconds
+     * @return this BufferedMessagingFactory
+     */
+    public BufferedMessagingFactory setMinReconnectDelay(long minReconnectDelay)
+    {
+        myMinReconnectDelay = minReconnectDelay;
+        return this;
+    }
+    
+    /**
+     * Gets the delay before the second connection attempt.
+     * @return delay in milliseconds
+     */
+    public long getMinReconnectDelay()
+    {
+        return myMinReconnectDelay;
+    }
+    
+    /**
+     * Sets the maximum delay between connection attempts.
+     * 
+     * The default value is 5000 milliseconds.
+     * 
+     * @param maxReconnectDelay delay in milliseconds
+     * @return this BufferedMessagingFactory
+     */
+    public BufferedMessagingFactory setMaxReconnectDelay(long maxReconnectDelay)
+    {
+        myMaxReconnectDelay = maxReconnectDelay;
+        return this;
+    }
+    
+    /**
+     * Gets the maximum delay between connection attempts.
+     * @return delay in milliseconds
+     */
+    public long getMaxReconnectDelay()
+    {
+        return myMaxReconnectDelay;
+    }
 
     private IMessagingSystemFactory myUnderlyingMessaging;
     private long myMaxOfflineTime;
+    private long myMaxBufferSize = Long.MAX_VALUE;
+    private EBufferOverflowPolicy myBufferOverflowPolicy = EBufferOverflowPolicy.Block;
+    private String mySpillDirectory;
+    private int myReplayBatchSize = 1;
+    private long myMinReconnectDelay = 300;
+    private long myMaxReconnectDelay = 5000;
 }
@@ -0,0 +1,38 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ *
+ * Copyright  2018 Ondrej Uzovic
+ *
+ */
+
+package eneter.messaging.messagingsystems.composites.bufferedmessagingcomposit;
+
+/**
+ * Specifies what happens when the buffer of the buffered messaging is full.
+ *
+ */
+public enum EBufferOverflowPolicy
+{
+    /**
+     * Sending of the message is blocked until messages from the buffer are sent or the connection is closed.
+     */
+    Block,
+
+    /**
+     * The oldest messages are removed from the buffer so that the new message can be stored.
+     */
+    DropOldest,
+
+    /**
+     * The new message is not stored in the buffer.
+     */
+    DropNewest,
+
+    /**
+     * Messages exceeding the buffer size are stored in a memory-mapped file and
+     * they are read back from the file when the connection is available.
+     * Only String and byte[] messages can be stored in the file.
+     */
+    SpillToDisk
+}
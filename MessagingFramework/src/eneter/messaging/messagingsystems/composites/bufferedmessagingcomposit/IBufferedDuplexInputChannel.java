@@ -28,4 +28,13 @@ public interface IBufferedDuplexInputChannel extends IDuplexInputChannel
      * @return
      */
     Event<ResponseReceiverEventArgs> responseReceiverOffline();
+    
+    /**
+     * Returns how long it took to send response messages buffered while a response receiver was offline.
+     * 
+     * The time is measured when a response receiver gets into the online state.
+     * It is the time of the last response receiver which had buffered response messages.
+     * @return time in milliseconds or -1 if no buffered response messages were sent yet
+     */
+    long getLastBacklogDrainTime();
 }
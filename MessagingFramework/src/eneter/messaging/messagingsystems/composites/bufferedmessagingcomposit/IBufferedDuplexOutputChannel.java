@@ -30,4 +30,12 @@ public interface IBufferedDuplexOutputChannel extends IDuplexOutputChannel
      * @return
      */
     boolean isOnline();
+    
+    /**
+     * Returns how long it took to send messages buffered while the connection was offline.
+     * 
+     * The time is measured when the connection gets into the online state again.
+     * @return time in milliseconds or -1 if no buffered messages were sent yet
+     */
+    long getLastBacklogDrainTime();
 }
@@ -0,0 +1,166 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ *
+ * Copyright  2018 Ondrej Uzovic
+ *
+ */
+
+package eneter.messaging.messagingsystems.composites.bufferedmessagingcomposit;
+
+import java.util.*;
+
+import eneter.messaging.diagnostic.EneterTrace;
+import eneter.net.system.threading.internal.ThreadPool;
+
+/**
+ * Schedules connection attempts of all buffered duplex output channels.
+ *
+ * Attempts are scheduled by one timer and then executed in the thread pool.
+ * The number of attempts executed at the same time is limited so that if many channels
+ * lose the connection at the same moment they do not overload the service.
+ * Attempts exceeding the limit wait until a running attempt completes.
+ */
+final class ReconnectScheduler
+{
+    // Schedules the connection attempt to be executed after the specified delay.
+    public static void schedule(final Runnable connectionAttempt, long delay)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            synchronized (myLock)
+            {
+                TimerTask aTimerTask = new TimerTask()
+                {
+                    @Override
+                    public void run()
+                    {
+                        onAttemptDue(connectionAttempt);
+                    }
+                };
+                myScheduledAttempts.put(connectionAttempt, aTimerTask);
+                myTimer.schedule(aTimerTask, Math.max(0, delay));
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    // Removes the scheduled connection attempt.
+    // Returns false if the attempt is not scheduled. E.g. if it is already executed.
+    public static boolean cancel(Runnable connectionAttempt)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            synchronized (myLock)
+            {
+                TimerTask aTimerTask = myScheduledAttempts.remove(connectionAttempt);
+                if (aTimerTask != null)
+                {
+                    aTimerTask.cancel();
+                    return true;
+                }
+
+                return myWaitingAttempts.remove(connectionAttempt);
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    // Returns the delay before the next attempt.
+    // The delay grows exponentially with the number of failed attempts and it is randomized
+    // so that channels which lost the connection at the same moment do not reconnect at the same moment.
+    public static long getDelay(int failedAttempts, long minDelay, long maxDelay)
+    {
+        long aDelay = minDelay << Math.min(failedAttempts, 20);
+        aDelay = Math.min(Math.max(aDelay, minDelay), maxDelay);
+
+        // Note: at least half of the delay is kept so that attempts are not too frequent.
+        long aHalfDelay = aDelay / 2;
+        synchronized (myRandom)
+        {
+            return aHalfDelay + (long)(myRandom.nextDouble() * (aDelay - aHalfDelay));
+        }
+    }
+
+    private static void onAttemptDue(Runnable connectionAttempt)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            synchronized (myLock)
+            {
+                // If the attempt was meanwhile canceled.
+                if (myScheduledAttempts.remove(connectionAttempt) == null)
+                {
+                    return;
+                }
+
+                if (myRunningAttemptsCount >= MAX_CONCURRENT_ATTEMPTS)
+                {
+                    myWaitingAttempts.add(connectionAttempt);
+                    return;
+                }
+
+                ++myRunningAttemptsCount;
+            }
+
+            execute(connectionAttempt);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    private static void execute(final Runnable connectionAttempt)
+    {
+        ThreadPool.queueUserWorkItem(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                Runnable anAttempt = connectionAttempt;
+                while (anAttempt != null)
+                {
+                    try
+                    {
+                        anAttempt.run();
+                    }
+                    catch (Exception err)
+                    {
+                        EneterTrace.warning("ReconnectScheduler detected exception in the connection attempt.", err);
+                    }
+
+                    // If some attempts wait then execute the next one in this thread.
+                    synchronized (myLock)
+                    {
+                        anAttempt = myWaitingAttempts.poll();
+                        if (anAttempt == null)
+                        {
+                            --myRunningAttemptsCount;
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+
+    // Maximum number of connection attempts executed at the same time.
+    private static final int MAX_CONCURRENT_ATTEMPTS = 16;
+
+    private static Object myLock = new Object();
+    private static Timer myTimer = new Timer("Eneter.ReconnectTimer", true);
+    private static HashMap<Runnable, TimerTask> myScheduledAttempts = new HashMap<Runnable, TimerTask>();
+    private static ArrayDeque<Runnable> myWaitingAttempts = new ArrayDeque<Runnable>();
+    private static int myRunningAttemptsCount;
+    private static Random myRandom = new Random();
+}
@@ -22,6 +22,8 @@ public enum EMessageBusRequest
     /**
      * Used by client when connecting the service via the message bus.
      * MessageBusMessage Id parameter is service id which shall be connected.
+     * When sent between message buses of the cluster the Id parameter is client id and
+     * MessageData parameter is service id which shall be connected.
      */
     ConnectClient(20),
     
@@ -47,7 +49,13 @@ public enum EMessageBusRequest
      * Used by service when sending message to the client.
      * MessageBusMessage Id parameter is client id which shall receive the message.
      */
-    SendResponseMessage(60);
+    SendResponseMessage(60),
+    
+    /**
+     * Used between message buses of the cluster when a service is not registered anymore.
+     * MessageBusMessage Id parameter is service id which was unregistered.
+     */
+    UnregisterService(70);
           
     /**
      * Converts enum to the integer value.
@@ -73,6 +81,7 @@ public enum EMessageBusRequest
             case 40: return ConfirmClient;
             case 50: return SendRequestMessage;
             case 60: return SendResponseMessage;
+            case 70: return UnregisterService;
         }
         return null;
     }
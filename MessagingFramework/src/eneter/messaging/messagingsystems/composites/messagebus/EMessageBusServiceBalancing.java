@@ -0,0 +1,35 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.messaging.messagingsystems.composites.messagebus;
+
+/**
+ * Specifies how the message bus distributes clients among instances of the same service.
+ *
+ */
+public enum EMessageBusServiceBalancing
+{
+    /**
+     * Only one instance of a service can be registered.
+     * If another connection tries to register the same service id it is disconnected.
+     * This is the default behavior.
+     */
+    SingleInstance,
+    
+    /**
+     * More instances can register the same service id.
+     * New clients are assigned to instances in turn.
+     */
+    RoundRobin,
+    
+    /**
+     * More instances can register the same service id.
+     * A new client is assigned to the instance which has the lowest number of connected clients.
+     */
+    LeastConnections
+}
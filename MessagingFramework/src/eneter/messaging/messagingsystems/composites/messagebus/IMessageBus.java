@@ -8,6 +8,7 @@
 package eneter.messaging.messagingsystems.composites.messagebus;
 
 import eneter.messaging.messagingsystems.messagingsystembase.IDuplexInputChannel;
+import eneter.messaging.messagingsystems.messagingsystembase.IDuplexOutputChannel;
 import eneter.net.system.Event;
 
 /**
@@ -19,7 +20,14 @@ import eneter.net.system.Event;
  * If the service id exists the message bus establishes the connection between the client and the service.<br/>
  * <br/>
  * The presence of the message bus is transparent for logic of services and their clients. The whole communication
- * is realized via {@link MessageBusMessagingFactory} which ensures the interaction with the message bus.
+ * is realized via {@link MessageBusMessagingFactory} which ensures the interaction with the message bus.<br/>
+ * <br/>
+ * More message buses can be connected into the cluster. Message buses of the cluster announce each other
+ * ids of their registered services. If a client connects a service which is registered in another message bus
+ * of the cluster the communication is forwarded via the link between both message buses.
+ * All clients and services share the same link between two message buses.
+ * Services are announced only to directly connected message buses so every message bus shall be connected
+ * with every other message bus of the cluster.
  *  
  */
 public interface IMessageBus
@@ -75,9 +83,37 @@ public interface IMessageBus
 
     /**
      * Detaches input channels and stops the listening.
+     * 
+     * It also closes all links to other message buses of the cluster.
      */
     void detachDuplexInputChannels();
     
+    /**
+     * Attaches the input channel which is used by other message buses of the cluster to connect this message bus.
+     * 
+     * @param clusterInputChannel input channel used by other message buses.
+     * @throws Exception
+     */
+    void attachClusterInputChannel(IDuplexInputChannel clusterInputChannel) throws Exception;
+    
+    /**
+     * Connects another message bus of the cluster.
+     * 
+     * The output channel shall be connected to the cluster input channel of the other message bus.
+     * Once connected both message buses announce each other their registered services.
+     * If the connection is closed services of the other message bus are not available anymore.
+     * 
+     * @param clusterOutputChannel output channel connecting the cluster input channel of another message bus.
+     * @throws Exception
+     */
+    void connectClusterNode(IDuplexOutputChannel clusterOutputChannel) throws Exception;
+    
+    /**
+     * Returns list of services registered in other message buses of the cluster.
+     * @return ids of services which are available via other message buses.
+     */
+    String[] getClusterServices();
+    
     /**
      * Returns list of all connected services.
      * @return ids of all services which are registered in the message bus.
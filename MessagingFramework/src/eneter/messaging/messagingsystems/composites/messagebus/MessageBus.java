@@ -7,7 +7,10 @@
 
 package eneter.messaging.messagingsystems.composites.messagebus;
 
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import eneter.messaging.dataprocessing.serializing.ISerializer;
 import eneter.messaging.diagnostic.EneterTrace;
@@ -17,9 +20,7 @@ import eneter.messaging.messagingsystems.messagingsystembase.*;
 import eneter.messaging.threading.dispatching.IThreadDispatcher;
 import eneter.messaging.threading.dispatching.SyncDispatching;
 import eneter.net.system.*;
-import eneter.net.system.collections.generic.internal.HashSetExt;
 import eneter.net.system.internal.StringExt;
-import eneter.net.system.linq.internal.EnumerableExt;
 
 
 
@@ -28,10 +29,18 @@ class MessageBus implements IMessageBus
     private class TClientContext
     {
         public TClientContext(String clientResponseReceiverId, String serviceId, String serviceResponseReceiverId)
+        {
+            this(clientResponseReceiverId, serviceId, serviceResponseReceiverId, null, null);
+        }
+        
+        public TClientContext(String clientResponseReceiverId, String serviceId, String serviceResponseReceiverId,
+                TClusterLink serviceLink, TClusterLink clientLink)
         {
             myClientResponseReceiverId = clientResponseReceiverId;
             myServiceId = serviceId;
             myServiceResponseReceiverId = serviceResponseReceiverId;
+            myServiceLink = serviceLink;
+            myClientLink = clientLink;
             myForwardToClientThreadDispatcher = new SyncDispatching().getDispatcher();
             myForwardToServiceThreadDispatcher = new SyncDispatching().getDispatcher();
         }
@@ -51,6 +60,26 @@ class MessageBus implements IMessageBus
             return myServiceResponseReceiverId;
         }
         
+        // Note: the client can be moved to another instance of the service.
+        public void setServiceResponseReceiverId(String serviceResponseReceiverId)
+        {
+            myServiceResponseReceiverId = serviceResponseReceiverId;
+        }
+        
+        // Link to the message bus where the service is registered.
+        // It is null if the service is registered in this message bus.
+        public TClusterLink getServiceLink()
+        {
+            return myServiceLink;
+        }
+        
+        // Link to the message bus where the client is connected.
+        // It is null if the client is connected to this message bus.
+        public TClusterLink getClientLink()
+        {
+            return myClientLink;
+        }
+        
         public IThreadDispatcher getForwardToClientThreadDispatcher()
         {
             return myForwardToClientThreadDispatcher;
@@ -63,7 +92,9 @@ class MessageBus implements IMessageBus
         
         private String myClientResponseReceiverId;
         private String myServiceId;
-        private String myServiceResponseReceiverId;
+        private volatile String myServiceResponseReceiverId;
+        private TClusterLink myServiceLink;
+        private TClusterLink myClientLink;
         private IThreadDispatcher myForwardToClientThreadDispatcher;
         private IThreadDispatcher myForwardToServiceThreadDispatcher;
     }
@@ -85,19 +116,124 @@ class MessageBus implements IMessageBus
         {
             return myServiceResponseReceiverId;
         }
+        
+        // Clients connected to the service. The key is the client response receiver id.
+        public ConcurrentHashMap<String, TClientContext> getConnectedClients()
+        {
+            return myConnectedClients;
+        }
 
         private String myServiceId;
         private String myServiceResponseReceiverId;
+        private ConcurrentHashMap<String, TClientContext> myConnectedClients = new ConcurrentHashMap<String, TClientContext>();
+    }
+    
+    // Instances registered under the same service id.
+    private class TServiceGroup
+    {
+        public CopyOnWriteArrayList<TServiceContext> getInstances()
+        {
+            return myInstances;
+        }
+        
+        // Returns the instance which shall get the next client.
+        // Note: it is called under myConnectionLock.
+        public TServiceContext selectInstance()
+        {
+            if (myInstances.isEmpty())
+            {
+                return null;
+            }
+            
+            if (myServiceBalancing == EMessageBusServiceBalancing.LeastConnections)
+            {
+                TServiceContext aSelectedInstance = null;
+                for (TServiceContext anInstance : myInstances)
+                {
+                    if (aSelectedInstance == null ||
+                        anInstance.getConnectedClients().size() < aSelectedInstance.getConnectedClients().size())
+                    {
+                        aSelectedInstance = anInstance;
+                    }
+                }
+                return aSelectedInstance;
+            }
+            
+            myNextInstanceIdx = (myNextInstanceIdx + 1) % myInstances.size();
+            return myInstances.get(myNextInstanceIdx);
+        }
+        
+        public int getNumberOfConnectedClients()
+        {
+            int aCount = 0;
+            for (TServiceContext anInstance : myInstances)
+            {
+                aCount += anInstance.getConnectedClients().size();
+            }
+            return aCount;
+        }
+        
+        private CopyOnWriteArrayList<TServiceContext> myInstances = new CopyOnWriteArrayList<TServiceContext>();
+        private int myNextInstanceIdx = -1;
+    }
+    
+    
+    // Link to another message bus of the cluster.
+    // Note: the link is one duplex connection shared by all clients and services.
+    //       The message bus which opened the link sends messages via the output channel and
+    //       the message bus which accepted the link sends response messages via the cluster input channel.
+    private class TClusterLink
+    {
+        public TClusterLink(IDuplexOutputChannel outputChannel)
+        {
+            myLinkId = outputChannel.getResponseReceiverId();
+            myOutputChannel = outputChannel;
+        }
+        
+        public TClusterLink(String responseReceiverId)
+        {
+            myLinkId = responseReceiverId;
+        }
+        
+        public String getLinkId()
+        {
+            return myLinkId;
+        }
+        
+        public IDuplexOutputChannel getOutputChannel()
+        {
+            return myOutputChannel;
+        }
+        
+        public void send(Object serializedMessage) throws Exception
+        {
+            if (myOutputChannel != null)
+            {
+                myOutputChannel.sendMessage(serializedMessage);
+            }
+            else
+            {
+                IDuplexInputChannel anInputChannel = myClusterConnector.getAttachedDuplexInputChannel();
+                if (anInputChannel == null)
+                {
+                    throw new IllegalStateException(TracedObject() + "failed to send the message to the message bus because the cluster input channel is not attached.");
+                }
+                anInputChannel.sendResponseMessage(myLinkId, serializedMessage);
+            }
+        }
+        
+        private String myLinkId;
+        private IDuplexOutputChannel myOutputChannel;
     }
     
     
     // Helper class to wrap basic input channel functionality.
     private class TConnector extends AttachableDuplexInputChannelBase
     {
-        //public Event<ResponseReceiverEventArgs> responseReceiverConnected()
-        //{
-        //    return myResponseReceiverConnected.getApi();
-        //}
+        public Event<ResponseReceiverEventArgs> responseReceiverConnected()
+        {
+            return myResponseReceiverConnected.getApi();
+        }
         
         public Event<ResponseReceiverEventArgs> responseReceiverDisconnected()
         {
@@ -173,12 +309,20 @@ class MessageBus implements IMessageBus
     }
     
     
-    public MessageBus(ISerializer serializer)
+    public MessageBus(ISerializer serializer, EMessageBusServiceBalancing serviceBalancing)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
             mySerializer = serializer;
+            myServiceBalancing = serviceBalancing;
+            
+            // Note: if the message bus uses its own serializer then messages are forwarded without decoding
+            //       and encoding message data. Only the header with the request and the id is parsed.
+            if (serializer instanceof MessageBusCustomSerializer)
+            {
+                myHeaderSerializer = (MessageBusCustomSerializer)serializer;
+            }
             myServiceConnector = new TConnector();
             myClientConnector = new TConnector();
 
@@ -187,6 +331,11 @@ class MessageBus implements IMessageBus
 
             myClientConnector.responseReceiverDisconnected().subscribe(myOnClientDisconnected);
             myClientConnector.messageReceived().subscribe(myOnMessageFromClientReceived);
+            
+            myClusterConnector = new TConnector();
+            myClusterConnector.responseReceiverConnected().subscribe(myOnClusterNodeConnected);
+            myClusterConnector.responseReceiverDisconnected().subscribe(myOnClusterNodeDisconnected);
+            myClusterConnector.messageReceived().subscribe(myOnMessageFromClusterNodeReceived);
         }
         finally
         {
@@ -265,11 +414,17 @@ class MessageBus implements IMessageBus
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
+            ArrayList<TClusterLink> aClusterLinks;
             myConnectionLock.lock();
             try
             {
                 myConnectedClients.clear();
                 myConnectedServices.clear();
+                myConnectedServicesByResponseReceiverId.clear();
+                
+                aClusterLinks = new ArrayList<TClusterLink>(myClusterLinks.values());
+                myClusterLinks.clear();
+                myClusterServices.clear();
             }
             finally
             {
@@ -281,40 +436,45 @@ class MessageBus implements IMessageBus
             {
                 myClientConnector.detachDuplexInputChannel();
                 myServiceConnector.detachDuplexInputChannel();
+                myClusterConnector.detachDuplexInputChannel();
             }
             finally
             {
                 myAttachDetachLock.unlock();
             }
+            
+            // Close links which were opened by this message bus.
+            for (TClusterLink aClusterLink : aClusterLinks)
+            {
+                IDuplexOutputChannel anOutputChannel = aClusterLink.getOutputChannel();
+                if (anOutputChannel != null)
+                {
+                    anOutputChannel.connectionClosed().unsubscribe(myOnClusterNodeConnectionClosed);
+                    anOutputChannel.responseMessageReceived().unsubscribe(myOnResponseFromClusterNodeReceived);
+                    anOutputChannel.closeConnection();
+                }
+            }
         }
         finally
         {
             EneterTrace.leaving(aTrace);
         }
     }
-
+    
     @Override
-    public String[] getConnectedServices()
+    public void attachClusterInputChannel(IDuplexInputChannel clusterInputChannel) throws Exception
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            myConnectionLock.lock();
+            myAttachDetachLock.lock();
             try
             {
-                String[] aServices = new String[myConnectedServices.size()];
-                int i = 0;
-                for (TServiceContext aServiceContext : myConnectedServices)
-                {
-                    aServices[i] = aServiceContext.getServiceId();
-                    ++i;
-                }
-
-                return aServices;
+                myClusterConnector.attachDuplexInputChannel(clusterInputChannel);
             }
             finally
             {
-                myConnectionLock.unlock();
+                myAttachDetachLock.unlock();
             }
         }
         finally
@@ -324,31 +484,54 @@ class MessageBus implements IMessageBus
     }
     
     @Override
-    public String[] getConnectedClients(String serviceAddress)
+    public void connectClusterNode(IDuplexOutputChannel clusterOutputChannel) throws Exception
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            myConnectionLock.lock();
+            if (clusterOutputChannel == null)
+            {
+                throw new IllegalArgumentException("The input parameter clusterOutputChannel is null.");
+            }
+            
+            TClusterLink aClusterLink = new TClusterLink(clusterOutputChannel);
+            
+            // Note: the link must be registered before the connection is open
+            //       because the other message bus announces its services immediately.
+            myClusterLinks.put(aClusterLink.getLinkId(), aClusterLink);
+            clusterOutputChannel.connectionClosed().subscribe(myOnClusterNodeConnectionClosed);
+            clusterOutputChannel.responseMessageReceived().subscribe(myOnResponseFromClusterNodeReceived);
+            
             try
             {
-                ArrayList<String> aClients = new ArrayList<String>();
-                for (TClientContext aClientContext : myConnectedClients)
-                {
-                    if (aClientContext.getServiceId().equals(serviceAddress))
-                    {
-                        aClients.add(aClientContext.getClientResponseReceiverId());
-                    }
-                }
-                
-                String[] aResult = new String[aClients.size()];
-                aResult = aClients.toArray(aResult);
-                return aResult;
+                clusterOutputChannel.openConnection();
             }
-            finally
+            catch (Exception err)
             {
-                myConnectionLock.unlock();
+                myClusterLinks.remove(aClusterLink.getLinkId());
+                clusterOutputChannel.connectionClosed().unsubscribe(myOnClusterNodeConnectionClosed);
+                clusterOutputChannel.responseMessageReceived().unsubscribe(myOnResponseFromClusterNodeReceived);
+                throw err;
             }
+            
+            announceServices(aClusterLink);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    @Override
+    public String[] getClusterServices()
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            ArrayList<String> aServices = new ArrayList<String>(myClusterServices.keySet());
+            String[] aResult = new String[aServices.size()];
+            aResult = aServices.toArray(aResult);
+            return aResult;
         }
         finally
         {
@@ -357,29 +540,56 @@ class MessageBus implements IMessageBus
     }
 
     @Override
-    public int GetNumberOfConnectedClients(String serviceAddress)
+    public String[] getConnectedServices()
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            myConnectionLock.lock();
-            try
+            ArrayList<String> aServices = new ArrayList<String>(myConnectedServices.keySet());
+            String[] aResult = new String[aServices.size()];
+            aResult = aServices.toArray(aResult);
+            return aResult;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    @Override
+    public String[] getConnectedClients(String serviceAddress)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            ArrayList<String> aClients = new ArrayList<String>();
+            TServiceGroup aServiceGroup = myConnectedServices.get(serviceAddress);
+            if (aServiceGroup != null)
             {
-                int aCount = 0;
-                for (TClientContext aClientContext : myConnectedClients)
+                for (TServiceContext anInstance : aServiceGroup.getInstances())
                 {
-                    if (aClientContext.getServiceId().equals(serviceAddress))
-                    {
-                        ++aCount;
-                    }
+                    aClients.addAll(anInstance.getConnectedClients().keySet());
                 }
-
-                return aCount;
-            }
-            finally
-            {
-                myConnectionLock.unlock();
             }
+            
+            String[] aResult = new String[aClients.size()];
+            aResult = aClients.toArray(aResult);
+            return aResult;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+
+    @Override
+    public int GetNumberOfConnectedClients(String serviceAddress)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            TServiceGroup aServiceGroup = myConnectedServices.get(serviceAddress);
+            return (aServiceGroup != null) ? aServiceGroup.getNumberOfConnectedClients() : 0;
         }
         finally
         {
@@ -394,7 +604,19 @@ class MessageBus implements IMessageBus
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            unregisterService(serviceAddress);
+            TServiceGroup aServiceGroup = myConnectedServices.get(serviceAddress);
+            if (aServiceGroup != null)
+            {
+                // Disconnect all instances of the service.
+                for (TServiceContext anInstance : aServiceGroup.getInstances())
+                {
+                    unregisterService(anInstance.getServiceResponseReceiverId());
+                }
+            }
+            else
+            {
+                unregisterService(serviceAddress);
+            }
         }
         finally
         {
@@ -425,7 +647,7 @@ class MessageBus implements IMessageBus
             MessageBusMessage aMessageBusMessage;
             try
             {
-                aMessageBusMessage = mySerializer.deserialize(e.getMessage(), MessageBusMessage.class);
+                aMessageBusMessage = deserializeMessage(e.getMessage());
             }
             catch (Exception err)
             {
@@ -437,11 +659,11 @@ class MessageBus implements IMessageBus
             if (aMessageBusMessage.Request == EMessageBusRequest.ConnectClient)
             {
                 EneterTrace.debug("CLIENT OPENS CONNECTION TO '" + aMessageBusMessage.Id + "'.");
-                registerClient(e.getResponseReceiverId(), aMessageBusMessage.Id);
+                registerClient(e.getResponseReceiverId(), aMessageBusMessage.Id, null);
             }
             else if (aMessageBusMessage.Request == EMessageBusRequest.SendRequestMessage)
             {
-                forwardMessageToService(e.getResponseReceiverId(), aMessageBusMessage);
+                forwardMessageToService(e.getResponseReceiverId(), aMessageBusMessage, null);
             }
         }
         finally
@@ -452,7 +674,8 @@ class MessageBus implements IMessageBus
     
     // Adds the client to the list of connected clients and sends open connection message to the service.
     // If the service does not exist the client is disconnected.
-    private void registerClient(final String clientResponseReceiverId, final String serviceId)
+    // If the client is connected to another message bus of the cluster then clientLink is the link to that message bus.
+    private void registerClient(final String clientResponseReceiverId, final String serviceId, TClusterLink clientLink)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
@@ -462,53 +685,38 @@ class MessageBus implements IMessageBus
             myConnectionLock.lock();
             try
             {
-                try
-                {
-                    aClientContext = EnumerableExt.firstOrDefault(myConnectedClients, new IFunction1<Boolean, TClientContext>()
-                    {
-                        @Override
-                        public Boolean invoke(TClientContext x) throws Exception
-                        {
-                            return x.getClientResponseReceiverId().equals(clientResponseReceiverId);
-                        }
-                    });
-                }
-                catch (Exception err)
-                {
-                    EneterTrace.error(TracedObject() + "failed to connect the client because it failed to search in firstOrDefault.", err);
-                    return;
-                }
+                aClientContext = myConnectedClients.get(clientResponseReceiverId);
                         
                 // If such client does not exist yet then create it.
                 if (aClientContext == null)
                 {
-                    TServiceContext aServiceContext = null;
-                    
-                    try
-                    {
-                        aServiceContext = EnumerableExt.firstOrDefault(myConnectedServices, new IFunction1<Boolean, TServiceContext>()
-                        {
-                            @Override
-                            public Boolean invoke(TServiceContext x)
-                                    throws Exception
-                            {
-                                return x.getServiceId().equals(serviceId);
-                            }
-                        });
-                    }
-                    catch (Exception err)
-                    {
-                        EneterTrace.error(TracedObject() + "failed to connect the client because it failed to search in firstOrDefault.", err);
-                        return;
-                    }
+                    TServiceGroup aServiceGroup = myConnectedServices.get(serviceId);
+                    TServiceContext aServiceContext = (aServiceGroup != null) ? aServiceGroup.selectInstance() : null;
                             
                     // If requested service exists.
                     if (aServiceContext != null)
                     {
-                        aClientContext = new TClientContext(clientResponseReceiverId, serviceId, aServiceContext.getServiceResponseReceiverId());
-                        myConnectedClients.add(aClientContext);
+                        aClientContext = new TClientContext(clientResponseReceiverId, serviceId, aServiceContext.getServiceResponseReceiverId(), null, clientLink);
+                        myConnectedClients.put(clientResponseReceiverId, aClientContext);
+                        aServiceContext.getConnectedClients().put(clientResponseReceiverId, aClientContext);
                         anIsNewClientConnected = true;
                     }
+                    // If the service is registered in another message bus of the cluster.
+                    // Note: clients coming from another message bus are not forwarded further
+                    //       so that messages cannot circulate in the cluster.
+                    else if (clientLink == null)
+                    {
+                        // Note: if more message buses of the cluster host the service then any of them can be used.
+                        ArrayList<TClusterLink> aServiceLinks = myClusterServices.get(serviceId);
+                        TClusterLink aServiceLink = (aServiceLinks != null && !aServiceLinks.isEmpty()) ? aServiceLinks.get(0) : null;
+                        if (aServiceLink != null)
+                        {
+                            // Note: the link id is used as the service response receiver id.
+                            aClientContext = new TClientContext(clientResponseReceiverId, serviceId, aServiceLink.getLinkId(), aServiceLink, null);
+                            myConnectedClients.put(clientResponseReceiverId, aClientContext);
+                            anIsNewClientConnected = true;
+                        }
+                    }
                 }
             }
             finally
@@ -521,14 +729,8 @@ class MessageBus implements IMessageBus
                 // Send open connection message to the service.
                 try
                 {
-                    MessageBusMessage aMessage = new MessageBusMessage(EMessageBusRequest.ConnectClient, clientResponseReceiverId, null);
-                    Object aSerializedMessage = mySerializer.serialize(aMessage, MessageBusMessage.class);
-
-                    IDuplexInputChannel anInputChannel = myServiceConnector.getAttachedDuplexInputChannel();
-                    if (anInputChannel != null)
+                    if (sendOpenConnectionToService(aClientContext))
                     {
-                        anInputChannel.sendResponseMessage(aClientContext.getServiceResponseReceiverId(), aSerializedMessage);
-                        
                         if (myClientConnectedEvent.isSubscribed())
                         {
                             MessageBusClientEventArgs anEvent = new MessageBusClientEventArgs(serviceId, aClientContext.getServiceResponseReceiverId(), clientResponseReceiverId);
@@ -564,6 +766,12 @@ class MessageBus implements IMessageBus
                 {
                     EneterTrace.warning(TracedObject() + "failed to connec the client because the service '" + serviceId + "' does not exist. The connection will be closed.");
                     unregisterClient(clientResponseReceiverId, false, true);
+                    
+                    // Note: the client is not registered so the message bus where the client is connected must be notified directly.
+                    if (clientLink != null)
+                    {
+                        sendDisconnectClientToClusterNode(clientLink, clientResponseReceiverId);
+                    }
                 }
             }
         }
@@ -581,30 +789,18 @@ class MessageBus implements IMessageBus
         try
         {
             // Unregistering client. 
-            final TClientContext[] aClientContext = { null };
+            TClientContext aClientContext = null;
             myConnectionLock.lock();
             try
             {
-                try
+                aClientContext = myConnectedClients.remove(clientResponseReceiverId);
+                if (aClientContext != null)
                 {
-                    HashSetExt.removeWhere(myConnectedClients, new IFunction1<Boolean, TClientContext>()
+                    TServiceContext aServiceContext = myConnectedServicesByResponseReceiverId.get(aClientContext.getServiceResponseReceiverId());
+                    if (aServiceContext != null)
                     {
-                        @Override
-                        public Boolean invoke(TClientContext x) throws Exception
-                        {
-                            if (x.getClientResponseReceiverId().equals(clientResponseReceiverId))
-                            {
-                                aClientContext[0] = x;
-                                return true;
-                            }
-    
-                            return false;
-                        }
-                    });
-                }
-                catch (Exception err)
-                {
-                    EneterTrace.error(TracedObject() + "failed to delete the client.", err);
+                        aServiceContext.getConnectedClients().remove(clientResponseReceiverId);
+                    }
                 }
             }
             finally
@@ -612,42 +808,46 @@ class MessageBus implements IMessageBus
                 myConnectionLock.unlock();
             }
 
-            if (aClientContext[0] != null)
+            if (aClientContext != null)
             {
                 if (sendCloseConnectionToServiceFlag)
                 {
-                    try
+                    // If the service is registered in another message bus of the cluster.
+                    if (aClientContext.getServiceLink() != null)
                     {
-                        // Send close connection message to the service.
-                        MessageBusMessage aMessage = new MessageBusMessage(EMessageBusRequest.DisconnectClient, aClientContext[0].getClientResponseReceiverId(), null);
-                        Object aSerializedMessage = mySerializer.serialize(aMessage, MessageBusMessage.class);
-
-                        IDuplexInputChannel anInputChannel = myServiceConnector.getAttachedDuplexInputChannel();
-                        if (anInputChannel != null)
-                        {
-                            anInputChannel.sendResponseMessage(aClientContext[0].getServiceResponseReceiverId(), aSerializedMessage);
-                        }
+                        sendDisconnectClientToClusterNode(aClientContext.getServiceLink(), aClientContext.getClientResponseReceiverId());
                     }
-                    catch (Exception err)
+                    else
                     {
-                        String anErrorMessage = TracedObject() + ErrorHandler.FailedToCloseConnection;
-                        EneterTrace.warning(anErrorMessage, err);
+                        try
+                        {
+                            // Send close connection message to the service.
+                            MessageBusMessage aMessage = new MessageBusMessage(EMessageBusRequest.DisconnectClient, aClientContext.getClientResponseReceiverId(), null);
+                            Object aSerializedMessage = mySerializer.serialize(aMessage, MessageBusMessage.class);
+    
+                            IDuplexInputChannel anInputChannel = myServiceConnector.getAttachedDuplexInputChannel();
+                            if (anInputChannel != null)
+                            {
+                                anInputChannel.sendResponseMessage(aClientContext.getServiceResponseReceiverId(), aSerializedMessage);
+                            }
+                        }
+                        catch (Exception err)
+                        {
+                            String anErrorMessage = TracedObject() + ErrorHandler.FailedToCloseConnection;
+                            EneterTrace.warning(anErrorMessage, err);
+                        }
                     }
                 }
 
                 // Disconnecting the client.
                 if (disconnectClientFlag)
                 {
-                    IDuplexInputChannel anInputChannel1 = myClientConnector.getAttachedDuplexInputChannel();
-                    if (anInputChannel1 != null)
-                    {
-                        anInputChannel1.disconnectResponseReceiver(aClientContext[0].getClientResponseReceiverId());
-                    }
+                    disconnectClient(aClientContext);
                 }
                 
                 if (myClientDisconnectedEvent.isSubscribed())
                 {
-                    MessageBusClientEventArgs anEventArgs = new MessageBusClientEventArgs(aClientContext[0].getServiceId(), aClientContext[0].getServiceResponseReceiverId(), clientResponseReceiverId);
+                    MessageBusClientEventArgs anEventArgs = new MessageBusClientEventArgs(aClientContext.getServiceId(), aClientContext.getServiceResponseReceiverId(), clientResponseReceiverId);
                     try
                     {
                         myClientDisconnectedEvent.raise(this, anEventArgs);
@@ -665,36 +865,21 @@ class MessageBus implements IMessageBus
         }
     }
     
-    private void forwardMessageToService(final String clientResponseReceiverId, final MessageBusMessage messageFromClient)
+    private void forwardMessageToService(final String clientResponseReceiverId, final MessageBusMessage messageFromClient, TClusterLink clientLink)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            TClientContext aClientContext = null;
-            myConnectionLock.lock();
-            try
-            {
-                try
-                {
-                    aClientContext = EnumerableExt.firstOrDefault(myConnectedClients, new IFunction1<Boolean, TClientContext>()
-                    {
-                        @Override
-                        public Boolean invoke(TClientContext x) throws Exception
-                        {
-                            return x.getClientResponseReceiverId().equals(clientResponseReceiverId);
-                        }
-                    });
-                }
-                catch (Exception err)
-                {
-                    EneterTrace.error(TracedObject() + "failed to search in firstOrDefault", err);
-                }
-            }
-            finally
+            // Note: the lookup does not need the connection lock so that forwarding messages
+            //       does not block connecting or disconnecting of other clients.
+            TClientContext aClientContext = myConnectedClients.get(clientResponseReceiverId);
+            
+            // Note: the client must be connected via the same link which forwards the message.
+            if (aClientContext != null && aClientContext.getClientLink() != clientLink)
             {
-                myConnectionLock.unlock();
+                aClientContext = null;
             }
-
+            
             if (aClientContext != null)
             {
                 // Forward the incoming message to the service.
@@ -716,15 +901,23 @@ class MessageBus implements IMessageBus
                                     // Note: Because of security reasons we do not expect Ids from the client but using Ids associated with the connection session.
                                     //       Otherwise it would be possible that some client could use id of another client to pretend a different client.
                                     messageFromClient.Id = clientResponseReceiverId;
-                                    Object aSerializedMessage = mySerializer.serialize(messageFromClient, MessageBusMessage.class);
+                                    Object aSerializedMessage = serializeMessage(messageFromClient);
     
-                                    anInputChannel.sendResponseMessage(aClientContextTmp.getServiceResponseReceiverId(), aSerializedMessage);
+                                    // If the service is registered in another message bus of the cluster.
+                                    if (aClientContextTmp.getServiceLink() != null)
+                                    {
+                                        aClientContextTmp.getServiceLink().send(aSerializedMessage);
+                                    }
+                                    else
+                                    {
+                                        anInputChannel.sendResponseMessage(aClientContextTmp.getServiceResponseReceiverId(), aSerializedMessage);
+                                    }
                                     
                                     if (myMessageToServiceSentEvent.isSubscribed())
                                     {
-                                        MessageBusMessageEventArgs anEventArgs = new MessageBusMessageEventArgs(aClientContextTmp.getServiceId(), aClientContextTmp.getServiceResponseReceiverId(), clientResponseReceiverId, messageFromClient.MessageData);
                                         try
                                         {
+                                            MessageBusMessageEventArgs anEventArgs = new MessageBusMessageEventArgs(aClientContextTmp.getServiceId(), aClientContextTmp.getServiceResponseReceiverId(), clientResponseReceiverId, decodeMessageData(messageFromClient.MessageData));
                                             myMessageToServiceSentEvent.raise(this, anEventArgs);
                                         }
                                         catch (Exception err)
@@ -738,7 +931,16 @@ class MessageBus implements IMessageBus
                                     String anErrorMessage = TracedObject() + "failed to send message to the service '" + aClientContextTmp.getServiceId() + "'.";
                                     EneterTrace.error(anErrorMessage, err);
     
-                                    unregisterService(aClientContextTmp.getServiceResponseReceiverId());
+                                    // Note: if the link to another message bus failed it is cleaned when the link is closed.
+                                    //       Until then only this client is disconnected.
+                                    if (aClientContextTmp.getServiceLink() != null)
+                                    {
+                                        unregisterClient(clientResponseReceiverId, false, true);
+                                    }
+                                    else
+                                    {
+                                        unregisterService(aClientContextTmp.getServiceResponseReceiverId());
+                                    }
                                 }
                             }
                             finally
@@ -784,7 +986,7 @@ class MessageBus implements IMessageBus
             MessageBusMessage aMessageBusMessage;
             try
             {
-                aMessageBusMessage = mySerializer.deserialize(e.getMessage(), MessageBusMessage.class);
+                aMessageBusMessage = deserializeMessage(e.getMessage());
             }
             catch (Exception err)
             {
@@ -831,28 +1033,28 @@ class MessageBus implements IMessageBus
             myConnectionLock.lock();
             try
             {
-                try
+                aServiceContext = myConnectedServicesByResponseReceiverId.get(serviceResponseReceiverId);
+                if (aServiceContext == null)
                 {
-                    aServiceContext = EnumerableExt.firstOrDefault(myConnectedServices, new IFunction1<Boolean, TServiceContext>()
+                    TServiceGroup aServiceGroup = myConnectedServices.get(serviceId);
+                    if (aServiceGroup == null)
                     {
-                        @Override
-                        public Boolean invoke(TServiceContext x) throws Exception
-                        {
-                            return x.getServiceId().equals(serviceId) || x.getServiceResponseReceiverId().equals(serviceResponseReceiverId);
-                        }
-                    });
-                }
-                catch (Exception err)
-                {
-                    EneterTrace.error(TracedObject() + "failed to register service '" + serviceId + "' because it failed to search in firstOrDefault", err);
-                    return;
-                }
-                        
-                if (aServiceContext == null)
-                {
-                    aServiceContext = new TServiceContext(serviceId, serviceResponseReceiverId);
-                    myConnectedServices.add(aServiceContext);
-                    anIsNewServiceRegistered = true;
+                        aServiceGroup = new TServiceGroup();
+                        myConnectedServices.put(serviceId, aServiceGroup);
+                    }
+                    
+                    // Note: if the load balancing is not enabled only one instance of the service can be registered.
+                    if (myServiceBalancing == EMessageBusServiceBalancing.SingleInstance && !aServiceGroup.getInstances().isEmpty())
+                    {
+                        aServiceContext = aServiceGroup.getInstances().get(0);
+                    }
+                    else
+                    {
+                        aServiceContext = new TServiceContext(serviceId, serviceResponseReceiverId);
+                        aServiceGroup.getInstances().add(aServiceContext);
+                        myConnectedServicesByResponseReceiverId.put(serviceResponseReceiverId, aServiceContext);
+                        anIsNewServiceRegistered = true;
+                    }
                 }
             }
             finally
@@ -862,6 +1064,9 @@ class MessageBus implements IMessageBus
             
             if (anIsNewServiceRegistered)
             {
+                // Announce the service to other message buses of the cluster.
+                announceService(EMessageBusRequest.RegisterService, serviceId);
+                
                 if (myServiceRegisteredEvent.isSubscribed())
                 {
                     try
@@ -909,91 +1114,90 @@ class MessageBus implements IMessageBus
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            final ArrayList<String> aClientsToDisconnect = new ArrayList<String>();
+            ArrayList<TClientContext> aClientsToDisconnect = new ArrayList<TClientContext>();
+            ArrayList<TClientContext> aMovedClients = new ArrayList<TClientContext>();
 
-            final String[] aServiceId = { null };
+            String aServiceId = null;
+            boolean anIsLastInstance = false;
             myConnectionLock.lock();
             try
             {
                 // Remove the service.
-                try
+                TServiceContext aServiceContext = myConnectedServicesByResponseReceiverId.remove(serviceResponseReceiverId);
+                if (aServiceContext != null)
                 {
-                    HashSetExt.removeWhere(myConnectedServices, new IFunction1<Boolean, TServiceContext>()
+                    aServiceId = aServiceContext.getServiceId();
+                    TServiceGroup aServiceGroup = myConnectedServices.get(aServiceId);
+                    aServiceGroup.getInstances().remove(aServiceContext);
+                    if (aServiceGroup.getInstances().isEmpty())
                     {
-                        @Override
-                        public Boolean invoke(TServiceContext x) throws Exception
-                        {
-                            if (x.getServiceResponseReceiverId().equals(serviceResponseReceiverId))
-                            {
-                                aServiceId[0] = x.getServiceId();
-                                return true;
-                            }
-    
-                            return false;
-                        }
-                    });
-                }
-                catch (Exception err)
-                {
-                    EneterTrace.error(TracedObject() + "failed to remove the service.");
-                }
+                        myConnectedServices.remove(aServiceId);
+                        anIsLastInstance = true;
+                    }
 
-                // Remove all clients connected to the service.
-                try
-                {
-                    HashSetExt.removeWhere(myConnectedClients, new IFunction1<Boolean, TClientContext>()
+                    // Move clients of the service to remaining instances.
+                    // If there is no other instance remove all clients connected to the service.
+                    for (TClientContext aClientContext : aServiceContext.getConnectedClients().values())
                     {
-                        @Override
-                        public Boolean invoke(TClientContext x) throws Exception
+                        TServiceContext anotherInstance = aServiceGroup.selectInstance();
+                        if (anotherInstance != null)
                         {
-                            if (x.getServiceResponseReceiverId().equals(serviceResponseReceiverId))
-                            {
-                                aClientsToDisconnect.add(x.getClientResponseReceiverId());
-                                
-                                // Indicate the item shall be removed.
-                                return true;
-                            }
-    
-                            return false;
+                            aClientContext.setServiceResponseReceiverId(anotherInstance.getServiceResponseReceiverId());
+                            anotherInstance.getConnectedClients().put(aClientContext.getClientResponseReceiverId(), aClientContext);
+                            aMovedClients.add(aClientContext);
                         }
-                    });
-                }
-                catch (Exception err)
-                {
-                    EneterTrace.error(TracedObject() + "failed to remove clients.");
+                        else
+                        {
+                            myConnectedClients.remove(aClientContext.getClientResponseReceiverId());
+                            aClientsToDisconnect.add(aClientContext);
+                        }
+                    }
+                    aServiceContext.getConnectedClients().clear();
                 }
             }
             finally
             {
                 myConnectionLock.unlock();
             }
-
-            // Close connections with clients.
-            if (myClientConnector.isDuplexInputChannelAttached())
+            
+            // Open connections for moved clients in the new service instances.
+            for (TClientContext aClientContext : aMovedClients)
             {
-                for (String aClientResponseReceiverId : aClientsToDisconnect)
+                try
                 {
-                    IDuplexInputChannel anInputChannel = myClientConnector.getAttachedDuplexInputChannel();
-                    if (anInputChannel != null)
-                    {
-                        anInputChannel.disconnectResponseReceiver(aClientResponseReceiverId);
-                    }
+                    sendOpenConnectionToService(aClientContext);
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.warning(TracedObject() + "failed to move the client to another instance of the service '" + aClientContext.getServiceId() + "'.", err);
+                    unregisterClient(aClientContext.getClientResponseReceiverId(), false, true);
                 }
             }
 
+            // Close connections with clients.
+            for (TClientContext aClientContext : aClientsToDisconnect)
+            {
+                disconnectClient(aClientContext);
+            }
+            
+            if (anIsLastInstance)
+            {
+                announceService(EMessageBusRequest.UnregisterService, aServiceId);
+            }
+
             IDuplexInputChannel anInputChannel2 = myServiceConnector.getAttachedDuplexInputChannel();
             if (anInputChannel2 != null)
             {
                 anInputChannel2.disconnectResponseReceiver(serviceResponseReceiverId);
             }
 
-            if (myServiceUnregisteredEvent.isSubscribed() && !StringExt.isNullOrEmpty(aServiceId[0]))
+            if (myServiceUnregisteredEvent.isSubscribed() && !StringExt.isNullOrEmpty(aServiceId))
             {
                 EneterTrace.debug("SERVICE '" + aServiceId + "' UNREGISTERED");
 
                 try
                 {
-                    MessageBusServiceEventArgs anEvent = new MessageBusServiceEventArgs(aServiceId[0], serviceResponseReceiverId);
+                    MessageBusServiceEventArgs anEvent = new MessageBusServiceEventArgs(aServiceId, serviceResponseReceiverId);
                     myServiceUnregisteredEvent.raise(this, anEvent);
                 }
                 catch (Exception err)
@@ -1008,6 +1212,97 @@ class MessageBus implements IMessageBus
         }
     }
     
+    private MessageBusMessage deserializeMessage(Object serializedMessage) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (myHeaderSerializer != null && serializedMessage instanceof byte[])
+            {
+                return myHeaderSerializer.deserializeHeader((byte[])serializedMessage);
+            }
+            
+            return mySerializer.deserialize(serializedMessage, MessageBusMessage.class);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private Object serializeMessage(MessageBusMessage message) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            // If message data was not decoded then forward it as it is.
+            if (message.MessageData instanceof ByteBuffer)
+            {
+                return myHeaderSerializer.serializeWithEncodedData(message.Request, message.Id, (ByteBuffer)message.MessageData);
+            }
+            
+            return mySerializer.serialize(message, MessageBusMessage.class);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Decodes message data if they were not decoded when the message was received.
+    // Note: it is needed only for raising events.
+    private Object decodeMessageData(Object messageData) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (messageData instanceof ByteBuffer)
+            {
+                return myHeaderSerializer.decodeMessageData((ByteBuffer)messageData);
+            }
+            
+            return messageData;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Sends open connection message for the client to the service instance the client is assigned to.
+    private boolean sendOpenConnectionToService(TClientContext clientContext) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            // If the service is registered in another message bus of the cluster.
+            if (clientContext.getServiceLink() != null)
+            {
+                // Note: the message bus of the service needs the client id and the service id.
+                MessageBusMessage aMessage = new MessageBusMessage(EMessageBusRequest.ConnectClient, clientContext.getClientResponseReceiverId(), clientContext.getServiceId());
+                Object aSerializedMessage = mySerializer.serialize(aMessage, MessageBusMessage.class);
+                clientContext.getServiceLink().send(aSerializedMessage);
+                return true;
+            }
+            
+            MessageBusMessage aMessage = new MessageBusMessage(EMessageBusRequest.ConnectClient, clientContext.getClientResponseReceiverId(), null);
+            Object aSerializedMessage = mySerializer.serialize(aMessage, MessageBusMessage.class);
+
+            IDuplexInputChannel anInputChannel = myServiceConnector.getAttachedDuplexInputChannel();
+            if (anInputChannel != null)
+            {
+                anInputChannel.sendResponseMessage(clientContext.getServiceResponseReceiverId(), aSerializedMessage);
+                return true;
+            }
+            
+            return false;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
     private void forwardMessageToClient(final String clientResponseReceiverId, final String serviceResponseReceiverId, final Object serializedMessage, final Object originalMessage)
     {
         EneterTrace aTrace = EneterTrace.entering();
@@ -1015,29 +1310,10 @@ class MessageBus implements IMessageBus
         {
             // Check if the requested client id has a connection with the service session which forwards the message.
             // Note: this is to prevent that a sevice sends a message to a client which is not connected to it.
-            TClientContext aClientContext = null;
-            myConnectionLock.lock();
-            try
-            {
-                try
-                {
-                    aClientContext = EnumerableExt.firstOrDefault(myConnectedClients, new IFunction1<Boolean, TClientContext>()
-                    {
-                        @Override
-                        public Boolean invoke(TClientContext x) throws Exception
-                        {
-                            return x.getClientResponseReceiverId().equals(clientResponseReceiverId) && x.getServiceResponseReceiverId().equals(serviceResponseReceiverId);
-                        }
-                    });
-                }
-                catch (Exception err)
-                {
-                    EneterTrace.error(TracedObject() + "failed to search firstOrDefault.", err);
-                }
-            }
-            finally
+            TClientContext aClientContext = myConnectedClients.get(clientResponseReceiverId);
+            if (aClientContext != null && !aClientContext.getServiceResponseReceiverId().equals(serviceResponseReceiverId))
             {
-                myConnectionLock.unlock();
+                aClientContext = null;
             }
 
             if (aClientContext == null)
@@ -1064,13 +1340,21 @@ class MessageBus implements IMessageBus
                         {
                             try
                             {
-                                anInputChannel.sendResponseMessage(clientResponseReceiverId, serializedMessage);
+                                // If the client is connected to another message bus of the cluster.
+                                if (aClientContextTmp.getClientLink() != null)
+                                {
+                                    aClientContextTmp.getClientLink().send(serializedMessage);
+                                }
+                                else
+                                {
+                                    anInputChannel.sendResponseMessage(clientResponseReceiverId, serializedMessage);
+                                }
 
                                 if (originalMessage != null && myMessageToClientSentEvent.isSubscribed())
                                 {
-                                    MessageBusMessageEventArgs anEventArgs = new MessageBusMessageEventArgs(aClientContextTmp.getServiceId(), serviceResponseReceiverId, clientResponseReceiverId, originalMessage);
                                     try
                                     {
+                                        MessageBusMessageEventArgs anEventArgs = new MessageBusMessageEventArgs(aClientContextTmp.getServiceId(), serviceResponseReceiverId, clientResponseReceiverId, decodeMessageData(originalMessage));
                                         myMessageToClientSentEvent.raise(this, anEventArgs);
                                     }
                                     catch (Exception err)
@@ -1101,16 +1385,383 @@ class MessageBus implements IMessageBus
         }
     }
     
+    // Closes the connection with the client.
+    private void disconnectClient(TClientContext clientContext)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            // If the client is connected to another message bus of the cluster.
+            if (clientContext.getClientLink() != null)
+            {
+                sendDisconnectClientToClusterNode(clientContext.getClientLink(), clientContext.getClientResponseReceiverId());
+            }
+            else
+            {
+                IDuplexInputChannel anInputChannel = myClientConnector.getAttachedDuplexInputChannel();
+                if (anInputChannel != null)
+                {
+                    anInputChannel.disconnectResponseReceiver(clientContext.getClientResponseReceiverId());
+                }
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private void sendDisconnectClientToClusterNode(TClusterLink clusterLink, String clientResponseReceiverId)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            try
+            {
+                MessageBusMessage aMessage = new MessageBusMessage(EMessageBusRequest.DisconnectClient, clientResponseReceiverId, null);
+                Object aSerializedMessage = mySerializer.serialize(aMessage, MessageBusMessage.class);
+                clusterLink.send(aSerializedMessage);
+            }
+            catch (Exception err)
+            {
+                EneterTrace.warning(TracedObject() + "failed to send disconnect client message to the message bus of the cluster.", err);
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Announces registering or unregistering of the service to all message buses of the cluster.
+    private void announceService(EMessageBusRequest request, String serviceId)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (myClusterLinks.isEmpty())
+            {
+                return;
+            }
+            
+            Object aSerializedMessage;
+            try
+            {
+                MessageBusMessage aMessage = new MessageBusMessage(request, serviceId, null);
+                aSerializedMessage = mySerializer.serialize(aMessage, MessageBusMessage.class);
+            }
+            catch (Exception err)
+            {
+                EneterTrace.error(TracedObject() + "failed to serialize the service announcement.", err);
+                return;
+            }
+            
+            for (TClusterLink aClusterLink : myClusterLinks.values())
+            {
+                try
+                {
+                    aClusterLink.send(aSerializedMessage);
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.warning(TracedObject() + "failed to announce the service '" + serviceId + "' to the message bus of the cluster.", err);
+                }
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Announces all registered services to the newly connected message bus of the cluster.
+    private void announceServices(TClusterLink clusterLink)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            for (String aServiceId : myConnectedServices.keySet())
+            {
+                try
+                {
+                    MessageBusMessage aMessage = new MessageBusMessage(EMessageBusRequest.RegisterService, aServiceId, null);
+                    Object aSerializedMessage = mySerializer.serialize(aMessage, MessageBusMessage.class);
+                    clusterLink.send(aSerializedMessage);
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.warning(TracedObject() + "failed to announce the service '" + aServiceId + "' to the message bus of the cluster.", err);
+                }
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Another message bus of the cluster opened the link to this message bus.
+    private void onClusterNodeConnected(Object sender, ResponseReceiverEventArgs e)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            TClusterLink aClusterLink = new TClusterLink(e.getResponseReceiverId());
+            myClusterLinks.put(aClusterLink.getLinkId(), aClusterLink);
+            
+            announceServices(aClusterLink);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // The link opened by another message bus of the cluster was closed.
+    private void onClusterNodeDisconnected(Object sender, ResponseReceiverEventArgs e)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            unregisterClusterLink(e.getResponseReceiverId());
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // The link opened by this message bus was closed.
+    private void onClusterNodeConnectionClosed(Object sender, DuplexChannelEventArgs e)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            unregisterClusterLink(e.getResponseReceiverId());
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private void onMessageFromClusterNode(String linkId, Object serializedMessage)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            TClusterLink aClusterLink = myClusterLinks.get(linkId);
+            if (aClusterLink == null)
+            {
+                EneterTrace.warning(TracedObject() + "failed to process the message because the link to the message bus of the cluster was not found.");
+                return;
+            }
+            
+            MessageBusMessage aMessageBusMessage;
+            try
+            {
+                aMessageBusMessage = deserializeMessage(serializedMessage);
+            }
+            catch (Exception err)
+            {
+                EneterTrace.error(TracedObject() + "failed to deserialize message from the message bus of the cluster.", err);
+                return;
+            }
+            
+            if (aMessageBusMessage.Request == EMessageBusRequest.RegisterService)
+            {
+                EneterTrace.debug("CLUSTER REGISTERS SERVICE: " + aMessageBusMessage.Id);
+                myConnectionLock.lock();
+                try
+                {
+                    // Note: the link could be unregistered meanwhile and then the service must not be registered again.
+                    if (myClusterLinks.get(linkId) == aClusterLink)
+                    {
+                        ArrayList<TClusterLink> aServiceLinks = myClusterServices.get(aMessageBusMessage.Id);
+                        if (aServiceLinks == null)
+                        {
+                            aServiceLinks = new ArrayList<TClusterLink>();
+                            myClusterServices.put(aMessageBusMessage.Id, aServiceLinks);
+                        }
+                        if (!aServiceLinks.contains(aClusterLink))
+                        {
+                            aServiceLinks.add(aClusterLink);
+                        }
+                    }
+                }
+                finally
+                {
+                    myConnectionLock.unlock();
+                }
+            }
+            else if (aMessageBusMessage.Request == EMessageBusRequest.UnregisterService)
+            {
+                EneterTrace.debug("CLUSTER UNREGISTERS SERVICE: " + aMessageBusMessage.Id);
+                myConnectionLock.lock();
+                try
+                {
+                    // Note: the service can be still hosted by other message buses of the cluster.
+                    ArrayList<TClusterLink> aServiceLinks = myClusterServices.get(aMessageBusMessage.Id);
+                    if (aServiceLinks != null)
+                    {
+                        aServiceLinks.remove(aClusterLink);
+                        if (aServiceLinks.isEmpty())
+                        {
+                            myClusterServices.remove(aMessageBusMessage.Id);
+                        }
+                    }
+                }
+                finally
+                {
+                    myConnectionLock.unlock();
+                }
+            }
+            else if (aMessageBusMessage.Request == EMessageBusRequest.ConnectClient)
+            {
+                String aServiceId;
+                try
+                {
+                    aServiceId = (String)decodeMessageData(aMessageBusMessage.MessageData);
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.error(TracedObject() + "failed to decode the service id from the message bus of the cluster.", err);
+                    sendDisconnectClientToClusterNode(aClusterLink, aMessageBusMessage.Id);
+                    return;
+                }
+                
+                EneterTrace.debug("CLUSTER CLIENT OPENS CONNECTION TO '" + aServiceId + "'.");
+                registerClient(aMessageBusMessage.Id, aServiceId, aClusterLink);
+            }
+            else if (aMessageBusMessage.Request == EMessageBusRequest.SendRequestMessage)
+            {
+                forwardMessageToService(aMessageBusMessage.Id, aMessageBusMessage, aClusterLink);
+            }
+            else if (aMessageBusMessage.Request == EMessageBusRequest.DisconnectClient)
+            {
+                TClientContext aClientContext = myConnectedClients.get(aMessageBusMessage.Id);
+                if (aClientContext != null)
+                {
+                    // The client disconnected from the other message bus.
+                    if (aClientContext.getClientLink() == aClusterLink)
+                    {
+                        unregisterClient(aMessageBusMessage.Id, true, false);
+                    }
+                    // The service in the other message bus disconnected the client.
+                    else if (aClientContext.getServiceLink() == aClusterLink)
+                    {
+                        unregisterClient(aMessageBusMessage.Id, false, true);
+                    }
+                }
+            }
+            else if (aMessageBusMessage.Request == EMessageBusRequest.ConfirmClient)
+            {
+                forwardMessageToClient(aMessageBusMessage.Id, aClusterLink.getLinkId(), serializedMessage, null);
+            }
+            else if (aMessageBusMessage.Request == EMessageBusRequest.SendResponseMessage)
+            {
+                // Note: forward the same message - it does not have to be serialized again.
+                forwardMessageToClient(aMessageBusMessage.Id, aClusterLink.getLinkId(), serializedMessage, aMessageBusMessage.MessageData);
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Removes the link to another message bus of the cluster.
+    // Clients using services of the other message bus are disconnected and
+    // services are notified that clients from the other message bus are disconnected.
+    private void unregisterClusterLink(String linkId)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            TClusterLink aClusterLink;
+            ArrayList<TClientContext> aClients = new ArrayList<TClientContext>();
+            myConnectionLock.lock();
+            try
+            {
+                aClusterLink = myClusterLinks.remove(linkId);
+                if (aClusterLink == null)
+                {
+                    return;
+                }
+                
+                Iterator<Map.Entry<String, ArrayList<TClusterLink>>> anIt = myClusterServices.entrySet().iterator();
+                while (anIt.hasNext())
+                {
+                    ArrayList<TClusterLink> aServiceLinks = anIt.next().getValue();
+                    aServiceLinks.remove(aClusterLink);
+                    if (aServiceLinks.isEmpty())
+                    {
+                        anIt.remove();
+                    }
+                }
+                
+                for (TClientContext aClientContext : myConnectedClients.values())
+                {
+                    if (aClientContext.getServiceLink() == aClusterLink || aClientContext.getClientLink() == aClusterLink)
+                    {
+                        aClients.add(aClientContext);
+                    }
+                }
+            }
+            finally
+            {
+                myConnectionLock.unlock();
+            }
+            
+            for (TClientContext aClientContext : aClients)
+            {
+                if (aClientContext.getServiceLink() == aClusterLink)
+                {
+                    unregisterClient(aClientContext.getClientResponseReceiverId(), false, true);
+                }
+                else
+                {
+                    unregisterClient(aClientContext.getClientResponseReceiverId(), true, false);
+                }
+            }
+            
+            IDuplexOutputChannel anOutputChannel = aClusterLink.getOutputChannel();
+            if (anOutputChannel != null)
+            {
+                anOutputChannel.connectionClosed().unsubscribe(myOnClusterNodeConnectionClosed);
+                anOutputChannel.responseMessageReceived().unsubscribe(myOnResponseFromClusterNodeReceived);
+            }
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
     
     private ThreadLock myAttachDetachLock = new ThreadLock();
     private ThreadLock myConnectionLock = new ThreadLock();
 
-    private HashSet<TServiceContext> myConnectedServices = new HashSet<TServiceContext>();
-    private HashSet<TClientContext> myConnectedClients = new HashSet<TClientContext>();
+    // Note: registries are modified under myConnectionLock but they are read without the lock
+    //       so that routing of messages is a single lookup which does not block other traffic.
+    // Key is service id.
+    private ConcurrentHashMap<String, TServiceGroup> myConnectedServices = new ConcurrentHashMap<String, TServiceGroup>();
+    // Key is service response receiver id.
+    private ConcurrentHashMap<String, TServiceContext> myConnectedServicesByResponseReceiverId = new ConcurrentHashMap<String, TServiceContext>();
+    // Key is client response receiver id.
+    private ConcurrentHashMap<String, TClientContext> myConnectedClients = new ConcurrentHashMap<String, TClientContext>();
+    // Links to other message buses of the cluster. Key is link id.
+    private ConcurrentHashMap<String, TClusterLink> myClusterLinks = new ConcurrentHashMap<String, TClusterLink>();
+    // Services registered in other message buses of the cluster. Key is service id, value is links to message buses hosting the service.
+    // Note: lists of links are accessed only under myConnectionLock.
+    private ConcurrentHashMap<String, ArrayList<TClusterLink>> myClusterServices = new ConcurrentHashMap<String, ArrayList<TClusterLink>>();
     
     private ISerializer mySerializer;
+    private MessageBusCustomSerializer myHeaderSerializer;
+    private EMessageBusServiceBalancing myServiceBalancing;
     private TConnector myServiceConnector;
     private TConnector myClientConnector;
+    private TConnector myClusterConnector;
     
     
     private EventHandler<ResponseReceiverEventArgs> myOnServiceDisconnected = new EventHandler<ResponseReceiverEventArgs>()
@@ -1147,6 +1798,47 @@ class MessageBus implements IMessageBus
         }
     };
     
+    private EventHandler<ResponseReceiverEventArgs> myOnClusterNodeConnected = new EventHandler<ResponseReceiverEventArgs>()
+    {
+        @Override
+        public void onEvent(Object sender, ResponseReceiverEventArgs e)
+        {
+            onClusterNodeConnected(sender, e);
+        }
+    };
+    private EventHandler<ResponseReceiverEventArgs> myOnClusterNodeDisconnected = new EventHandler<ResponseReceiverEventArgs>()
+    {
+        @Override
+        public void onEvent(Object sender, ResponseReceiverEventArgs e)
+        {
+            onClusterNodeDisconnected(sender, e);
+        }
+    };
+    private EventHandler<DuplexChannelMessageEventArgs> myOnMessageFromClusterNodeReceived = new EventHandler<DuplexChannelMessageEventArgs>()
+    {
+        @Override
+        public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+        {
+            onMessageFromClusterNode(e.getResponseReceiverId(), e.getMessage());
+        }
+    };
+    private EventHandler<DuplexChannelEventArgs> myOnClusterNodeConnectionClosed = new EventHandler<DuplexChannelEventArgs>()
+    {
+        @Override
+        public void onEvent(Object sender, DuplexChannelEventArgs e)
+        {
+            onClusterNodeConnectionClosed(sender, e);
+        }
+    };
+    private EventHandler<DuplexChannelMessageEventArgs> myOnResponseFromClusterNodeReceived = new EventHandler<DuplexChannelMessageEventArgs>()
+    {
+        @Override
+        public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+        {
+            onMessageFromClusterNode(e.getResponseReceiverId(), e.getMessage());
+        }
+    };
+    
 
     private EventImpl<MessageBusServiceEventArgs> myServiceRegisteredEvent = new EventImpl<MessageBusServiceEventArgs>();
     private EventImpl<MessageBusServiceEventArgs> myServiceUnregisteredEvent = new EventImpl<MessageBusServiceEventArgs>();
@@ -8,6 +8,7 @@
 package eneter.messaging.messagingsystems.composites.messagebus;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 import eneter.messaging.dataprocessing.serializing.ISerializer;
@@ -71,6 +72,11 @@ class MessageBusCustomSerializer implements ISerializer
 
                 myEncoderDecoder.write(aWriter, aMessage.MessageData, myIsLittleEndian);
             }
+            // Note: ConnectClient carries the service id only between message buses of the cluster.
+            else if (aMessage.Request == EMessageBusRequest.ConnectClient && aMessage.MessageData != null)
+            {
+                myEncoderDecoder.write(aWriter, aMessage.MessageData, myIsLittleEndian);
+            }
 
             return aStream.toByteArray();
         }
@@ -121,6 +127,10 @@ class MessageBusCustomSerializer implements ISerializer
             {
                 aMessageData = myEncoderDecoder.read(aReader, myIsLittleEndian);
             }
+            else if (aMessageBusRequest == EMessageBusRequest.ConnectClient && aStream.available() > 0)
+            {
+                aMessageData = myEncoderDecoder.read(aReader, myIsLittleEndian);
+            }
 
 
             aResult = new MessageBusMessage(aMessageBusRequest, anId, aMessageData);
@@ -132,6 +142,125 @@ class MessageBusCustomSerializer implements ISerializer
         }
     }
 
+    // Deserializes only the request and the id.
+    // Message data is not decoded. It is the ByteBuffer referencing encoded message data inside serializedData.
+    MessageBusMessage deserializeHeader(byte[] serializedData) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            if (serializedData.length < HEADER_LENGTH)
+            {
+                throw new IllegalStateException(TracedObject() + "failed to deserialize the message because of incorrect data length.");
+            }
+            
+            EMessageBusRequest aMessageBusRequest = EMessageBusRequest.fromInt(serializedData[0]);
+            
+            int anIdLength = readInt32(serializedData, 1);
+            if (anIdLength < 0 || anIdLength > serializedData.length - HEADER_LENGTH)
+            {
+                throw new IllegalStateException(TracedObject() + "failed to deserialize the message because of incorrect id length.");
+            }
+            String anId = new String(serializedData, HEADER_LENGTH, anIdLength, UTF8);
+            
+            ByteBuffer anEncodedMessageData = null;
+            int aMessageDataIdx = HEADER_LENGTH + anIdLength;
+            if (aMessageBusRequest == EMessageBusRequest.SendRequestMessage ||
+                aMessageBusRequest == EMessageBusRequest.SendResponseMessage ||
+                (aMessageBusRequest == EMessageBusRequest.ConnectClient && aMessageDataIdx < serializedData.length))
+            {
+                anEncodedMessageData = ByteBuffer.wrap(serializedData, aMessageDataIdx, serializedData.length - aMessageDataIdx).slice();
+            }
+            
+            return new MessageBusMessage(aMessageBusRequest, anId, anEncodedMessageData);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Serializes the message with message data which is already encoded.
+    // Encoded message data is copied as it is.
+    byte[] serializeWithEncodedData(EMessageBusRequest request, String id, ByteBuffer encodedMessageData)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            byte[] anIdBytes = id.getBytes(UTF8);
+            int aMessageDataLength = (encodedMessageData != null) ? encodedMessageData.remaining() : 0;
+            
+            byte[] aResult = new byte[HEADER_LENGTH + anIdBytes.length + aMessageDataLength];
+            aResult[0] = (byte)request.geValue();
+            writeInt32(aResult, 1, anIdBytes.length);
+            System.arraycopy(anIdBytes, 0, aResult, HEADER_LENGTH, anIdBytes.length);
+            if (encodedMessageData != null)
+            {
+                encodedMessageData.duplicate().get(aResult, HEADER_LENGTH + anIdBytes.length, aMessageDataLength);
+            }
+            
+            return aResult;
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    // Decodes message data returned by deserializeHeader.
+    Object decodeMessageData(ByteBuffer encodedMessageData) throws Exception
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            ByteArrayInputStream aStream = new ByteArrayInputStream(encodedMessageData.array(), encodedMessageData.arrayOffset() + encodedMessageData.position(), encodedMessageData.remaining());
+            DataInputStream aReader = new DataInputStream(aStream);
+            return myEncoderDecoder.read(aReader, myIsLittleEndian);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
+    private int readInt32(byte[] data, int idx)
+    {
+        if (myIsLittleEndian)
+        {
+            return (data[idx] & 0xFF) | ((data[idx + 1] & 0xFF) << 8) | ((data[idx + 2] & 0xFF) << 16) | ((data[idx + 3] & 0xFF) << 24);
+        }
+        
+        return ((data[idx] & 0xFF) << 24) | ((data[idx + 1] & 0xFF) << 16) | ((data[idx + 2] & 0xFF) << 8) | (data[idx + 3] & 0xFF);
+    }
+    
+    private void writeInt32(byte[] data, int idx, int value)
+    {
+        if (myIsLittleEndian)
+        {
+            data[idx] = (byte)value;
+            data[idx + 1] = (byte)(value >>> 8);
+            data[idx + 2] = (byte)(value >>> 16);
+            data[idx + 3] = (byte)(value >>> 24);
+        }
+        else
+        {
+            data[idx] = (byte)(value >>> 24);
+            data[idx + 1] = (byte)(value >>> 16);
+            data[idx + 2] = (byte)(value >>> 8);
+            data[idx + 3] = (byte)value;
+        }
+    }
+    
+    
+    // Request byte + length of the id.
+    private static final int HEADER_LENGTH = 5;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    
     private boolean myIsLittleEndian;
     private EncoderDecoder myEncoderDecoder = new EncoderDecoder();
+    
+    private String TracedObject()
+    {
+        return getClass().getSimpleName() + " ";
+    }
 }
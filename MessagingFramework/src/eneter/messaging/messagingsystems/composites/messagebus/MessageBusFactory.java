@@ -50,14 +50,40 @@ public class MessageBusFactory implements IMessageBusFactory
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            return new MessageBus(mySerializer);
+            return new MessageBus(mySerializer, myServiceBalancing);
         }
         finally
         {
             EneterTrace.leaving(aTrace);
         }
     }
+    
+    /**
+     * Sets how clients are distributed among instances of the same service.
+     * 
+     * If RoundRobin or LeastConnections is set then more service instances can register the same service id.
+     * New clients are then distributed among them. If an instance disconnects its clients are moved to remaining instances.
+     * The default value is SingleInstance.
+     * 
+     * @param serviceBalancing distribution of clients among service instances
+     * @return this MessageBusFactory
+     */
+    public MessageBusFactory setServiceBalancing(EMessageBusServiceBalancing serviceBalancing)
+    {
+        myServiceBalancing = serviceBalancing;
+        return this;
+    }
+    
+    /**
+     * Returns how clients are distributed among instances of the same service.
+     * @return distribution of clients among service instances
+     */
+    public EMessageBusServiceBalancing getServiceBalancing()
+    {
+        return myServiceBalancing;
+    }
 
     
     private ISerializer mySerializer;
+    private EMessageBusServiceBalancing myServiceBalancing = EMessageBusServiceBalancing.SingleInstance;
 }
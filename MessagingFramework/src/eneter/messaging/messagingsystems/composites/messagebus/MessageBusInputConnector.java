@@ -21,12 +21,12 @@ import eneter.net.system.*;
 
 class MessageBusInputConnector implements IInputConnector
 {
-    public MessageBusInputConnector(ISerializer serializer, IDuplexOutputChannel messageBusOutputChannel)
+    public MessageBusInputConnector(String serviceId, ISerializer serializer, IDuplexOutputChannel messageBusOutputChannel)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            myServiceId = messageBusOutputChannel.getResponseReceiverId();
+            myServiceId = serviceId;
             mySerializer = serializer;
             myMessageBusOutputChannel = messageBusOutputChannel;
         }
@@ -7,6 +7,8 @@
 
 package eneter.messaging.messagingsystems.composites.messagebus;
 
+import java.util.UUID;
+
 import eneter.messaging.dataprocessing.serializing.ISerializer;
 import eneter.messaging.diagnostic.EneterTrace;
 import eneter.messaging.messagingsystems.messagingsystembase.*;
@@ -228,10 +230,12 @@ public class MessageBusMessagingFactory implements IMessagingSystemFactory
             EneterTrace aTrace = EneterTrace.entering();
             try
             {
-                // Note: message bus service address is encoded in OpenConnectionMessage when the service connects the message bus.
-                //       Therefore receiverAddress (which is message bus service address) is used when creating output channel.
-                IDuplexOutputChannel aMessageBusOutputChannel = myServiceMessaging.createDuplexOutputChannel(myServiceConnectingAddress, inputConnectorAddress);
-                return new MessageBusInputConnector(mySerializer, aMessageBusOutputChannel);
+                // Note: message bus service address is sent in the RegisterService message when the service connects the message bus.
+                //       The connection with the message bus uses the unique id so that more instances of the same service
+                //       can be registered in the message bus.
+                String aResponseReceiverId = inputConnectorAddress + "_" + UUID.randomUUID().toString();
+                IDuplexOutputChannel aMessageBusOutputChannel = myServiceMessaging.createDuplexOutputChannel(myServiceConnectingAddress, aResponseReceiverId);
+                return new MessageBusInputConnector(inputConnectorAddress, mySerializer, aMessageBusOutputChannel);
             }
             finally
             {
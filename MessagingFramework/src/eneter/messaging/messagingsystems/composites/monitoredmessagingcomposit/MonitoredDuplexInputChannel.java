@@ -16,8 +16,6 @@ import eneter.messaging.diagnostic.internal.*;
 import eneter.messaging.messagingsystems.messagingsystembase.*;
 import eneter.messaging.threading.dispatching.IThreadDispatcher;
 import eneter.net.system.*;
-import eneter.net.system.collections.generic.internal.HashSetExt;
-import eneter.net.system.linq.internal.EnumerableExt;
 import eneter.net.system.threading.internal.EneterTimer;
 
 
@@ -30,7 +28,7 @@ class MonitoredDuplexInputChannel implements IDuplexInputChannel
             myResponseReceiverId = responseReceiverId;
             myClientAddress = clientAddress;
             myLastReceiveTime = System.currentTimeMillis();
-            myLastPingSentTime = System.currentTimeMillis();
+            myLastSendTime = System.currentTimeMillis();
         }
 
         public String getResponseReceiverId()
@@ -53,20 +51,27 @@ class MonitoredDuplexInputChannel implements IDuplexInputChannel
             return myLastReceiveTime;
         }
         
-        public void setLastPingSentTime(long time)
+        public void setLastSendTime(long time)
         {
-            myLastPingSentTime = time;
+            myLastSendTime = time;
         }
         
-        public long getLastPingSentTime()
+        public long getLastSendTime()
         {
-            return myLastPingSentTime;
+            return myLastSendTime;
+        }
+        
+        // Returns the time when the response receiver needs the ping or when it exceeds the receive timeout.
+        // Note: any sent message replaces the ping.
+        public long getDeadline()
+        {
+            return Math.min(myLastSendTime + myPingFrequency, myLastReceiveTime + myReceiveTimeout + 1);
         }
         
         private String myResponseReceiverId;
         private String myClientAddress;
         public long myLastReceiveTime;
-        public long myLastPingSentTime;
+        public long myLastSendTime;
     }
     
     
@@ -255,6 +260,21 @@ class MonitoredDuplexInputChannel implements IDuplexInputChannel
 
                 // Send the response message via the underlying channel.
                 myUnderlyingInputChannel.sendResponseMessage(responseReceiverId, aSerializedMessage);
+                
+                // The response message proves the connection is alive so the ping is not needed.
+                myResponseReceiverContextsLock.lock();
+                try
+                {
+                    TResponseReceiverContext aResponseReceiver = getResponseReceiver(responseReceiverId);
+                    if (aResponseReceiver != null)
+                    {
+                        aResponseReceiver.setLastSendTime(System.currentTimeMillis());
+                    }
+                }
+                finally
+                {
+                    myResponseReceiverContextsLock.unlock();
+                }
             }
             catch (Exception err)
             {
@@ -269,7 +289,7 @@ class MonitoredDuplexInputChannel implements IDuplexInputChannel
     }
 
     @Override
-    public void disconnectResponseReceiver(final String responseReceiverId)
+    public void disconnectResponseReceiver(String responseReceiverId)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
@@ -279,15 +299,7 @@ class MonitoredDuplexInputChannel implements IDuplexInputChannel
                 myResponseReceiverContextsLock.lock();
                 try
                 {
-                    HashSetExt.removeWhere(myResponseReceiverContexts, new IFunction1<Boolean, TResponseReceiverContext>()
-                    {
-                        @Override
-                        public Boolean invoke(TResponseReceiverContext x)
-                                throws Exception
-                        {
-                            return x.getResponseReceiverId().equals(responseReceiverId);
-                        }
-                    });
+                    myResponseReceiverContexts.remove(responseReceiverId);
                 }
                 finally
                 {
@@ -355,34 +367,18 @@ class MonitoredDuplexInputChannel implements IDuplexInputChannel
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            int aNumberOfRemoved = 0;
+            TResponseReceiverContext aRemovedResponseReceiver;
             myResponseReceiverContextsLock.lock();
             try
             {
-                try
-                {
-                    aNumberOfRemoved = HashSetExt.removeWhere(myResponseReceiverContexts,
-                            new IFunction1<Boolean, TResponseReceiverContext>()
-                    {
-                        @Override
-                        public Boolean invoke(TResponseReceiverContext x)
-                                throws Exception
-                        {
-                            return x.getResponseReceiverId().equals(e.getResponseReceiverId());
-                        }
-                    });
-                }
-                catch (Exception err)
-                {
-                    EneterTrace.error(TracedObject() + "failed in removeWhere to remove the response receiver.");
-                }
+                aRemovedResponseReceiver = myResponseReceiverContexts.remove(e.getResponseReceiverId());
             }
             finally
             {
                 myResponseReceiverContextsLock.unlock();
             }
 
-            if (aNumberOfRemoved > 0)
+            if (aRemovedResponseReceiver != null)
             {
                 // Notify response receiver disconnected.
                 myDispatcher.invoke(new Runnable()
@@ -463,42 +459,57 @@ class MonitoredDuplexInputChannel implements IDuplexInputChannel
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            final ArrayList<TResponseReceiverContext> aPingNeededReceivers = new ArrayList<TResponseReceiverContext>();
-            final ArrayList<TResponseReceiverContext> aTimeoutedResponseReceivers = new ArrayList<TResponseReceiverContext>();
+            ArrayList<TResponseReceiverContext> aPingNeededReceivers = new ArrayList<TResponseReceiverContext>();
+            ArrayList<TResponseReceiverContext> aTimeoutedResponseReceivers = new ArrayList<TResponseReceiverContext>();
             boolean aContinueTimerFlag = false;
 
             myResponseReceiverContextsLock.lock();
             try
             {
-                final long aCurrentTime = System.currentTimeMillis();
+                long aCurrentTime = System.currentTimeMillis();
+
+                // Note: only response receivers which deadline expired are checked.
+                ArrayList<TResponseReceiverContext> aRescheduledReceivers = new ArrayList<TResponseReceiverContext>();
+                while (!myDeadlines.isEmpty() && myDeadlines.firstKey() <= aCurrentTime)
+                {
+                    for (TResponseReceiverContext x : myDeadlines.pollFirstEntry().getValue())
+                    {
+                        // If the response receiver was meanwhile removed.
+                        if (myResponseReceiverContexts.get(x.getResponseReceiverId()) != x)
+                        {
+                            continue;
+                        }
 
-                HashSetExt.removeWhere(myResponseReceiverContexts,
-                        new IFunction1<Boolean, TResponseReceiverContext>()
+                        if (aCurrentTime - x.getLastReceiveTime() > myReceiveTimeout)
                         {
-                            @Override
-                            public Boolean invoke(TResponseReceiverContext x)
-                                    throws Exception
-                            {
-                                if (aCurrentTime - x.getLastReceiveTime() > myReceiveTimeout)
-                                {
-                                    // Store the timeouted response receiver.
-                                    aTimeoutedResponseReceivers.add(x);
-
-                                    // Indicate, that the response receiver can be removed.
-                                    return true;
-                                }
-                                
-                                if (aCurrentTime - x.getLastPingSentTime() >= myPingFrequency)
-                                {
-                                    aPingNeededReceivers.add(x);
-                                }
-
-                                // Indicate, that the response receiver cannot be removed.
-                                return false;
-                            }
-                        });
+                            // Store the timeouted response receiver.
+                            aTimeoutedResponseReceivers.add(x);
+                            myResponseReceiverContexts.remove(x.getResponseReceiverId());
+                            continue;
+                        }
+
+                        if (aCurrentTime - x.getLastSendTime() >= myPingFrequency)
+                        {
+                            aPingNeededReceivers.add(x);
+                            x.setLastSendTime(aCurrentTime);
+                        }
+
+                        // Note: if something was received meanwhile then the deadline is just moved.
+                        aRescheduledReceivers.add(x);
+                    }
+                }
+
+                for (TResponseReceiverContext x : aRescheduledReceivers)
+                {
+                    scheduleDeadline(x);
+                }
 
                 aContinueTimerFlag = myResponseReceiverContexts.size() > 0;
+                if (!aContinueTimerFlag)
+                {
+                    // Remove deadlines of disconnected response receivers.
+                    myDeadlines.clear();
+                }
             }
             finally
             {
@@ -511,7 +522,6 @@ class MonitoredDuplexInputChannel implements IDuplexInputChannel
                 try
                 {
                     myUnderlyingInputChannel.sendResponseMessage(aResponseReceiver.getResponseReceiverId(), myPreserializedPingMessage);
-                    aResponseReceiver.setLastPingSentTime(System.currentTimeMillis());
                 }
                 catch (Exception err)
                 {
@@ -557,31 +567,12 @@ class MonitoredDuplexInputChannel implements IDuplexInputChannel
         }
     }
     
-    private TResponseReceiverContext getResponseReceiver(final String responseReceiverId)
+    private TResponseReceiverContext getResponseReceiver(String responseReceiverId)
     {
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            TResponseReceiverContext aResponseReceiverContext = null;
-            try
-            {
-                aResponseReceiverContext = EnumerableExt.firstOrDefault(myResponseReceiverContexts,
-                    new IFunction1<Boolean, TResponseReceiverContext>()
-                    {
-                        @Override
-                        public Boolean invoke(TResponseReceiverContext x)
-                                throws Exception
-                        {
-                            return x.getResponseReceiverId().equals(responseReceiverId);
-                        }
-                    });
-            }
-            catch (Exception err)
-            {
-                EneterTrace.error(TracedObject() + "failed in firstOrDefault to find the response receiver.", err);
-            }
-
-            return aResponseReceiverContext;
+            return myResponseReceiverContexts.get(responseReceiverId);
         }
         finally
         {
@@ -596,7 +587,8 @@ class MonitoredDuplexInputChannel implements IDuplexInputChannel
         try
         {
             TResponseReceiverContext aResponseReceiver = new TResponseReceiverContext(responseReceiverId, clientAddress);
-            myResponseReceiverContexts.add(aResponseReceiver);
+            myResponseReceiverContexts.put(responseReceiverId, aResponseReceiver);
+            scheduleDeadline(aResponseReceiver);
 
             if (myResponseReceiverContexts.size() == 1)
             {
@@ -611,6 +603,27 @@ class MonitoredDuplexInputChannel implements IDuplexInputChannel
         }
     }
     
+    // Puts the response receiver to the bucket of its deadline.
+    private void scheduleDeadline(TResponseReceiverContext responseReceiver)
+    {
+        EneterTrace aTrace = EneterTrace.entering();
+        try
+        {
+            long aDeadline = responseReceiver.getDeadline();
+            ArrayList<TResponseReceiverContext> aBucket = myDeadlines.get(aDeadline);
+            if (aBucket == null)
+            {
+                aBucket = new ArrayList<TResponseReceiverContext>();
+                myDeadlines.put(aDeadline, aBucket);
+            }
+            aBucket.add(responseReceiver);
+        }
+        finally
+        {
+            EneterTrace.leaving(aTrace);
+        }
+    }
+    
     private <T> void notifyEventGeneric(EventImpl<T> handler, T event, boolean isNobodySubscribedWarning)
     {
         EneterTrace aTrace = EneterTrace.entering();
@@ -648,7 +661,11 @@ class MonitoredDuplexInputChannel implements IDuplexInputChannel
     private long myReceiveTimeout;
     private EneterTimer myCheckTimer;
     private ThreadLock myResponseReceiverContextsLock = new ThreadLock();
-    private HashSet<TResponseReceiverContext> myResponseReceiverContexts = new HashSet<TResponseReceiverContext>();
+    private HashMap<String, TResponseReceiverContext> myResponseReceiverContexts = new HashMap<String, TResponseReceiverContext>();
+    
+    // Response receivers sorted by the time when they need to be checked.
+    // Note: when a message is received the response receiver is not moved. Its deadline is corrected when it is checked.
+    private TreeMap<Long, ArrayList<TResponseReceiverContext>> myDeadlines = new TreeMap<Long, ArrayList<TResponseReceiverContext>>();
     
     private Object myPreserializedPingMessage;
     
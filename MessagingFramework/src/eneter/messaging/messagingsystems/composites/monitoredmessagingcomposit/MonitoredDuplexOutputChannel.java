@@ -120,6 +120,9 @@ class MonitoredDuplexOutputChannel implements IDuplexOutputChannel
                 try
                 {
                     // Start timers.
+                    myLastSendTime = System.currentTimeMillis();
+                    myLastReceiveTime = myLastSendTime;
+                    myIsMonitoringFlag = true;
                     myPingingTimer.change(myPingFrequency);
                     myReceiveTimer.change(myReceiveTimeout);
 
@@ -205,8 +208,9 @@ class MonitoredDuplexOutputChannel implements IDuplexOutputChannel
                     // Send the message by using the underlying messaging system.
                     myUnderlyingOutputChannel.sendMessage(aSerializedMessage);
                     
-                    // Reschedule the ping.
-                    myPingingTimer.change(myPingFrequency);
+                    // Note: the sent message replaces the ping so the ping is not sent until the connection is idle.
+                    //       The timer is not rescheduled here because it is expensive to do it for every message.
+                    myLastSendTime = System.currentTimeMillis();
                 }
                 catch (Exception err)
                 {
@@ -239,18 +243,10 @@ class MonitoredDuplexOutputChannel implements IDuplexOutputChannel
                 // Deserialize the message.
                 MonitorChannelMessage aMessage = mySerializer.deserialize(e.getMessage(), MonitorChannelMessage.class);
 
-                // Note: timer setting is after deserialization.
-                //       reason: if deserialization fails the timer is not updated and the client will be disconnected.
-                myConnectionManipulatorLock.lock();
-                try
-                {
-                    // Cancel the current response timeout and set the new one.
-                    myReceiveTimer.change(myReceiveTimeout);
-                }
-                finally
-                {
-                    myConnectionManipulatorLock.unlock();
-                }
+                // Note: the receive time is updated after deserialization.
+                //       reason: if deserialization fails the time is not updated and the client will be disconnected.
+                // Note: any received message proves the connection is alive, not only the ping.
+                myLastReceiveTime = System.currentTimeMillis();
                 
                 // If it is a message.
                 if (aMessage.MessageType == MonitorChannelMessageType.Message)
@@ -321,8 +317,23 @@ class MonitoredDuplexOutputChannel implements IDuplexOutputChannel
                 myConnectionManipulatorLock.lock();
                 try
                 {
+                    // If the connection was meanwhile closed.
+                    if (!myIsMonitoringFlag)
+                    {
+                        return;
+                    }
+                    
+                    // If a message was sent meanwhile then the ping is not needed yet.
+                    long anIdleTime = System.currentTimeMillis() - myLastSendTime;
+                    if (anIdleTime < myPingFrequency)
+                    {
+                        myPingingTimer.change(myPingFrequency - anIdleTime);
+                        return;
+                    }
+                    
                     // Send the ping message.
                     myUnderlyingOutputChannel.sendMessage(myPreserializedPingMessage);
+                    myLastSendTime = System.currentTimeMillis();
 
                     // Schedule the next ping.
                     myPingingTimer.change(myPingFrequency);
@@ -350,6 +361,32 @@ class MonitoredDuplexOutputChannel implements IDuplexOutputChannel
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
+            myConnectionManipulatorLock.lock();
+            try
+            {
+                // If the connection was meanwhile closed.
+                if (!myIsMonitoringFlag)
+                {
+                    return;
+                }
+                
+                // If a message was received meanwhile then wait for the rest of the timeout.
+                long aSilenceTime = System.currentTimeMillis() - myLastReceiveTime;
+                if (aSilenceTime < myReceiveTimeout)
+                {
+                    myReceiveTimer.change(myReceiveTimeout - aSilenceTime);
+                    return;
+                }
+            }
+            catch (Exception err)
+            {
+                EneterTrace.warning(TracedObject() + "failed to reschedule the receive timer.", err);
+            }
+            finally
+            {
+                myConnectionManipulatorLock.unlock();
+            }
+            
             cleanAfterConnection(true, true);
         }
         finally
@@ -367,6 +404,7 @@ class MonitoredDuplexOutputChannel implements IDuplexOutputChannel
             try
             {
                 // Stop timers.
+                myIsMonitoringFlag = false;
                 try
                 {
                     myPingingTimer.change(-1);
@@ -450,6 +488,10 @@ class MonitoredDuplexOutputChannel implements IDuplexOutputChannel
     private EneterTimer myReceiveTimer;
     private long myReceiveTimeout;
     
+    private boolean myIsMonitoringFlag;
+    private volatile long myLastSendTime;
+    private volatile long myLastReceiveTime;
+    
     private ISerializer mySerializer;
     private Object myPreserializedPingMessage;
 
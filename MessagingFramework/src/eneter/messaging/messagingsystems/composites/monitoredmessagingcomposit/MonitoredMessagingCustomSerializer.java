@@ -9,9 +9,10 @@
 package eneter.messaging.messagingsystems.composites.monitoredmessagingcomposit;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
 
 import eneter.messaging.dataprocessing.serializing.ISerializer;
 import eneter.messaging.dataprocessing.serializing.internal.EncoderDecoder;
@@ -36,25 +37,46 @@ class MonitoredMessagingCustomSerializer implements ISerializer
             Object aTemp = dataToSerialize;
             MonitorChannelMessage aMessage = (MonitorChannelMessage)aTemp;
 
-            ByteArrayOutputStream aStream = new ByteArrayOutputStream();
-            DataOutputStream aWriter = new DataOutputStream(aStream);
-
             // Write message type.
             byte aMessageType = (byte)aMessage.MessageType.geValue();
-            aWriter.writeByte((byte)aMessageType);
+            if (aMessage.MessageType != MonitorChannelMessageType.Message)
+            {
+                return new byte[] { aMessageType };
+            }
 
             // Write message data.
-            if (aMessage.MessageType == MonitorChannelMessageType.Message)
+            if (aMessage.MessageContent == null)
             {
-                if (aMessage.MessageContent == null)
-                {
-                    throw new IllegalStateException("Message data is null.");
-                }
+                throw new IllegalStateException("Message data is null.");
+            }
 
-                myEncoderDecoder.write(aWriter, aMessage.MessageContent, myIsLittleEndian);
+            // Note: the message data is encoded the same way as by EncoderDecoder
+            //       but it is written directly into the buffer of the final size so that data is not copied more times.
+            byte aDataType;
+            byte[] aData;
+            if (aMessage.MessageContent instanceof String)
+            {
+                aDataType = STRING_UTF8_ID;
+                aData = ((String)aMessage.MessageContent).getBytes(myUtf8);
+            }
+            else if (aMessage.MessageContent instanceof byte[])
+            {
+                aDataType = BYTES_ID;
+                aData = (byte[])aMessage.MessageContent;
+            }
+            else
+            {
+                throw new IllegalStateException("Only byte[] or String is supported.");
             }
 
-            return aStream.toByteArray();
+            ByteBuffer aBuffer = ByteBuffer.allocate(MESSAGE_HEADER_LENGTH + aData.length);
+            aBuffer.order(myIsLittleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            aBuffer.put(aMessageType);
+            aBuffer.put(aDataType);
+            aBuffer.putInt(aData.length);
+            aBuffer.put(aData);
+
+            return aBuffer.array();
         }
         finally
         {
@@ -109,6 +131,14 @@ class MonitoredMessagingCustomSerializer implements ISerializer
     }
 
     
+    // Message type, data type and data length.
+    private static final int MESSAGE_HEADER_LENGTH = 6;
+    
+    // Note: the same values as used by EncoderDecoder.
+    private static final byte STRING_UTF8_ID = 10;
+    private static final byte BYTES_ID = 40;
+    
     private boolean myIsLittleEndian = true;
+    private Charset myUtf8 = Charset.forName("UTF-8");
     private EncoderDecoder myEncoderDecoder = new EncoderDecoder();
 }
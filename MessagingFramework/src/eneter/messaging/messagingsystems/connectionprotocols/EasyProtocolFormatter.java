@@ -11,6 +11,7 @@ package eneter.messaging.messagingsystems.connectionprotocols;
 import java.io.*;
 
 import eneter.messaging.dataprocessing.serializing.internal.EncoderDecoder;
+import eneter.messaging.dataprocessing.serializing.internal.SerializationBuffer;
 import eneter.messaging.diagnostic.EneterTrace;
 
 /**
@@ -130,10 +131,14 @@ public class EasyProtocolFormatter implements IProtocolFormatter
     public Object encodeMessage(String responseReceiverId, Object message)
             throws Exception
     {
-        ByteArrayOutputStream aBuffer = new ByteArrayOutputStream();
+        // Note: if the message is byte[] the size of the encoded message is known in advance
+        //       so the buffer is allocated just once and encoded bytes are not copied.
+        SerializationBuffer aBuffer = (message instanceof byte[]) ?
+                new SerializationBuffer(1 + 4 + ((byte[])message).length) :
+                new SerializationBuffer();
         encodeMessage(responseReceiverId, message, aBuffer);
         
-        return aBuffer.toByteArray();
+        return aBuffer.detachByteArray();
     }
     
     @Override
@@ -13,6 +13,7 @@ import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 
+import eneter.messaging.dataprocessing.serializing.internal.SerializationBuffer;
 import eneter.messaging.diagnostic.EneterTrace;
 
 /**
@@ -132,10 +133,12 @@ public class EneterProtocolFormatter implements IProtocolFormatter
         EneterTrace aTrace = EneterTrace.entering();
         try
         {
-            ByteArrayOutputStream aBuffer = new ByteArrayOutputStream();
+            // Note: the size of the encoded message is known in advance so the buffer is allocated just once
+            //       and encoded bytes are not copied.
+            SerializationBuffer aBuffer = new SerializationBuffer(getEncodedMessageSize(responseReceiverId, message));
             encodeMessage(responseReceiverId, message, aBuffer);
 
-            return aBuffer.toByteArray();
+            return aBuffer.detachByteArray();
         }
         finally
         {
@@ -289,6 +292,24 @@ public class EneterProtocolFormatter implements IProtocolFormatter
     }
 
     
+    private int getEncodedMessageSize(String responseReceiverId, Object message)
+    {
+        // Header + message type + response receiver id + serialization type + message length.
+        // Note: strings are encoded in UTF-16 so every character takes 2 bytes.
+        int aSize = 8 + 1 + 4 + 2 * responseReceiverId.length() + 1 + 4;
+        
+        if (message instanceof String)
+        {
+            aSize += 2 * ((String)message).length();
+        }
+        else if (message instanceof byte[])
+        {
+            aSize += ((byte[])message).length;
+        }
+        
+        return aSize;
+    }
+    
     private void encodeHeader(DataOutputStream writer) throws Exception
     {
         //EneterTrace aTrace = EneterTrace.entering();
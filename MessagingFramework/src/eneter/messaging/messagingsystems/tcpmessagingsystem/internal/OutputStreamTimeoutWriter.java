@@ -6,7 +6,7 @@ import java.util.concurrent.TimeoutException;
 import eneter.messaging.diagnostic.EneterTrace;
 import eneter.messaging.diagnostic.internal.ThreadLock;
 import eneter.net.system.threading.internal.ManualResetEvent;
-import eneter.net.system.threading.internal.ThreadPool;
+import eneter.net.system.threading.internal.ScalableThreadPool;
 
 /**
  * Helper class allowing to use timeout when sending messages via Socket.
@@ -60,7 +60,9 @@ public class OutputStreamTimeoutWriter
                 mySendCompletedEvent.reset();
                 
                 // Start writing in another thread.
-                ThreadPool.queueUserWorkItem(myWorker);
+                // Note: the writing does not use the global thread pool because the writing could wait there
+                //       behind tasks which are blocked until this writing is completed.
+                myWritingThreadPool.execute(myWorker);
                 
                 // Wait until the writing is completed.
                 if (!mySendCompletedEvent.waitOne(timeout))
@@ -85,6 +87,12 @@ public class OutputStreamTimeoutWriter
     }
 
     
+    // Note: every writer has at most one writing in progress so the number of threads is given by the number of
+    //       connections sending at the same time. It is limited so that a burst of sending via many slow connections
+    //       does not create too many threads. Writings exceeding the limit wait for a free thread within their send timeout.
+    private static final int MAX_WRITING_THREADS = 100;
+    private static ScalableThreadPool myWritingThreadPool = new ScalableThreadPool(0, MAX_WRITING_THREADS, 5000, "Eneter.StreamWriter");
+    
     private ThreadLock myWorkerLock = new ThreadLock();
     private Worker myWorker = new Worker();
     private OutputStream myOutputStream;
@@ -0,0 +1,275 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.net.system.collections.generic.internal;
+
+import java.util.ArrayList;
+
+/**
+ * Thread safe hash map with int keys.
+ * 
+ * Keys are stored as primitive ints so they are not boxed.
+ * The map is divided into stripes. Each stripe is an open addressing hash table with its own lock
+ * so that threads accessing different keys do not block each other.
+ * Null values are not supported.
+ *
+ * @param <V> type of values
+ */
+public class ConcurrentIntHashMap<V>
+{
+    private static class Stripe
+    {
+        public Stripe(int capacity)
+        {
+            myKeys = new int[capacity];
+            myValues = new Object[capacity];
+        }
+        
+        public Object get(int key)
+        {
+            int aMask = myKeys.length - 1;
+            for (int i = slotHash(key) & aMask; myValues[i] != null; i = (i + 1) & aMask)
+            {
+                if (myKeys[i] == key)
+                {
+                    return myValues[i];
+                }
+            }
+            
+            return null;
+        }
+        
+        public Object put(int key, Object value)
+        {
+            int aMask = myKeys.length - 1;
+            int i = slotHash(key) & aMask;
+            for (; myValues[i] != null; i = (i + 1) & aMask)
+            {
+                if (myKeys[i] == key)
+                {
+                    Object anOldValue = myValues[i];
+                    myValues[i] = value;
+                    return anOldValue;
+                }
+            }
+            
+            myKeys[i] = key;
+            myValues[i] = value;
+            ++mySize;
+            
+            // Keep the load factor under 0.5 so that probing sequences stay short.
+            if (mySize * 2 > myKeys.length)
+            {
+                resize(myKeys.length * 2);
+            }
+            
+            return null;
+        }
+        
+        public Object remove(int key)
+        {
+            int aMask = myKeys.length - 1;
+            int i = slotHash(key) & aMask;
+            for (; myValues[i] != null; i = (i + 1) & aMask)
+            {
+                if (myKeys[i] == key)
+                {
+                    break;
+                }
+            }
+            
+            Object aRemovedValue = myValues[i];
+            if (aRemovedValue == null)
+            {
+                return null;
+            }
+            
+            // Shift following items of the probing sequence backwards so that no tombstones are needed.
+            int aGap = i;
+            for (int j = (i + 1) & aMask; myValues[j] != null; j = (j + 1) & aMask)
+            {
+                int aHome = slotHash(myKeys[j]) & aMask;
+                
+                // If the item at j may be moved into the gap.
+                if (((j - aHome) & aMask) >= ((j - aGap) & aMask))
+                {
+                    myKeys[aGap] = myKeys[j];
+                    myValues[aGap] = myValues[j];
+                    aGap = j;
+                }
+            }
+            myValues[aGap] = null;
+            --mySize;
+            
+            return aRemovedValue;
+        }
+        
+        public void removeAll(ArrayList<Object> removedValues)
+        {
+            for (int i = 0; i < myValues.length; ++i)
+            {
+                if (myValues[i] != null)
+                {
+                    removedValues.add(myValues[i]);
+                    myValues[i] = null;
+                }
+            }
+            mySize = 0;
+            
+            // Release memory if the stripe grew because of a peak.
+            if (myKeys.length > INITIAL_STRIPE_CAPACITY)
+            {
+                myKeys = new int[INITIAL_STRIPE_CAPACITY];
+                myValues = new Object[INITIAL_STRIPE_CAPACITY];
+            }
+        }
+        
+        public int size()
+        {
+            return mySize;
+        }
+        
+        private void resize(int capacity)
+        {
+            int[] anOldKeys = myKeys;
+            Object[] anOldValues = myValues;
+            
+            myKeys = new int[capacity];
+            myValues = new Object[capacity];
+            
+            int aMask = capacity - 1;
+            for (int i = 0; i < anOldValues.length; ++i)
+            {
+                if (anOldValues[i] != null)
+                {
+                    int j = slotHash(anOldKeys[i]) & aMask;
+                    while (myValues[j] != null)
+                    {
+                        j = (j + 1) & aMask;
+                    }
+                    myKeys[j] = anOldKeys[i];
+                    myValues[j] = anOldValues[i];
+                }
+            }
+        }
+        
+        private int[] myKeys;
+        private Object[] myValues;
+        private int mySize;
+    }
+    
+    
+    public ConcurrentIntHashMap()
+    {
+        myStripes = new Stripe[NUMBER_OF_STRIPES];
+        for (int i = 0; i < myStripes.length; ++i)
+        {
+            myStripes[i] = new Stripe(INITIAL_STRIPE_CAPACITY);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    public V get(int key)
+    {
+        Stripe aStripe = getStripe(key);
+        synchronized (aStripe)
+        {
+            return (V)aStripe.get(key);
+        }
+    }
+    
+    /**
+     * Puts the value under the key.
+     * @return previous value stored under the key or null.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value)
+    {
+        if (value == null)
+        {
+            throw new IllegalArgumentException("The input parameter value is null.");
+        }
+        
+        Stripe aStripe = getStripe(key);
+        synchronized (aStripe)
+        {
+            return (V)aStripe.put(key, value);
+        }
+    }
+    
+    /**
+     * Removes the value stored under the key.
+     * @return removed value or null if the key was not found.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key)
+    {
+        Stripe aStripe = getStripe(key);
+        synchronized (aStripe)
+        {
+            return (V)aStripe.remove(key);
+        }
+    }
+    
+    /**
+     * Removes all values and returns them.
+     * Each stripe is locked only once.
+     */
+    @SuppressWarnings("unchecked")
+    public ArrayList<V> removeAll()
+    {
+        ArrayList<Object> aRemovedValues = new ArrayList<Object>();
+        for (Stripe aStripe : myStripes)
+        {
+            synchronized (aStripe)
+            {
+                aStripe.removeAll(aRemovedValues);
+            }
+        }
+        
+        return (ArrayList<V>)(ArrayList<?>)aRemovedValues;
+    }
+    
+    public int size()
+    {
+        int aSize = 0;
+        for (Stripe aStripe : myStripes)
+        {
+            synchronized (aStripe)
+            {
+                aSize += aStripe.size();
+            }
+        }
+        
+        return aSize;
+    }
+    
+    private Stripe getStripe(int key)
+    {
+        return myStripes[mix(key) & (NUMBER_OF_STRIPES - 1)];
+    }
+    
+    // Note: the lowest bits of the mixed key select the stripe and remaining bits select the slot within the stripe.
+    private static int slotHash(int key)
+    {
+        return mix(key) >>> STRIPE_BITS;
+    }
+    
+    private static int mix(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+    
+    
+    private static final int STRIPE_BITS = 4;
+    private static final int NUMBER_OF_STRIPES = 1 << STRIPE_BITS;
+    private static final int INITIAL_STRIPE_CAPACITY = 16;
+    
+    private final Stripe[] myStripes;
+}
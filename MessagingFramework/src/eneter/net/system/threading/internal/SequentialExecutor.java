@@ -0,0 +1,90 @@
+/**
+ * Project: Eneter.Messaging.Framework
+ * Author: Ondrej Uzovic
+ * 
+ * Copyright  2018 Ondrej Uzovic
+ * 
+ */
+
+package eneter.net.system.threading.internal;
+
+import java.util.ArrayDeque;
+
+import eneter.messaging.diagnostic.EneterTrace;
+
+/**
+ * Executes tasks one by one in the order they were queued.
+ * Tasks are executed by threads from the given thread pool so that many sequential executors
+ * can share the limited number of threads. No thread is occupied if there are no tasks.
+ */
+public class SequentialExecutor
+{
+    public SequentialExecutor(ScalableThreadPool threadPool)
+    {
+        myThreadPool = threadPool;
+    }
+    
+    public void execute(Runnable task)
+    {
+        synchronized (myTasks)
+        {
+            myTasks.add(task);
+            
+            // If tasks are already being processed then the task will be taken from the queue.
+            if (myIsProcessing)
+            {
+                return;
+            }
+            myIsProcessing = true;
+        }
+        
+        myThreadPool.execute(myProcessTasks);
+    }
+    
+    private void processTasks()
+    {
+        // Note: after the limited number of tasks the thread is returned back to the pool
+        //       so that other executors sharing the pool are not starved.
+        for (int i = 0; i < MAX_TASKS_PER_TURN; ++i)
+        {
+            Runnable aTask;
+            synchronized (myTasks)
+            {
+                aTask = myTasks.poll();
+                if (aTask == null)
+                {
+                    myIsProcessing = false;
+                    return;
+                }
+            }
+            
+            try
+            {
+                aTask.run();
+            }
+            catch (Exception err)
+            {
+                EneterTrace.error(getClass().getSimpleName() + " detected an exception from the executed task.", err);
+            }
+        }
+        
+        // Continue processing remaining tasks in the next turn.
+        myThreadPool.execute(myProcessTasks);
+    }
+    
+    
+    private static final int MAX_TASKS_PER_TURN = 32;
+    
+    private ScalableThreadPool myThreadPool;
+    private ArrayDeque<Runnable> myTasks = new ArrayDeque<Runnable>();
+    private boolean myIsProcessing;
+    
+    private Runnable myProcessTasks = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            processTasks();
+        }
+    };
+}
@@ -2,6 +2,12 @@ package eneter.messaging.dataprocessing.serializing;
 
 import static org.junit.Assert.*;
 
+import javax.crypto.*;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import helper.PerformanceTimer;
+
 import org.junit.*;
 
 public class Test_AesSerializer
@@ -35,4 +41,125 @@ public class Test_AesSerializer
         assertEquals((int)10, aDeserializedData[0]);
         assertEquals("Hello", aDeserializedData[1]);
     }
+    
+    @Test
+    public void SerializeDeserializeWithGcm() throws Exception
+    {
+        Object[] aDataToSerialize = {(int)10, "Hello"};
+        
+        AesSerializer aSerializer = new AesSerializer("MyPassword", new JavaBinarySerializer()).setGcmMode(true);
+        Object aSerializedData1 = aSerializer.serialize(aDataToSerialize, Object[].class);
+        Object aSerializedData2 = aSerializer.serialize(aDataToSerialize, Object[].class);
+        
+        // Every message is encrypted with a different nonce.
+        assertFalse(java.util.Arrays.equals((byte[])aSerializedData1, (byte[])aSerializedData2));
+        
+        Object[] aDeserializedData = aSerializer.deserialize(aSerializedData2, Object[].class);
+        
+        assertEquals(2, aDeserializedData.length);
+        assertEquals((int)10, aDeserializedData[0]);
+        assertEquals("Hello", aDeserializedData[1]);
+    }
+    
+    @Test(expected = AEADBadTagException.class)
+    public void DetectModifiedDataWithGcm() throws Exception
+    {
+        AesSerializer aSerializer = new AesSerializer("MyPassword").setGcmMode(true);
+        byte[] aSerializedData = (byte[])aSerializer.serialize("Hello", String.class);
+        
+        // Modify encrypted data.
+        aSerializedData[aSerializedData.length / 2] ^= 1;
+        
+        aSerializer.deserialize(aSerializedData, String.class);
+    }
+    
+    @Test
+    public void SerializeDeserializeFromMoreThreads() throws Throwable
+    {
+        final AesSerializer aCbcSerializer = new AesSerializer("MyPassword", new JavaBinarySerializer());
+        final AesSerializer aGcmSerializer = new AesSerializer("MyPassword", new JavaBinarySerializer()).setGcmMode(true);
+        final Throwable[] anError = {null};
+        
+        Thread[] aThreads = new Thread[10];
+        for (int i = 0; i < aThreads.length; ++i)
+        {
+            final String aMessage = "Hello" + i;
+            aThreads[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for (int j = 0; j < 1000; ++j)
+                        {
+                            Object aCbcData = aCbcSerializer.serialize(aMessage, String.class);
+                            assertEquals(aMessage, aCbcSerializer.deserialize(aCbcData, String.class));
+                            
+                            Object aGcmData = aGcmSerializer.serialize(aMessage, String.class);
+                            assertEquals(aMessage, aGcmSerializer.deserialize(aGcmData, String.class));
+                        }
+                    }
+                    // Note: failed assertions throw AssertionError so Throwable must be caught.
+                    catch (Throwable err)
+                    {
+                        anError[0] = err;
+                    }
+                }
+            });
+            aThreads[i].start();
+        }
+        
+        for (Thread aThread : aThreads)
+        {
+            aThread.join();
+        }
+        
+        if (anError[0] != null)
+        {
+            throw anError[0];
+        }
+    }
+    
+    @Test
+    public void Performance() throws Exception
+    {
+        byte[] aData = new byte[1000];
+        int aCount = 20000;
+        
+        SecretKey aKey = new SecretKeySpec(new byte[16], "AES");
+        IvParameterSpec anIv = new IvParameterSpec(new byte[16]);
+        AesSerializer aCbcSerializer = new AesSerializer(aKey, anIv, new JavaBinarySerializer());
+        AesSerializer aGcmSerializer = new AesSerializer(aKey, anIv, new JavaBinarySerializer()).setGcmMode(true);
+        byte[] aSerializedData = (byte[])new JavaBinarySerializer().serialize(aData, byte[].class);
+        
+        PerformanceTimer aTimer = new PerformanceTimer();
+        
+        // The previous implementation: the cipher is created for every message.
+        System.out.println("Cipher created for every message:");
+        aTimer.start();
+        for (int i = 0; i < aCount; ++i)
+        {
+            Cipher aCipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            aCipher.init(Cipher.ENCRYPT_MODE, aKey, anIv);
+            aCipher.doFinal(aSerializedData);
+        }
+        aTimer.stop();
+        
+        System.out.println("AesSerializer CBC:");
+        aTimer.start();
+        for (int i = 0; i < aCount; ++i)
+        {
+            aCbcSerializer.serialize(aData, byte[].class);
+        }
+        aTimer.stop();
+        
+        System.out.println("AesSerializer GCM:");
+        aTimer.start();
+        for (int i = 0; i < aCount; ++i)
+        {
+            aGcmSerializer.serialize(aData, byte[].class);
+        }
+        aTimer.stop();
+    }
 }
@@ -0,0 +1,147 @@
+package eneter.messaging.dataprocessing.serializing;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.*;
+
+public class Test_CompressingSerializer
+{
+    @Test
+    public void SerializeLongStringWithXml() throws Exception
+    {
+        ISerializer aTestedSerializer = new CompressingSerializer(new XmlStringSerializer());
+
+        String aLongString = createLongString();
+
+        byte[] aSerializedData = (byte[])aTestedSerializer.serialize(aLongString, String.class);
+        assertTrue(aSerializedData.length < aLongString.length());
+
+        String aDeserializedLongString = aTestedSerializer.deserialize(aSerializedData, String.class);
+
+        assertEquals(aLongString, aDeserializedLongString);
+    }
+
+    @Test
+    public void SerializeLongStringWithBin() throws Exception
+    {
+        ISerializer aTestedSerializer = new CompressingSerializer(new JavaBinarySerializer());
+
+        String aLongString = createLongString();
+
+        byte[] aSerializedData = (byte[])aTestedSerializer.serialize(aLongString, String.class);
+        assertTrue(aSerializedData.length < aLongString.length());
+
+        String aDeserializedLongString = aTestedSerializer.deserialize(aSerializedData, String.class);
+
+        assertEquals(aLongString, aDeserializedLongString);
+    }
+
+    @Test
+    public void SerializeRandomData() throws Exception
+    {
+        ISerializer aTestedSerializer = new CompressingSerializer(new JavaBinarySerializer());
+
+        Random aRandom = new Random(10);
+        for (int aLength = 0; aLength < 3000; aLength += 97)
+        {
+            byte[] aData = new byte[aLength];
+            aRandom.nextBytes(aData);
+
+            // Make part of data repetitive.
+            for (int i = aLength / 2; i < aLength; ++i)
+            {
+                aData[i] = aData[i % 20];
+            }
+
+            Object aSerializedData = aTestedSerializer.serialize(aData, byte[].class);
+            byte[] aDeserializedData = aTestedSerializer.deserialize(aSerializedData, byte[].class);
+
+            assertArrayEquals(aData, aDeserializedData);
+        }
+    }
+
+    @Test
+    public void SerializeSmallMessageWithDictionary() throws Exception
+    {
+        XmlStringSerializer anXmlSerializer = new XmlStringSerializer();
+
+        String aSample = (String)anXmlSerializer.serialize(new Object[] {(int)10, "Hello"}, Object[].class);
+        byte[] aDictionary = aSample.getBytes("UTF-16BE");
+
+        ISerializer aSerializer = new CompressingSerializer(anXmlSerializer, new Lz4CompressionCodec());
+        ISerializer aDictionarySerializer = new CompressingSerializer(anXmlSerializer, new Lz4CompressionCodec((byte)16, aDictionary));
+
+        Object[] aDataToSerialize = {(int)20, "World"};
+        byte[] aSerializedData = (byte[])aSerializer.serialize(aDataToSerialize, Object[].class);
+        byte[] aSerializedDataWithDictionary = (byte[])aDictionarySerializer.serialize(aDataToSerialize, Object[].class);
+
+        assertTrue(aSerializedDataWithDictionary.length < aSerializedData.length / 2);
+
+        Object[] aDeserializedData = aDictionarySerializer.deserialize(aSerializedDataWithDictionary, Object[].class);
+        assertEquals(2, aDeserializedData.length);
+        assertEquals((int)20, aDeserializedData[0]);
+        assertEquals("World", aDeserializedData[1]);
+    }
+
+    @Test
+    public void DeserializeMixedCodecs() throws Exception
+    {
+        ISerializer aGZipSender = new CompressingSerializer(new XmlStringSerializer(), new GZipCompressionCodec());
+        ISerializer aLz4Sender = new CompressingSerializer(new XmlStringSerializer(), new Lz4CompressionCodec());
+        ISerializer aReceiver = new CompressingSerializer(new XmlStringSerializer());
+
+        String aLongString = createLongString();
+
+        Object aGZipData = aGZipSender.serialize(aLongString, String.class);
+        Object aLz4Data = aLz4Sender.serialize(aLongString, String.class);
+
+        assertEquals(GZipCompressionCodec.CODEC_ID, ((byte[])aGZipData)[0]);
+        assertEquals(Lz4CompressionCodec.CODEC_ID, ((byte[])aLz4Data)[0]);
+
+        assertEquals(aLongString, aReceiver.deserialize(aGZipData, String.class));
+        assertEquals(aLongString, aReceiver.deserialize(aLz4Data, String.class));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void DeserializeUnknownCodec() throws Exception
+    {
+        ISerializer aSender = new CompressingSerializer(new XmlStringSerializer(), new Lz4CompressionCodec((byte)20, new byte[] {1, 2, 3, 4}));
+        ISerializer aReceiver = new CompressingSerializer(new XmlStringSerializer());
+
+        Object aSerializedData = aSender.serialize(createLongString(), String.class);
+        aReceiver.deserialize(aSerializedData, String.class);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void DeserializeIncorrectLength() throws Exception
+    {
+        ICompressionCodec aCodec = new Lz4CompressionCodec();
+
+        // The length of decompressed data is negative.
+        byte[] aCompressedData = { (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x0F, 0x10, 0x41 };
+        aCodec.decompress(aCompressedData, 0, aCompressedData.length);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void DeserializeTooLongLength() throws Exception
+    {
+        ICompressionCodec aCodec = new Lz4CompressionCodec();
+
+        // The length of decompressed data cannot be produced from such short data.
+        byte[] aCompressedData = { (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x07, 0x10, 0x41 };
+        aCodec.decompress(aCompressedData, 0, aCompressedData.length);
+    }
+
+    private String createLongString()
+    {
+        StringBuilder aStringBuilder = new StringBuilder(32100);
+        for (int i = 0; i < 32000; ++i)
+        {
+            aStringBuilder.append((char)('A' + (i % 7)));
+        }
+
+        return aStringBuilder.toString();
+    }
+}
@@ -2,7 +2,9 @@ package eneter.messaging.dataprocessing.serializing;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 
 import org.junit.Test;
 
@@ -43,4 +45,25 @@ public class Test_JavaBinarySerializer
         assertEquals(aData.myNumber, aDeserializedData.myNumber);
         assertEquals(aData.myString, aDeserializedData.myString);
     }
+    
+    @Test
+    public void serializeToOutputDeserializeFromBuffer() throws Exception
+    {
+        IByteBufferSerializer aSerializer = new CompressingSerializer(new AesSerializer("MyPassword", new JavaBinarySerializer()));
+        
+        // Serialized data is written after some other data.
+        ByteArrayOutputStream anOutput = new ByteArrayOutputStream();
+        anOutput.write(new byte[] {1, 2, 3});
+        aSerializer.serialize("Hello", String.class, anOutput);
+        byte[] aSerializedData = (byte[])aSerializer.serialize("Hello", String.class);
+        
+        byte[] aWrittenData = anOutput.toByteArray();
+        assertEquals(3 + aSerializedData.length, aWrittenData.length);
+        
+        // Deserialize data from the part of the buffer.
+        ByteBuffer aBuffer = ByteBuffer.wrap(aWrittenData, 3, aWrittenData.length - 3);
+        String aDeserializedData = aSerializer.deserialize(aBuffer, String.class);
+        
+        assertEquals("Hello", aDeserializedData);
+    }
 }
@@ -1,6 +1,6 @@
 package eneter.messaging.dataprocessing.serializing;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
@@ -31,4 +31,46 @@ public class Test_RsaSerializer
         assertEquals((int)10, aDeserializedData[0]);
         assertEquals("Hello", aDeserializedData[1]);
     }
+    
+    @Test
+    public void SerializeDeserializeWithSessionKey() throws Exception
+    {
+        KeyPairGenerator aKeyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        aKeyPairGenerator.initialize(1024);
+        KeyPair aKeyPair = aKeyPairGenerator.generateKeyPair();
+        RSAPrivateKey aPrivateKey = (RSAPrivateKey)aKeyPair.getPrivate();
+        RSAPublicKey aPublicKey = (RSAPublicKey)aKeyPair.getPublic();
+        
+        RsaSerializer aSender = new RsaSerializer(aPublicKey, null, 128, new JavaBinarySerializer())
+            .setSessionKeyRotation(3, 0);
+        RsaSerializer aReceiver = new RsaSerializer(null, aPrivateKey, 128, new JavaBinarySerializer());
+        JavaBinarySerializer aBinarySerializer = new JavaBinarySerializer();
+        
+        byte[] aPreviousKey = null;
+        for (int i = 0; i < 6; ++i)
+        {
+            Object aSerializedData = aSender.serialize("Hello" + i, String.class);
+            
+            // Check the session key is rotated after 3 messages.
+            byte[][] aData = aBinarySerializer.deserialize(aSerializedData, byte[][].class);
+            assertEquals(0, aData[1].length);
+            if (i % 3 == 0)
+            {
+                assertFalse(java.util.Arrays.equals(aPreviousKey, aData[0]));
+            }
+            else
+            {
+                assertArrayEquals(aPreviousKey, aData[0]);
+            }
+            aPreviousKey = aData[0];
+            
+            String aDeserializedData = aReceiver.deserialize(aSerializedData, String.class);
+            assertEquals("Hello" + i, aDeserializedData);
+        }
+        
+        // The receiver still understands messages without the session key.
+        RsaSerializer aSenderWithoutSession = new RsaSerializer(aPublicKey, null, 128, new JavaBinarySerializer());
+        Object aSerializedData = aSenderWithoutSession.serialize("Hello", String.class);
+        assertEquals("Hello", aReceiver.deserialize(aSerializedData, String.class));
+    }
 }
@@ -26,13 +26,19 @@ public abstract class MultiTypedMessagesBaseTester
     }
     
     protected void Setup(IMessagingSystemFactory messagingSystemFactory, String channelId, ISerializer serializer) throws Exception
+    {
+        Setup(messagingSystemFactory, channelId, serializer, false);
+    }
+    
+    protected void Setup(IMessagingSystemFactory messagingSystemFactory, String channelId, ISerializer serializer, boolean isCompactMessageFormat) throws Exception
     {
         MessagingSystemFactory = messagingSystemFactory;
 
         DuplexOutputChannel = MessagingSystemFactory.createDuplexOutputChannel(channelId);
         DuplexInputChannel = MessagingSystemFactory.createDuplexInputChannel(channelId);
 
-        IMultiTypedMessagesFactory aMessageFactory = new MultiTypedMessagesFactory(serializer);
+        IMultiTypedMessagesFactory aMessageFactory = new MultiTypedMessagesFactory(serializer)
+            .setCompactMessageFormat(isCompactMessageFormat);
         Requester = aMessageFactory.createMultiTypedMessageSender();
         Responser = aMessageFactory.createMultiTypedMessageReceiver();
     }
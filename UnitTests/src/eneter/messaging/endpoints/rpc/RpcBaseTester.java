@@ -5,7 +5,11 @@ import static org.hamcrest.CoreMatchers.*;
 import helper.EventWaitHandleExt;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.junit.*;
@@ -38,6 +42,18 @@ public abstract class RpcBaseTester
         void HelloVoid();
         void Fail() throws IllegalStateException;
         void Timeout() throws TimeoutException;
+        
+        // If count is negative the stream fails after the absolute count of items.
+        RpcStream<Integer> Range(int from, int count);
+    }
+    
+    // Client side interface calling IHello methods asynchronously.
+    public static interface IHelloAsync
+    {
+        RpcFuture<Integer> Sum(int a, int b);
+        Future<String> CreateString(String src);
+        RpcFuture<Void> Fail();
+        RpcFuture<Void> Timeout();
     }
     
     public class HelloService implements IHello
@@ -106,6 +122,37 @@ public abstract class RpcBaseTester
             }
         }
         
+        @Override
+        public RpcStream<Integer> Range(final int from, final int count)
+        {
+            return new RpcStream<Integer>(new Iterator<Integer>()
+            {
+                @Override
+                public boolean hasNext()
+                {
+                    if (count < 0 && myNext - from == -count)
+                    {
+                        throw new IllegalStateException("My testing exception.");
+                    }
+                    return count < 0 || myNext - from < count;
+                }
+
+                @Override
+                public Integer next()
+                {
+                    return myNext++;
+                }
+
+                @Override
+                public void remove()
+                {
+                    throw new UnsupportedOperationException();
+                }
+                
+                private int myNext = from;
+            });
+        }
+        
         public void raiseOpen(String openArgs) throws Exception
         {
             if (myOpenEvent.isSubscribed())
@@ -325,6 +372,483 @@ public abstract class RpcBaseTester
         }
     }
     
+    @Test
+    public void rpcCallAsync() throws Exception
+    {
+        RpcFactory anRpcFactory = new RpcFactory(mySerializer);
+        IRpcService<IHello> anRpcService = anRpcFactory.createSingleInstanceService(new HelloService(), IHello.class);
+        IRpcClient<IHelloAsync> anRpcClient = anRpcFactory.createClient(IHelloAsync.class);
+
+        try
+        {
+            anRpcService.attachDuplexInputChannel(myMessaging.createDuplexInputChannel(myChannelId));
+            anRpcClient.attachDuplexOutputChannel(myMessaging.createDuplexOutputChannel(myChannelId));
+
+            IHelloAsync aServiceProxy = anRpcClient.getProxy();
+            
+            final ManualResetEvent aCompletedEvent = new ManualResetEvent(false);
+            final int[] aCallbackResult = { 0 };
+            RpcFuture<Integer> aSum = aServiceProxy.Sum(1, 2).whenCompleted(new IMethod1<RpcFuture<Integer>>()
+            {
+                @Override
+                public void invoke(RpcFuture<Integer> future) throws Exception
+                {
+                    aCallbackResult[0] = future.get();
+                    aCompletedEvent.set();
+                }
+            });
+            Future<String> aString = aServiceProxy.CreateString("Hello");
+            
+            assertEquals(3, (int)aSum.get());
+            assertEquals("Hello", aString.get());
+            
+            EventWaitHandleExt.waitIfNotDebugging(aCompletedEvent, 1000);
+            assertEquals(3, aCallbackResult[0]);
+            
+            // Dynamic call.
+            RpcFuture<Integer> aDynamicSum = anRpcClient.callRemoteMethodAsync("Sum", new Object[] {3, 4});
+            assertEquals(7, (int)aDynamicSum.get());
+        }
+        finally
+        {
+            if (anRpcClient.isDuplexOutputChannelAttached())
+            {
+                anRpcClient.detachDuplexOutputChannel();
+            }
+
+            if (anRpcService.isDuplexInputChannelAttached())
+            {
+                anRpcService.detachDuplexInputChannel();
+            }
+        }
+    }
+    
+    @Test
+    public void rpcCallAsyncError() throws Exception
+    {
+        RpcFactory anRpcFactory = new RpcFactory(mySerializer);
+        IRpcService<IHello> anRpcService = anRpcFactory.createSingleInstanceService(new HelloService(), IHello.class);
+        IRpcClient<IHelloAsync> anRpcClient = anRpcFactory.createClient(IHelloAsync.class);
+
+        Throwable anError = null;
+        try
+        {
+            anRpcService.attachDuplexInputChannel(myMessaging.createDuplexInputChannel(myChannelId));
+            anRpcClient.attachDuplexOutputChannel(myMessaging.createDuplexOutputChannel(myChannelId));
+
+            anRpcClient.getProxy().Fail().get();
+        }
+        catch (ExecutionException err)
+        {
+            anError = err.getCause();
+        }
+        finally
+        {
+            if (anRpcClient.isDuplexOutputChannelAttached())
+            {
+                anRpcClient.detachDuplexOutputChannel();
+            }
+
+            if (anRpcService.isDuplexInputChannelAttached())
+            {
+                anRpcService.detachDuplexInputChannel();
+            }
+        }
+        
+        assertTrue(anError instanceof RpcException);
+        assertEquals("IllegalStateException", ((RpcException)anError).getServiceExceptionType());
+    }
+    
+    @Test
+    public void rpcCallAsyncTimeout() throws Exception
+    {
+        RpcFactory anRpcFactory = new RpcFactory(mySerializer)
+            .setRpcTimeout(500);
+        IRpcService<IHello> anRpcService = anRpcFactory.createSingleInstanceService(new HelloService(), IHello.class);
+        IRpcClient<IHelloAsync> anRpcClient = anRpcFactory.createClient(IHelloAsync.class);
+
+        try
+        {
+            anRpcService.attachDuplexInputChannel(myMessaging.createDuplexInputChannel(myChannelId));
+            anRpcClient.attachDuplexOutputChannel(myMessaging.createDuplexOutputChannel(myChannelId));
+
+            RpcFuture<Void> aFuture = anRpcClient.getProxy().Timeout();
+            
+            try
+            {
+                aFuture.get();
+                fail("TimeoutException was expected.");
+            }
+            catch (ExecutionException err)
+            {
+                assertTrue(err.getCause() instanceof TimeoutException);
+            }
+        }
+        finally
+        {
+            if (anRpcClient.isDuplexOutputChannelAttached())
+            {
+                anRpcClient.detachDuplexOutputChannel();
+            }
+
+            if (anRpcService.isDuplexInputChannelAttached())
+            {
+                anRpcService.detachDuplexInputChannel();
+            }
+        }
+    }
+    
+    @Test
+    public void rpcCallAsync_10000() throws Exception
+    {
+        RpcFactory anRpcFactory = new RpcFactory(mySerializer);
+        IRpcService<IHello> anRpcService = anRpcFactory.createSingleInstanceService(new HelloService(), IHello.class);
+        IRpcClient<IHelloAsync> anRpcClient = anRpcFactory.createClient(IHelloAsync.class);
+
+        try
+        {
+            anRpcService.attachDuplexInputChannel(myMessaging.createDuplexInputChannel(myChannelId));
+            anRpcClient.attachDuplexOutputChannel(myMessaging.createDuplexOutputChannel(myChannelId));
+
+            IHelloAsync aServiceProxy = anRpcClient.getProxy();
+            
+            long aStartTime = System.currentTimeMillis();
+            
+            // Issue all calls from one thread and then collect results.
+            ArrayList<RpcFuture<Integer>> aFutures = new ArrayList<RpcFuture<Integer>>();
+            for (int i = 0; i < 10000; ++i)
+            {
+                aFutures.add(aServiceProxy.Sum(i, 1));
+            }
+            
+            for (int i = 0; i < aFutures.size(); ++i)
+            {
+                assertEquals(i + 1, (int)aFutures.get(i).get());
+            }
+            
+            long aDeltaTime = System.currentTimeMillis() - aStartTime;
+            System.out.println("Async rpc call. Elapsed time: " + Long.toString(aDeltaTime));
+        }
+        finally
+        {
+            if (anRpcClient.isDuplexOutputChannelAttached())
+            {
+                anRpcClient.detachDuplexOutputChannel();
+            }
+
+            if (anRpcService.isDuplexInputChannelAttached())
+            {
+                anRpcService.detachDuplexInputChannel();
+            }
+        }
+    }
+    
+    @Test
+    public void rpcCallAsyncBatched_10000() throws Exception
+    {
+        RpcFactory anRpcFactory = new RpcFactory(mySerializer)
+            .setBatchingWindow(5)
+            .setMaxBatchSize(50)
+            .setBatchParallelism(4);
+        IRpcService<IHello> anRpcService = anRpcFactory.createSingleInstanceService(new HelloService(), IHello.class);
+        IRpcClient<IHelloAsync> anRpcClient = anRpcFactory.createClient(IHelloAsync.class);
+
+        try
+        {
+            anRpcService.attachDuplexInputChannel(myMessaging.createDuplexInputChannel(myChannelId));
+            anRpcClient.attachDuplexOutputChannel(myMessaging.createDuplexOutputChannel(myChannelId));
+
+            IHelloAsync aServiceProxy = anRpcClient.getProxy();
+            
+            // Single call is sent when the batching window elapses.
+            assertEquals(3, (int)aServiceProxy.Sum(1, 2).get());
+            
+            // Error from the batched call is delivered to the caller.
+            RpcFuture<Void> aFailingCall = aServiceProxy.Fail();
+            try
+            {
+                aFailingCall.get();
+                fail("Exception was expected.");
+            }
+            catch (ExecutionException err)
+            {
+                assertTrue(err.getCause() instanceof RpcException);
+            }
+            
+            long aStartTime = System.currentTimeMillis();
+            
+            ArrayList<RpcFuture<Integer>> aFutures = new ArrayList<RpcFuture<Integer>>();
+            for (int i = 0; i < 10000; ++i)
+            {
+                aFutures.add(aServiceProxy.Sum(i, 1));
+            }
+            
+            for (int i = 0; i < aFutures.size(); ++i)
+            {
+                assertEquals(i + 1, (int)aFutures.get(i).get());
+            }
+            
+            long aDeltaTime = System.currentTimeMillis() - aStartTime;
+            System.out.println("Batched async rpc call. Elapsed time: " + Long.toString(aDeltaTime));
+        }
+        finally
+        {
+            if (anRpcClient.isDuplexOutputChannelAttached())
+            {
+                anRpcClient.detachDuplexOutputChannel();
+            }
+
+            if (anRpcService.isDuplexInputChannelAttached())
+            {
+                anRpcService.detachDuplexInputChannel();
+            }
+        }
+    }
+    
+    @Test
+    public void rpcParallelExecution() throws Exception
+    {
+        RpcFactory anRpcFactory = new RpcFactory(mySerializer)
+            .setRpcServiceExecution(ERpcServiceExecution.Parallel)
+            .setRpcServiceMaxThreads(4);
+        IRpcService<IHello> anRpcService = anRpcFactory.createSingleInstanceService(new HelloService(), IHello.class);
+        IRpcClient<IHelloAsync> anRpcClient = anRpcFactory.createClient(IHelloAsync.class);
+
+        try
+        {
+            anRpcService.attachDuplexInputChannel(myMessaging.createDuplexInputChannel(myChannelId));
+            anRpcClient.attachDuplexOutputChannel(myMessaging.createDuplexOutputChannel(myChannelId));
+
+            IHelloAsync aServiceProxy = anRpcClient.getProxy();
+            
+            // Slow call does not block the next call from the same client.
+            RpcFuture<Void> aSlowCall = aServiceProxy.Timeout();
+            assertEquals(3, (int)aServiceProxy.Sum(1, 2).get(1000, TimeUnit.MILLISECONDS));
+            assertFalse(aSlowCall.isDone());
+            
+            aSlowCall.get();
+        }
+        finally
+        {
+            if (anRpcClient.isDuplexOutputChannelAttached())
+            {
+                anRpcClient.detachDuplexOutputChannel();
+            }
+
+            if (anRpcService.isDuplexInputChannelAttached())
+            {
+                anRpcService.detachDuplexInputChannel();
+            }
+        }
+    }
+    
+    @Test
+    public void rpcPerClientSequentialExecution() throws Exception
+    {
+        RpcFactory anRpcFactory = new RpcFactory(mySerializer)
+            .setRpcServiceExecution(ERpcServiceExecution.PerClientSequential)
+            .setRpcServiceMaxThreads(4);
+        IRpcService<IHello> anRpcService = anRpcFactory.createSingleInstanceService(new HelloService(), IHello.class);
+        IRpcClient<IHelloAsync> anRpcClient1 = anRpcFactory.createClient(IHelloAsync.class);
+        IRpcClient<IHelloAsync> anRpcClient2 = anRpcFactory.createClient(IHelloAsync.class);
+
+        try
+        {
+            anRpcService.attachDuplexInputChannel(myMessaging.createDuplexInputChannel(myChannelId));
+            anRpcClient1.attachDuplexOutputChannel(myMessaging.createDuplexOutputChannel(myChannelId));
+            anRpcClient2.attachDuplexOutputChannel(myMessaging.createDuplexOutputChannel(myChannelId));
+
+            // Slow call from the first client.
+            RpcFuture<Void> aSlowCall = anRpcClient1.getProxy().Timeout();
+            RpcFuture<Integer> aNextCall = anRpcClient1.getProxy().Sum(1, 2);
+            
+            // Call from the second client is not blocked.
+            assertEquals(7, (int)anRpcClient2.getProxy().Sum(3, 4).get(1000, TimeUnit.MILLISECONDS));
+            assertFalse(aSlowCall.isDone());
+            
+            // Calls from the first client are executed in order.
+            assertEquals(3, (int)aNextCall.get());
+            assertTrue(aSlowCall.isDone());
+        }
+        finally
+        {
+            if (anRpcClient1.isDuplexOutputChannelAttached())
+            {
+                anRpcClient1.detachDuplexOutputChannel();
+            }
+            
+            if (anRpcClient2.isDuplexOutputChannelAttached())
+            {
+                anRpcClient2.detachDuplexOutputChannel();
+            }
+
+            if (anRpcService.isDuplexInputChannelAttached())
+            {
+                anRpcService.detachDuplexInputChannel();
+            }
+        }
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void rpcSetExecutionWhenAttached() throws Exception
+    {
+        RpcFactory anRpcFactory = new RpcFactory(mySerializer);
+        RpcService<IHello> anRpcService = (RpcService<IHello>)anRpcFactory.createSingleInstanceService(new HelloService(), IHello.class);
+
+        try
+        {
+            anRpcService.attachDuplexInputChannel(myMessaging.createDuplexInputChannel(myChannelId));
+            
+            // Executors of connected clients would keep using the previous thread pool.
+            anRpcService.setExecution(ERpcServiceExecution.Parallel, 4);
+        }
+        finally
+        {
+            if (anRpcService.isDuplexInputChannelAttached())
+            {
+                anRpcService.detachDuplexInputChannel();
+            }
+        }
+    }
+    
+    @Test
+    public void rpcStream_10000() throws Exception
+    {
+        RpcFactory anRpcFactory = new RpcFactory(mySerializer)
+            .setStreamChunkSize(50)
+            .setStreamCreditWindow(2);
+        IRpcService<IHello> anRpcService = anRpcFactory.createSingleInstanceService(new HelloService(), IHello.class);
+        IRpcClient<IHello> anRpcClient = anRpcFactory.createClient(IHello.class);
+
+        try
+        {
+            anRpcService.attachDuplexInputChannel(myMessaging.createDuplexInputChannel(myChannelId));
+            anRpcClient.attachDuplexOutputChannel(myMessaging.createDuplexOutputChannel(myChannelId));
+
+            IHello aServiceProxy = anRpcClient.getProxy();
+            
+            int anExpected = 5;
+            for (Integer anItem : aServiceProxy.Range(5, 10000))
+            {
+                assertEquals(anExpected++, (int)anItem);
+            }
+            assertEquals(10005, anExpected);
+            
+            // Empty stream.
+            assertFalse(aServiceProxy.Range(0, 0).iterator().hasNext());
+        }
+        finally
+        {
+            if (anRpcClient.isDuplexOutputChannelAttached())
+            {
+                anRpcClient.detachDuplexOutputChannel();
+            }
+
+            if (anRpcService.isDuplexInputChannelAttached())
+            {
+                anRpcService.detachDuplexInputChannel();
+            }
+        }
+    }
+    
+    @Test
+    public void rpcStreamBatched() throws Exception
+    {
+        RpcFactory anRpcFactory = new RpcFactory(mySerializer)
+            .setBatchingWindow(5)
+            .setStreamChunkSize(50);
+        IRpcService<IHello> anRpcService = anRpcFactory.createSingleInstanceService(new HelloService(), IHello.class);
+        IRpcClient<IHello> anRpcClient = anRpcFactory.createClient(IHello.class);
+
+        try
+        {
+            anRpcService.attachDuplexInputChannel(myMessaging.createDuplexInputChannel(myChannelId));
+            anRpcClient.attachDuplexOutputChannel(myMessaging.createDuplexOutputChannel(myChannelId));
+
+            IHello aServiceProxy = anRpcClient.getProxy();
+            
+            // The stream request is sent in the batch but the stream itself is not part of the batch response.
+            int anExpected = 0;
+            for (Integer anItem : aServiceProxy.Range(0, 1000))
+            {
+                assertEquals(anExpected++, (int)anItem);
+            }
+            assertEquals(1000, anExpected);
+            
+            assertEquals(3, aServiceProxy.Sum(1, 2));
+        }
+        finally
+        {
+            if (anRpcClient.isDuplexOutputChannelAttached())
+            {
+                anRpcClient.detachDuplexOutputChannel();
+            }
+
+            if (anRpcService.isDuplexInputChannelAttached())
+            {
+                anRpcService.detachDuplexInputChannel();
+            }
+        }
+    }
+    
+    @Test
+    public void rpcStreamCloseAndError() throws Exception
+    {
+        RpcFactory anRpcFactory = new RpcFactory(mySerializer)
+            .setStreamChunkSize(10);
+        IRpcService<IHello> anRpcService = anRpcFactory.createSingleInstanceService(new HelloService(), IHello.class);
+        IRpcClient<IHello> anRpcClient = anRpcFactory.createClient(IHello.class);
+
+        try
+        {
+            anRpcService.attachDuplexInputChannel(myMessaging.createDuplexInputChannel(myChannelId));
+            anRpcClient.attachDuplexOutputChannel(myMessaging.createDuplexOutputChannel(myChannelId));
+
+            IHello aServiceProxy = anRpcClient.getProxy();
+            
+            // Infinite stream is closed by the client.
+            RpcStream<Integer> anInfiniteStream = aServiceProxy.Range(0, Integer.MAX_VALUE);
+            Iterator<Integer> anIterator = anInfiniteStream.iterator();
+            for (int i = 0; i < 250; ++i)
+            {
+                assertEquals(i, (int)anIterator.next());
+            }
+            anInfiniteStream.close();
+            assertFalse(anIterator.hasNext());
+            
+            // The service fails during streaming.
+            int aReceivedCount = 0;
+            try
+            {
+                for (@SuppressWarnings("unused") Integer anItem : aServiceProxy.Range(0, -25))
+                {
+                    ++aReceivedCount;
+                }
+                fail("Exception was expected.");
+            }
+            catch (RpcException err)
+            {
+                assertEquals("IllegalStateException", err.getServiceExceptionType());
+            }
+            assertEquals(25, aReceivedCount);
+            
+            // The client can still call the service.
+            assertEquals(3, aServiceProxy.Sum(1, 2));
+        }
+        finally
+        {
+            if (anRpcClient.isDuplexOutputChannelAttached())
+            {
+                anRpcClient.detachDuplexOutputChannel();
+            }
+
+            if (anRpcService.isDuplexInputChannelAttached())
+            {
+                anRpcService.detachDuplexInputChannel();
+            }
+        }
+    }
+    
     @Test
     public void rpcNonGenericEvent() throws Exception
     {
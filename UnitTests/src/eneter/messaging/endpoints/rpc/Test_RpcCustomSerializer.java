@@ -0,0 +1,66 @@
+package eneter.messaging.endpoints.rpc;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import eneter.messaging.dataprocessing.serializing.ISerializer;
+import eneter.messaging.dataprocessing.serializing.JavaBinarySerializer;
+
+public class Test_RpcCustomSerializer
+{
+    @Test
+    public void SerializeDeserializeBatch() throws Exception
+    {
+        ISerializer aTestedSerializer = new RpcCustomSerializer(new JavaBinarySerializer());
+
+        byte[] aSerializedData = (byte[])aTestedSerializer.serialize(createBatch(), RpcMessage.class);
+        RpcMessage aDeserializedMessage = aTestedSerializer.deserialize(aSerializedData, RpcMessage.class);
+
+        assertEquals(ERpcRequest.Batch, aDeserializedMessage.Request);
+        assertEquals(2, aDeserializedMessage.SerializedParams.length);
+        assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[])aDeserializedMessage.SerializedParams[0]);
+        assertArrayEquals(new byte[] { 4, 5 }, (byte[])aDeserializedMessage.SerializedParams[1]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void DeserializeBatchWithTooBigCount() throws Exception
+    {
+        ISerializer aTestedSerializer = new RpcCustomSerializer(new JavaBinarySerializer());
+
+        byte[] aSerializedData = (byte[])aTestedSerializer.serialize(createBatch(), RpcMessage.class);
+
+        // Corrupt the number of batched messages which follows the request id and the request flag.
+        for (int i = 5; i < 9; ++i)
+        {
+            aSerializedData[i] = 0x7F;
+        }
+
+        aTestedSerializer.deserialize(aSerializedData, RpcMessage.class);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void DeserializeBatchWithNegativeCount() throws Exception
+    {
+        ISerializer aTestedSerializer = new RpcCustomSerializer(new JavaBinarySerializer());
+
+        byte[] aSerializedData = (byte[])aTestedSerializer.serialize(createBatch(), RpcMessage.class);
+
+        // Corrupt the number of batched messages which follows the request id and the request flag.
+        for (int i = 5; i < 9; ++i)
+        {
+            aSerializedData[i] = (byte)0xFF;
+        }
+
+        aTestedSerializer.deserialize(aSerializedData, RpcMessage.class);
+    }
+
+    private static RpcMessage createBatch()
+    {
+        RpcMessage aMessage = new RpcMessage();
+        aMessage.Id = 1;
+        aMessage.Request = ERpcRequest.Batch;
+        aMessage.SerializedParams = new Object[] { new byte[] { 1, 2, 3 }, new byte[] { 4, 5 } };
+        return aMessage;
+    }
+}
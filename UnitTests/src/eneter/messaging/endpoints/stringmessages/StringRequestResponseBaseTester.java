@@ -195,6 +195,56 @@ public abstract class StringRequestResponseBaseTester
         }
     }
     
+    @Test
+    public void sendReceive_Batch() throws Exception
+    {
+        final ArrayList<String> aReceivedMessages = new ArrayList<String>();
+        final ArrayList<String> aIndividualMessages = new ArrayList<String>();
+        final ManualResetEvent aBatchReceivedEvent = new ManualResetEvent(false);
+        myMessageResponser.batchReceived().subscribe(new EventHandler<StringBatchReceivedEventArgs>()
+        {
+            @Override
+            public void onEvent(Object x, StringBatchReceivedEventArgs y)
+            {
+                aReceivedMessages.addAll(y.getRequestMessages());
+                aBatchReceivedEvent.set();
+            }
+        });
+        myMessageResponser.requestReceived().subscribe(new EventHandler<StringRequestReceivedEventArgs>()
+        {
+            @Override
+            public void onEvent(Object x, StringRequestReceivedEventArgs y)
+            {
+                aIndividualMessages.add(y.getRequestMessage());
+            }
+        });
+        
+        ArrayList<String> aMessages = new ArrayList<String>();
+        for (int i = 0; i < 1000; ++i)
+        {
+            aMessages.add("Message " + i);
+        }
+        aMessages.add("");
+
+        try
+        {
+            myMessageResponser.attachDuplexInputChannel(myDuplexInputChannel);
+            myMessageRequester.attachDuplexOutputChannel(myDuplexOutputChannel);
+
+            myMessageRequester.sendMessages(aMessages);
+
+            assertTrue(aBatchReceivedEvent.waitOne(5000));
+        }
+        finally
+        {
+            myMessageRequester.detachDuplexOutputChannel();
+            myMessageResponser.detachDuplexInputChannel();
+        }
+
+        assertEquals(aMessages, aReceivedMessages);
+        assertEquals(0, aIndividualMessages.size());
+    }
+    
     protected IMessagingSystemFactory myMessagingSystemFactory;
     protected IDuplexOutputChannel myDuplexOutputChannel;
     protected IDuplexInputChannel myDuplexInputChannel;
@@ -2,6 +2,9 @@ package eneter.messaging.endpoints.typedmessages;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.concurrent.*;
+
 import org.junit.*;
 
 import eneter.messaging.dataprocessing.serializing.ISerializer;
@@ -254,6 +257,277 @@ public abstract class SyncTypedMessagesBaseTester
         }
     }
     
+    @Test
+    public void concurrentRequests() throws Exception
+    {
+        final IDuplexTypedMessageReceiver<String, Integer> aReceiver = DuplexTypedMessagesFactory.createDuplexTypedMessageReceiver(String.class, Integer.class);
+        aReceiver.messageReceived().subscribe(new EventHandler<TypedRequestReceivedEventArgs<Integer>>()
+        {
+            @Override
+            public void onEvent(Object x, TypedRequestReceivedEventArgs<Integer> y)
+            {
+                int aResult = y.getRequestMessage() * 10;
+                try
+                {
+                    aReceiver.sendResponseMessage(y.getResponseReceiverId(), Integer.toString(aResult));
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.error("Sending of response message failed.", err);
+                }
+            }
+        });
+        
+        final ISyncDuplexTypedMessageSender<String, Integer> aSender = DuplexTypedMessagesFactory.createSyncDuplexTypedMessageSender(String.class, Integer.class);
+
+        try
+        {
+            aReceiver.attachDuplexInputChannel(InputChannel);
+            aSender.attachDuplexOutputChannel(OutputChannel);
+
+            // Send requests from more threads at the same time.
+            final int aNumberOfThreads = 10;
+            final int aNumberOfRequests = 100;
+            final CountDownLatch aCompleted = new CountDownLatch(aNumberOfThreads);
+            final Exception[] aCaughtException = {null};
+            for (int t = 0; t < aNumberOfThreads; ++t)
+            {
+                final int aThreadIdx = t;
+                ThreadPool.queueUserWorkItem(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            for (int i = 0; i < aNumberOfRequests; ++i)
+                            {
+                                int aRequest = aThreadIdx * aNumberOfRequests + i;
+                                String aResult = aSender.sendRequestMessage(aRequest);
+                                assertEquals(Integer.toString(aRequest * 10), aResult);
+                            }
+                        }
+                        catch (Throwable err)
+                        {
+                            aCaughtException[0] = new Exception(err);
+                        }
+
+                        aCompleted.countDown();
+                    }
+                });
+            }
+            
+            assertTrue(aCompleted.await(60, TimeUnit.SECONDS));
+            assertNull(aCaughtException[0]);
+        }
+        finally
+        {
+            aSender.detachDuplexOutputChannel();
+            aReceiver.detachDuplexInputChannel();
+        }
+    }
+    
+    @Test
+    public void asyncRequests() throws Exception
+    {
+        final IDuplexTypedMessageReceiver<String, Integer> aReceiver = DuplexTypedMessagesFactory.createDuplexTypedMessageReceiver(String.class, Integer.class);
+        aReceiver.messageReceived().subscribe(new EventHandler<TypedRequestReceivedEventArgs<Integer>>()
+        {
+            @Override
+            public void onEvent(Object x, TypedRequestReceivedEventArgs<Integer> y)
+            {
+                int aResult = y.getRequestMessage() * 10;
+                try
+                {
+                    aReceiver.sendResponseMessage(y.getResponseReceiverId(), Integer.toString(aResult));
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.error("Sending of response message failed.", err);
+                }
+            }
+        });
+        
+        ISyncDuplexTypedMessageSender<String, Integer> aSender = DuplexTypedMessagesFactory.createSyncDuplexTypedMessageSender(String.class, Integer.class);
+
+        try
+        {
+            aReceiver.attachDuplexInputChannel(InputChannel);
+            aSender.attachDuplexOutputChannel(OutputChannel);
+
+            ArrayList<Future<String>> aResults = new ArrayList<Future<String>>();
+            for (int i = 0; i < 100; ++i)
+            {
+                aResults.add(aSender.sendRequestMessageAsync(i));
+            }
+            
+            for (int i = 0; i < aResults.size(); ++i)
+            {
+                assertEquals(Integer.toString(i * 10), aResults.get(i).get(30, TimeUnit.SECONDS));
+            }
+        }
+        finally
+        {
+            aSender.detachDuplexOutputChannel();
+            aReceiver.detachDuplexInputChannel();
+        }
+    }
+    
+    @Test
+    public void responsesFromOtherThread() throws Exception
+    {
+        // Responses can be sent from other threads only if requests are correlated.
+        Assume.assumeTrue(((DuplexTypedMessagesFactory)DuplexTypedMessagesFactory).getRequestCorrelation());
+        
+        final int aNumberOfRequests = 10;
+        final ArrayList<TypedRequestReceivedEventArgs<Integer>> aReceivedRequests = new ArrayList<TypedRequestReceivedEventArgs<Integer>>();
+        final CountDownLatch aRequestsReceived = new CountDownLatch(aNumberOfRequests);
+        final IDuplexTypedMessageReceiver<String, Integer> aReceiver = DuplexTypedMessagesFactory.createDuplexTypedMessageReceiver(String.class, Integer.class);
+        aReceiver.messageReceived().subscribe(new EventHandler<TypedRequestReceivedEventArgs<Integer>>()
+        {
+            @Override
+            public void onEvent(Object x, TypedRequestReceivedEventArgs<Integer> y)
+            {
+                synchronized (aReceivedRequests)
+                {
+                    aReceivedRequests.add(y);
+                }
+                aRequestsReceived.countDown();
+            }
+        });
+        
+        ISyncDuplexTypedMessageSender<String, Integer> aSender = DuplexTypedMessagesFactory.createSyncDuplexTypedMessageSender(String.class, Integer.class);
+
+        try
+        {
+            aReceiver.attachDuplexInputChannel(InputChannel);
+            aSender.attachDuplexOutputChannel(OutputChannel);
+
+            ArrayList<Future<String>> aResults = new ArrayList<Future<String>>();
+            for (int i = 0; i < aNumberOfRequests; ++i)
+            {
+                aResults.add(aSender.sendRequestMessageAsync(i));
+            }
+            
+            assertTrue(aRequestsReceived.await(30, TimeUnit.SECONDS));
+            
+            // The message which does not answer any request must not complete any request.
+            String aResponseReceiverId = aReceivedRequests.get(0).getResponseReceiverId();
+            aReceiver.sendResponseMessage(aResponseReceiverId, "unsolicited");
+            
+            // Respond in the reverse order.
+            for (int i = aReceivedRequests.size() - 1; i >= 0; --i)
+            {
+                TypedRequestReceivedEventArgs<Integer> aRequest = aReceivedRequests.get(i);
+                aReceiver.sendResponseMessage(aRequest.getResponseReceiverId(), aRequest.getRequestId(), Integer.toString(aRequest.getRequestMessage() * 10));
+            }
+            
+            for (int i = 0; i < aResults.size(); ++i)
+            {
+                assertEquals(Integer.toString(i * 10), aResults.get(i).get(30, TimeUnit.SECONDS));
+            }
+        }
+        finally
+        {
+            aSender.detachDuplexOutputChannel();
+            aReceiver.detachDuplexInputChannel();
+        }
+    }
+    
+    @Test
+    public void batchResponses() throws Exception
+    {
+        Assume.assumeTrue(((DuplexTypedMessagesFactory)DuplexTypedMessagesFactory).getRequestCorrelation());
+        ((DuplexTypedMessagesFactory)DuplexTypedMessagesFactory).setMessageBatching(true);
+        
+        final IDuplexTypedMessageReceiver<String, Integer> aReceiver = DuplexTypedMessagesFactory.createDuplexTypedMessageReceiver(String.class, Integer.class);
+        aReceiver.batchReceived().subscribe(new EventHandler<TypedBatchReceivedEventArgs<Integer>>()
+        {
+            @Override
+            public void onEvent(Object x, TypedBatchReceivedEventArgs<Integer> y)
+            {
+                try
+                {
+                    // Respond in the reverse order.
+                    for (int i = y.getRequestMessages().size() - 1; i >= 0; --i)
+                    {
+                        int aResult = y.getRequestMessages().get(i) * 10;
+                        aReceiver.sendResponseMessage(y.getResponseReceiverId(), y.getRequestIds().get(i), Integer.toString(aResult));
+                    }
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.error("Sending of response message failed.", err);
+                }
+            }
+        });
+        
+        ISyncDuplexTypedMessageSender<String, Integer> aSender = DuplexTypedMessagesFactory.createSyncDuplexTypedMessageSender(String.class, Integer.class);
+
+        try
+        {
+            aReceiver.attachDuplexInputChannel(InputChannel);
+            aSender.attachDuplexOutputChannel(OutputChannel);
+
+            ArrayList<Future<String>> aResults = new ArrayList<Future<String>>();
+            for (int i = 0; i < 100; ++i)
+            {
+                aResults.add(aSender.sendRequestMessageAsync(i));
+            }
+            
+            for (int i = 0; i < aResults.size(); ++i)
+            {
+                assertEquals(Integer.toString(i * 10), aResults.get(i).get(30, TimeUnit.SECONDS));
+            }
+        }
+        finally
+        {
+            aSender.detachDuplexOutputChannel();
+            aReceiver.detachDuplexInputChannel();
+        }
+    }
+    
+    @Test
+    public void asyncRequestTimeout() throws Exception
+    {
+        Assume.assumeTrue(((DuplexTypedMessagesFactory)DuplexTypedMessagesFactory).getRequestCorrelation());
+        ((DuplexTypedMessagesFactory)DuplexTypedMessagesFactory).setSyncResponseReceiveTimeout(200);
+        
+        // The receiver does not respond.
+        IDuplexTypedMessageReceiver<String, Integer> aReceiver = DuplexTypedMessagesFactory.createDuplexTypedMessageReceiver(String.class, Integer.class);
+        aReceiver.messageReceived().subscribe(new EventHandler<TypedRequestReceivedEventArgs<Integer>>()
+        {
+            @Override
+            public void onEvent(Object x, TypedRequestReceivedEventArgs<Integer> y)
+            {
+            }
+        });
+        
+        ISyncDuplexTypedMessageSender<String, Integer> aSender = DuplexTypedMessagesFactory.createSyncDuplexTypedMessageSender(String.class, Integer.class);
+
+        try
+        {
+            aReceiver.attachDuplexInputChannel(InputChannel);
+            aSender.attachDuplexOutputChannel(OutputChannel);
+
+            Future<String> aResult = aSender.sendRequestMessageAsync(1);
+            try
+            {
+                aResult.get(30, TimeUnit.SECONDS);
+                fail("ExecutionException was expected.");
+            }
+            catch (ExecutionException err)
+            {
+                assertTrue(err.getCause() instanceof TimeoutException);
+            }
+        }
+        finally
+        {
+            aSender.detachDuplexOutputChannel();
+            aReceiver.detachDuplexInputChannel();
+        }
+    }
+    
     protected IDuplexInputChannel InputChannel;
     protected IDuplexOutputChannel OutputChannel;
     protected ISerializer Serializer;
@@ -0,0 +1,60 @@
+package eneter.messaging.endpoints.typedmessages;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import eneter.messaging.dataprocessing.serializing.ISerializer;
+import eneter.messaging.dataprocessing.serializing.JavaBinarySerializer;
+
+public class Test_MultiTypedMessageSerializer
+{
+    @Test
+    public void CompactFrameStartsWithFormatId() throws Exception
+    {
+        ISerializer aTestedSerializer = new MultiTypedMessageSerializer(new JavaBinarySerializer());
+
+        byte[] aSerializedData = (byte[])aTestedSerializer.serialize(createMessage(), MultiTypedMessage.class);
+
+        assertEquals(0x4D, aSerializedData[0]);
+
+        MultiTypedMessage aDeserializedMessage = aTestedSerializer.deserialize(aSerializedData, MultiTypedMessage.class);
+        assertEquals("String", aDeserializedMessage.TypeName);
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5 }, (byte[])aDeserializedMessage.MessageData);
+    }
+
+    @Test
+    public void CompactFrameIsSmallerThanLegacyFrame() throws Exception
+    {
+        ISerializer aLegacySerializer = new JavaBinarySerializer();
+        ISerializer aTestedSerializer = new MultiTypedMessageSerializer(aLegacySerializer);
+
+        byte[] aLegacyData = (byte[])aLegacySerializer.serialize(createMessage(), MultiTypedMessage.class);
+        byte[] aCompactData = (byte[])aTestedSerializer.serialize(createMessage(), MultiTypedMessage.class);
+
+        assertTrue(aCompactData.length < aLegacyData.length);
+    }
+
+    @Test
+    public void DeserializeLegacyFrame() throws Exception
+    {
+        ISerializer aLegacySerializer = new JavaBinarySerializer();
+        ISerializer aTestedSerializer = new MultiTypedMessageSerializer(aLegacySerializer);
+
+        // Frame sent by a sender which does not use the compact format.
+        byte[] aLegacyData = (byte[])aLegacySerializer.serialize(createMessage(), MultiTypedMessage.class);
+        assertTrue(aLegacyData[0] != 0x4D);
+
+        MultiTypedMessage aDeserializedMessage = aTestedSerializer.deserialize(aLegacyData, MultiTypedMessage.class);
+        assertEquals("String", aDeserializedMessage.TypeName);
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5 }, (byte[])aDeserializedMessage.MessageData);
+    }
+
+    private static MultiTypedMessage createMessage()
+    {
+        MultiTypedMessage aMessage = new MultiTypedMessage();
+        aMessage.TypeName = "String";
+        aMessage.MessageData = new byte[] { 1, 2, 3, 4, 5 };
+        return aMessage;
+    }
+}
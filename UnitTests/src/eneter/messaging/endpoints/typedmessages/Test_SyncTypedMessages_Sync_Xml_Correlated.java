@@ -0,0 +1,20 @@
+package eneter.messaging.endpoints.typedmessages;
+
+import org.junit.Before;
+
+import eneter.messaging.messagingsystems.messagingsystembase.IMessagingSystemFactory;
+import eneter.messaging.messagingsystems.synchronousmessagingsystem.SynchronousMessagingSystemFactory;
+
+public class Test_SyncTypedMessages_Sync_Xml_Correlated extends SyncTypedMessagesBaseTester
+{
+    @Before
+    public void Setup() throws Exception
+    {
+        IMessagingSystemFactory aMessaging = new SynchronousMessagingSystemFactory();
+        InputChannel = aMessaging.createDuplexInputChannel("MyChannelId");
+        OutputChannel = aMessaging.createDuplexOutputChannel("MyChannelId");
+
+        DuplexTypedMessagesFactory = new DuplexTypedMessagesFactory()
+            .setRequestCorrelation(true);
+    }
+}
@@ -17,6 +17,7 @@ public abstract class TypedRequestResponseBaseTester
     protected void setup(IMessagingSystemFactory messagingSystemFactory, String channelId, ISerializer serializer) throws Exception
     {
         MessagingSystemFactory = messagingSystemFactory;
+        Serializer = serializer;
 
         DuplexOutputChannel = MessagingSystemFactory.createDuplexOutputChannel(channelId);
         DuplexInputChannel = MessagingSystemFactory.createDuplexInputChannel(channelId);
@@ -193,10 +194,132 @@ public abstract class TypedRequestResponseBaseTester
     }
     
     
+    @Test
+    public void sendReceive_Batch() throws Exception
+    {
+        IDuplexTypedMessagesFactory aMessageFactory = new DuplexTypedMessagesFactory(Serializer)
+            .setMessageBatching(true);
+        IDuplexTypedMessageSender<Integer, Integer> aRequester = aMessageFactory.createDuplexTypedMessageSender(Integer.class, Integer.class);
+        IDuplexTypedMessageReceiver<Integer, Integer> aResponser = aMessageFactory.createDuplexTypedMessageReceiver(Integer.class, Integer.class);
+
+        final ArrayList<Integer> aReceivedMessages = new ArrayList<Integer>();
+        final int[] aNumberOfBatches = {0};
+        aResponser.batchReceived().subscribe(new EventHandler<TypedBatchReceivedEventArgs<Integer>>()
+        {
+            @Override
+            public void onEvent(Object x, TypedBatchReceivedEventArgs<Integer> y)
+            {
+                synchronized (aReceivedMessages)
+                {
+                    ++aNumberOfBatches[0];
+                    aReceivedMessages.addAll(y.getRequestMessages());
+                }
+            }
+        });
+
+        ArrayList<Integer> aMessages = new ArrayList<Integer>();
+        for (int i = 0; i < 1000; ++i)
+        {
+            aMessages.add(i);
+        }
+
+        try
+        {
+            aResponser.attachDuplexInputChannel(DuplexInputChannel);
+            aRequester.attachDuplexOutputChannel(DuplexOutputChannel);
+
+            aRequester.sendRequestMessages(aMessages);
+            aRequester.sendRequestMessage(1000);
+            
+            // Wait until all messages are received.
+            long aStartTime = System.currentTimeMillis();
+            while (System.currentTimeMillis() - aStartTime < 5000)
+            {
+                synchronized (aReceivedMessages)
+                {
+                    if (aReceivedMessages.size() == 1001)
+                    {
+                        break;
+                    }
+                }
+                Thread.sleep(10);
+            }
+        }
+        finally
+        {
+            aRequester.detachDuplexOutputChannel();
+            aResponser.detachDuplexInputChannel();
+        }
+
+        // 1000 messages in one batch and then the single message as the batch of one message.
+        assertEquals(2, aNumberOfBatches[0]);
+        aMessages.add(1000);
+        assertEquals(aMessages, aReceivedMessages);
+    }
+    
+    @Test
+    public void sendReceive_Batch_IndividualEvents() throws Exception
+    {
+        IDuplexTypedMessagesFactory aMessageFactory = new DuplexTypedMessagesFactory(Serializer)
+            .setMessageBatching(true);
+        IDuplexTypedMessageSender<Integer, Integer> aRequester = aMessageFactory.createDuplexTypedMessageSender(Integer.class, Integer.class);
+        IDuplexTypedMessageReceiver<Integer, Integer> aResponser = aMessageFactory.createDuplexTypedMessageReceiver(Integer.class, Integer.class);
+
+        // Nobody is subscribed to batches so messages come one by one.
+        final ArrayList<Integer> aReceivedMessages = new ArrayList<Integer>();
+        aResponser.messageReceived().subscribe(new EventHandler<TypedRequestReceivedEventArgs<Integer>>()
+        {
+            @Override
+            public void onEvent(Object x, TypedRequestReceivedEventArgs<Integer> y)
+            {
+                synchronized (aReceivedMessages)
+                {
+                    aReceivedMessages.add(y.getRequestMessage());
+                }
+            }
+        });
+
+        ArrayList<Integer> aMessages = new ArrayList<Integer>();
+        for (int i = 0; i < 100; ++i)
+        {
+            aMessages.add(i);
+        }
+
+        try
+        {
+            aResponser.attachDuplexInputChannel(DuplexInputChannel);
+            aRequester.attachDuplexOutputChannel(DuplexOutputChannel);
+
+            aRequester.sendRequestMessages(aMessages);
+            
+            // Wait until all messages are received.
+            long aStartTime = System.currentTimeMillis();
+            while (System.currentTimeMillis() - aStartTime < 5000)
+            {
+                synchronized (aReceivedMessages)
+                {
+                    if (aReceivedMessages.size() == aMessages.size())
+                    {
+                        break;
+                    }
+                }
+                Thread.sleep(10);
+            }
+        }
+        finally
+        {
+            aRequester.detachDuplexOutputChannel();
+            aResponser.detachDuplexInputChannel();
+        }
+
+        assertEquals(aMessages, aReceivedMessages);
+    }
+    
     protected IMessagingSystemFactory MessagingSystemFactory;
     protected IDuplexOutputChannel DuplexOutputChannel;
     protected IDuplexInputChannel DuplexInputChannel;
 
     protected IDuplexTypedMessageSender<Integer, Integer> Requester;
     protected IDuplexTypedMessageReceiver<Integer, Integer> Responser;
+    protected ISerializer Serializer;
 }
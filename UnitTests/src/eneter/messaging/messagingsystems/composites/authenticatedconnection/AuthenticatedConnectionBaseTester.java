@@ -12,7 +12,7 @@ import eneter.messaging.messagingsystems.MessagingSystemBaseTester;
 import eneter.messaging.messagingsystems.messagingsystembase.*;
 
 public abstract class AuthenticatedConnectionBaseTester extends MessagingSystemBaseTester
-    implements IGetLoginMessage, IGetHandshakeResponseMessage, IGetHandshakeMessage, IAuthenticate, IHandleAuthenticationCancelled
+    implements IGetLoginMessage, IGetHandshakeResponseMessage, IGetHandshakeMessage, IAuthenticate, IHandleAuthenticationCancelled, IResumeSession
 {
     @Test(expected = TimeoutException.class)
     public void authenticationTimeout() throws Exception
@@ -100,6 +100,79 @@ public abstract class AuthenticatedConnectionBaseTester extends MessagingSystemB
         }
     }
 
+    @Test
+    public void sessionResumed() throws Exception
+    {
+        ((AuthenticatedMessagingFactory)MessagingSystemFactory)
+            .setSessionTicketKey("MySessionTicketKey_0123456789".getBytes("UTF-8"))
+            .setResumeSessionCallback(this);
+
+        IDuplexInputChannel anInputChannel = MessagingSystemFactory.createDuplexInputChannel(ChannelId);
+        IDuplexOutputChannel anOutputChannel = MessagingSystemFactory.createDuplexOutputChannel(ChannelId);
+
+        try
+        {
+            anInputChannel.startListening();
+
+            // The first connection performs the whole authentication.
+            anOutputChannel.openConnection();
+            assertTrue(anOutputChannel.isConnected());
+            assertEquals(1, myAuthenticateCount);
+            anOutputChannel.closeConnection();
+
+            // The reconnection resumes the session.
+            anOutputChannel.openConnection();
+            assertTrue(anOutputChannel.isConnected());
+            assertEquals(1, myAuthenticateCount);
+            assertEquals("MyLoginName", myResumedLoginMessage);
+        }
+        finally
+        {
+            anOutputChannel.closeConnection();
+            anInputChannel.stopListening();
+        }
+    }
+
+    @Test
+    public void sessionTicketRejected() throws Exception
+    {
+        ((AuthenticatedMessagingFactory)MessagingSystemFactory)
+            .setSessionTicketKey("MySessionTicketKey_0123456789".getBytes("UTF-8"))
+            .setResumeSessionCallback(this);
+
+        IDuplexInputChannel anInputChannel = MessagingSystemFactory.createDuplexInputChannel(ChannelId);
+        IDuplexOutputChannel anOutputChannel = MessagingSystemFactory.createDuplexOutputChannel(ChannelId);
+
+        try
+        {
+            anInputChannel.startListening();
+
+            anOutputChannel.openConnection();
+            anOutputChannel.closeConnection();
+
+            // The service refuses to resume the session so the whole authentication must be performed.
+            myResumeSessionRejected = true;
+            anOutputChannel.openConnection();
+            assertTrue(anOutputChannel.isConnected());
+            assertEquals(2, myAuthenticateCount);
+            assertEquals("MyLoginName", myResumedLoginMessage);
+        }
+        finally
+        {
+            myResumeSessionRejected = false;
+
+            anOutputChannel.closeConnection();
+            anInputChannel.stopListening();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sessionTicketKeyTooShort() throws Exception
+    {
+        ((AuthenticatedMessagingFactory)MessagingSystemFactory)
+            .setSessionTicketKey("MySessionKey".getBytes("UTF-8"));
+    }
+
     @Override
     public Object getLoginMessage(String channelId, String responseReceiverId)
     {
@@ -165,6 +238,7 @@ public abstract class AuthenticatedConnectionBaseTester extends MessagingSystemB
             // TODO Auto-generated catch block
             e.printStackTrace();
         }
+        ++myAuthenticateCount;
         return handshakeMessage.equals(aHandshakeResponse);
     }
     
@@ -173,6 +247,13 @@ public abstract class AuthenticatedConnectionBaseTester extends MessagingSystemB
     {
         myAuthenticationCancelled = true;
     }
+    
+    @Override
+    public boolean resumeSession(String channelId, String responseReceiverId, Object loginMessage)
+    {
+        myResumedLoginMessage = loginMessage;
+        return !myResumeSessionRejected;
+    }
 
 
     protected ISerializer myHandshakeSerializer;
@@ -180,4 +261,7 @@ public abstract class AuthenticatedConnectionBaseTester extends MessagingSystemB
     protected boolean myClientCancelAuthentication;
     protected boolean myAuthenticationCancelled;
     protected boolean myConnectionNotGranted;
+    protected int myAuthenticateCount;
+    protected boolean myResumeSessionRejected;
+    protected Object myResumedLoginMessage;
 }
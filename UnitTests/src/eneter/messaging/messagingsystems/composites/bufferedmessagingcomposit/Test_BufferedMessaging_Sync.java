@@ -1,16 +1,23 @@
 package eneter.messaging.messagingsystems.composites.bufferedmessagingcomposit;
 
+import static org.junit.Assert.*;
+
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.PrintStream;
+import java.util.*;
 
 import org.junit.Before;
 import org.junit.Ignore;
+import org.junit.Test;
 
 import eneter.messaging.dataprocessing.serializing.*;
 import eneter.messaging.diagnostic.EneterTrace;
 import eneter.messaging.diagnostic.EneterTrace.EDetailLevel;
-import eneter.messaging.messagingsystems.messagingsystembase.IMessagingSystemFactory;
+import eneter.messaging.messagingsystems.messagingsystembase.*;
 import eneter.messaging.messagingsystems.synchronousmessagingsystem.SynchronousMessagingSystemFactory;
+import eneter.net.system.EventHandler;
+import eneter.net.system.threading.internal.ManualResetEvent;
 
 public class Test_BufferedMessaging_Sync extends BufferedMessagingBaseTester
 {
@@ -26,4 +33,403 @@ public class Test_BufferedMessaging_Sync extends BufferedMessagingBaseTester
         MessagingSystem = new BufferedMessagingFactory(anUnderlyingMessaging, aMaxOfflineTime);
         ConnectionInterruptionFrequency = 5;
     }
+    
+    @Test
+    public void offlineMessagesSpilledToDisk() throws Exception
+    {
+        File aSpillDirectory = new File(System.getProperty("java.io.tmpdir"), "EneterSpillTest");
+        aSpillDirectory.mkdirs();
+        
+        BufferedMessagingFactory aMessaging = new BufferedMessagingFactory(new SynchronousMessagingSystemFactory(), 60000)
+            .setMaxBufferSize(100)
+            .setBufferOverflowPolicy(EBufferOverflowPolicy.SpillToDisk)
+            .setSpillDirectory(aSpillDirectory.getPath());
+        
+        // Messages are bigger than the file segment so that more segments are used.
+        ArrayList<Object> aSentMessages = new ArrayList<Object>();
+        for (int i = 0; i < 300; ++i)
+        {
+            aSentMessages.add((i % 2 == 0) ? (Object)("Message" + i) : new byte[10000 + i]);
+        }
+        
+        List<Object> aReceivedMessages = sendOfflineAndReceive(aMessaging, aSentMessages);
+        
+        assertEquals(aSentMessages.size(), aReceivedMessages.size());
+        for (int i = 0; i < aSentMessages.size(); ++i)
+        {
+            if (aSentMessages.get(i) instanceof String)
+            {
+                assertEquals(aSentMessages.get(i), aReceivedMessages.get(i));
+            }
+            else
+            {
+                assertArrayEquals((byte[])aSentMessages.get(i), (byte[])aReceivedMessages.get(i));
+            }
+        }
+        
+        // The file is deleted when the connection is closed.
+        assertEquals(0, aSpillDirectory.listFiles().length);
+    }
+    
+    @Test
+    public void spillFileReused() throws Exception
+    {
+        File aSpillDirectory = new File(System.getProperty("java.io.tmpdir"), "EneterSpillReuseTest");
+        aSpillDirectory.mkdirs();
+        
+        BufferedMessagingFactory aMessaging = new BufferedMessagingFactory(new SynchronousMessagingSystemFactory(), 60000)
+            .setMaxBufferSize(100)
+            .setBufferOverflowPolicy(EBufferOverflowPolicy.SpillToDisk)
+            .setSpillDirectory(aSpillDirectory.getPath());
+        
+        IDuplexInputChannel anInputChannel = aMessaging.createDuplexInputChannel(ChannelId);
+        IDuplexOutputChannel anOutputChannel = aMessaging.createDuplexOutputChannel(ChannelId);
+        final List<Object> aReceivedMessages = Collections.synchronizedList(new ArrayList<Object>());
+        anInputChannel.messageReceived().subscribe(new EventHandler<DuplexChannelMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+            {
+                aReceivedMessages.add(e.getMessage());
+            }
+        });
+        
+        try
+        {
+            anOutputChannel.openConnection();
+            for (int i = 0; i < 100; ++i)
+            {
+                anOutputChannel.sendMessage(new byte[10000]);
+            }
+            
+            File[] aSpillFiles = aSpillDirectory.listFiles();
+            assertEquals(1, aSpillFiles.length);
+            assertTrue(aSpillFiles[0].length() > 0);
+            
+            anInputChannel.startListening();
+            waitUntilReceived(aReceivedMessages, 100);
+            
+            // When all spilled messages are read the file is truncated and kept for next messages.
+            assertEquals(1, aSpillDirectory.listFiles().length);
+            assertEquals(0, aSpillFiles[0].length());
+        }
+        finally
+        {
+            anOutputChannel.closeConnection();
+            anInputChannel.stopListening();
+        }
+        
+        // The file is deleted when the connection is closed.
+        assertEquals(0, aSpillDirectory.listFiles().length);
+    }
+    
+    @Test
+    public void offlineMessagesDropped() throws Exception
+    {
+        ArrayList<Object> aSentMessages = new ArrayList<Object>();
+        for (int i = 0; i < 10; ++i)
+        {
+            // 20 bytes.
+            aSentMessages.add("Message_" + i + "_");
+        }
+        
+        BufferedMessagingFactory aMessaging = new BufferedMessagingFactory(new SynchronousMessagingSystemFactory(), 60000)
+            .setMaxBufferSize(100)
+            .setBufferOverflowPolicy(EBufferOverflowPolicy.DropNewest);
+        List<Object> aReceivedMessages = sendOfflineAndReceive(aMessaging, aSentMessages);
+        assertEquals(aSentMessages.subList(0, 5), aReceivedMessages);
+        
+        aMessaging.setBufferOverflowPolicy(EBufferOverflowPolicy.DropOldest);
+        aReceivedMessages = sendOfflineAndReceive(aMessaging, aSentMessages);
+        assertEquals(aSentMessages.subList(5, 10), aReceivedMessages);
+    }
+    
+    @Test
+    public void offlineSendingBlocked() throws Exception
+    {
+        BufferedMessagingFactory aMessaging = new BufferedMessagingFactory(new SynchronousMessagingSystemFactory(), 60000)
+            .setMaxBufferSize(100)
+            .setBufferOverflowPolicy(EBufferOverflowPolicy.Block);
+        
+        final IDuplexInputChannel anInputChannel = aMessaging.createDuplexInputChannel(ChannelId);
+        final IDuplexOutputChannel anOutputChannel = aMessaging.createDuplexOutputChannel(ChannelId);
+        final List<Object> aReceivedMessages = Collections.synchronizedList(new ArrayList<Object>());
+        anInputChannel.messageReceived().subscribe(new EventHandler<DuplexChannelMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+            {
+                aReceivedMessages.add(e.getMessage());
+            }
+        });
+        
+        final ManualResetEvent aSendingCompleted = new ManualResetEvent(false);
+        try
+        {
+            anOutputChannel.openConnection();
+            
+            Thread aSendingThread = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for (int i = 0; i < 10; ++i)
+                        {
+                            anOutputChannel.sendMessage("Message_" + i + "_");
+                        }
+                    }
+                    catch (Exception err)
+                    {
+                        EneterTrace.error("Sending failed.", err);
+                    }
+                    aSendingCompleted.set();
+                }
+            });
+            aSendingThread.start();
+            
+            // Only 5 messages fit into the buffer so the sending is blocked.
+            assertFalse(aSendingCompleted.waitOne(1000));
+            
+            anInputChannel.startListening();
+            
+            assertTrue(aSendingCompleted.waitOne(5000));
+            waitUntilReceived(aReceivedMessages, 10);
+            assertEquals("Message_9_", aReceivedMessages.get(9));
+        }
+        finally
+        {
+            anOutputChannel.closeConnection();
+            anInputChannel.stopListening();
+        }
+    }
+    
+    @Test
+    public void offlineMessagesSentInBatches() throws Exception
+    {
+        // Some messages are also read from the file.
+        BufferedMessagingFactory aMessaging = new BufferedMessagingFactory(new SynchronousMessagingSystemFactory(), 60000)
+            .setMaxBufferSize(1000)
+            .setBufferOverflowPolicy(EBufferOverflowPolicy.SpillToDisk)
+            .setReplayBatchSize(100);
+        
+        final IBufferedDuplexInputChannel anInputChannel = (IBufferedDuplexInputChannel)aMessaging.createDuplexInputChannel(ChannelId);
+        final IBufferedDuplexOutputChannel anOutputChannel = (IBufferedDuplexOutputChannel)aMessaging.createDuplexOutputChannel(ChannelId);
+        final List<Object> aReceivedMessages = Collections.synchronizedList(new ArrayList<Object>());
+        anInputChannel.messageReceived().subscribe(new EventHandler<DuplexChannelMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+            {
+                aReceivedMessages.add(e.getMessage());
+            }
+        });
+        
+        try
+        {
+            anOutputChannel.openConnection();
+            for (int i = 0; i < 1000; ++i)
+            {
+                anOutputChannel.sendMessage((i % 2 == 0) ? (Object)("Message" + i) : new byte[] { (byte)i });
+            }
+            assertEquals(-1, anOutputChannel.getLastBacklogDrainTime());
+            
+            anInputChannel.startListening();
+            
+            waitUntilReceived(aReceivedMessages, 1000);
+            for (int i = 0; i < 1000; i += 2)
+            {
+                assertEquals("Message" + i, aReceivedMessages.get(i));
+                assertArrayEquals(new byte[] { (byte)(i + 1) }, (byte[])aReceivedMessages.get(i + 1));
+            }
+            assertTrue(anOutputChannel.getLastBacklogDrainTime() >= 0);
+            
+            // Messages sent when the connection is open are received too.
+            anOutputChannel.sendMessage("Hello");
+            waitUntilReceived(aReceivedMessages, 1001);
+            assertEquals("Hello", aReceivedMessages.get(1000));
+        }
+        finally
+        {
+            anOutputChannel.closeConnection();
+            anInputChannel.stopListening();
+        }
+    }
+    
+    @Test
+    public void offlineResponsesSentInBatches() throws Exception
+    {
+        BufferedMessagingFactory aMessaging = new BufferedMessagingFactory(new SynchronousMessagingSystemFactory(), 60000)
+            .setReplayBatchSize(10);
+        
+        final IBufferedDuplexInputChannel anInputChannel = (IBufferedDuplexInputChannel)aMessaging.createDuplexInputChannel(ChannelId);
+        final IDuplexOutputChannel anOutputChannel = aMessaging.createDuplexOutputChannel(ChannelId, "Client_1");
+        final List<Object> aReceivedMessages = Collections.synchronizedList(new ArrayList<Object>());
+        anOutputChannel.responseMessageReceived().subscribe(new EventHandler<DuplexChannelMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+            {
+                aReceivedMessages.add(e.getMessage());
+            }
+        });
+        
+        try
+        {
+            anInputChannel.startListening();
+            
+            // The response receiver is not connected yet so responses are buffered.
+            for (int i = 0; i < 95; ++i)
+            {
+                anInputChannel.sendResponseMessage("Client_1", "Response" + i);
+            }
+            assertEquals(-1, anInputChannel.getLastBacklogDrainTime());
+            
+            anOutputChannel.openConnection();
+            
+            waitUntilReceived(aReceivedMessages, 95);
+            for (int i = 0; i < 95; ++i)
+            {
+                assertEquals("Response" + i, aReceivedMessages.get(i));
+            }
+            assertTrue(anInputChannel.getLastBacklogDrainTime() >= 0);
+        }
+        finally
+        {
+            anOutputChannel.closeConnection();
+            anInputChannel.stopListening();
+        }
+    }
+    
+    @Test
+    public void reconnectDelayGrows() throws Exception
+    {
+        for (int i = 0; i < 10; ++i)
+        {
+            long anExpectedDelay = Math.min(100L << i, 2000);
+            long aDelay = ReconnectScheduler.getDelay(i, 100, 2000);
+            assertTrue(aDelay >= anExpectedDelay / 2);
+            assertTrue(aDelay <= anExpectedDelay);
+        }
+    }
+    
+    @Test
+    public void manyChannelsReconnect() throws Exception
+    {
+        BufferedMessagingFactory aMessaging = new BufferedMessagingFactory(new SynchronousMessagingSystemFactory(), 60000)
+            .setMinReconnectDelay(50)
+            .setMaxReconnectDelay(200);
+        
+        IDuplexInputChannel anInputChannel = aMessaging.createDuplexInputChannel(ChannelId);
+        final List<Object> aReceivedMessages = Collections.synchronizedList(new ArrayList<Object>());
+        anInputChannel.messageReceived().subscribe(new EventHandler<DuplexChannelMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+            {
+                aReceivedMessages.add(e.getMessage());
+            }
+        });
+        
+        ArrayList<IDuplexOutputChannel> anOutputChannels = new ArrayList<IDuplexOutputChannel>();
+        for (int i = 0; i < 100; ++i)
+        {
+            anOutputChannels.add(aMessaging.createDuplexOutputChannel(ChannelId));
+        }
+        
+        try
+        {
+            for (IDuplexOutputChannel anOutputChannel : anOutputChannels)
+            {
+                anOutputChannel.openConnection();
+                anOutputChannel.sendMessage("Hello");
+            }
+            
+            // Channels try to reconnect with the growing delay.
+            Thread.sleep(1000);
+            anInputChannel.startListening();
+            
+            waitUntilReceived(aReceivedMessages, 100);
+            for (IDuplexOutputChannel anOutputChannel : anOutputChannels)
+            {
+                assertTrue(((IBufferedDuplexOutputChannel)anOutputChannel).isOnline());
+            }
+        }
+        finally
+        {
+            for (IDuplexOutputChannel anOutputChannel : anOutputChannels)
+            {
+                anOutputChannel.closeConnection();
+            }
+            anInputChannel.stopListening();
+        }
+    }
+    
+    @Test
+    public void closeConnectionWhileReconnecting() throws Exception
+    {
+        BufferedMessagingFactory aMessaging = new BufferedMessagingFactory(new SynchronousMessagingSystemFactory(), 60000)
+            .setMinReconnectDelay(5000)
+            .setMaxReconnectDelay(5000);
+        IDuplexOutputChannel anOutputChannel = aMessaging.createDuplexOutputChannel(ChannelId);
+        
+        anOutputChannel.openConnection();
+        Thread.sleep(100);
+        
+        // The next connection attempt waits so closing does not wait for it.
+        long aStartTime = System.currentTimeMillis();
+        anOutputChannel.closeConnection();
+        assertTrue(System.currentTimeMillis() - aStartTime < 1000);
+        assertFalse(anOutputChannel.isConnected());
+    }
+    
+    // Sends messages while the input channel does not listen and then receives them.
+    private List<Object> sendOfflineAndReceive(IMessagingSystemFactory messaging, List<Object> messages) throws Exception
+    {
+        IDuplexInputChannel anInputChannel = messaging.createDuplexInputChannel(ChannelId);
+        IDuplexOutputChannel anOutputChannel = messaging.createDuplexOutputChannel(ChannelId);
+        final List<Object> aReceivedMessages = Collections.synchronizedList(new ArrayList<Object>());
+        anInputChannel.messageReceived().subscribe(new EventHandler<DuplexChannelMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+            {
+                aReceivedMessages.add(e.getMessage());
+            }
+        });
+        
+        try
+        {
+            anOutputChannel.openConnection();
+            for (Object aMessage : messages)
+            {
+                anOutputChannel.sendMessage(aMessage);
+            }
+            
+            anInputChannel.startListening();
+            
+            // Wait until the buffer is sent.
+            Thread.sleep(1000);
+            return new ArrayList<Object>(aReceivedMessages);
+        }
+        finally
+        {
+            anOutputChannel.closeConnection();
+            anInputChannel.stopListening();
+        }
+    }
+    
+    private static void waitUntilReceived(List<Object> receivedMessages, int count) throws Exception
+    {
+        long aStartTime = System.currentTimeMillis();
+        while (receivedMessages.size() < count)
+        {
+            if (System.currentTimeMillis() - aStartTime > 5000)
+            {
+                fail("Messages were not received within the timeout.");
+            }
+            Thread.sleep(10);
+        }
+    }
 }
@@ -1,14 +1,20 @@
 package eneter.messaging.messagingsystems.composites.messagebus;
 
+import static org.junit.Assert.*;
+
 import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.Callable;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Test;
 
 import eneter.messaging.diagnostic.EneterTrace;
 import eneter.messaging.messagingsystems.MessagingSystemBaseTester;
 import eneter.messaging.messagingsystems.messagingsystembase.*;
 import eneter.messaging.messagingsystems.synchronousmessagingsystem.SynchronousMessagingSystemFactory;
+import eneter.net.system.EventHandler;
 
 public class Test_MessageBusMessaging_Sync extends MessagingSystemBaseTester
 {
@@ -41,6 +47,511 @@ public class Test_MessageBusMessaging_Sync extends MessagingSystemBaseTester
         }
     }
     
+    @Test
+    public void connectedClientsAndServices() throws Exception
+    {
+        IDuplexInputChannel aService1 = MessagingSystemFactory.createDuplexInputChannel("Service1_Address");
+        IDuplexInputChannel aService2 = MessagingSystemFactory.createDuplexInputChannel("Service2_Address");
+        IDuplexOutputChannel aClient1 = MessagingSystemFactory.createDuplexOutputChannel("Service1_Address");
+        IDuplexOutputChannel aClient2 = MessagingSystemFactory.createDuplexOutputChannel("Service1_Address");
+        IDuplexOutputChannel aClient3 = MessagingSystemFactory.createDuplexOutputChannel("Service2_Address");
+        
+        try
+        {
+            aService1.startListening();
+            aService2.startListening();
+            aClient1.openConnection();
+            aClient2.openConnection();
+            aClient3.openConnection();
+            
+            String[] aServices = myMessageBus.getConnectedServices();
+            Arrays.sort(aServices);
+            assertArrayEquals(new String[] { "Service1_Address", "Service2_Address" }, aServices);
+            
+            String[] aClients = myMessageBus.getConnectedClients("Service1_Address");
+            Arrays.sort(aClients);
+            String[] anExpectedClients = { aClient1.getResponseReceiverId(), aClient2.getResponseReceiverId() };
+            Arrays.sort(anExpectedClients);
+            assertArrayEquals(anExpectedClients, aClients);
+            assertEquals(2, myMessageBus.GetNumberOfConnectedClients("Service1_Address"));
+            assertEquals(1, myMessageBus.GetNumberOfConnectedClients("Service2_Address"));
+            assertEquals(0, myMessageBus.GetNumberOfConnectedClients("NonExisting_Address"));
+            
+            aClient1.closeConnection();
+            waitUntil(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    return myMessageBus.GetNumberOfConnectedClients("Service1_Address") == 1;
+                }
+            });
+            assertArrayEquals(new String[] { aClient2.getResponseReceiverId() }, myMessageBus.getConnectedClients("Service1_Address"));
+            
+            // When the service stops all its clients are disconnected.
+            aService1.stopListening();
+            waitUntil(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    return myMessageBus.getConnectedServices().length == 1;
+                }
+            });
+            assertArrayEquals(new String[] { "Service2_Address" }, myMessageBus.getConnectedServices());
+            assertEquals(0, myMessageBus.getConnectedClients("Service1_Address").length);
+            assertEquals(1, myMessageBus.GetNumberOfConnectedClients("Service2_Address"));
+        }
+        finally
+        {
+            aClient1.closeConnection();
+            aClient2.closeConnection();
+            aClient3.closeConnection();
+            aService1.stopListening();
+            aService2.stopListening();
+        }
+    }
+    
+    @Test
+    public void loadBalancedServiceInstances() throws Exception
+    {
+        IMessagingSystemFactory anUnderlyingMessaging = new SynchronousMessagingSystemFactory();
+        final IMessageBus aMessageBus = new MessageBusFactory()
+            .setServiceBalancing(EMessageBusServiceBalancing.RoundRobin)
+            .createMessageBus();
+        aMessageBus.attachDuplexInputChannels(anUnderlyingMessaging.createDuplexInputChannel("BalancedServicesAddress"),
+                                              anUnderlyingMessaging.createDuplexInputChannel("BalancedClientsAddress"));
+        IMessagingSystemFactory aMessaging = new MessageBusMessagingFactory("BalancedServicesAddress", "BalancedClientsAddress", anUnderlyingMessaging);
+        
+        IDuplexInputChannel anInstance1 = aMessaging.createDuplexInputChannel("Service1_Address");
+        IDuplexInputChannel anInstance2 = aMessaging.createDuplexInputChannel("Service1_Address");
+        final List<String> anInstance1Clients = Collections.synchronizedList(new ArrayList<String>());
+        final List<String> anInstance2Clients = Collections.synchronizedList(new ArrayList<String>());
+        final List<Object> anInstance2Messages = Collections.synchronizedList(new ArrayList<Object>());
+        anInstance1.responseReceiverConnected().subscribe(new EventHandler<ResponseReceiverEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, ResponseReceiverEventArgs e)
+            {
+                anInstance1Clients.add(e.getResponseReceiverId());
+            }
+        });
+        anInstance2.responseReceiverConnected().subscribe(new EventHandler<ResponseReceiverEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, ResponseReceiverEventArgs e)
+            {
+                anInstance2Clients.add(e.getResponseReceiverId());
+            }
+        });
+        anInstance2.messageReceived().subscribe(new EventHandler<DuplexChannelMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+            {
+                anInstance2Messages.add(e.getMessage());
+            }
+        });
+        
+        IDuplexOutputChannel[] aClients = new IDuplexOutputChannel[4];
+        for (int i = 0; i < aClients.length; ++i)
+        {
+            aClients[i] = aMessaging.createDuplexOutputChannel("Service1_Address");
+        }
+        
+        try
+        {
+            anInstance1.startListening();
+            anInstance2.startListening();
+            for (IDuplexOutputChannel aClient : aClients)
+            {
+                aClient.openConnection();
+            }
+            
+            // Clients are distributed among both instances.
+            waitUntil(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    return anInstance1Clients.size() + anInstance2Clients.size() == 4;
+                }
+            });
+            assertArrayEquals(new String[] { "Service1_Address" }, aMessageBus.getConnectedServices());
+            assertEquals(4, aMessageBus.GetNumberOfConnectedClients("Service1_Address"));
+            assertEquals(2, anInstance1Clients.size());
+            assertEquals(2, anInstance2Clients.size());
+            
+            // When the instance disconnects its clients are moved to the remaining instance.
+            anInstance1.stopListening();
+            waitUntil(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    return anInstance2Clients.size() == 4;
+                }
+            });
+            assertEquals(4, aMessageBus.GetNumberOfConnectedClients("Service1_Address"));
+            
+            for (IDuplexOutputChannel aClient : aClients)
+            {
+                assertTrue(aClient.isConnected());
+                aClient.sendMessage("Hello");
+            }
+            waitUntil(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    return anInstance2Messages.size() == 4;
+                }
+            });
+        }
+        finally
+        {
+            for (IDuplexOutputChannel aClient : aClients)
+            {
+                aClient.closeConnection();
+            }
+            anInstance1.stopListening();
+            anInstance2.stopListening();
+            aMessageBus.detachDuplexInputChannels();
+        }
+    }
+    
+    @Test
+    public void forwardedMessageData() throws Exception
+    {
+        final List<Object> aServiceMessages = Collections.synchronizedList(new ArrayList<Object>());
+        final List<Object> aClientMessages = Collections.synchronizedList(new ArrayList<Object>());
+        final List<Object> aSentToService = Collections.synchronizedList(new ArrayList<Object>());
+        final List<Object> aSentToClient = Collections.synchronizedList(new ArrayList<Object>());
+        myMessageBus.messageToServiceSent().subscribe(new EventHandler<MessageBusMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, MessageBusMessageEventArgs e)
+            {
+                aSentToService.add(e.getMessage());
+            }
+        });
+        myMessageBus.messageToClientSent().subscribe(new EventHandler<MessageBusMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, MessageBusMessageEventArgs e)
+            {
+                aSentToClient.add(e.getMessage());
+            }
+        });
+        
+        final IDuplexInputChannel aService = MessagingSystemFactory.createDuplexInputChannel("Service1_Address");
+        IDuplexOutputChannel aClient = MessagingSystemFactory.createDuplexOutputChannel("Service1_Address");
+        aService.messageReceived().subscribe(new EventHandler<DuplexChannelMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+            {
+                aServiceMessages.add(e.getMessage());
+                try
+                {
+                    aService.sendResponseMessage(e.getResponseReceiverId(), e.getMessage());
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.error("Sending of the response failed.", err);
+                }
+            }
+        });
+        aClient.responseMessageReceived().subscribe(new EventHandler<DuplexChannelMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+            {
+                aClientMessages.add(e.getMessage());
+            }
+        });
+        
+        try
+        {
+            aService.startListening();
+            aClient.openConnection();
+            
+            aClient.sendMessage("Hello");
+            aClient.sendMessage(new byte[] { 1, 2, 3 });
+            
+            waitUntil(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    return aClientMessages.size() == 2 && aSentToClient.size() == 2;
+                }
+            });
+            
+            // Message data is forwarded without a change.
+            for (List<Object> aMessages : Arrays.asList(aServiceMessages, aClientMessages, aSentToService, aSentToClient))
+            {
+                assertEquals(2, aMessages.size());
+                assertEquals("Hello", aMessages.get(0));
+                assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[])aMessages.get(1));
+            }
+        }
+        finally
+        {
+            aClient.closeConnection();
+            aService.stopListening();
+        }
+    }
+    
+    @Test
+    public void clusteredMessageBuses() throws Exception
+    {
+        IMessagingSystemFactory anUnderlyingMessaging = new SynchronousMessagingSystemFactory();
+        
+        // The second message bus of the cluster.
+        final IMessageBus aMessageBus2 = new MessageBusFactory().createMessageBus();
+        aMessageBus2.attachDuplexInputChannels(anUnderlyingMessaging.createDuplexInputChannel("MyServicesAddress2"), anUnderlyingMessaging.createDuplexInputChannel("MyClientsAddress2"));
+        IMessagingSystemFactory aMessaging2 = new MessageBusMessagingFactory("MyServicesAddress2", "MyClientsAddress2", anUnderlyingMessaging);
+        
+        final IDuplexInputChannel aService1 = MessagingSystemFactory.createDuplexInputChannel("Service1_Address");
+        final IDuplexInputChannel aService2 = aMessaging2.createDuplexInputChannel("Service2_Address");
+        IDuplexOutputChannel aClient1 = aMessaging2.createDuplexOutputChannel("Service1_Address");
+        IDuplexOutputChannel aClient2 = MessagingSystemFactory.createDuplexOutputChannel("Service2_Address");
+        
+        final List<Object> aClient1Messages = Collections.synchronizedList(new ArrayList<Object>());
+        final List<Object> aClient2Messages = Collections.synchronizedList(new ArrayList<Object>());
+        EventHandler<DuplexChannelMessageEventArgs> anEcho = new EventHandler<DuplexChannelMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+            {
+                try
+                {
+                    ((IDuplexInputChannel)sender).sendResponseMessage(e.getResponseReceiverId(), e.getMessage());
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.error("Sending of the response failed.", err);
+                }
+            }
+        };
+        aService1.messageReceived().subscribe(anEcho);
+        aService2.messageReceived().subscribe(anEcho);
+        aClient1.responseMessageReceived().subscribe(new EventHandler<DuplexChannelMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+            {
+                aClient1Messages.add(e.getMessage());
+            }
+        });
+        aClient2.responseMessageReceived().subscribe(new EventHandler<DuplexChannelMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+            {
+                aClient2Messages.add(e.getMessage());
+            }
+        });
+        
+        try
+        {
+            // Service registered before the link is announced when the link is open.
+            aService1.startListening();
+            
+            myMessageBus.attachClusterInputChannel(anUnderlyingMessaging.createDuplexInputChannel("MyClusterAddress"));
+            aMessageBus2.connectClusterNode(anUnderlyingMessaging.createDuplexOutputChannel("MyClusterAddress"));
+            
+            // Service registered after the link is announced immediately.
+            aService2.startListening();
+            
+            waitUntil(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    return Arrays.asList(aMessageBus2.getClusterServices()).contains("Service1_Address") &&
+                           Arrays.asList(myMessageBus.getClusterServices()).contains("Service2_Address");
+                }
+            });
+            
+            // Clients connect services registered in the other message bus.
+            aClient1.openConnection();
+            aClient2.openConnection();
+            
+            assertArrayEquals(new String[] { aClient1.getResponseReceiverId() }, myMessageBus.getConnectedClients("Service1_Address"));
+            assertArrayEquals(new String[] { aClient2.getResponseReceiverId() }, aMessageBus2.getConnectedClients("Service2_Address"));
+            
+            aClient1.sendMessage("Hello1");
+            aClient2.sendMessage("Hello2");
+            
+            waitUntil(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    return aClient1Messages.size() == 1 && aClient2Messages.size() == 1;
+                }
+            });
+            assertEquals("Hello1", aClient1Messages.get(0));
+            assertEquals("Hello2", aClient2Messages.get(0));
+            
+            // The client disconnected from the other message bus is disconnected from the service.
+            aClient1.closeConnection();
+            waitUntil(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    return myMessageBus.GetNumberOfConnectedClients("Service1_Address") == 0;
+                }
+            });
+            
+            // The unregistered service is not available in the other message bus.
+            aService2.stopListening();
+            waitUntil(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    return !Arrays.asList(myMessageBus.getClusterServices()).contains("Service2_Address");
+                }
+            });
+            assertFalse(aClient2.isConnected());
+            
+            // If the link is closed services of the other message bus are not available.
+            aMessageBus2.detachDuplexInputChannels();
+            waitUntil(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    return myMessageBus.getClusterServices().length == 0;
+                }
+            });
+        }
+        finally
+        {
+            aClient1.closeConnection();
+            aClient2.closeConnection();
+            aService1.stopListening();
+            aService2.stopListening();
+            aMessageBus2.detachDuplexInputChannels();
+        }
+    }
+    
+    @Test
+    public void serviceHostedByMoreClusteredMessageBuses() throws Exception
+    {
+        IMessagingSystemFactory anUnderlyingMessaging = new SynchronousMessagingSystemFactory();
+        
+        // The second and the third message bus of the cluster host the same service.
+        final IMessageBus aMessageBus2 = new MessageBusFactory().createMessageBus();
+        aMessageBus2.attachDuplexInputChannels(anUnderlyingMessaging.createDuplexInputChannel("MyServicesAddress2"), anUnderlyingMessaging.createDuplexInputChannel("MyClientsAddress2"));
+        IMessagingSystemFactory aMessaging2 = new MessageBusMessagingFactory("MyServicesAddress2", "MyClientsAddress2", anUnderlyingMessaging);
+        
+        final IMessageBus aMessageBus3 = new MessageBusFactory().createMessageBus();
+        aMessageBus3.attachDuplexInputChannels(anUnderlyingMessaging.createDuplexInputChannel("MyServicesAddress3"), anUnderlyingMessaging.createDuplexInputChannel("MyClientsAddress3"));
+        IMessagingSystemFactory aMessaging3 = new MessageBusMessagingFactory("MyServicesAddress3", "MyClientsAddress3", anUnderlyingMessaging);
+        
+        final IDuplexInputChannel aService2 = aMessaging2.createDuplexInputChannel("Service2_Address");
+        final IDuplexInputChannel aService3 = aMessaging3.createDuplexInputChannel("Service2_Address");
+        IDuplexOutputChannel aClient = MessagingSystemFactory.createDuplexOutputChannel("Service2_Address");
+        
+        final List<Object> aClientMessages = Collections.synchronizedList(new ArrayList<Object>());
+        aService2.messageReceived().subscribe(new EventHandler<DuplexChannelMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+            {
+                try
+                {
+                    aService2.sendResponseMessage(e.getResponseReceiverId(), "Service2");
+                }
+                catch (Exception err)
+                {
+                    EneterTrace.error("Sending of the response failed.", err);
+                }
+            }
+        });
+        aClient.responseMessageReceived().subscribe(new EventHandler<DuplexChannelMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object sender, DuplexChannelMessageEventArgs e)
+            {
+                aClientMessages.add(e.getMessage());
+            }
+        });
+        
+        try
+        {
+            myMessageBus.attachClusterInputChannel(anUnderlyingMessaging.createDuplexInputChannel("MyClusterAddress"));
+            aMessageBus2.connectClusterNode(anUnderlyingMessaging.createDuplexOutputChannel("MyClusterAddress"));
+            aMessageBus3.connectClusterNode(anUnderlyingMessaging.createDuplexOutputChannel("MyClusterAddress"));
+            
+            aService2.startListening();
+            aService3.startListening();
+            waitUntil(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    return Arrays.asList(myMessageBus.getClusterServices()).contains("Service2_Address");
+                }
+            });
+            
+            // One of message buses hosting the service unregisters it.
+            aService3.stopListening();
+            
+            // The service is still available via the other message bus.
+            assertArrayEquals(new String[] { "Service2_Address" }, myMessageBus.getClusterServices());
+            
+            aClient.openConnection();
+            aClient.sendMessage("Hello");
+            waitUntil(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    return aClientMessages.size() == 1;
+                }
+            });
+            assertEquals("Service2", aClientMessages.get(0));
+            
+            // When the last message bus unregisters the service it is not available.
+            aService2.stopListening();
+            waitUntil(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    return myMessageBus.getClusterServices().length == 0;
+                }
+            });
+        }
+        finally
+        {
+            aClient.closeConnection();
+            aService2.stopListening();
+            aService3.stopListening();
+            aMessageBus2.detachDuplexInputChannels();
+            aMessageBus3.detachDuplexInputChannels();
+        }
+    }
+    
+    private static void waitUntil(Callable<Boolean> condition) throws Exception
+    {
+        long aStartTime = System.currentTimeMillis();
+        while (!condition.call())
+        {
+            if (System.currentTimeMillis() - aStartTime > 5000)
+            {
+                fail("The condition was not met within the timeout.");
+            }
+            Thread.sleep(10);
+        }
+    }
+    
     
     private IMessageBus myMessageBus;
 }
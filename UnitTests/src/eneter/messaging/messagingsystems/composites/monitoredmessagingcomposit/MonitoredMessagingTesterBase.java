@@ -2,6 +2,8 @@ package eneter.messaging.messagingsystems.composites.monitoredmessagingcomposit;
 
 import static org.junit.Assert.*;
 
+import java.util.*;
+
 import org.junit.Test;
 
 import eneter.messaging.messagingsystems.MessagingSystemBaseTester;
@@ -200,5 +202,129 @@ public abstract class MonitoredMessagingTesterBase extends MessagingSystemBaseTe
         }
     }
     
+    @Test
+    public void B05_Pinging_ManyResponseReceivers() throws Exception
+    {
+        IDuplexInputChannel aDuplexInputChannel = MessagingSystemFactory.createDuplexInputChannel(ChannelId);
+        
+        // Create duplex output channel which will not send ping messages.
+        IDuplexOutputChannel aNotPingingOutputChannel = myUnderlyingMessaging.createDuplexOutputChannel(ChannelId);
+        
+        ArrayList<IDuplexOutputChannel> aDuplexOutputChannels = new ArrayList<IDuplexOutputChannel>();
+        for (int i = 0; i < 50; ++i)
+        {
+            aDuplexOutputChannels.add(MessagingSystemFactory.createDuplexOutputChannel(ChannelId));
+        }
+
+        final AutoResetEvent aConnectionClosedEvent = new AutoResetEvent(false);
+        final List<String> aClosedResponseReceiverIds = Collections.synchronizedList(new ArrayList<String>());
+        aDuplexInputChannel.responseReceiverDisconnected().subscribe(new EventHandler<ResponseReceiverEventArgs>()
+        {
+            @Override
+            public void onEvent(Object x, ResponseReceiverEventArgs y)
+            {
+                aClosedResponseReceiverIds.add(y.getResponseReceiverId());
+                aConnectionClosedEvent.set();
+            }
+        });
+
+        try
+        {
+            aDuplexInputChannel.startListening();
+            
+            for (IDuplexOutputChannel aDuplexOutputChannel : aDuplexOutputChannels)
+            {
+                aDuplexOutputChannel.openConnection();
+            }
+            aNotPingingOutputChannel.openConnection();
+
+            // Only the response receiver which does not send pings is disconnected.
+            assertTrue(aConnectionClosedEvent.waitOne(60000));
+            Thread.sleep(2000);
+            
+            assertEquals(1, aClosedResponseReceiverIds.size());
+            assertEquals(aNotPingingOutputChannel.getResponseReceiverId(), aClosedResponseReceiverIds.get(0));
+            for (IDuplexOutputChannel aDuplexOutputChannel : aDuplexOutputChannels)
+            {
+                assertTrue(aDuplexOutputChannel.isConnected());
+            }
+        }
+        finally
+        {
+            for (IDuplexOutputChannel aDuplexOutputChannel : aDuplexOutputChannels)
+            {
+                aDuplexOutputChannel.closeConnection();
+            }
+            aNotPingingOutputChannel.closeConnection();
+            aDuplexInputChannel.stopListening();
+        }
+    }
+    
+    @Test
+    public void B06_Pinging_NotSentWhileSending() throws Exception
+    {
+        // Create duplex input channel which counts received pings and responds to every received message.
+        final IDuplexInputChannel aDuplexInputChannel = myUnderlyingMessaging.createDuplexInputChannel(ChannelId);
+        IDuplexOutputChannel aDuplexOutputChannel = MessagingSystemFactory.createDuplexOutputChannel(ChannelId);
+        
+        final byte[] aPing = (byte[])new MonitoredMessagingCustomSerializer().serialize(new MonitorChannelMessage(MonitorChannelMessageType.Ping, null), MonitorChannelMessage.class);
+        final int[] aReceivedPings = {0};
+        aDuplexInputChannel.messageReceived().subscribe(new EventHandler<DuplexChannelMessageEventArgs>()
+        {
+            @Override
+            public void onEvent(Object x, DuplexChannelMessageEventArgs y)
+            {
+                if (Arrays.equals(aPing, (byte[])y.getMessage()))
+                {
+                    synchronized (aReceivedPings)
+                    {
+                        ++aReceivedPings[0];
+                    }
+                }
+                
+                try
+                {
+                    aDuplexInputChannel.sendResponseMessage(y.getResponseReceiverId(), aPing);
+                }
+                catch (Exception err)
+                {
+                    fail(err.getMessage());
+                }
+            }
+        });
+
+        try
+        {
+            aDuplexInputChannel.startListening();
+            aDuplexOutputChannel.openConnection();
+            
+            // Send messages more often than pings would be sent.
+            long aStartTime = System.currentTimeMillis();
+            while (System.currentTimeMillis() - aStartTime < 1500)
+            {
+                aDuplexOutputChannel.sendMessage("Hello");
+                Thread.sleep(50);
+            }
+            
+            synchronized (aReceivedPings)
+            {
+                assertEquals(0, aReceivedPings[0]);
+            }
+            
+            // When the connection is idle pings are sent.
+            Thread.sleep(((MonitoredMessagingFactory)MessagingSystemFactory).getPingFrequency() * 3);
+            synchronized (aReceivedPings)
+            {
+                assertTrue(aReceivedPings[0] > 0);
+            }
+            assertTrue(aDuplexOutputChannel.isConnected());
+        }
+        finally
+        {
+            aDuplexOutputChannel.closeConnection();
+            aDuplexInputChannel.stopListening();
+        }
+    }
+    
     protected IMessagingSystemFactory myUnderlyingMessaging;
 }
@@ -0,0 +1,58 @@
+package eneter.messaging.messagingsystems.composites.monitoredmessagingcomposit;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+
+import org.junit.*;
+
+import eneter.messaging.dataprocessing.serializing.ISerializer;
+import eneter.messaging.dataprocessing.serializing.internal.EncoderDecoder;
+
+public class Test_MonitoredMessagingCustomSerializer
+{
+    @Test
+    public void SerializePing() throws Exception
+    {
+        ISerializer aTestedSerializer = new MonitoredMessagingCustomSerializer();
+
+        MonitorChannelMessage aPing = new MonitorChannelMessage(MonitorChannelMessageType.Ping, null);
+        byte[] aSerializedData = (byte[])aTestedSerializer.serialize(aPing, MonitorChannelMessage.class);
+        assertArrayEquals(new byte[] { 10 }, aSerializedData);
+
+        MonitorChannelMessage aDeserializedPing = aTestedSerializer.deserialize(aSerializedData, MonitorChannelMessage.class);
+        assertEquals(MonitorChannelMessageType.Ping, aDeserializedPing.MessageType);
+    }
+
+    @Test
+    public void SerializeMessage() throws Exception
+    {
+        ISerializer aTestedSerializer = new MonitoredMessagingCustomSerializer();
+
+        Object[] aContents = { "Hello \u00e9\u4e16", new byte[] { 1, 2, 3 }, "" };
+        for (Object aContent : aContents)
+        {
+            MonitorChannelMessage aMessage = new MonitorChannelMessage(MonitorChannelMessageType.Message, aContent);
+            byte[] aSerializedData = (byte[])aTestedSerializer.serialize(aMessage, MonitorChannelMessage.class);
+
+            // The format must stay the same so that it is compatible with other platforms.
+            ByteArrayOutputStream anExpectedData = new ByteArrayOutputStream();
+            DataOutputStream aWriter = new DataOutputStream(anExpectedData);
+            aWriter.writeByte(20);
+            new EncoderDecoder().write(aWriter, aContent, true);
+            assertArrayEquals(anExpectedData.toByteArray(), aSerializedData);
+
+            MonitorChannelMessage aDeserializedMessage = aTestedSerializer.deserialize(aSerializedData, MonitorChannelMessage.class);
+            assertEquals(MonitorChannelMessageType.Message, aDeserializedMessage.MessageType);
+            if (aContent instanceof String)
+            {
+                assertEquals(aContent, aDeserializedMessage.MessageContent);
+            }
+            else
+            {
+                assertArrayEquals((byte[])aContent, (byte[])aDeserializedMessage.MessageContent);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package eneter.net.system.collections.generic.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class Test_ConcurrentIntHashMap
+{
+    @Test
+    public void PutGetRemove()
+    {
+        ConcurrentIntHashMap<String> aMap = new ConcurrentIntHashMap<String>();
+        
+        assertNull(aMap.put(1, "1"));
+        assertNull(aMap.put(-1, "-1"));
+        assertNull(aMap.put(Integer.MIN_VALUE, "min"));
+        assertEquals("1", aMap.put(1, "one"));
+        
+        assertEquals(3, aMap.size());
+        assertEquals("one", aMap.get(1));
+        assertEquals("-1", aMap.get(-1));
+        assertEquals("min", aMap.get(Integer.MIN_VALUE));
+        assertNull(aMap.get(2));
+        
+        assertEquals("-1", aMap.remove(-1));
+        assertNull(aMap.remove(-1));
+        assertNull(aMap.get(-1));
+        assertEquals(2, aMap.size());
+    }
+    
+    @Test
+    public void CompareWithHashMap()
+    {
+        ConcurrentIntHashMap<Integer> aMap = new ConcurrentIntHashMap<Integer>();
+        HashMap<Integer, Integer> anExpected = new HashMap<Integer, Integer>();
+        
+        // Note: small range of keys causes many collisions and removals from the middle of probing sequences.
+        Random aRandom = new Random(10);
+        for (int i = 0; i < 100000; ++i)
+        {
+            int aKey = aRandom.nextInt(2000) - 1000;
+            if (aRandom.nextBoolean())
+            {
+                assertEquals(anExpected.put(aKey, i), aMap.put(aKey, i));
+            }
+            else
+            {
+                assertEquals(anExpected.remove(aKey), aMap.remove(aKey));
+            }
+        }
+        
+        assertEquals(anExpected.size(), aMap.size());
+        for (int aKey = -1000; aKey < 1000; ++aKey)
+        {
+            assertEquals(anExpected.get(aKey), aMap.get(aKey));
+        }
+    }
+    
+    @Test
+    public void RemoveAll()
+    {
+        ConcurrentIntHashMap<Integer> aMap = new ConcurrentIntHashMap<Integer>();
+        for (int i = 0; i < 1000; ++i)
+        {
+            aMap.put(i, i);
+        }
+        
+        ArrayList<Integer> aRemoved = aMap.removeAll();
+        assertEquals(1000, aRemoved.size());
+        assertEquals(0, aMap.size());
+        assertNull(aMap.get(10));
+        
+        aMap.put(10, 10);
+        assertEquals(10, (int)aMap.get(10));
+    }
+    
+    @Test
+    public void MultithreadAccess() throws Exception
+    {
+        final ConcurrentIntHashMap<Integer> aMap = new ConcurrentIntHashMap<Integer>();
+        final boolean[] aFailed = { false };
+        
+        ArrayList<Thread> aThreads = new ArrayList<Thread>();
+        for (int t = 0; t < 8; ++t)
+        {
+            final int aThreadId = t;
+            Thread aThread = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for (int i = 0; i < 20000; ++i)
+                    {
+                        int aKey = i * 8 + aThreadId;
+                        aMap.put(aKey, aKey);
+                        if (aMap.get(aKey) != aKey || aMap.remove(aKey) != aKey)
+                        {
+                            aFailed[0] = true;
+                        }
+                    }
+                }
+            });
+            aThreads.add(aThread);
+            aThread.start();
+        }
+        
+        for (Thread aThread : aThreads)
+        {
+            aThread.join();
+        }
+        
+        assertFalse(aFailed[0]);
+        assertEquals(0, aMap.size());
+    }
+}